@@ -0,0 +1,203 @@
+package com.yejianfengblue.java.codec;
+
+import com.yejianfengblue.java.persistent.Address;
+import com.yejianfengblue.java.persistent.User;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link User} in a compact tagged binary format, about half the size of its JSON:
+ * <pre>
+ * object = field* END
+ * field  = tag value, tag = number &lt;&lt; 3 | type, one byte
+ * value  = varint length, UTF-8 bytes   if type is STRING
+ *        | object                       if type is OBJECT
+ * </pre>
+ * A null field is left out, and a null user is no bytes at all. The fields of a user are 1 name and 2 address,
+ * of an address 1 street and 2 city. A reader skips the fields it doesn't know, so fields can be added
+ * without breaking older readers.
+ * <p>
+ * An ASCII string is written char by char into the output, without the byte array of {@link String#getBytes},
+ * so encoding allocates nothing once the output is large enough. Thread safe, it has no state.
+ *
+ * @author yejianfengblue
+ */
+public class BinaryUserCodec implements Codec<User> {
+
+    private static final int STRING = 0;
+
+    private static final int OBJECT = 1;
+
+    private static final int END = 0;
+
+    private static final int USER_NAME = 1;
+
+    private static final int USER_ADDRESS = 2;
+
+    private static final int ADDRESS_STREET = 1;
+
+    private static final int ADDRESS_CITY = 2;
+
+    /////////////////////////////////////////////////////////////////////////// encode
+
+    @Override
+    public void encode(User user, BytesOutput out) {
+
+        if (null == user) {
+            return;
+        }
+        writeString(out, USER_NAME, user.getName());
+        Address address = user.getAddress();
+        if (null != address) {
+            out.write(USER_ADDRESS << 3 | OBJECT);
+            writeString(out, ADDRESS_STREET, address.getStreet());
+            writeString(out, ADDRESS_CITY, address.getCity());
+            out.write(END);
+        }
+        out.write(END);
+    }
+
+    private static void writeString(BytesOutput out, int field, String s) {
+
+        if (null == s) {
+            return;
+        }
+        int length = s.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = s.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            out.ensureCapacity(1 + 5 + length);
+            out.put(field << 3 | STRING);
+            writeVarint(out, length);
+            for (int i = 0; i < length; i++) {
+                out.put(s.charAt(i));
+            }
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.ensureCapacity(1 + 5 + bytes.length);
+            out.put(field << 3 | STRING);
+            writeVarint(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /** 7 bits per byte, the high bit set on all but the last byte, the capacity must have been ensured */
+    private static void writeVarint(BytesOutput out, int value) {
+
+        while ((value & ~0x7F) != 0) {
+            out.put((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.put(value);
+    }
+
+    /////////////////////////////////////////////////////////////////////////// decode
+
+    @Override
+    public User decode(byte[] bytes, int offset, int length) {
+
+        if (0 == length) {
+            return null;
+        }
+        Input in = new Input(bytes, offset, offset + length);
+        String name = null;
+        Address address = null;
+        for (int tag = in.readByte(); END != tag; tag = in.readByte()) {
+            int field = tag >>> 3;
+            int type = tag & 7;
+            if (USER_NAME == field && STRING == type) {
+                name = in.readString();
+            } else if (USER_ADDRESS == field && OBJECT == type) {
+                address = readAddress(in);
+            } else {
+                in.skip(type);
+            }
+        }
+        return new User(name, address);
+    }
+
+    private static Address readAddress(Input in) {
+
+        String street = null;
+        String city = null;
+        for (int tag = in.readByte(); END != tag; tag = in.readByte()) {
+            int field = tag >>> 3;
+            int type = tag & 7;
+            if (ADDRESS_STREET == field && STRING == type) {
+                street = in.readString();
+            } else if (ADDRESS_CITY == field && STRING == type) {
+                city = in.readString();
+            } else {
+                in.skip(type);
+            }
+        }
+        return new Address(street, city);
+    }
+
+    private static final class Input {
+
+        private final byte[] bytes;
+
+        private int position;
+
+        private final int end;
+
+        Input(byte[] bytes, int position, int end) {
+
+            this.bytes = bytes;
+            this.position = position;
+            this.end = end;
+        }
+
+        int readByte() {
+
+            if (position >= end) {
+                throw new IllegalArgumentException("Unexpected end of input at " + position);
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        int readVarint() {
+
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if (0 == (b & 0x80)) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at " + position);
+        }
+
+        String readString() {
+
+            int length = readVarint();
+            if (length < 0 || length > end - position) {
+                throw new IllegalArgumentException("String of " + length + " bytes past the end of input at " + position);
+            }
+            String s = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return s;
+        }
+
+        void skip(int type) {
+
+            if (STRING == type) {
+                int length = readVarint();
+                if (length < 0 || length > end - position) {
+                    throw new IllegalArgumentException("String of " + length + " bytes past the end of input at " + position);
+                }
+                position += length;
+            } else if (OBJECT == type) {
+                for (int tag = readByte(); END != tag; tag = readByte()) {
+                    skip(tag & 7);
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown type " + type + " at " + (position - 1));
+            }
+        }
+    }
+}
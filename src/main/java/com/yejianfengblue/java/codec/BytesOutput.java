@@ -0,0 +1,76 @@
+package com.yejianfengblue.java.codec;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A growable byte array to encode into, {@link #reset()} and reused for every value,
+ * so the array is only allocated when a value is larger than any before.
+ * Unlike {@link java.io.ByteArrayOutputStream}, it is not synchronized, and the array is read in place.
+ * Not thread safe, keep one per thread.
+ *
+ * @author yejianfengblue
+ */
+public class BytesOutput extends OutputStream {
+
+    private byte[] bytes;
+
+    private int size;
+
+    public BytesOutput(int initialCapacity) {
+        bytes = new byte[initialCapacity];
+    }
+
+    public BytesOutput reset() {
+
+        size = 0;
+        return this;
+    }
+
+    /**
+     * @return the array written into, valid from 0 to {@link #size()}, until the next write
+     */
+    public byte[] array() {
+        return bytes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    /**
+     * Make room for {@code length} more bytes
+     */
+    void ensureCapacity(int length) {
+
+        if (size + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(size + length, bytes.length << 1));
+        }
+    }
+
+    @Override
+    public void write(int b) {
+
+        ensureCapacity(1);
+        bytes[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+
+        ensureCapacity(len);
+        System.arraycopy(b, off, bytes, size, len);
+        size += len;
+    }
+
+    /**
+     * Write a byte, the capacity must have been ensured
+     */
+    void put(int b) {
+        bytes[size++] = (byte) b;
+    }
+}
@@ -0,0 +1,24 @@
+package com.yejianfengblue.java.codec;
+
+/**
+ * Encodes values into a reusable {@link BytesOutput} and decodes them from bytes,
+ * without an intermediate {@code String} of the whole value.
+ *
+ * @author yejianfengblue
+ */
+public interface Codec<T> {
+
+    /**
+     * Append the encoded value to the output
+     */
+    void encode(T value, BytesOutput out);
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not an encoded value
+     */
+    T decode(byte[] bytes, int offset, int length);
+
+    default T decode(BytesOutput in) {
+        return decode(in.array(), 0, in.size());
+    }
+}
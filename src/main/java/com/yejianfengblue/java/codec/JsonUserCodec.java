@@ -0,0 +1,134 @@
+package com.yejianfengblue.java.codec;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.yejianfengblue.java.persistent.Address;
+import com.yejianfengblue.java.persistent.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * {@link User} as the same JSON as Jackson databind writes for the {@code User} of {@code DeepCopyTest},
+ * {@code {"name":"Apple","address":{"street":"Apple Street","city":"Apple City"}}},
+ * but written by a {@link JsonGenerator} straight into a {@link BytesOutput},
+ * and read by a {@link JsonParser} straight from the bytes, without the {@code String} of
+ * {@code writeValueAsString} and without the bean introspection of databind.
+ * <p>
+ * Fields may come in any order, unknown fields are skipped and a missing field is null.
+ * Thread safe, like the {@link JsonFactory}.
+ *
+ * @author yejianfengblue
+ */
+public class JsonUserCodec implements Codec<User> {
+
+    private final JsonFactory factory;
+
+    public JsonUserCodec() {
+        this(new JsonFactory());
+    }
+
+    public JsonUserCodec(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void encode(User user, BytesOutput out) {
+
+        try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+            if (null == user) {
+                generator.writeNull();
+                return;
+            }
+            generator.writeStartObject();
+            generator.writeStringField("name", user.getName());
+            generator.writeFieldName("address");
+            Address address = user.getAddress();
+            if (null == address) {
+                generator.writeNull();
+            } else {
+                generator.writeStartObject();
+                generator.writeStringField("street", address.getStreet());
+                generator.writeStringField("city", address.getCity());
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public User decode(byte[] bytes, int offset, int length) {
+
+        try (JsonParser parser = factory.createParser(bytes, offset, length)) {
+            parser.nextToken();
+            return readUser(parser);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static User readUser(JsonParser parser) throws IOException {
+
+        if (!startObject(parser)) {
+            return null;
+        }
+        String name = null;
+        Address address = null;
+        while (JsonToken.FIELD_NAME == parser.nextToken()) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("name".equals(field)) {
+                name = parser.getValueAsString();
+            } else if ("address".equals(field)) {
+                address = readAddress(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new User(name, address);
+    }
+
+    private static Address readAddress(JsonParser parser) throws IOException {
+
+        if (!startObject(parser)) {
+            return null;
+        }
+        String street = null;
+        String city = null;
+        while (JsonToken.FIELD_NAME == parser.nextToken()) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("street".equals(field)) {
+                street = parser.getValueAsString();
+            } else if ("city".equals(field)) {
+                city = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Address(street, city);
+    }
+
+    /**
+     * @return true at the start of an object, false at null
+     */
+    private static boolean startObject(JsonParser parser) throws IOException {
+
+        JsonToken token = parser.currentToken();
+        if (JsonToken.VALUE_NULL == token) {
+            return false;
+        }
+        if (JsonToken.START_OBJECT != token) {
+            throw new JsonParseException(parser, "Expected an object but was " + token);
+        }
+        return true;
+    }
+}
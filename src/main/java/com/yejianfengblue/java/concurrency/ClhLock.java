@@ -0,0 +1,62 @@
+package com.yejianfengblue.java.concurrency;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A CLH queue lock, fair by construction.
+ * <p>
+ * A thread enqueues its node with one atomic swap of the tail, then spins on the node of its predecessor only,
+ * so every waiter spins on a different cache line, and the lock is granted in arrival order.
+ * Unlocking is a plain volatile write, which is seen by the successor alone.
+ * <p>
+ * After a short spin a waiter yields, so a preempted lock holder or predecessor can run
+ * when there are more threads than cores. There is no parking, so it only suits short critical sections.
+ * It is not reentrant.
+ *
+ * @author yejianfengblue
+ * @see <a href="https://www.cs.rochester.edu/research/synchronization/pseudocode/ss.html">Scalable Synchronization</a>
+ */
+public class ClhLock {
+
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private static final class Node {
+
+        volatile boolean locked;
+    }
+
+    private final AtomicReference<Node> tail = new AtomicReference<>(new Node());
+
+    /** the node this thread enqueues next time */
+    private final ThreadLocal<Node> ownNode = ThreadLocal.withInitial(Node::new);
+
+    /** the predecessor of the node this thread enqueued, recycled as its own node on unlock */
+    private final ThreadLocal<Node> predecessor = new ThreadLocal<>();
+
+    public void lock() {
+
+        Node node = ownNode.get();
+        node.locked = true;
+        Node pred = tail.getAndSet(node);
+        predecessor.set(pred);
+        int spins = 0;
+        while (pred.locked) {
+            if (++spins < SPINS_BEFORE_YIELD) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Must be called by the thread holding the lock
+     */
+    public void unlock() {
+
+        Node node = ownNode.get();
+        node.locked = false;
+        // the successor may still be spinning on this node, so take the predecessor's node, which nobody reads any more
+        ownNode.set(predecessor.get());
+    }
+}
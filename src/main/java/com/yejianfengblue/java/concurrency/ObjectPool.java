@@ -0,0 +1,535 @@
+package com.yejianfengblue.java.concurrency;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of reusable objects, the PrintQueue of {@code SemaphoreTest} generalized from 3 printers
+ * to any resource created by a factory, such as connections.
+ * <p>
+ * Every pooled object has a state which is switched between free and in use by CAS.
+ * The lists below only hold hints where a free object may be, the CAS decides who gets it:
+ * <ol>
+ *     <li>each thread caches the last few objects it returned, and takes them back first,
+ *     so a thread which acquires and releases in a loop hits its own cache without touching shared state
+ *     other than the CAS of the object</li>
+ *     <li>objects returned while the thread cache is full, or while other threads are waiting,
+ *     go to a shared lock-free overflow queue</li>
+ *     <li>otherwise it creates an object, up to the max size</li>
+ *     <li>otherwise it scans all objects for a free one sitting in the cache of another thread</li>
+ *     <li>otherwise it waits until an object is returned or the timeout elapses</li>
+ * </ol>
+ * Reading the clock on every acquire and release would cost more than the rest of a thread cache hit,
+ * so lease times are only measured when asked for in the constructor, or while leak detection is on.
+ * {@link #detectLeaks()} reports objects leased for longer than the leak detection threshold,
+ * with the stack trace of the acquire.
+ * {@link #evictIdle(Duration)} destroys objects which have not been used since earlier sweeps,
+ * without any clock reading on the hot path, so its precision is the interval between sweeps.
+ * Call both periodically, e.g. from a {@link java.util.concurrent.ScheduledExecutorService}.
+ *
+ * @author yejianfengblue
+ */
+public class ObjectPool<T> implements AutoCloseable {
+
+    private static final int FREE = 0;
+
+    private static final int IN_USE = 1;
+
+    private static final int REMOVED = 2;
+
+    private static final int THREAD_CACHE_SIZE = 4;
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    private final int maxSize;
+
+    private final Supplier<T> factory;
+
+    private final Consumer<T> destroyer;
+
+    private final boolean recordLeaseTime;
+
+    /** every live object, scanned as the last resort */
+    private final CopyOnWriteArrayList<Slot<T>> all = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final ThreadLocal<ArrayDeque<Slot<T>>> threadCache = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final ConcurrentLinkedQueue<Slot<T>> overflow = new ConcurrentLinkedQueue<>();
+
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    private final Condition returned = waitLock.newCondition();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    /** 0 is off */
+    private volatile long leakDetectionThresholdNanos;
+
+    private final LongAdder threadCacheHits = new LongAdder();
+
+    private final LongAdder sharedHits = new LongAdder();
+
+    private final LongAdder createdCount = new LongAdder();
+
+    private final LongAdder waitCount = new LongAdder();
+
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private final LongAdder leaseCount = new LongAdder();
+
+    private final LongAdder timedLeaseCount = new LongAdder();
+
+    private final LongAdder leaseNanos = new LongAdder();
+
+    private final AtomicLong maxLeaseNanos = new AtomicLong();
+
+    /**
+     * @param destroyer called when an object is evicted or the pool is closed
+     */
+    public ObjectPool(int maxSize, Supplier<T> factory, Consumer<T> destroyer) {
+        this(maxSize, factory, destroyer, false);
+    }
+
+    /**
+     * @param destroyer       called when an object is evicted or the pool is closed
+     * @param recordLeaseTime whether to measure every lease, see {@link #getMeanLeaseNanos()}
+     */
+    public ObjectPool(int maxSize, Supplier<T> factory, Consumer<T> destroyer, boolean recordLeaseTime) {
+
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.factory = Objects.requireNonNull(factory);
+        this.destroyer = Objects.requireNonNull(destroyer);
+        this.recordLeaseTime = recordLeaseTime;
+    }
+
+    /**
+     * The lease of a pooled object, a new one for every acquire. Return the object with {@link #close()},
+     * and don't use it afterwards, since the object is handed to the next borrower.
+     * Closing a lease again, e.g. a stale reference kept by a previous borrower, fails instead of freeing
+     * the object under its current borrower.
+     */
+    public static final class PooledObject<T> implements AutoCloseable {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<PooledObject> CLOSED =
+                AtomicIntegerFieldUpdater.newUpdater(PooledObject.class, "closed");
+
+        private final Slot<T> slot;
+
+        private volatile int closed;
+
+        private PooledObject(Slot<T> slot) {
+            this.slot = slot;
+        }
+
+        public T get() {
+            return slot.object;
+        }
+
+        /**
+         * @throws IllegalStateException if the lease is already closed
+         */
+        @Override
+        public void close() {
+
+            if (!CLOSED.compareAndSet(this, 0, 1)) {
+                throw new IllegalStateException("Lease is already closed: " + slot.object);
+            }
+            slot.pool.release(slot);
+        }
+    }
+
+    /**
+     * A pooled object and its state, which outlives the leases
+     */
+    private static final class Slot<T> {
+
+        private final ObjectPool<T> pool;
+
+        private final T object;
+
+        private final AtomicInteger state = new AtomicInteger(IN_USE);
+
+        /** 0 unless lease time or leaks are measured */
+        private volatile long leasedAtNanos;
+
+        /** set by every release, cleared by every idle sweep */
+        private volatile boolean usedSinceSweep = true;
+
+        /** when a sweep first found it unused */
+        private long idleSinceNanos;
+
+        /** the stack of the acquire, only captured when leak detection is on */
+        private volatile Throwable leasedBy;
+
+        private Slot(ObjectPool<T> pool, T object) {
+            this.pool = pool;
+            this.object = object;
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////// acquire
+
+    /**
+     * Wait until an object is available
+     */
+    public PooledObject<T> acquire() throws InterruptedException {
+        return acquire(false, 0);
+    }
+
+    /**
+     * Wait until an object is available or the timeout elapses
+     *
+     * @return {@code null} if the timeout elapsed
+     */
+    public PooledObject<T> acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(true, unit.toNanos(timeout));
+    }
+
+    private PooledObject<T> acquire(boolean timed, long nanos) throws InterruptedException {
+
+        if (closed) {
+            throw new IllegalStateException("Pool closed");
+        }
+        ArrayDeque<Slot<T>> cache = threadCache.get();
+        Slot<T> pooled;
+        while (null != (pooled = cache.pollLast())) {
+            if (pooled.state.compareAndSet(FREE, IN_USE)) {
+                threadCacheHits.increment();
+                return leased(pooled);
+            }
+            // taken by another thread's scan or evicted, drop the stale hint
+        }
+
+        if (null != (pooled = takeShared())) {
+            return leased(pooled);
+        }
+
+        long deadline = System.nanoTime() + nanos;
+        waitLock.lockInterruptibly();
+        try {
+            waiters.incrementAndGet();
+            try {
+                // re-check after announcing the wait, a release either sees the waiter or is seen here
+                boolean waited = false;
+                while (null == (pooled = takeShared())) {
+                    if (!waited) {
+                        waitCount.increment();
+                        waited = true;
+                    }
+                    if (timed) {
+                        nanos = deadline - System.nanoTime();
+                        if (nanos <= 0) {
+                            timeoutCount.increment();
+                            return null;
+                        }
+                        returned.awaitNanos(nanos);
+                    } else {
+                        returned.await();
+                    }
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            waitLock.unlock();
+        }
+        return leased(pooled);
+    }
+
+    /**
+     * Poll the overflow queue, create, or scan for an object free in another thread's cache
+     */
+    private Slot<T> takeShared() {
+
+        if (closed) {
+            throw new IllegalStateException("Pool closed");
+        }
+        Slot<T> pooled;
+        while (null != (pooled = overflow.poll())) {
+            if (pooled.state.compareAndSet(FREE, IN_USE)) {
+                sharedHits.increment();
+                return pooled;
+            }
+        }
+        if (null != (pooled = tryCreate())) {
+            return pooled;
+        }
+        for (Slot<T> candidate : all) {
+            if (candidate.state.compareAndSet(FREE, IN_USE)) {
+                sharedHits.increment();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private Slot<T> tryCreate() {
+
+        int current;
+        do {
+            current = size.get();
+            if (current >= maxSize) {
+                return null;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+
+        T object;
+        try {
+            object = Objects.requireNonNull(factory.get());
+        } catch (RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+        Slot<T> pooled = new Slot<>(this, object);
+        all.add(pooled);
+        createdCount.increment();
+        return pooled;
+    }
+
+    private PooledObject<T> leased(Slot<T> pooled) {
+
+        boolean detectLeaks = leakDetectionThresholdNanos > 0;
+        if (recordLeaseTime || detectLeaks) {
+            pooled.leasedAtNanos = System.nanoTime();
+        }
+        if (detectLeaks) {
+            pooled.leasedBy = new Throwable("Leased by " + Thread.currentThread().getName());
+        }
+        return new PooledObject<>(pooled);
+    }
+
+    /////////////////////////////////////////////////////////////////////////// release
+
+    private void release(Slot<T> pooled) {
+
+        long leasedAt = pooled.leasedAtNanos;
+        if (0 != leasedAt) {
+            pooled.leasedAtNanos = 0;
+            pooled.leasedBy = null;
+        }
+        pooled.usedSinceSweep = true;
+        boolean closing = closed;
+        if (!pooled.state.compareAndSet(IN_USE, closing ? REMOVED : FREE)) {
+            throw new IllegalStateException("Object is not leased: " + pooled.object);
+        }
+        leaseCount.increment();
+        if (0 != leasedAt) {
+            long lease = System.nanoTime() - leasedAt;
+            leaseNanos.add(lease);
+            timedLeaseCount.increment();
+            if (lease > maxLeaseNanos.get()) {
+                maxLeaseNanos.accumulateAndGet(lease, Math::max);
+            }
+        }
+
+        if (closing) {
+            remove(pooled);
+            return;
+        }
+        if (closed && pooled.state.compareAndSet(FREE, REMOVED)) {
+            remove(pooled);  // closed after the check above, and its scan saw the object still leased
+            return;
+        }
+        if (waiters.get() > 0) {
+            overflow.offer(pooled);
+            waitLock.lock();
+            try {
+                returned.signal();
+            } finally {
+                waitLock.unlock();
+            }
+            return;
+        }
+        ArrayDeque<Slot<T>> cache = threadCache.get();
+        if (cache.size() < THREAD_CACHE_SIZE) {
+            cache.addLast(pooled);
+        } else {
+            overflow.offer(pooled);
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////// housekeeping
+
+    /**
+     * Destroy free objects not returned since a sweep at least {@code maxIdle} ago.
+     * Called from one thread at a time.
+     *
+     * @return the number of objects destroyed
+     */
+    public synchronized int evictIdle(Duration maxIdle) {
+
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Slot<T> pooled : all) {
+            if (pooled.usedSinceSweep) {
+                pooled.usedSinceSweep = false;
+                pooled.idleSinceNanos = now;
+            } else if (now - pooled.idleSinceNanos >= maxIdle.toNanos() && pooled.state.compareAndSet(FREE, REMOVED)) {
+                if (pooled.usedSinceSweep) {
+                    pooled.state.set(FREE);  // taken and returned since the check above, keep it
+                    continue;
+                }
+                remove(pooled);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * The object must be in the removed state already
+     */
+    private void remove(Slot<T> pooled) {
+
+        if (all.remove(pooled)) {
+            size.decrementAndGet();
+            try {
+                destroyer.accept(pooled.object);
+            } catch (RuntimeException e) {
+                log.warn("Failed to destroy {}", pooled.object, e);
+            }
+        }
+    }
+
+    /**
+     * Capture the stack trace of every acquire from now on, and report leases longer than the threshold
+     * in {@link #detectLeaks()}. A zero threshold turns it off.
+     */
+    public void setLeakDetectionThreshold(Duration threshold) {
+        this.leakDetectionThresholdNanos = threshold.toNanos();
+    }
+
+    /**
+     * Log a warning with the acquire stack trace of every object leased for longer than the leak detection threshold
+     *
+     * @return the number of suspected leaks
+     */
+    public int detectLeaks() {
+
+        long threshold = leakDetectionThresholdNanos;
+        if (threshold <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        int leaks = 0;
+        for (Slot<T> pooled : all) {
+            Throwable leasedBy = pooled.leasedBy;
+            long leasedAt = pooled.leasedAtNanos;
+            if (IN_USE == pooled.state.get() && null != leasedBy && 0 != leasedAt && now - leasedAt > threshold) {
+                log.warn("Possible leak of {}, leased for {} ms", pooled.object,
+                        TimeUnit.NANOSECONDS.toMillis(now - leasedAt), leasedBy);
+                leaks++;
+            }
+        }
+        return leaks;
+    }
+
+    /**
+     * Destroy the free objects now, and the leased ones when they are returned
+     */
+    @Override
+    public void close() {
+
+        closed = true;
+        for (Slot<T> pooled : all) {
+            if (pooled.state.compareAndSet(FREE, REMOVED)) {
+                remove(pooled);
+            }
+        }
+        overflow.clear();
+        waitLock.lock();
+        try {
+            returned.signalAll();
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////// metrics
+
+    /**
+     * @return the number of live objects, free or leased
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getLeasedCount() {
+
+        int leased = 0;
+        for (Slot<T> pooled : all) {
+            if (IN_USE == pooled.state.get()) {
+                leased++;
+            }
+        }
+        return leased;
+    }
+
+    /** acquires served from the thread's own cache */
+    public long getThreadCacheHits() {
+        return threadCacheHits.sum();
+    }
+
+    /** acquires served from the overflow queue or another thread's cache */
+    public long getSharedHits() {
+        return sharedHits.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /** the number of completed leases */
+    public long getLeaseCount() {
+        return leaseCount.sum();
+    }
+
+    /**
+     * @return the mean of the measured leases, 0 unless the pool was created to record lease time
+     * or leak detection was on
+     */
+    public long getMeanLeaseNanos() {
+
+        long count = timedLeaseCount.sum();
+        return 0 == count ? 0 : leaseNanos.sum() / count;
+    }
+
+    public long getMaxLeaseNanos() {
+        return maxLeaseNanos.get();
+    }
+}
@@ -0,0 +1,51 @@
+package com.yejianfengblue.java.concurrency;
+
+import java.util.Objects;
+
+/**
+ * An immutable pair of prices, read together so that price1 and price2 are from the same write.
+ *
+ * @author yejianfengblue
+ */
+public final class Prices {
+
+    private final int price1;
+
+    private final int price2;
+
+    public Prices(int price1, int price2) {
+        this.price1 = price1;
+        this.price2 = price2;
+    }
+
+    public int getPrice1() {
+        return price1;
+    }
+
+    public int getPrice2() {
+        return price2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Prices)) {
+            return false;
+        }
+        Prices that = (Prices) o;
+        return price1 == that.price1 && price2 == that.price2;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(price1, price2);
+    }
+
+    @Override
+    public String toString() {
+        return "Prices(price1=" + price1 + ", price2=" + price2 + ")";
+    }
+}
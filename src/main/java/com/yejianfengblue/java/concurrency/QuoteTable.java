@@ -0,0 +1,82 @@
+package com.yejianfengblue.java.concurrency;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A table of {@link Prices} by symbol on a {@link SnapshotStore}.
+ * <p>
+ * {@link #publish(Map)} copies the current table, applies a batch of quotes to the copy off-lock,
+ * then publishes the copy with one CAS. A reader sees either none or all of a batch, and never waits for a writer.
+ * A publish costs a copy of the whole table, so writers should batch their updates rather than publish quote by quote.
+ *
+ * @author yejianfengblue
+ */
+public class QuoteTable {
+
+    private final SnapshotStore<Snapshot> store = new SnapshotStore<>(new Snapshot(0, Collections.emptyMap()));
+
+    /**
+     * An immutable version of the table
+     */
+    public static final class Snapshot {
+
+        private final long version;
+
+        private final Map<String, Prices> quotes;
+
+        private Snapshot(long version, Map<String, Prices> quotes) {
+            this.version = version;
+            this.quotes = quotes;
+        }
+
+        /** incremented by every publish */
+        public long getVersion() {
+            return version;
+        }
+
+        /** @return {@code null} if the symbol was never published */
+        public Prices get(String symbol) {
+            return quotes.get(symbol);
+        }
+
+        /** @return an unmodifiable view */
+        public Map<String, Prices> getQuotes() {
+            return quotes;
+        }
+
+        public int size() {
+            return quotes.size();
+        }
+    }
+
+    /**
+     * @return the latest quote of the symbol, or {@code null} if it was never published
+     */
+    public Prices get(String symbol) {
+        return store.get().get(symbol);
+    }
+
+    /**
+     * @return the latest table, read quotes of several symbols from it to have them from the same version
+     */
+    public Snapshot snapshot() {
+        return store.get();
+    }
+
+    /**
+     * Add or replace the quotes of a batch of symbols as one version
+     *
+     * @return the published version
+     */
+    public Snapshot publish(Map<String, Prices> batch) {
+
+        Map<String, Prices> updates = new HashMap<>(batch);  // so the batch can't change between retries
+        return store.update(current -> {
+            Map<String, Prices> quotes = new HashMap<>(current.quotes);
+            quotes.putAll(updates);
+            return new Snapshot(current.version + 1, Collections.unmodifiableMap(quotes));
+        });
+    }
+}
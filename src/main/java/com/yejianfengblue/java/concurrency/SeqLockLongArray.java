@@ -0,0 +1,138 @@
+package com.yejianfengblue.java.concurrency;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A fixed-size array of {@code long} fields guarded by a seqlock, for one writer and many readers.
+ * <p>
+ * The writer makes the version odd, writes the fields in place, then makes the version even again.
+ * A reader reads the version, copies the fields, and reads the version again.
+ * If the version was odd or has changed, a write overlapped and the reader retries.
+ * So nothing is allocated per write, unlike a copy-on-write snapshot,
+ * and readers write nothing to shared memory, unlike a read lock.
+ * <p>
+ * Only one thread may write at a time, concurrent writers must be serialized by the caller.
+ * A reader can starve while the writer keeps writing, so it suits short writes with gaps in between.
+ *
+ * @author yejianfengblue
+ */
+public class SeqLockLongArray {
+
+    private static final VarHandle VERSION;
+
+    private static final VarHandle FIELD = MethodHandles.arrayElementVarHandle(long[].class);
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(SeqLockLongArray.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long[] fields;
+
+    /** odd while a write is in progress */
+    @SuppressWarnings("unused")  // accessed through VERSION
+    private long version;
+
+    public SeqLockLongArray(int length) {
+        this.fields = new long[length];
+    }
+
+    public int length() {
+        return fields.length;
+    }
+
+    /////////////////////////////////////////////////////////////////////////// writer
+
+    /**
+     * Writer only. Start a batch of {@link #set(int, long)}, which readers see as a whole after {@link #endWrite()}.
+     */
+    public void beginWrite() {
+
+        long v = (long) VERSION.getOpaque(this);
+        VERSION.setOpaque(this, v + 1);
+        VarHandle.storeStoreFence();  // the odd version must be visible before any field
+    }
+
+    /**
+     * Writer only, between {@link #beginWrite()} and {@link #endWrite()}
+     */
+    public void set(int index, long value) {
+        FIELD.setOpaque(fields, index, value);
+    }
+
+    /**
+     * Writer only. Publish the fields set since {@link #beginWrite()}.
+     */
+    public void endWrite() {
+
+        long v = (long) VERSION.getOpaque(this);
+        VERSION.setRelease(this, v + 1);
+    }
+
+    /**
+     * Writer only. Write one field.
+     */
+    public void write(int index, long value) {
+
+        beginWrite();
+        set(index, value);
+        endWrite();
+    }
+
+    /**
+     * Writer only. Write {@code values} to the fields from {@code offset} as one batch.
+     */
+    public void write(int offset, long[] values) {
+
+        beginWrite();
+        for (int i = 0; i < values.length; i++) {
+            set(offset + i, values[i]);
+        }
+        endWrite();
+    }
+
+    /////////////////////////////////////////////////////////////////////////// readers
+
+    /**
+     * Any thread. Read one field, which is never torn even if the JVM splits long writes.
+     */
+    public long read(int index) {
+
+        while (true) {
+            long v = (long) VERSION.getAcquire(this);
+            long value = (long) FIELD.getOpaque(fields, index);
+            VarHandle.loadLoadFence();  // the field must be read before the version is checked again
+            if (0 == (v & 1) && v == (long) VERSION.getOpaque(this)) {
+                return value;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Any thread. Copy {@code length} fields from {@code offset} into {@code destination},
+     * all from the same write.
+     *
+     * @return the version the fields were read at, which increases by 2 with every write
+     */
+    public long read(int offset, long[] destination, int length) {
+
+        while (true) {
+            long v = (long) VERSION.getAcquire(this);
+            if (0 == (v & 1)) {
+                for (int i = 0; i < length; i++) {
+                    destination[i] = (long) FIELD.getOpaque(fields, offset + i);
+                }
+                VarHandle.loadLoadFence();
+                if (v == (long) VERSION.getOpaque(this)) {
+                    return v;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.yejianfengblue.java.concurrency;
+
+/**
+ * The PricesInfo of {@code ReadWriteLockTest} on a {@link SeqLockLongArray}: a write updates both prices in place
+ * without allocating, and a read retries instead of blocking if it overlaps a write.
+ * <p>
+ * {@link #setPrices(int, int)} must only be called by one thread at a time.
+ *
+ * @author yejianfengblue
+ */
+public class SeqLockPricesInfo {
+
+    private static final int PRICE1 = 0;
+
+    private static final int PRICE2 = 1;
+
+    private final SeqLockLongArray fields = new SeqLockLongArray(2);
+
+    /**
+     * @param destination receives price1 at index 0 and price2 at index 1, reused by the caller to avoid allocation
+     */
+    public void getPrices(long[] destination) {
+        fields.read(PRICE1, destination, 2);
+    }
+
+    public Prices getPrices() {
+
+        long[] destination = new long[2];
+        getPrices(destination);
+        return new Prices((int) destination[PRICE1], (int) destination[PRICE2]);
+    }
+
+    public int getPrice1() {
+        return (int) fields.read(PRICE1);
+    }
+
+    public int getPrice2() {
+        return (int) fields.read(PRICE2);
+    }
+
+    public void setPrices(int price1, int price2) {
+
+        fields.beginWrite();
+        fields.set(PRICE1, price1);
+        fields.set(PRICE2, price2);
+        fields.endWrite();
+    }
+}
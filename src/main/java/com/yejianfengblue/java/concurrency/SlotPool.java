@@ -0,0 +1,309 @@
+package com.yejianfengblue.java.concurrency;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A pool of {@code n} slots, handed out as indices 0 to n - 1, like the printers of the PrintQueue in {@code SemaphoreTest}.
+ * <p>
+ * The PrintQueue counts free printers with a {@link java.util.concurrent.Semaphore}, then scans a {@code boolean[]}
+ * under a lock to find which one is free. Here one bitmap in an {@link AtomicLongArray} does both:
+ * a set bit is a free slot, and acquiring is one CAS which clears the lowest set bit of a word.
+ * <p>
+ * When no slot is free, the thread queues up and parks. A release frees the bit, then hands a free slot
+ * directly to the longest waiting thread, so a woken thread never has to compete for it.
+ * <ul>
+ *     <li>unfair: an arriving thread takes a free slot even if others are waiting, for throughput</li>
+ *     <li>fair: an arriving thread queues up behind the waiting threads, so slots are granted in FIFO order</li>
+ * </ul>
+ * Every slot counts how many times it was acquired. It can also sum how long it was held,
+ * which reads the clock on every acquire and release, so it is off unless asked for.
+ *
+ * @author yejianfengblue
+ */
+public class SlotPool {
+
+    private static final int WAITING = -1;
+
+    private static final int CANCELLED = -2;
+
+    private final int slotCount;
+
+    private final boolean fair;
+
+    private final boolean recordHeldTime;
+
+    /** a set bit is a free slot */
+    private final AtomicLongArray freeBits;
+
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLongArray acquiredAtNanos;
+
+    private final AtomicLongArray acquireCounts;
+
+    private final AtomicLongArray heldNanos;
+
+    private final LongAdder waitCount = new LongAdder();
+
+    private final LongAdder timeoutCount = new LongAdder();
+
+    public SlotPool(int slotCount, boolean fair) {
+        this(slotCount, fair, false);
+    }
+
+    /**
+     * @param recordHeldTime whether to sum the time each slot is held, see {@link #getHeldNanos(int)}
+     */
+    public SlotPool(int slotCount, boolean fair, boolean recordHeldTime) {
+
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("Slot count must be positive: " + slotCount);
+        }
+        this.slotCount = slotCount;
+        this.fair = fair;
+        this.recordHeldTime = recordHeldTime;
+        int words = (slotCount + Long.SIZE - 1) / Long.SIZE;
+        this.freeBits = new AtomicLongArray(words);
+        for (int word = 0; word < words; word++) {
+            int bits = Math.min(Long.SIZE, slotCount - word * Long.SIZE);
+            freeBits.set(word, Long.SIZE == bits ? -1L : (1L << bits) - 1);
+        }
+        this.acquiredAtNanos = new AtomicLongArray(slotCount);
+        this.acquireCounts = new AtomicLongArray(slotCount);
+        this.heldNanos = new AtomicLongArray(slotCount);
+    }
+
+    /**
+     * A parked thread, which is granted a slot by a release, or gives up
+     */
+    private static final class Waiter {
+
+        final Thread thread = Thread.currentThread();
+
+        /** {@link #WAITING}, {@link #CANCELLED}, or the granted slot */
+        final AtomicInteger slot = new AtomicInteger(WAITING);
+    }
+
+    /////////////////////////////////////////////////////////////////////////// bitmap
+
+    private int claimFreeBit() {
+
+        int words = freeBits.length();
+        // threads start at different words, so they don't all CAS the first word of a big pool
+        int start = words > 1 ? (int) (Thread.currentThread().getId() % words) : 0;
+        for (int i = 0; i < words; i++) {
+            int word = (start + i) % words;
+            long bits;
+            while (0 != (bits = freeBits.get(word))) {
+                long lowest = Long.lowestOneBit(bits);
+                if (freeBits.compareAndSet(word, bits, bits & ~lowest)) {
+                    return word * Long.SIZE + Long.numberOfTrailingZeros(lowest);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void freeBit(int slot) {
+
+        int word = slot / Long.SIZE;
+        long mask = 1L << (slot % Long.SIZE);
+        long bits;
+        do {
+            bits = freeBits.get(word);
+            if (0 != (bits & mask)) {
+                throw new IllegalStateException("Slot " + slot + " is not acquired");
+            }
+        } while (!freeBits.compareAndSet(word, bits, bits | mask));
+    }
+
+    /**
+     * Grant free slots to the waiting threads in FIFO order, until either runs out
+     */
+    private void dispatch() {
+
+        while (!waiters.isEmpty()) {
+            int slot = claimFreeBit();
+            if (slot < 0) {
+                return;
+            }
+            Waiter waiter = waiters.poll();
+            if (null != waiter && waiter.slot.compareAndSet(WAITING, slot)) {
+                LockSupport.unpark(waiter.thread);
+            } else {
+                freeBit(slot);  // the queue was emptied or the waiter gave up, try the next one
+            }
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////// acquire and release
+
+    /**
+     * Take a free slot without waiting. In fair mode, fail if other threads are waiting.
+     *
+     * @return the slot, or -1 if none is free
+     */
+    public int tryAcquire() {
+
+        if (fair && !waiters.isEmpty()) {
+            return -1;
+        }
+        int slot = claimFreeBit();
+        if (slot >= 0) {
+            acquired(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Wait until a slot is free
+     *
+     * @return the slot
+     */
+    public int acquire() throws InterruptedException {
+        return acquire(false, 0);
+    }
+
+    /**
+     * Wait until a slot is free or the timeout elapses
+     *
+     * @return the slot, or -1 if the timeout elapsed
+     */
+    public int tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        return acquire(true, unit.toNanos(timeout));
+    }
+
+    private int acquire(boolean timed, long nanos) throws InterruptedException {
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        int slot = tryAcquire();
+        if (slot >= 0) {
+            return slot;
+        }
+
+        waitCount.increment();
+        Waiter waiter = new Waiter();
+        waiters.offer(waiter);
+        dispatch();  // a slot may have been freed before this waiter was queued, when nobody was there to grant it
+        long deadline = System.nanoTime() + nanos;
+        while (WAITING == (slot = waiter.slot.get())) {
+            if (timed) {
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0) {
+                    timeoutCount.increment();
+                    return cancel(waiter);
+                }
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+            if (Thread.interrupted()) {
+                slot = cancel(waiter);
+                if (slot >= 0) {
+                    release(slot);  // granted just before giving up
+                }
+                throw new InterruptedException();
+            }
+        }
+        acquired(slot);
+        return slot;
+    }
+
+    /**
+     * @return -1 if cancelled, or the slot granted just before cancelling
+     */
+    private int cancel(Waiter waiter) {
+
+        if (waiter.slot.compareAndSet(WAITING, CANCELLED)) {
+            waiters.remove(waiter);
+            return -1;
+        }
+        int slot = waiter.slot.get();
+        acquired(slot);
+        return slot;
+    }
+
+    private void acquired(int slot) {
+
+        if (recordHeldTime) {
+            acquiredAtNanos.set(slot, System.nanoTime());
+        }
+        acquireCounts.incrementAndGet(slot);
+    }
+
+    /**
+     * Give back a slot, and grant it to a waiting thread if any
+     *
+     * @throws IllegalStateException if the slot is free
+     */
+    public void release(int slot) {
+
+        if (slot < 0 || slot >= slotCount) {
+            throw new IllegalArgumentException("Slot out of range: " + slot);
+        }
+        if (recordHeldTime) {
+            long held = System.nanoTime() - acquiredAtNanos.get(slot);
+            freeBit(slot);
+            heldNanos.addAndGet(slot, held);
+        } else {
+            freeBit(slot);
+        }
+        dispatch();
+    }
+
+    /////////////////////////////////////////////////////////////////////////// stats
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public boolean isFair() {
+        return fair;
+    }
+
+    /**
+     * @return the number of free slots at this moment
+     */
+    public int availableSlots() {
+
+        int available = 0;
+        for (int word = 0; word < freeBits.length(); word++) {
+            available += Long.bitCount(freeBits.get(word));
+        }
+        return available;
+    }
+
+    public int getWaitingThreadCount() {
+        return waiters.size();
+    }
+
+    public long getAcquireCount(int slot) {
+        return acquireCounts.get(slot);
+    }
+
+    /**
+     * @return the total time the slot was held, not counting the current acquisition,
+     * always 0 unless the pool was created to record it
+     */
+    public long getHeldNanos(int slot) {
+        return heldNanos.get(slot);
+    }
+
+    /**
+     * @return the number of acquires which found no free slot and had to wait
+     */
+    public long getWaitCount() {
+        return waitCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+}
@@ -0,0 +1,28 @@
+package com.yejianfengblue.java.concurrency;
+
+/**
+ * The PricesInfo of {@code ReadWriteLockTest} on a {@link SnapshotStore}: every write publishes a new {@link Prices},
+ * and a read takes no lock at all, so readers keep reading the previous pair while a write is in progress.
+ *
+ * @author yejianfengblue
+ */
+public class SnapshotPricesInfo {
+
+    private final SnapshotStore<Prices> store = new SnapshotStore<>(new Prices(0, 0));
+
+    public Prices getPrices() {
+        return store.get();
+    }
+
+    public int getPrice1() {
+        return store.get().getPrice1();
+    }
+
+    public int getPrice2() {
+        return store.get().getPrice2();
+    }
+
+    public void setPrices(int price1, int price2) {
+        store.publish(new Prices(price1, price2));
+    }
+}
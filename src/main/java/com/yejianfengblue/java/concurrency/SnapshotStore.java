@@ -0,0 +1,72 @@
+package com.yejianfengblue.java.concurrency;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * A copy-on-write holder of an immutable snapshot.
+ * <p>
+ * A writer builds the next snapshot without any lock, then publishes it with one release store,
+ * or one CAS when writers race. A reader does one acquire load and gets the whole snapshot,
+ * so it never blocks, even behind a slow writer, and never sees a half-applied write.
+ * <p>
+ * The snapshot must be immutable, or at least never modified after it is published.
+ *
+ * @author yejianfengblue
+ */
+public class SnapshotStore<T> {
+
+    private static final VarHandle CURRENT;
+
+    static {
+        try {
+            CURRENT = MethodHandles.lookup().findVarHandle(SnapshotStore.class, "current", Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @SuppressWarnings("unused")  // accessed through CURRENT
+    private Object current;
+
+    public SnapshotStore(T initial) {
+        CURRENT.setRelease(this, Objects.requireNonNull(initial));
+    }
+
+    /**
+     * @return the latest published snapshot
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        return (T) CURRENT.getAcquire(this);
+    }
+
+    /**
+     * Publish a snapshot built by the caller. With several writers the last store wins,
+     * use {@link #update(UnaryOperator)} when the next snapshot is derived from the current one.
+     */
+    public void publish(T snapshot) {
+        CURRENT.setRelease(this, Objects.requireNonNull(snapshot));
+    }
+
+    /**
+     * Derive the next snapshot from the current one and publish it if no other writer published in between,
+     * otherwise derive again from the newer snapshot. The function may be called more than once,
+     * so it must not have side effects.
+     *
+     * @return the published snapshot
+     */
+    @SuppressWarnings("unchecked")
+    public T update(UnaryOperator<T> function) {
+
+        while (true) {
+            T current = (T) CURRENT.getAcquire(this);
+            T next = Objects.requireNonNull(function.apply(current));
+            if (CURRENT.compareAndSet(this, current, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.yejianfengblue.java.concurrency;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The PricesInfo of {@code ReadWriteLockTest}, guarded by a {@link StampedLock} instead of a {@link ReentrantReadWriteLock}.
+ * <p>
+ * A read first tries an optimistic read: it reads the stamp, copies the fields, and validates the stamp afterwards.
+ * It writes nothing to shared memory, so readers don't bounce the cache line of a reader count between cores.
+ * Only when a write happened in between it retries under the read lock.
+ * <p>
+ * {@link #getPrices()} reads both prices under one stamp, so the pair is always from the same
+ * {@link #setPrices(int, int)}. Calling {@link #getPrice1()} then {@link #getPrice2()} may still mix two writes.
+ *
+ * @author yejianfengblue
+ */
+public class StampedPricesInfo {
+
+    private final StampedLock lock = new StampedLock();
+
+    private int price1;
+
+    private int price2;
+
+    public Prices getPrices() {
+
+        long stamp = lock.tryOptimisticRead();
+        int value1 = price1;
+        int value2 = price2;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value1 = price1;
+                value2 = price2;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return new Prices(value1, value2);
+    }
+
+    public int getPrice1() {
+
+        long stamp = lock.tryOptimisticRead();
+        int value = price1;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = price1;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    public int getPrice2() {
+
+        long stamp = lock.tryOptimisticRead();
+        int value = price2;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = price2;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    public void setPrices(int price1, int price2) {
+
+        long stamp = lock.writeLock();
+        try {
+            this.price1 = price1;
+            this.price2 = price2;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.time.Duration;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Delayed} base type which stores an absolute {@link System#nanoTime()} deadline.
+ * <p>
+ * A {@link Delayed} computing its delay from the wall clock, e.g. {@code Duration.between(ZonedDateTime.now(), startDate)},
+ * reads the clock and allocates on every {@link #getDelay(TimeUnit)}, and {@link #compareTo(Delayed)} calls it twice.
+ * One sift in the heap of {@link DelayQueue} does dozens of comparisons.
+ * Here the deadline is computed once, and two {@code DeadlineDelayed} compare their deadlines without any clock read.
+ *
+ * @author yejianfengblue
+ */
+public abstract class DeadlineDelayed implements Delayed {
+
+    private final long deadlineNanos;
+
+    protected DeadlineDelayed(long delay, TimeUnit unit) {
+        this.deadlineNanos = System.nanoTime() + unit.toNanos(delay);
+    }
+
+    protected DeadlineDelayed(Duration delay) {
+        this(delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the deadline in the time base of {@link System#nanoTime()}
+     */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+
+        if (o instanceof DeadlineDelayed) {
+            // subtract first, nanoTime may overflow
+            return Long.signum(deadlineNanos - ((DeadlineDelayed) o).deadlineNanos);
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,285 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Same as {@link InstrumentedBlockingQueue}, but for a {@link BlockingDeque}, where both ends are counted.
+ *
+ * @author yejianfengblue
+ */
+public class InstrumentedBlockingDeque<E> extends InstrumentedBlockingQueue<E> implements BlockingDeque<E> {
+
+    private final BlockingDeque<E> delegate;
+
+    public InstrumentedBlockingDeque(BlockingDeque<E> delegate) {
+
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    /////////////////////////////////////////////////////////////////////////// non-blocking
+
+    @Override
+    public boolean offerFirst(E e) {
+
+        boolean offered = delegate.offerFirst(e);
+        if (offered && isRecording()) {
+            enqueued();
+        }
+        return offered;
+    }
+
+    @Override
+    public boolean offerLast(E e) {
+
+        boolean offered = delegate.offerLast(e);
+        if (offered && isRecording()) {
+            enqueued();
+        }
+        return offered;
+    }
+
+    @Override
+    public void addFirst(E e) {
+
+        if (!offerFirst(e)) {
+            throw new IllegalStateException("Deque full");
+        }
+    }
+
+    @Override
+    public void addLast(E e) {
+
+        if (!offerLast(e)) {
+            throw new IllegalStateException("Deque full");
+        }
+    }
+
+    @Override
+    public void push(E e) {
+        addFirst(e);
+    }
+
+    @Override
+    public E pollFirst() {
+
+        E e = delegate.pollFirst();
+        if (null != e && isRecording()) {
+            dequeued();
+        }
+        return e;
+    }
+
+    @Override
+    public E pollLast() {
+
+        E e = delegate.pollLast();
+        if (null != e && isRecording()) {
+            dequeued();
+        }
+        return e;
+    }
+
+    @Override
+    public E removeFirst() {
+
+        E e = pollFirst();
+        if (null == e) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E removeLast() {
+
+        E e = pollLast();
+        if (null == e) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E pop() {
+        return removeFirst();
+    }
+
+    /////////////////////////////////////////////////////////////////////////// blocking
+
+    @Override
+    public void putFirst(E e) throws InterruptedException {
+
+        if (!isRecording()) {
+            delegate.putFirst(e);
+            return;
+        }
+        if (!delegate.offerFirst(e)) {
+            long start = System.nanoTime();
+            delegate.putFirst(e);
+            putBlocked(start);
+        }
+        enqueued();
+    }
+
+    @Override
+    public void putLast(E e) throws InterruptedException {
+
+        if (!isRecording()) {
+            delegate.putLast(e);
+            return;
+        }
+        if (!delegate.offerLast(e)) {
+            long start = System.nanoTime();
+            delegate.putLast(e);
+            putBlocked(start);
+        }
+        enqueued();
+    }
+
+    @Override
+    public boolean offerFirst(E e, long timeout, TimeUnit unit) throws InterruptedException {
+
+        if (!isRecording()) {
+            return delegate.offerFirst(e, timeout, unit);
+        }
+        if (!delegate.offerFirst(e)) {
+            long start = System.nanoTime();
+            boolean offered = delegate.offerFirst(e, timeout, unit);
+            putBlocked(start);
+            if (!offered) {
+                return false;
+            }
+        }
+        enqueued();
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(E e, long timeout, TimeUnit unit) throws InterruptedException {
+
+        if (!isRecording()) {
+            return delegate.offerLast(e, timeout, unit);
+        }
+        if (!delegate.offerLast(e)) {
+            long start = System.nanoTime();
+            boolean offered = delegate.offerLast(e, timeout, unit);
+            putBlocked(start);
+            if (!offered) {
+                return false;
+            }
+        }
+        enqueued();
+        return true;
+    }
+
+    @Override
+    public E takeFirst() throws InterruptedException {
+
+        if (!isRecording()) {
+            return delegate.takeFirst();
+        }
+        E e = delegate.pollFirst();
+        if (null == e) {
+            long start = System.nanoTime();
+            e = delegate.takeFirst();
+            takeBlocked(start);
+        }
+        dequeued();
+        return e;
+    }
+
+    @Override
+    public E takeLast() throws InterruptedException {
+
+        if (!isRecording()) {
+            return delegate.takeLast();
+        }
+        E e = delegate.pollLast();
+        if (null == e) {
+            long start = System.nanoTime();
+            e = delegate.takeLast();
+            takeBlocked(start);
+        }
+        dequeued();
+        return e;
+    }
+
+    @Override
+    public E pollFirst(long timeout, TimeUnit unit) throws InterruptedException {
+
+        if (!isRecording()) {
+            return delegate.pollFirst(timeout, unit);
+        }
+        E e = delegate.pollFirst();
+        if (null == e) {
+            long start = System.nanoTime();
+            e = delegate.pollFirst(timeout, unit);
+            takeBlocked(start);
+            if (null == e) {
+                return null;
+            }
+        }
+        dequeued();
+        return e;
+    }
+
+    @Override
+    public E pollLast(long timeout, TimeUnit unit) throws InterruptedException {
+
+        if (!isRecording()) {
+            return delegate.pollLast(timeout, unit);
+        }
+        E e = delegate.pollLast();
+        if (null == e) {
+            long start = System.nanoTime();
+            e = delegate.pollLast(timeout, unit);
+            takeBlocked(start);
+            if (null == e) {
+                return null;
+            }
+        }
+        dequeued();
+        return e;
+    }
+
+    /////////////////////////////////////////////////////////////////////////// not counted
+
+    @Override
+    public E getFirst() {
+        return delegate.getFirst();
+    }
+
+    @Override
+    public E getLast() {
+        return delegate.getLast();
+    }
+
+    @Override
+    public E peekFirst() {
+        return delegate.peekFirst();
+    }
+
+    @Override
+    public E peekLast() {
+        return delegate.peekLast();
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        return delegate.removeFirstOccurrence(o);
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        return delegate.removeLastOccurrence(o);
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return delegate.descendingIterator();
+    }
+}
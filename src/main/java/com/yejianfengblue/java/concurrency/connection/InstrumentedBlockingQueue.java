@@ -0,0 +1,196 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link BlockingQueue} decorator which records {@link QueueMetrics} of the queue it wraps.
+ * <p>
+ * A blocking put first tries a non-blocking offer, and only when the queue is full it times the blocking call,
+ * likewise a blocking take first tries a poll. So an operation which doesn't block never reads the clock,
+ * and the recorded blocked time is the time actually spent waiting.
+ * <p>
+ * Only the operations which go through this decorator are counted.
+ *
+ * @author yejianfengblue
+ */
+public class InstrumentedBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final BlockingQueue<E> delegate;
+
+    private final QueueMetrics metrics = new QueueMetrics();
+
+    public InstrumentedBlockingQueue(BlockingQueue<E> delegate) {
+        this.delegate = Objects.requireNonNull(delegate);
+    }
+
+    public QueueMetrics getMetrics() {
+        return metrics;
+    }
+
+    /////////////////////////////////////////////////////////////////////////// recording, for this and the deque
+
+    protected final boolean isRecording() {
+        return metrics.isEnabled();
+    }
+
+    protected final void enqueued() {
+        metrics.recordEnqueue(delegate.size());
+    }
+
+    protected final void dequeued() {
+        metrics.recordDequeue(delegate.size());
+    }
+
+    protected final void putBlocked(long startNanos) {
+        metrics.recordPutBlocked(System.nanoTime() - startNanos);
+    }
+
+    protected final void takeBlocked(long startNanos) {
+        metrics.recordTakeBlocked(System.nanoTime() - startNanos);
+    }
+
+    /////////////////////////////////////////////////////////////////////////// BlockingQueue
+
+    @Override
+    public boolean offer(E e) {
+
+        boolean offered = delegate.offer(e);
+        if (offered && metrics.isEnabled()) {
+            enqueued();
+        }
+        return offered;
+    }
+
+    @Override
+    public E poll() {
+
+        E e = delegate.poll();
+        if (null != e && metrics.isEnabled()) {
+            dequeued();
+        }
+        return e;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+
+        if (!metrics.isEnabled()) {
+            delegate.put(e);
+            return;
+        }
+        if (!delegate.offer(e)) {
+            long start = System.nanoTime();
+            delegate.put(e);
+            putBlocked(start);
+        }
+        enqueued();
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+
+        if (!metrics.isEnabled()) {
+            return delegate.offer(e, timeout, unit);
+        }
+        if (!delegate.offer(e)) {
+            long start = System.nanoTime();
+            boolean offered = delegate.offer(e, timeout, unit);
+            putBlocked(start);
+            if (!offered) {
+                return false;
+            }
+        }
+        enqueued();
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+
+        if (!metrics.isEnabled()) {
+            return delegate.take();
+        }
+        E e = delegate.poll();
+        if (null == e) {
+            long start = System.nanoTime();
+            e = delegate.take();
+            takeBlocked(start);
+        }
+        dequeued();
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+        if (!metrics.isEnabled()) {
+            return delegate.poll(timeout, unit);
+        }
+        E e = delegate.poll();
+        if (null == e) {
+            long start = System.nanoTime();
+            e = delegate.poll(timeout, unit);
+            takeBlocked(start);
+            if (null == e) {
+                return null;
+            }
+        }
+        dequeued();
+        return e;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+
+        int n = delegate.drainTo(c, maxElements);
+        if (n > 0 && metrics.isEnabled()) {
+            metrics.recordDrain(n, delegate.size());
+        }
+        return n;
+    }
+
+    @Override
+    public E peek() {
+        return delegate.peek();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return delegate.remainingCapacity();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return delegate.contains(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return delegate.remove(o);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
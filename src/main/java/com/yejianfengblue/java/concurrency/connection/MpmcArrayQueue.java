@@ -0,0 +1,368 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded multi-producer multi-consumer queue on a preallocated array, after Dmitry Vyukov's design.
+ * <p>
+ * {@link LinkedBlockingDeque} takes one lock for both ends and allocates a node per element.
+ * Here each slot has a sequence number which tells whether it is ready to be written or read for a given position:
+ * <ul>
+ *     <li>a producer claims a position with one CAS on the tail counter, writes the slot, then bumps its sequence</li>
+ *     <li>a consumer claims a position with one CAS on the head counter, reads the slot, then bumps its sequence
+ *     by the capacity, handing the slot to the producer of the next lap</li>
+ * </ul>
+ * Producers and consumers only meet on a slot, and nothing is allocated per element.
+ * <p>
+ * The blocking methods ({@link #put(Object)}, {@link #take()} and their timed versions) only fall back to a lock and
+ * condition when the queue is full or empty, and the other side only signals when somebody is waiting.
+ * {@link #putLast(Object)} and {@link #takeFirst()} are there so code written against {@link LinkedBlockingDeque}
+ * as a FIFO channel can switch over unchanged.
+ *
+ * @author yejianfengblue
+ * @see <a href="https://www.1024cores.net/home/lock-free-algorithms/queues/bounded-mpmc-queue">Bounded MPMC queue</a>
+ */
+public class MpmcArrayQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final int capacity;
+
+    private final AtomicReferenceArray<E> elements;
+
+    /**
+     * the slot for position p is free to write when its sequence is 2p, and ready to read when 2p + 1.
+     * Doubling, instead of the usual p and p + 1, keeps a capacity of 1 from mistaking a full slot for a free one.
+     */
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong head = new AtomicLong();
+
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    private final Condition notEmpty = waitLock.newCondition();
+
+    private final Condition notFull = waitLock.newCondition();
+
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    public MpmcArrayQueue(int capacity) {
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, 2L * i);
+        }
+    }
+
+    private int indexOf(long position) {
+        return (int) (position % capacity);
+    }
+
+    /////////////////////////////////////////////////////////////////////////// non-blocking
+
+    @Override
+    public boolean offer(E e) {
+
+        Objects.requireNonNull(e);
+        if (!tryOffer(e)) {
+            return false;
+        }
+        signalIfWaiting(waitingConsumers, notEmpty);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+
+        E e = tryPoll();
+        if (null != e) {
+            signalIfWaiting(waitingProducers, notFull);
+        }
+        return e;
+    }
+
+    private boolean tryOffer(E e) {
+
+        long position = tail.get();
+        while (true) {
+            int index = indexOf(position);
+            long difference = sequences.get(index) - 2 * position;
+            if (0 == difference) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, e);
+                    sequences.set(index, 2 * position + 1);  // publish the element
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;  // the consumer of the previous lap hasn't released the slot, full
+            } else {
+                position = tail.get();  // another producer took this position
+            }
+        }
+    }
+
+    private E tryPoll() {
+
+        long position = head.get();
+        while (true) {
+            int index = indexOf(position);
+            long difference = sequences.get(index) - (2 * position + 1);
+            if (0 == difference) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E e = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.set(index, 2 * (position + capacity));  // release the slot to the next lap
+                    return e;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;  // the producer hasn't published this slot, empty
+            } else {
+                position = head.get();  // another consumer took this position
+            }
+        }
+    }
+
+    private void signalIfWaiting(AtomicInteger waiters, Condition condition) {
+
+        if (waiters.get() > 0) {
+            waitLock.lock();
+            try {
+                condition.signal();
+            } finally {
+                waitLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+
+        long position = head.get();
+        int index = indexOf(position);
+        return sequences.get(index) == 2 * position + 1 ? elements.get(index) : null;
+    }
+
+    /////////////////////////////////////////////////////////////////////////// blocking
+
+    @Override
+    public void put(E e) throws InterruptedException {
+
+        Objects.requireNonNull(e);
+        if (!tryOffer(e)) {
+            waitLock.lockInterruptibly();
+            try {
+                waitingProducers.incrementAndGet();
+                try {
+                    // re-check after announcing the wait, a poll either sees the waiter or is seen here
+                    while (!tryOffer(e)) {
+                        notFull.await();
+                    }
+                } finally {
+                    waitingProducers.decrementAndGet();
+                }
+            } finally {
+                waitLock.unlock();
+            }
+        }
+        signalIfWaiting(waitingConsumers, notEmpty);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+
+        Objects.requireNonNull(e);
+        if (!tryOffer(e)) {
+            long nanos = unit.toNanos(timeout);
+            waitLock.lockInterruptibly();
+            try {
+                waitingProducers.incrementAndGet();
+                try {
+                    while (!tryOffer(e)) {
+                        if (nanos <= 0) {
+                            return false;
+                        }
+                        nanos = notFull.awaitNanos(nanos);
+                    }
+                } finally {
+                    waitingProducers.decrementAndGet();
+                }
+            } finally {
+                waitLock.unlock();
+            }
+        }
+        signalIfWaiting(waitingConsumers, notEmpty);
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+
+        E e = tryPoll();
+        if (null == e) {
+            waitLock.lockInterruptibly();
+            try {
+                waitingConsumers.incrementAndGet();
+                try {
+                    while (null == (e = tryPoll())) {
+                        notEmpty.await();
+                    }
+                } finally {
+                    waitingConsumers.decrementAndGet();
+                }
+            } finally {
+                waitLock.unlock();
+            }
+        }
+        signalIfWaiting(waitingProducers, notFull);
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+        E e = tryPoll();
+        if (null == e) {
+            long nanos = unit.toNanos(timeout);
+            waitLock.lockInterruptibly();
+            try {
+                waitingConsumers.incrementAndGet();
+                try {
+                    while (null == (e = tryPoll())) {
+                        if (nanos <= 0) {
+                            return null;
+                        }
+                        nanos = notEmpty.awaitNanos(nanos);
+                    }
+                } finally {
+                    waitingConsumers.decrementAndGet();
+                }
+            } finally {
+                waitLock.unlock();
+            }
+        }
+        signalIfWaiting(waitingProducers, notFull);
+        return e;
+    }
+
+    /**
+     * Same as {@link #put(Object)}, for code written against {@link LinkedBlockingDeque#putLast(Object)}
+     */
+    public void putLast(E e) throws InterruptedException {
+        put(e);
+    }
+
+    /**
+     * Same as {@link #take()}, for code written against {@link LinkedBlockingDeque#takeFirst()}
+     */
+    public E takeFirst() throws InterruptedException {
+        return take();
+    }
+
+    /////////////////////////////////////////////////////////////////////////// batch
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Poll up to {@code maxElements} and wake up the waiting producers once at the end
+     */
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && null != (e = tryPoll())) {
+            c.add(e);
+            n++;
+        }
+        if (n > 0 && waitingProducers.get() > 0) {
+            waitLock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                waitLock.unlock();
+            }
+        }
+        return n;
+    }
+
+    /////////////////////////////////////////////////////////////////////////// size
+
+    @Override
+    public int size() {
+
+        // read head first, so the difference is never negative
+        long h = head.get();
+        long t = tail.get();
+        return (int) Math.max(0, Math.min(capacity, t - h));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return null == peek();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    /**
+     * A snapshot of the published elements from head to tail
+     */
+    @Override
+    public Iterator<E> iterator() {
+
+        List<E> snapshot = new ArrayList<>();
+        long t = tail.get();
+        for (long position = head.get(); position < t; position++) {
+            int index = indexOf(position);
+            E e = elements.get(index);
+            if (null != e && sequences.get(index) == 2 * position + 1) {
+                snapshot.add(e);
+            }
+        }
+        Iterator<E> it = snapshot.iterator();
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,295 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * An unbounded blocking priority queue for a bounded range of integer priorities, {@code 0} is the highest.
+ * <p>
+ * {@link PriorityBlockingQueue} serializes every put and take on one lock around a binary heap.
+ * Here each priority level has its own lock-free FIFO bucket ({@link ConcurrentLinkedQueue}),
+ * and a bitmap marks the non-empty levels, so:
+ * <ul>
+ *     <li>put appends to one bucket and sets one bit, producers of different priorities never touch the same bucket</li>
+ *     <li>poll finds the lowest set bit and polls that bucket</li>
+ *     <li>elements of the same priority are taken in FIFO order, which a heap does not guarantee</li>
+ * </ul>
+ * The lock is only used to park a taker when the queue is empty.
+ *
+ * @author yejianfengblue
+ */
+public class MultiLevelPriorityQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final ToIntFunction<? super E> priorityFunction;
+
+    private final ConcurrentLinkedQueue<E>[] buckets;
+
+    /** bit i set means bucket i may be non-empty, bit i clear means bucket i is empty or an offer is about to set it */
+    private final AtomicLongArray nonEmpty;
+
+    private final LongAdder count = new LongAdder();
+
+    private final ReentrantLock takeLock = new ReentrantLock();
+
+    private final Condition notEmpty = takeLock.newCondition();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * @param levels           the number of priority levels, valid priorities are {@code 0} to {@code levels - 1}
+     * @param priorityFunction map an element to its priority
+     */
+    @SuppressWarnings("unchecked")
+    public MultiLevelPriorityQueue(int levels, ToIntFunction<? super E> priorityFunction) {
+
+        if (levels <= 0) {
+            throw new IllegalArgumentException("Levels must be positive: " + levels);
+        }
+        this.priorityFunction = priorityFunction;
+        this.buckets = (ConcurrentLinkedQueue<E>[]) new ConcurrentLinkedQueue<?>[levels];
+        for (int i = 0; i < levels; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.nonEmpty = new AtomicLongArray((levels + 63) >>> 6);
+    }
+
+    @Override
+    public boolean offer(E e) {
+
+        int priority = priorityFunction.applyAsInt(Objects.requireNonNull(e));
+        if (priority < 0 || priority >= buckets.length) {
+            throw new IllegalArgumentException("Priority " + priority + " is out of range [0, " + buckets.length + ")");
+        }
+        buckets[priority].offer(e);
+        count.increment();
+        setBit(priority);  // after the element is visible, so a poller seeing the bit finds the element
+
+        if (waiters.get() > 0) {
+            takeLock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                takeLock.unlock();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void put(E e) {
+        offer(e);
+    }
+
+    /**
+     * Never blocks since the queue is unbounded
+     */
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e);
+    }
+
+    @Override
+    public E poll() {
+
+        for (int word = 0; word < nonEmpty.length(); word++) {
+            long bits;
+            while (0 != (bits = nonEmpty.get(word))) {
+                int priority = (word << 6) + Long.numberOfTrailingZeros(bits);
+                E e = buckets[priority].poll();
+                if (null != e) {
+                    count.decrement();
+                    return e;
+                }
+                clearBit(priority);
+                // an offer may have added an element after the poll above but set the bit before the clear
+                if (!buckets[priority].isEmpty()) {
+                    setBit(priority);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+
+        E e = poll();
+        if (null != e) {
+            return e;
+        }
+        takeLock.lockInterruptibly();
+        try {
+            waiters.incrementAndGet();
+            try {
+                // re-check after announcing the wait, an offer either sees the waiter or is seen here
+                while (null == (e = poll())) {
+                    notEmpty.await();
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            takeLock.unlock();
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+        E e = poll();
+        if (null != e) {
+            return e;
+        }
+        long nanos = unit.toNanos(timeout);
+        takeLock.lockInterruptibly();
+        try {
+            waiters.incrementAndGet();
+            try {
+                while (null == (e = poll())) {
+                    if (nanos <= 0) {
+                        return null;
+                    }
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            takeLock.unlock();
+        }
+        return e;
+    }
+
+    @Override
+    public E peek() {
+
+        for (int priority = 0; priority < buckets.length; priority++) {
+            E e = buckets[priority].peek();
+            if (null != e) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, count.sum()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return null == peek();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && null != (e = poll())) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+
+        for (ConcurrentLinkedQueue<E> bucket : buckets) {
+            if (bucket.remove(o)) {
+                count.decrement();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A weakly consistent iterator in priority order, and FIFO order within a priority
+     */
+    @Override
+    public Iterator<E> iterator() {
+
+        return new Iterator<>() {
+
+            private int priority = 0;
+
+            private Iterator<E> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+
+                while (!current.hasNext() && priority < buckets.length) {
+                    current = buckets[priority++].iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public E next() {
+
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+
+                current.remove();
+                count.decrement();
+            }
+        };
+    }
+
+    private void setBit(int priority) {
+
+        int word = priority >>> 6;
+        long mask = 1L << priority;
+        long bits;
+        while (0 == ((bits = nonEmpty.get(word)) & mask) && !nonEmpty.compareAndSet(word, bits, bits | mask)) {
+            // retry
+        }
+    }
+
+    private void clearBit(int priority) {
+
+        int word = priority >>> 6;
+        long mask = 1L << priority;
+        long bits;
+        while (0 != ((bits = nonEmpty.get(word)) & mask) && !nonEmpty.compareAndSet(word, bits, bits & ~mask)) {
+            // retry
+        }
+    }
+}
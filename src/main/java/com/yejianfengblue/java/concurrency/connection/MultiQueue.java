@@ -0,0 +1,365 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A relaxed concurrent priority queue in the MultiQueue style, for work which does not need exact priority order.
+ * <p>
+ * {@link PriorityBlockingQueue} funnels every thread through one lock. Here there are {@code c * P} heaps
+ * (P = the number of processors), each behind its own lock:
+ * <ul>
+ *     <li>offer adds to a random heap, a busy heap is skipped with {@code tryLock()}</li>
+ *     <li>poll peeks the tops of two random heaps without locking, and removes from the one with the smaller top</li>
+ * </ul>
+ * So a poll may return an element which is not the smallest, but it is close to it.
+ * The rank error (how many smaller elements were in the queue) stays in the order of the number of heaps,
+ * see {@link RankErrorMeter}.
+ * Only when both random heaps look empty does poll scan all heaps, so it returns {@code null} only when the queue is empty.
+ *
+ * @author yejianfengblue
+ */
+public class MultiQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private static final int DEFAULT_HEAPS_PER_PROCESSOR = 2;
+
+    private final Comparator<? super E> comparator;
+
+    private final Heap<E>[] heaps;
+
+    private final LongAdder count = new LongAdder();
+
+    private final ReentrantLock takeLock = new ReentrantLock();
+
+    private final Condition notEmpty = takeLock.newCondition();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * Elements are ordered by their natural ordering, with {@code 2 * availableProcessors} heaps
+     */
+    public MultiQueue() {
+        this(DEFAULT_HEAPS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * @param heapCount  the number of internal heaps, at least 2
+     * @param comparator {@code null} means the natural ordering
+     */
+    @SuppressWarnings("unchecked")
+    public MultiQueue(int heapCount, Comparator<? super E> comparator) {
+
+        if (heapCount < 2) {
+            throw new IllegalArgumentException("Heap count must be at least 2: " + heapCount);
+        }
+        this.comparator = null != comparator
+                ? comparator
+                : (Comparator<? super E>) Comparator.naturalOrder();
+        this.heaps = (Heap<E>[]) new Heap<?>[heapCount];
+        for (int i = 0; i < heapCount; i++) {
+            heaps[i] = new Heap<>(this.comparator);
+        }
+    }
+
+    public int getHeapCount() {
+        return heaps.length;
+    }
+
+    @Override
+    public boolean offer(E e) {
+
+        Objects.requireNonNull(e);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Heap<E> heap;
+        do {
+            heap = heaps[random.nextInt(heaps.length)];
+        } while (!heap.lock.tryLock());
+        try {
+            heap.add(e);
+        } finally {
+            heap.lock.unlock();
+        }
+        count.increment();
+
+        if (waiters.get() > 0) {
+            takeLock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                takeLock.unlock();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void put(E e) {
+        offer(e);
+    }
+
+    /**
+     * Never blocks since the queue is unbounded
+     */
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e);
+    }
+
+    @Override
+    public E poll() {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < heaps.length; attempt++) {
+            Heap<E> first = heaps[random.nextInt(heaps.length)];
+            Heap<E> second = heaps[random.nextInt(heaps.length)];
+            E firstTop = first.top;
+            E secondTop = second.top;
+            if (null == firstTop && null == secondTop) {
+                continue;
+            }
+            Heap<E> better = null == secondTop || (null != firstTop && comparator.compare(firstTop, secondTop) <= 0)
+                    ? first
+                    : second;
+            if (better.lock.tryLock()) {
+                try {
+                    E e = better.poll();
+                    if (null != e) {
+                        count.decrement();
+                        return e;
+                    }
+                } finally {
+                    better.lock.unlock();
+                }
+            }
+        }
+        return pollAny();
+    }
+
+    /**
+     * The slow path when random heaps look empty, scan all heaps
+     */
+    private E pollAny() {
+
+        for (Heap<E> heap : heaps) {
+            if (null != heap.top) {
+                heap.lock.lock();
+                try {
+                    E e = heap.poll();
+                    if (null != e) {
+                        count.decrement();
+                        return e;
+                    }
+                } finally {
+                    heap.lock.unlock();
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+
+        E e = poll();
+        if (null != e) {
+            return e;
+        }
+        takeLock.lockInterruptibly();
+        try {
+            waiters.incrementAndGet();
+            try {
+                // re-check after announcing the wait, an offer either sees the waiter or is seen here
+                while (null == (e = poll())) {
+                    notEmpty.await();
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            takeLock.unlock();
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+        E e = poll();
+        if (null != e) {
+            return e;
+        }
+        long nanos = unit.toNanos(timeout);
+        takeLock.lockInterruptibly();
+        try {
+            waiters.incrementAndGet();
+            try {
+                while (null == (e = poll())) {
+                    if (nanos <= 0) {
+                        return null;
+                    }
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            takeLock.unlock();
+        }
+        return e;
+    }
+
+    /**
+     * @return the smallest top of all heaps, without locking
+     */
+    @Override
+    public E peek() {
+
+        E min = null;
+        for (Heap<E> heap : heaps) {
+            E top = heap.top;
+            if (null != top && (null == min || comparator.compare(top, min) < 0)) {
+                min = top;
+            }
+        }
+        return min;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, count.sum()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return null == peek();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && null != (e = poll())) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * A snapshot iterator in no particular order, same as {@link PriorityBlockingQueue#iterator()}
+     */
+    @Override
+    public Iterator<E> iterator() {
+
+        List<E> snapshot = new ArrayList<>();
+        for (Heap<E> heap : heaps) {
+            heap.lock.lock();
+            try {
+                snapshot.addAll(heap.queue);
+            } finally {
+                heap.lock.unlock();
+            }
+        }
+        Iterator<E> it = snapshot.iterator();
+        return new Iterator<>() {
+
+            private E last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return last = it.next();
+            }
+
+            @Override
+            public void remove() {
+
+                if (null == last) {
+                    throw new IllegalStateException();
+                }
+                MultiQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    @Override
+    public boolean remove(Object o) {
+
+        for (Heap<E> heap : heaps) {
+            heap.lock.lock();
+            try {
+                if (heap.remove(o)) {
+                    count.decrement();
+                    return true;
+                }
+            } finally {
+                heap.lock.unlock();
+            }
+        }
+        return false;
+    }
+
+    private static class Heap<E> {
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        final PriorityQueue<E> queue;
+
+        /** A copy of the heap top, to be peeked without locking */
+        volatile E top;
+
+        Heap(Comparator<? super E> comparator) {
+            this.queue = new PriorityQueue<>(comparator);
+        }
+
+        void add(E e) {
+            queue.add(e);
+            top = queue.peek();
+        }
+
+        E poll() {
+            E e = queue.poll();
+            top = queue.peek();
+            return e;
+        }
+
+        boolean remove(Object o) {
+            boolean removed = queue.remove(o);
+            top = queue.peek();
+            return removed;
+        }
+    }
+}
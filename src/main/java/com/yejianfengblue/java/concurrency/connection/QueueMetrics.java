@@ -0,0 +1,240 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters recorded by {@link InstrumentedBlockingQueue} and {@link InstrumentedBlockingDeque}.
+ * <p>
+ * It answers who is the bottleneck of a bounded queue:
+ * <ul>
+ *     <li>producers blocked in put for long, with a mostly full occupancy, means the consumers are too slow</li>
+ *     <li>consumers blocked in take for long, with a mostly empty occupancy, means the producers are too slow</li>
+ * </ul>
+ * Recording is off until {@link #setEnabled(boolean)}, and then every operation only reads one volatile flag.
+ * When on, the counters are {@link LongAdder}s so concurrent producers and consumers don't contend on them,
+ * but the occupancy is sampled by calling {@code size()} of the queue after every enqueue and dequeue,
+ * which takes the lock of a {@link java.util.concurrent.LinkedBlockingDeque}.
+ *
+ * @author yejianfengblue
+ */
+public class QueueMetrics {
+
+    /** bucket 0 is an empty queue, bucket i > 0 counts sizes in [2^(i-1), 2^i) */
+    private static final int BUCKETS = 32;
+
+    private volatile boolean enabled;
+
+    private volatile long startNanos = System.nanoTime();
+
+    private final LongAdder enqueued = new LongAdder();
+
+    private final LongAdder dequeued = new LongAdder();
+
+    private final LongAdder putBlockedCount = new LongAdder();
+
+    private final LongAdder putBlockedNanos = new LongAdder();
+
+    private final LongAdder takeBlockedCount = new LongAdder();
+
+    private final LongAdder takeBlockedNanos = new LongAdder();
+
+    private final AtomicLongArray occupancy = new AtomicLongArray(BUCKETS);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turning it on doesn't reset the counters, call {@link #reset()} for a fresh measurement
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Clear the counters and restart the clock of the rates.
+     * Operations which race with the reset may be partially counted.
+     */
+    public void reset() {
+
+        enqueued.reset();
+        dequeued.reset();
+        putBlockedCount.reset();
+        putBlockedNanos.reset();
+        takeBlockedCount.reset();
+        takeBlockedNanos.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            occupancy.set(i, 0);
+        }
+        startNanos = System.nanoTime();
+    }
+
+    void recordEnqueue(int size) {
+
+        enqueued.increment();
+        occupancy.incrementAndGet(bucketOf(size));
+    }
+
+    void recordDequeue(int size) {
+
+        dequeued.increment();
+        occupancy.incrementAndGet(bucketOf(size));
+    }
+
+    /**
+     * A batch of dequeues counts as one occupancy sample, since the sizes in between are unknown
+     */
+    void recordDrain(int count, int size) {
+
+        dequeued.add(count);
+        occupancy.incrementAndGet(bucketOf(size));
+    }
+
+    void recordPutBlocked(long nanos) {
+
+        putBlockedCount.increment();
+        putBlockedNanos.add(nanos);
+    }
+
+    void recordTakeBlocked(long nanos) {
+
+        takeBlockedCount.increment();
+        takeBlockedNanos.add(nanos);
+    }
+
+    private static int bucketOf(int size) {
+        return size <= 0 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(size);
+    }
+
+    /**
+     * @return the counters at this moment, each read separately, so they may be slightly inconsistent with each other
+     * while operations are in flight
+     */
+    public Snapshot snapshot() {
+
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = occupancy.get(i);
+        }
+        return new Snapshot(System.nanoTime() - startNanos,
+                enqueued.sum(), dequeued.sum(),
+                putBlockedCount.sum(), putBlockedNanos.sum(),
+                takeBlockedCount.sum(), takeBlockedNanos.sum(),
+                histogram);
+    }
+
+    /**
+     * An immutable copy of the counters
+     */
+    public static final class Snapshot {
+
+        private final long elapsedNanos;
+
+        private final long enqueued;
+
+        private final long dequeued;
+
+        private final long putBlockedCount;
+
+        private final long putBlockedNanos;
+
+        private final long takeBlockedCount;
+
+        private final long takeBlockedNanos;
+
+        private final long[] occupancyHistogram;
+
+        private Snapshot(long elapsedNanos, long enqueued, long dequeued,
+                         long putBlockedCount, long putBlockedNanos,
+                         long takeBlockedCount, long takeBlockedNanos,
+                         long[] occupancyHistogram) {
+
+            this.elapsedNanos = elapsedNanos;
+            this.enqueued = enqueued;
+            this.dequeued = dequeued;
+            this.putBlockedCount = putBlockedCount;
+            this.putBlockedNanos = putBlockedNanos;
+            this.takeBlockedCount = takeBlockedCount;
+            this.takeBlockedNanos = takeBlockedNanos;
+            this.occupancyHistogram = occupancyHistogram;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getEnqueued() {
+            return enqueued;
+        }
+
+        public long getDequeued() {
+            return dequeued;
+        }
+
+        /** the number of puts which found the queue full and had to wait */
+        public long getPutBlockedCount() {
+            return putBlockedCount;
+        }
+
+        public long getPutBlockedNanos() {
+            return putBlockedNanos;
+        }
+
+        /** the number of takes which found the queue empty and had to wait */
+        public long getTakeBlockedCount() {
+            return takeBlockedCount;
+        }
+
+        public long getTakeBlockedNanos() {
+            return takeBlockedNanos;
+        }
+
+        /** enqueues per second since the start or the last reset */
+        public double getEnqueueRate() {
+            return perSecond(enqueued);
+        }
+
+        /** dequeues per second since the start or the last reset */
+        public double getDequeueRate() {
+            return perSecond(dequeued);
+        }
+
+        private double perSecond(long count) {
+            return elapsedNanos <= 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        /**
+         * @return a copy of the histogram, index 0 counts samples of an empty queue,
+         * index i > 0 counts samples of a size in [2^(i-1), 2^i)
+         */
+        public long[] getOccupancyHistogram() {
+            return occupancyHistogram.clone();
+        }
+
+        @Override
+        public String toString() {
+
+            return "QueueMetrics.Snapshot(elapsedMillis=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                    + ", enqueued=" + enqueued
+                    + ", dequeued=" + dequeued
+                    + ", putBlockedCount=" + putBlockedCount
+                    + ", putBlockedMillis=" + TimeUnit.NANOSECONDS.toMillis(putBlockedNanos)
+                    + ", takeBlockedCount=" + takeBlockedCount
+                    + ", takeBlockedMillis=" + TimeUnit.NANOSECONDS.toMillis(takeBlockedNanos)
+                    + ", occupancyHistogram=" + Arrays.toString(trimmed())
+                    + ")";
+        }
+
+        private long[] trimmed() {
+
+            int length = occupancyHistogram.length;
+            while (length > 1 && 0 == occupancyHistogram[length - 1]) {
+                length--;
+            }
+            return Arrays.copyOf(occupancyHistogram, length);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+/**
+ * Measure the quality of a relaxed priority queue such as {@link MultiQueue}.
+ * <p>
+ * The rank error of a removal is the number of elements still in the queue which are smaller than the removed one,
+ * so an exact priority queue always has rank error 0.
+ * Keys are ints in {@code [0, keyRange)}, counted in a Fenwick tree, so both record methods are O(log keyRange).
+ * <p>
+ * It is meant for tests and benchmarks. The methods are synchronized, which is fine for measuring
+ * but would hide the scalability of the queue under measurement.
+ *
+ * @author yejianfengblue
+ */
+public class RankErrorMeter {
+
+    private final long[] tree;
+
+    private long removals;
+
+    private long totalRankError;
+
+    private long maxRankError;
+
+    public RankErrorMeter(int keyRange) {
+        this.tree = new long[keyRange + 1];
+    }
+
+    public synchronized void recordInsert(int key) {
+
+        for (int i = key + 1; i < tree.length; i += i & -i) {
+            tree[i]++;
+        }
+    }
+
+    /**
+     * @return the rank error of this removal
+     */
+    public synchronized long recordRemove(int key) {
+
+        long rankError = 0;
+        for (int i = key; i > 0; i -= i & -i) {
+            rankError += tree[i];  // count of present keys smaller than key
+        }
+        for (int i = key + 1; i < tree.length; i += i & -i) {
+            tree[i]--;
+        }
+        removals++;
+        totalRankError += rankError;
+        maxRankError = Math.max(maxRankError, rankError);
+        return rankError;
+    }
+
+    public synchronized long getRemovals() {
+        return removals;
+    }
+
+    public synchronized double getMeanRankError() {
+        return 0 == removals ? 0 : (double) totalRankError / removals;
+    }
+
+    public synchronized long getMaxRankError() {
+        return maxRankError;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RankErrorMeter(removals=%d, mean=%.2f, max=%d)",
+                removals, getMeanRankError(), maxRankError);
+    }
+}
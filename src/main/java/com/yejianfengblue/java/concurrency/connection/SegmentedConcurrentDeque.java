@@ -0,0 +1,558 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe unbounded deque which stores elements in fixed-size array segments instead of one node per element.
+ * <p>
+ * {@link ConcurrentLinkedDeque} allocates a node for every element, and its {@code size()} traverses all nodes.
+ * Here:
+ * <ul>
+ *     <li>elements sit in {@value #SEGMENT_SIZE}-slot arrays linked into a chain, drained segments are recycled</li>
+ *     <li>{@link #size()} is O(1), it reads a counter maintained by every operation</li>
+ *     <li>{@link #offerAll(Collection)} and {@link #pollMany(Collection, int)} move a batch
+ *     under one lock acquisition</li>
+ * </ul>
+ * Both ends share one {@link ReentrantLock}, since a lock-free deque on arrays needs a double-word CAS.
+ * So unlike the lock-free {@link ConcurrentLinkedDeque}, all threads are serialized on one lock,
+ * it is not a faster replacement when many threads on many cores hit the deque at once.
+ * It is for fewer allocations, an O(1) {@link #size()} and batches, measure before swapping it in.
+ * <p>
+ * The iterators return a snapshot of the deque taken under the lock.
+ *
+ * @author yejianfengblue
+ */
+public class SegmentedConcurrentDeque<E> extends AbstractQueue<E> implements Deque<E> {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    /** how many drained segments to keep for reuse */
+    private static final int MAX_SPARE_SEGMENTS = 4;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /* below are guarded by lock */
+
+    private Segment head;
+
+    /** index of the first element in head */
+    private int headIndex;
+
+    private Segment tail;
+
+    /** index after the last element in tail */
+    private int tailIndex;
+
+    private Segment spare;
+
+    private int spareCount;
+
+    /** written under lock, read without lock */
+    private volatile int size;
+
+    public SegmentedConcurrentDeque() {
+        head = tail = new Segment();
+        headIndex = tailIndex = SEGMENT_SIZE / 2;  // room to grow at both ends
+    }
+
+    private static final class Segment {
+
+        final Object[] items = new Object[SEGMENT_SIZE];
+
+        Segment prev;
+
+        Segment next;
+    }
+
+    /////////////////////////////////////////////////////////////////////////// guarded by lock
+
+    private void linkLast(E e) {
+
+        if (SEGMENT_SIZE == tailIndex) {
+            Segment segment = obtainSegment();
+            segment.prev = tail;
+            tail.next = segment;
+            tail = segment;
+            tailIndex = 0;
+        }
+        tail.items[tailIndex++] = e;
+        size++;
+    }
+
+    private void linkFirst(E e) {
+
+        if (0 == headIndex) {
+            Segment segment = obtainSegment();
+            segment.next = head;
+            head.prev = segment;
+            head = segment;
+            headIndex = SEGMENT_SIZE;
+        }
+        head.items[--headIndex] = e;
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E unlinkFirst() {
+
+        if (0 == size) {
+            return null;
+        }
+        E e = (E) head.items[headIndex];
+        head.items[headIndex++] = null;
+        size--;
+        if (0 == size) {
+            resetEmpty();
+        } else if (SEGMENT_SIZE == headIndex) {
+            Segment drained = head;
+            head = head.next;
+            head.prev = null;
+            headIndex = 0;
+            recycleSegment(drained);
+        }
+        return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E unlinkLast() {
+
+        if (0 == size) {
+            return null;
+        }
+        E e = (E) tail.items[--tailIndex];
+        tail.items[tailIndex] = null;
+        size--;
+        if (0 == size) {
+            resetEmpty();
+        } else if (0 == tailIndex) {
+            Segment drained = tail;
+            tail = tail.prev;
+            tail.next = null;
+            tailIndex = SEGMENT_SIZE;
+            recycleSegment(drained);
+        }
+        return e;
+    }
+
+    private void resetEmpty() {
+
+        if (head != tail) {
+            recycleSegment(tail);
+            tail = head;
+            head.next = null;
+        }
+        headIndex = tailIndex = SEGMENT_SIZE / 2;
+    }
+
+    private Segment obtainSegment() {
+
+        if (null == spare) {
+            return new Segment();
+        }
+        Segment segment = spare;
+        spare = segment.next;
+        segment.next = null;
+        spareCount--;
+        return segment;
+    }
+
+    private void recycleSegment(Segment segment) {
+
+        // all slots are already nulled out by the unlink
+        segment.prev = null;
+        if (spareCount < MAX_SPARE_SEGMENTS) {
+            segment.next = spare;
+            spare = segment;
+            spareCount++;
+        } else {
+            segment.next = null;
+        }
+    }
+
+    private List<E> toList() {
+
+        List<E> list = new ArrayList<>(size);
+        Segment segment = head;
+        int i = headIndex;
+        for (int n = size; n > 0; n--) {
+            if (SEGMENT_SIZE == i) {
+                segment = segment.next;
+                i = 0;
+            }
+            @SuppressWarnings("unchecked")
+            E e = (E) segment.items[i++];
+            list.add(e);
+        }
+        return list;
+    }
+
+    /////////////////////////////////////////////////////////////////////////// public API
+
+    @Override
+    public boolean offerFirst(E e) {
+
+        Objects.requireNonNull(e);
+        lock.lock();
+        try {
+            linkFirst(e);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(E e) {
+
+        Objects.requireNonNull(e);
+        lock.lock();
+        try {
+            linkLast(e);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Append all elements of the collection at the tail under one lock acquisition
+     *
+     * @return the number of elements added
+     */
+    public int offerAll(Collection<? extends E> c) {
+
+        for (E e : c) {
+            Objects.requireNonNull(e);  // check first, so that either all or none are added
+        }
+        int n = 0;
+        lock.lock();
+        try {
+            for (E e : c) {
+                linkLast(e);
+                n++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return n;
+    }
+
+    @Override
+    public E pollFirst() {
+
+        lock.lock();
+        try {
+            return unlinkFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E pollLast() {
+
+        lock.lock();
+        try {
+            return unlinkLast();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove up to {@code maxElements} from the head into the sink under one lock acquisition.
+     * The sink is called under the lock, so it must not call back into this deque.
+     *
+     * @return the number of elements removed
+     */
+    public int pollMany(Collection<? super E> sink, int maxElements) {
+
+        int n = 0;
+        lock.lock();
+        try {
+            E e;
+            while (n < maxElements && null != (e = unlinkFirst())) {
+                sink.add(e);
+                n++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return n;
+    }
+
+    /**
+     * Remove up to {@code maxElements} from the tail into the sink under one lock acquisition,
+     * in tail-to-head order. The sink is called under the lock, so it must not call back into this deque.
+     *
+     * @return the number of elements removed
+     */
+    public int pollManyLast(Collection<? super E> sink, int maxElements) {
+
+        int n = 0;
+        lock.lock();
+        try {
+            E e;
+            while (n < maxElements && null != (e = unlinkLast())) {
+                sink.add(e);
+                n++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return n;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peekFirst() {
+
+        lock.lock();
+        try {
+            return 0 == size ? null : (E) head.items[headIndex];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peekLast() {
+
+        lock.lock();
+        try {
+            return 0 == size ? null : (E) tail.items[tailIndex - 1];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * O(1), the number of elements after the last completed operation
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    @Override
+    public void clear() {
+
+        lock.lock();
+        try {
+            while (null != unlinkFirst()) {
+                // null out every slot, so the drained segments can be recycled
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new SnapshotIterator(false);
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return new SnapshotIterator(true);
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        return removeOccurrence(o, false);
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        return removeOccurrence(o, true);
+    }
+
+    /**
+     * O(n), the deque is rebuilt without the element
+     */
+    private boolean removeOccurrence(Object o, boolean last) {
+
+        if (null == o) {
+            return false;
+        }
+        lock.lock();
+        try {
+            List<E> elements = toList();
+            int index = last ? elements.lastIndexOf(o) : elements.indexOf(o);
+            if (index < 0) {
+                return false;
+            }
+            elements.remove(index);
+            while (null != unlinkFirst()) {
+                // empty it
+            }
+            for (E e : elements) {
+                linkLast(e);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return removeFirstOccurrence(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+
+        if (null == o) {
+            return false;
+        }
+        lock.lock();
+        try {
+            return toList().contains(o);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        return offerAll(c) > 0;
+    }
+
+    @Override
+    public void addFirst(E e) {
+        offerFirst(e);
+    }
+
+    @Override
+    public void addLast(E e) {
+        offerLast(e);
+    }
+
+    @Override
+    public E removeFirst() {
+
+        E e = pollFirst();
+        if (null == e) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E removeLast() {
+
+        E e = pollLast();
+        if (null == e) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E getFirst() {
+
+        E e = peekFirst();
+        if (null == e) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E getLast() {
+
+        E e = peekLast();
+        if (null == e) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        return offerLast(e);
+    }
+
+    @Override
+    public E poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public E peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public void push(E e) {
+        addFirst(e);
+    }
+
+    @Override
+    public E pop() {
+        return removeFirst();
+    }
+
+    private class SnapshotIterator implements Iterator<E> {
+
+        private final Iterator<E> delegate;
+
+        private E last;
+
+        SnapshotIterator(boolean descending) {
+
+            List<E> snapshot;
+            lock.lock();
+            try {
+                snapshot = toList();
+            } finally {
+                lock.unlock();
+            }
+            if (descending) {
+                Collections.reverse(snapshot);
+            }
+            this.delegate = snapshot.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public E next() {
+            return last = delegate.next();
+        }
+
+        @Override
+        public void remove() {
+
+            if (null == last) {
+                throw new IllegalStateException();
+            }
+            SegmentedConcurrentDeque.this.removeFirstOccurrence(last);
+            last = null;
+        }
+    }
+}
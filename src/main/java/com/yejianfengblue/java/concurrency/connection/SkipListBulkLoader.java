@@ -0,0 +1,191 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Build a {@link ConcurrentSkipListMap} from a batch of entries in O(n) instead of n random-level {@code put()}.
+ * <p>
+ * {@link ConcurrentSkipListMap#ConcurrentSkipListMap(SortedMap)} links the index levels bottom-up
+ * when the source is already sorted, without any CAS. This loader feeds that constructor with a read-only
+ * sorted view over an array, so the only extra cost is one {@link Arrays#parallelSort} when the input is not presorted.
+ * <p>
+ * Duplicate keys are allowed in the input, the last one wins, which is the same result as calling {@code put()}
+ * for each entry in order.
+ *
+ * @author yejianfengblue
+ */
+public final class SkipListBulkLoader {
+
+    private SkipListBulkLoader() {
+    }
+
+    /**
+     * Load the entries with the natural ordering of keys
+     */
+    public static <K extends Comparable<? super K>, V> ConcurrentSkipListMap<K, V> load(
+            Collection<? extends Map.Entry<K, V>> entries) {
+
+        return load(entries, null, Function.identity());
+    }
+
+    /**
+     * Load the entries with the given key comparator, {@code null} means the natural ordering
+     */
+    public static <K, V> ConcurrentSkipListMap<K, V> load(
+            Collection<? extends Map.Entry<K, V>> entries,
+            Comparator<? super K> comparator) {
+
+        return load(entries, comparator, Function.identity());
+    }
+
+    /**
+     * Load the entries, with each value converted by {@code valueMapper} on the way in
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V, R> ConcurrentSkipListMap<K, R> load(
+            Collection<? extends Map.Entry<K, V>> entries,
+            Comparator<? super K> comparator,
+            Function<? super V, ? extends R> valueMapper) {
+
+        Map.Entry<K, V>[] sorted = (Map.Entry<K, V>[]) entries.toArray(new Map.Entry<?, ?>[0]);
+        Comparator<? super K> keyComparator = null != comparator
+                ? comparator
+                : (Comparator<? super K>) Comparator.naturalOrder();
+        Comparator<Map.Entry<K, V>> entryComparator = (e1, e2) -> keyComparator.compare(e1.getKey(), e2.getKey());
+
+        if (!isSorted(sorted, entryComparator)) {
+            Arrays.parallelSort(sorted, entryComparator);  // stable, so the last duplicate stays last
+        }
+
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            Map.Entry<K, V> entry = sorted[i];
+            if (null == entry.getKey() || null == entry.getValue()) {
+                throw new NullPointerException("Null key or value at index " + i);
+            }
+            if (size > 0 && entryComparator.compare(sorted[size - 1], entry) == 0) {
+                sorted[size - 1] = entry;  // duplicate key, the last one wins
+            } else {
+                sorted[size++] = entry;
+            }
+        }
+
+        return new ConcurrentSkipListMap<>(new SortedArrayView<>(sorted, size, comparator, valueMapper));
+    }
+
+    private static <T> boolean isSorted(T[] array, Comparator<? super T> comparator) {
+
+        for (int i = 1; i < array.length; i++) {
+            if (comparator.compare(array[i - 1], array[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A sorted map view over a sorted, duplicate-free entry array.
+     * Only {@link #comparator()} and {@link #entrySet()} are used by the skip list constructor.
+     */
+    private static class SortedArrayView<K, V, R> extends AbstractMap<K, R> implements SortedMap<K, R> {
+
+        private final Map.Entry<K, V>[] entries;
+
+        private final int size;
+
+        private final Comparator<? super K> comparator;
+
+        private final Function<? super V, ? extends R> valueMapper;
+
+        SortedArrayView(Map.Entry<K, V>[] entries, int size,
+                        Comparator<? super K> comparator,
+                        Function<? super V, ? extends R> valueMapper) {
+            this.entries = entries;
+            this.size = size;
+            this.comparator = comparator;
+            this.valueMapper = valueMapper;
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return comparator;
+        }
+
+        @Override
+        public Set<Map.Entry<K, R>> entrySet() {
+
+            return new AbstractSet<>() {
+
+                @Override
+                public Iterator<Map.Entry<K, R>> iterator() {
+
+                    return new Iterator<>() {
+
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < size;
+                        }
+
+                        @Override
+                        public Map.Entry<K, R> next() {
+                            if (index >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<K, V> entry = entries[index++];
+                            return new SimpleImmutableEntry<>(entry.getKey(), valueMapper.apply(entry.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public SortedMap<K, R> subMap(K fromKey, K toKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<K, R> headMap(K toKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<K, R> tailMap(K fromKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public K firstKey() {
+            if (0 == size) {
+                throw new NoSuchElementException();
+            }
+            return entries[0].getKey();
+        }
+
+        @Override
+        public K lastKey() {
+            if (0 == size) {
+                throw new NoSuchElementException();
+            }
+            return entries[size - 1].getKey();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A sorted concurrent map with point-in-time snapshots, built on {@link ConcurrentSkipListMap}.
+ * <p>
+ * Iterators of {@link ConcurrentSkipListMap} are weakly consistent, so a range scan racing with writers may see
+ * some updates and miss others. Here each key maps to a chain of versions, newest first.
+ * A write installs a new version and then stamps it from a global clock.
+ * A {@link Snapshot} remembers the clock when it is taken and only sees versions stamped at or before it,
+ * so every read through the same snapshot sees the same state, no matter what writers do meanwhile.
+ * <p>
+ * Old versions are pruned by writers once no open snapshot can see them,
+ * so remember to {@link Snapshot#close()} a snapshot after use.
+ *
+ * @author yejianfengblue
+ */
+public class SnapshotSkipListMap<K, V> {
+
+    /** The stamp of a version which has been installed but not yet stamped */
+    private static final long PENDING = -1;
+
+    private final ConcurrentSkipListMap<K, Version<V>> versions;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    /** The highest floor any writer has pruned below, so a late snapshot knows it must retry */
+    private final AtomicLong pruneFloor = new AtomicLong();
+
+    /**
+     * Snapshot version -> number of open snapshots at that version.
+     * The counts are immutable, because {@link ConcurrentSkipListMap#merge} and
+     * {@link ConcurrentSkipListMap#computeIfPresent} may apply the function more than once and only CAS the result,
+     * so mutating a shared counter inside could unregister an open snapshot.
+     */
+    private final ConcurrentSkipListMap<Long, Integer> openSnapshots = new ConcurrentSkipListMap<>();
+
+    public SnapshotSkipListMap() {
+        this((Comparator<? super K>) null);
+    }
+
+    public SnapshotSkipListMap(Comparator<? super K> comparator) {
+        this(new ConcurrentSkipListMap<>(comparator));
+    }
+
+    private SnapshotSkipListMap(ConcurrentSkipListMap<K, Version<V>> versions) {
+        this.versions = versions;
+    }
+
+    /**
+     * Build the map in O(n) from a batch of entries via {@link SkipListBulkLoader}, which is much faster than
+     * calling {@link #put(Object, Object)} for each entry. Duplicate keys are allowed, the last one wins.
+     *
+     * @param comparator the key comparator, {@code null} means the natural ordering
+     */
+    public static <K, V> SnapshotSkipListMap<K, V> bulkLoad(Collection<? extends Map.Entry<K, V>> entries,
+                                                            Comparator<? super K> comparator) {
+
+        return new SnapshotSkipListMap<>(SkipListBulkLoader.load(entries, comparator, Version::initial));
+    }
+
+    public V get(K key) {
+
+        Version<V> head = versions.get(key);
+        return null == head ? null : head.value;
+    }
+
+    /**
+     * @return the previous value, or {@code null} if there was no mapping for the key
+     */
+    public V put(K key, V value) {
+
+        return write(key, Objects.requireNonNull(value));
+    }
+
+    /**
+     * @return the previous value, or {@code null} if there was no mapping for the key
+     */
+    public V remove(K key) {
+
+        return null == get(key) ? null : write(key, null);
+    }
+
+    /**
+     * Install a new version, {@code null} value means a tombstone
+     */
+    private V write(K key, V value) {
+
+        Version<V> version = new Version<>(value, PENDING);
+        Version<V> previous = versions.compute(key, (k, head) -> {
+            version.older = head;
+            return version;
+        }).older;
+        // stamp after install, so every version stamped at or before a snapshot is already visible to it
+        version.stamp = clock.incrementAndGet();
+
+        if (null != previous) {
+            prune(key, version);
+        }
+        return null == previous ? null : previous.value;
+    }
+
+    /**
+     * Drop the versions no open snapshot can see any more
+     */
+    private void prune(K key, Version<V> head) {
+
+        long floor = floor();
+        if (pruneFloor.get() < floor) {
+            pruneFloor.accumulateAndGet(floor, Math::max);
+        }
+        // a snapshot may have registered after the first look, it either sees the published floor and retries,
+        // or it is seen here
+        floor = Math.min(floor, floor());
+
+        Version<V> visible = head;
+        while (null != visible && awaitStamp(visible) > floor) {
+            visible = visible.older;
+        }
+        if (null == visible) {
+            return;
+        }
+        visible.older = null;
+        if (visible == head && null == head.value) {
+            versions.remove(key, head);  // nobody can see the key any more
+        }
+    }
+
+    private long floor() {
+
+        Map.Entry<Long, Integer> oldest = openSnapshots.firstEntry();
+        return null == oldest ? clock.get() : oldest.getKey();
+    }
+
+    /**
+     * Take a snapshot of the current state. It must be closed after use to let writers prune old versions.
+     */
+    public Snapshot snapshot() {
+
+        while (true) {
+            long version = clock.get();
+            openSnapshots.merge(version, 1, Integer::sum);
+            if (pruneFloor.get() <= version) {
+                return new Snapshot(version);
+            }
+            // a writer has pruned beyond this version before it was registered, try a newer version
+            release(version);
+        }
+    }
+
+    private void release(long version) {
+
+        openSnapshots.computeIfPresent(version, (v, count) -> 1 == count ? null : count - 1);
+    }
+
+    private static long awaitStamp(Version<?> version) {
+
+        long stamp;
+        while (PENDING == (stamp = version.stamp)) {
+            Thread.onSpinWait();  // the writer is between install and stamp
+        }
+        return stamp;
+    }
+
+    private static class Version<V> {
+
+        /** {@code null} means the key is removed */
+        final V value;
+
+        volatile long stamp;
+
+        volatile Version<V> older;
+
+        Version(V value, long stamp) {
+            this.value = value;
+            this.stamp = stamp;
+        }
+
+        static <V> Version<V> initial(V value) {
+            return new Version<>(value, 0);
+        }
+    }
+
+    /**
+     * A consistent, read-only view of the map at the time it was taken
+     */
+    public class Snapshot implements AutoCloseable, Iterable<Map.Entry<K, V>> {
+
+        private final long version;
+
+        private boolean closed;
+
+        private Snapshot(long version) {
+            this.version = version;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public V get(K key) {
+
+            return resolve(versions.get(key));
+        }
+
+        /**
+         * Iterate all entries in ascending key order
+         */
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+
+            return new SnapshotIterator(versions);
+        }
+
+        /**
+         * Iterate entries from {@code fromKey} inclusive to {@code toKey} exclusive in ascending key order
+         */
+        public Iterable<Map.Entry<K, V>> range(K fromKey, K toKey) {
+
+            ConcurrentNavigableMap<K, Version<V>> subMap = versions.subMap(fromKey, toKey);
+            return () -> new SnapshotIterator(subMap);
+        }
+
+        public int size() {
+
+            int size = 0;
+            for (Iterator<Map.Entry<K, V>> it = iterator(); it.hasNext(); it.next()) {
+                size++;
+            }
+            return size;
+        }
+
+        @Override
+        public synchronized void close() {
+
+            if (!closed) {
+                closed = true;
+                release(version);
+            }
+        }
+
+        private V resolve(Version<V> head) {
+
+            for (Version<V> v = head; null != v; v = v.older) {
+                if (awaitStamp(v) <= version) {
+                    return v.value;
+                }
+            }
+            return null;
+        }
+
+        private class SnapshotIterator implements Iterator<Map.Entry<K, V>> {
+
+            private final Iterator<Map.Entry<K, Version<V>>> delegate;
+
+            private Map.Entry<K, V> next;
+
+            SnapshotIterator(ConcurrentNavigableMap<K, Version<V>> map) {
+                this.delegate = map.entrySet().iterator();
+                advance();
+            }
+
+            private void advance() {
+
+                next = null;
+                while (null == next && delegate.hasNext()) {
+                    Map.Entry<K, Version<V>> entry = delegate.next();
+                    V value = resolve(entry.getValue());
+                    if (null != value) {
+                        next = new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), value);
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return null != next;
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+
+                if (null == next) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<K, V> result = next;
+                advance();
+                return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel, a scheduler for a huge number of timeouts, most of which are cancelled before expiry.
+ * <p>
+ * {@link DelayQueue} is a binary heap behind one lock, so schedule and cancel are O(log n) and serialized.
+ * Here a timeout is appended to a slot of a wheel in O(1):
+ * <ul>
+ *     <li>level 0 has {@value #WHEEL_SIZE} slots, one tick each</li>
+ *     <li>level n has {@value #WHEEL_SIZE} slots, each spans all slots of level n-1</li>
+ * </ul>
+ * A single ticker thread owns all the wheels. At each tick it expires one slot of level 0,
+ * and each time a lower level wraps around it cascades one slot of the level above down to the lower levels.
+ * Other threads only hand over schedule and cancel requests via lock-free queues.
+ * <p>
+ * A timeout never expires before its deadline, but may expire up to one tick after it.
+ * All timeouts expired in the same round are delivered to the expiry handler as one batch, on the ticker thread.
+ *
+ * @author yejianfengblue
+ */
+public class TimingWheel<E> implements AutoCloseable {
+
+    private static final int WHEEL_BITS = 6;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /** 64^6 ticks, about 2 years with 1ms tick, farther deadlines keep cascading on the top level */
+    private static final int LEVELS = 6;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final long tickNanos;
+
+    private final long startNanos;
+
+    private final Consumer<List<E>> expiryHandler;
+
+    private final Bucket<E>[][] wheels;
+
+    private final Queue<Timeout<E>> scheduled = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timeout<E>> cancelled = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder pending = new LongAdder();
+
+    private final Thread ticker;
+
+    private volatile boolean running = true;
+
+    /** The next tick to process, only accessed by the ticker thread */
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickDuration, TimeUnit unit, Consumer<List<E>> expiryHandler) {
+
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.expiryHandler = expiryHandler;
+        this.wheels = (Bucket<E>[][]) new Bucket<?>[LEVELS][WHEEL_SIZE];
+        for (Bucket<E>[] wheel : wheels) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[i] = new Bucket<>();
+            }
+        }
+        this.startNanos = System.nanoTime();
+        this.ticker = new Thread(this::runTicker, "timing-wheel-ticker");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Schedule the element to expire after the given delay, in O(1)
+     *
+     * @return a handle to cancel the timeout
+     */
+    public Timeout<E> schedule(E element, long delay, TimeUnit unit) {
+
+        if (!running) {
+            throw new IllegalStateException("Timing wheel is closed");
+        }
+        long deadlineNanos = System.nanoTime() + Math.max(0, unit.toNanos(delay));
+        // round up, so it never expires early
+        long deadlineTick = (deadlineNanos - startNanos + tickNanos - 1) / tickNanos;
+        Timeout<E> timeout = new Timeout<>(this, element, deadlineNanos, deadlineTick);
+        pending.increment();
+        scheduled.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return the number of scheduled timeouts which are neither expired nor cancelled,
+     * a batch being delivered to the expiry handler is not counted any more
+     */
+    public long size() {
+        return pending.sum();
+    }
+
+    /**
+     * Stop the ticker thread and wait for it to finish. Pending timeouts will never expire.
+     * If interrupted while waiting, return with the interrupt flag set.
+     */
+    @Override
+    public void close() {
+
+        running = false;
+        LockSupport.unpark(ticker);
+        if (Thread.currentThread() != ticker) {
+            try {
+                ticker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runTicker() {
+
+        while (running) {
+            long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+            List<E> expired = new ArrayList<>();
+
+            drainCancelled();
+            drainScheduled(expired);
+            while (currentTick <= targetTick) {
+                advance(expired);
+                currentTick++;
+            }
+
+            if (!expired.isEmpty()) {
+                // before delivery, so a caller woken by the handler doesn't see the batch in size()
+                pending.add(-expired.size());
+                try {
+                    expiryHandler.accept(expired);
+                } catch (RuntimeException e) {
+                    log.error("Expiry handler failed with {} expired timeouts", expired.size(), e);
+                }
+            }
+
+            long sleepNanos = startNanos + currentTick * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+        }
+    }
+
+    private void drainCancelled() {
+
+        Timeout<E> timeout;
+        while (null != (timeout = cancelled.poll())) {
+            if (null != timeout.bucket) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void drainScheduled(List<E> expired) {
+
+        Timeout<E> timeout;
+        while (null != (timeout = scheduled.poll())) {
+            if (Timeout.INIT == timeout.state) {
+                place(timeout, expired);
+            }
+        }
+    }
+
+    /**
+     * Put the timeout into the lowest level whose span covers its deadline
+     */
+    private void place(Timeout<E> timeout, List<E> expired) {
+
+        long delta = timeout.deadlineTick - currentTick;
+        if (delta < 0) {
+            expire(timeout, expired);  // the ticker has already passed its slot
+            return;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (timeout.deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+        wheels[level][slot].add(timeout);
+    }
+
+    /**
+     * Process the current tick: cascade each level whose lower level wraps around, then expire level 0
+     */
+    private void advance(List<E> expired) {
+
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                break;
+            }
+            int slot = (int) (currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+            for (Timeout<E> timeout = wheels[level][slot].clear(); null != timeout; ) {
+                Timeout<E> next = timeout.next;
+                timeout.next = null;
+                place(timeout, expired);
+                timeout = next;
+            }
+        }
+
+        for (Timeout<E> timeout = wheels[0][(int) currentTick & WHEEL_MASK].clear(); null != timeout; ) {
+            Timeout<E> next = timeout.next;
+            timeout.next = null;
+            if (timeout.deadlineTick > currentTick) {
+                place(timeout, expired);  // beyond the top level span, go round again
+            } else {
+                expire(timeout, expired);
+            }
+            timeout = next;
+        }
+    }
+
+    private void expire(Timeout<E> timeout, List<E> expired) {
+
+        if (Timeout.STATE.compareAndSet(timeout, Timeout.INIT, Timeout.EXPIRED)) {
+            expired.add(timeout.element);
+        }
+    }
+
+    /**
+     * A handle of a scheduled element, which is also a {@link Delayed} of its deadline
+     */
+    public static final class Timeout<E> implements Delayed {
+
+        private static final int INIT = 0;
+
+        private static final int CANCELLED = 1;
+
+        private static final int EXPIRED = 2;
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel<E> wheel;
+
+        private final E element;
+
+        private final long deadlineNanos;
+
+        private final long deadlineTick;
+
+        private volatile int state = INIT;
+
+        /* below are only accessed by the ticker thread */
+
+        private Bucket<E> bucket;
+
+        private Timeout<E> prev;
+
+        private Timeout<E> next;
+
+        private Timeout(TimingWheel<E> wheel, E element, long deadlineNanos, long deadlineTick) {
+            this.wheel = wheel;
+            this.element = element;
+            this.deadlineNanos = deadlineNanos;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public E getElement() {
+            return element;
+        }
+
+        /**
+         * Cancel the timeout in O(1), the ticker thread unlinks it from its slot later
+         *
+         * @return {@code false} if it has already expired or been cancelled
+         */
+        public boolean cancel() {
+
+            if (STATE.compareAndSet(this, INIT, CANCELLED)) {
+                wheel.pending.decrement();
+                wheel.cancelled.offer(this);
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return CANCELLED == state;
+        }
+
+        public boolean isExpired() {
+            return EXPIRED == state;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+
+            if (o instanceof Timeout) {
+                return Long.compare(deadlineNanos - ((Timeout<?>) o).deadlineNanos, 0);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * A doubly linked list of timeouts in one slot, only accessed by the ticker thread
+     */
+    private static final class Bucket<E> {
+
+        private Timeout<E> head;
+
+        void add(Timeout<E> timeout) {
+
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (null != head) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<E> timeout) {
+
+            if (null != timeout.prev) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (null != timeout.next) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Detach all timeouts
+         *
+         * @return the first timeout, the rest are linked by {@code next}
+         */
+        Timeout<E> clear() {
+
+            Timeout<E> first = head;
+            head = null;
+            for (Timeout<E> timeout = first; null != timeout; timeout = timeout.next) {
+                timeout.bucket = null;
+                timeout.prev = null;
+            }
+            return first;
+        }
+    }
+}
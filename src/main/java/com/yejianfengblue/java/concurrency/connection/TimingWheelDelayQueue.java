@@ -0,0 +1,82 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.Collection;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A drop-in for the common {@link DelayQueue} usage, backed by a {@link TimingWheel}.
+ * <p>
+ * The delay of an element is read only once when it is offered, instead of on every heap comparison.
+ * When it expires, the ticker moves it into a ready queue, where {@link #poll()} and {@link #take()} pick it up.
+ * Same as {@link DelayQueue}, an element is never returned before its delay expires,
+ * but it may be returned up to one tick later.
+ *
+ * @author yejianfengblue
+ */
+public class TimingWheelDelayQueue<E extends Delayed> implements AutoCloseable {
+
+    private final LinkedBlockingQueue<E> expired = new LinkedBlockingQueue<>();
+
+    private final TimingWheel<E> wheel;
+
+    public TimingWheelDelayQueue(long tickDuration, TimeUnit unit) {
+        this.wheel = new TimingWheel<>(tickDuration, unit, expired::addAll);
+    }
+
+    public boolean add(E e) {
+        return offer(e);
+    }
+
+    public boolean offer(E e) {
+
+        wheel.schedule(e, e.getDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    /**
+     * @return the head element with an expired delay, or {@code null} if no element has expired yet
+     */
+    public E poll() {
+        return expired.poll();
+    }
+
+    /**
+     * Wait until an element with an expired delay is available
+     */
+    public E take() throws InterruptedException {
+        return expired.take();
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return expired.poll(timeout, unit);
+    }
+
+    /**
+     * Remove all elements with an expired delay and add them to the given collection
+     */
+    public int drainTo(Collection<? super E> c) {
+        return expired.drainTo(c);
+    }
+
+    /**
+     * @return the number of elements, both expired and unexpired
+     */
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, wheel.size() + expired.size());
+    }
+
+    public boolean isEmpty() {
+        return 0 == size();
+    }
+
+    /**
+     * Stop the ticker thread, see {@link TimingWheel#close()}
+     */
+    @Override
+    public void close() {
+        wheel.close();
+    }
+}
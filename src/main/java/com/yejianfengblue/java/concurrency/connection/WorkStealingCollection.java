@@ -0,0 +1,149 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of {@link WorkStealingDeque}, one per worker thread, which presents a single logical collection.
+ * <p>
+ * The first {@code maxWorkers} threads which call {@link #offer(Object)} or {@link #poll()} each get their own deque.
+ * A worker offers to and polls from its own deque, without CAS in the common case.
+ * When its own deque is empty it steals from the other deques, starting at a random one.
+ * Threads beyond {@code maxWorkers} go through a shared {@link ConcurrentLinkedQueue} instead,
+ * which the workers also drain, so no element is stranded.
+ * <p>
+ * There is no global order: a worker gets its own latest element first (LIFO, good for task splitting),
+ * and steals the oldest element of another worker (FIFO).
+ * <p>
+ * A deque stays bound to its thread for the life of the collection, so it suits a fixed set of long-lived workers.
+ *
+ * @author yejianfengblue
+ */
+public class WorkStealingCollection<E> {
+
+    private final WorkStealingDeque<E>[] deques;
+
+    private final AtomicInteger registered = new AtomicInteger();
+
+    private final ThreadLocal<WorkStealingDeque<E>> ownDeque = ThreadLocal.withInitial(this::register);
+
+    private final ConcurrentLinkedQueue<E> shared = new ConcurrentLinkedQueue<>();
+
+    @SuppressWarnings("unchecked")
+    public WorkStealingCollection(int maxWorkers) {
+
+        if (maxWorkers <= 0) {
+            throw new IllegalArgumentException("Max workers must be positive: " + maxWorkers);
+        }
+        this.deques = (WorkStealingDeque<E>[]) new WorkStealingDeque<?>[maxWorkers];
+        for (int i = 0; i < maxWorkers; i++) {
+            deques[i] = new WorkStealingDeque<>();
+        }
+    }
+
+    /**
+     * @return the deque for the calling thread, or {@code null} if all deques are taken
+     */
+    private WorkStealingDeque<E> register() {
+
+        int index = registered.getAndIncrement();
+        return index < deques.length ? deques[index] : null;
+    }
+
+    public boolean offer(E e) {
+
+        Objects.requireNonNull(e);
+        WorkStealingDeque<E> own = ownDeque.get();
+        if (null != own) {
+            own.push(e);
+        } else {
+            shared.offer(e);
+        }
+        return true;
+    }
+
+    /**
+     * Pop from the own deque, then poll the shared queue, then steal from the other deques.
+     *
+     * @return {@code null} only if every deque looked empty in a full round
+     */
+    public E poll() {
+
+        WorkStealingDeque<E> own = ownDeque.get();
+        E e;
+        if (null != own && null != (e = own.pop())) {
+            return e;
+        }
+        if (null != (e = shared.poll())) {
+            return e;
+        }
+        return steal(own);
+    }
+
+    private E steal(WorkStealingDeque<E> own) {
+
+        int start = ThreadLocalRandom.current().nextInt(deques.length);
+        boolean retry;
+        do {
+            retry = false;
+            for (int i = 0; i < deques.length; i++) {
+                WorkStealingDeque<E> victim = deques[(start + i) % deques.length];
+                if (victim == own) {
+                    continue;
+                }
+                E e = victim.steal();
+                if (null != e) {
+                    return e;
+                }
+                if (!victim.isEmpty()) {
+                    retry = true;  // lost a race, but there is still something to steal
+                }
+            }
+        } while (retry);
+        return null;
+    }
+
+    /**
+     * Remove up to {@code maxElements} into the given collection, in the same order as {@link #poll()}
+     *
+     * @return the number of elements removed
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+
+        int n = 0;
+        E e;
+        while (n < maxElements && null != (e = poll())) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * @return an estimate of the number of elements, exact when no thread is offering or polling
+     */
+    public int size() {
+
+        long size = shared.size();
+        for (WorkStealingDeque<E> deque : deques) {
+            size += deque.size();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    public boolean isEmpty() {
+
+        if (!shared.isEmpty()) {
+            return false;
+        }
+        for (WorkStealingDeque<E> deque : deques) {
+            if (!deque.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,149 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+
+/**
+ * A Chase-Lev work-stealing deque.
+ * <p>
+ * One owner thread pushes and pops at the bottom, in LIFO order, with plain stores and no CAS,
+ * except when it races a thief for the very last element.
+ * Any other thread steals from the top, in FIFO order, with one CAS on {@code top}.
+ * So the owner and the thieves work on opposite ends and rarely touch the same cache line,
+ * unlike a shared {@link java.util.concurrent.ConcurrentLinkedDeque} where every thread contends on both ends.
+ * <p>
+ * The circular array doubles when full, and only the owner resizes.
+ * {@link #push(Object)} and {@link #pop()} must only be called by the owner thread.
+ *
+ * @author yejianfengblue
+ * @see <a href="https://www.di.ens.fr/~zappa/readings/ppopp13.pdf">Correct and Efficient Work-Stealing for Weak Memory Models</a>
+ */
+public class WorkStealingDeque<E> {
+
+    private static final int INITIAL_CAPACITY = 1 << 8;
+
+    private static final VarHandle TOP;
+
+    private static final VarHandle BOTTOM;
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TOP = lookup.findVarHandle(WorkStealingDeque.class, "top", long.class);
+            BOTTOM = lookup.findVarHandle(WorkStealingDeque.class, "bottom", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** the next index to steal, only advanced by CAS */
+    private volatile long top;
+
+    /** the next index to push, only written by the owner */
+    private volatile long bottom;
+
+    /** capacity is a power of 2, only replaced by the owner */
+    private volatile Object[] array = new Object[INITIAL_CAPACITY];
+
+    /** slots below this index no longer hold stolen elements, only accessed by the owner */
+    private long cleared;
+
+    /**
+     * Owner only. Push an element to the bottom.
+     */
+    public void push(E e) {
+
+        Objects.requireNonNull(e);
+        long b = (long) BOTTOM.getOpaque(this);
+        long t = (long) TOP.getAcquire(this);
+        Object[] a = array;
+        if (b - t > a.length - 1) {
+            a = grow(a, t, b);
+        }
+        // thieves don't clear the slots they stole from, since the owner may reuse a slot right after top moves on
+        for (; cleared < t; cleared++) {
+            SLOT.setOpaque(a, (int) cleared & (a.length - 1), null);
+        }
+        SLOT.setRelease(a, (int) b & (a.length - 1), e);
+        BOTTOM.setRelease(this, b + 1);  // publish the element to thieves
+    }
+
+    /**
+     * Owner only. Pop the most recently pushed element from the bottom.
+     *
+     * @return {@code null} if empty
+     */
+    @SuppressWarnings("unchecked")
+    public E pop() {
+
+        long b = (long) BOTTOM.getOpaque(this) - 1;
+        Object[] a = array;
+        BOTTOM.setVolatile(this, b);  // a full fence, so the read of top below can't move before it
+        long t = (long) TOP.getVolatile(this);
+        if (t > b) {
+            BOTTOM.setOpaque(this, b + 1);  // empty
+            return null;
+        }
+        int index = (int) b & (a.length - 1);
+        E e = (E) SLOT.getAcquire(a, index);
+        if (t == b) {
+            // the last element, race with thieves
+            if (!TOP.compareAndSet(this, t, t + 1)) {
+                e = null;
+            }
+            BOTTOM.setOpaque(this, b + 1);
+            return e;  // the slot is now below top, the next push clears it
+        }
+        SLOT.setOpaque(a, index, null);  // let it be garbage collected
+        return e;
+    }
+
+    /**
+     * Any thread. Steal the least recently pushed element from the top.
+     *
+     * @return {@code null} if empty or lost a race with another thief or the owner, the caller may retry
+     */
+    @SuppressWarnings("unchecked")
+    public E steal() {
+
+        long t = (long) TOP.getVolatile(this);
+        long b = (long) BOTTOM.getVolatile(this);
+        if (t >= b) {
+            return null;
+        }
+        Object[] a = array;
+        int index = (int) t & (a.length - 1);
+        E e = (E) SLOT.getAcquire(a, index);
+        if (null == e || !TOP.compareAndSet(this, t, t + 1)) {
+            return null;
+        }
+        return e;
+    }
+
+    /**
+     * @return an estimate of the number of elements, exact when the deque is quiescent
+     */
+    public int size() {
+
+        long size = bottom - top;
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, size));
+    }
+
+    public boolean isEmpty() {
+        return bottom - top <= 0;
+    }
+
+    private Object[] grow(Object[] a, long t, long b) {
+
+        Object[] bigger = new Object[a.length << 1];
+        for (long i = t; i < b; i++) {
+            bigger[(int) i & (bigger.length - 1)] = SLOT.getAcquire(a, (int) i & (a.length - 1));
+        }
+        cleared = t;  // the stolen slots are left behind in the old array
+        array = bigger;
+        return bigger;
+    }
+}
@@ -0,0 +1,638 @@
+package com.yejianfengblue.java.copy;
+
+import com.yejianfengblue.java.reflect.ClassMetadata;
+import com.yejianfengblue.java.reflect.FieldMetadata;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * A deep copier which copies the fields of an object graph directly, instead of serializing it to bytes or text
+ * and parsing it back, like {@code SerializationUtils.clone}, Gson and Jackson round trips of {@code DeepCopyTest}.
+ * <p>
+ * The first copy of a class composes the field accessors of its {@link ClassMetadata} into a single
+ * {@link MethodHandle}, which reads every field of the source and writes it, copied if needed, into a new instance.
+ * The new instance is created by the no-arg constructor of the class, of any visibility,
+ * a class without one can't be copied.
+ * <ul>
+ *     <li>immutable objects are shared instead of copied: primitives, {@code String}, boxed primitives,
+ *     {@code BigInteger}, {@code BigDecimal}, {@code UUID}, enums, {@code java.time} types, the types passed to
+ *     the constructor, and final classes whose fields are all final and immutable</li>
+ *     <li>an object reached twice is copied once, so shared references and cycles are kept, by an identity map
+ *     per {@link #copy(Object)}</li>
+ *     <li>arrays, and the collections and maps of {@code java.util} and {@code java.util.concurrent} which have
+ *     a no-arg constructor, or are created by {@code List.of}, {@code Set.of} and {@code Map.of},
+ *     are copied element by element, sorted sets and maps and priority queues with their comparator</li>
+ *     <li>{@code Collections.empty*} are shared, {@code Collections.singleton*} too if their contents are,
+ *     else they are created again from the copied contents, and {@code Collections.unmodifiable*} and
+ *     {@code Arrays.asList} wrap a copy of their contents, which is no longer a view of the wrapped collection,
+ *     even if that collection is reached too</li>
+ *     <li>other JDK classes can't be reflected into since Java 9, so copying them throws
+ *     {@link IllegalArgumentException}</li>
+ * </ul>
+ * Thread safe, keep one instance to reuse the copiers.
+ *
+ * @author yejianfengblue
+ */
+public class DeepCopier {
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = Set.of(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class, URI.class, Locale.class,
+            Pattern.class, Class.class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /** (Object source, Object copy, Context) void */
+    private static final MethodType FIELDS_TYPE = methodType(void.class, Object.class, Object.class, Context.class);
+
+    /** Context.copy(Object) */
+    private static final MethodHandle COPY;
+
+    static {
+        try {
+            COPY = LOOKUP.findVirtual(Context.class, "copy", methodType(Object.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Set<Class<?>> immutableTypes;
+
+    private final ClassValue<Copier> copiers = new ClassValue<>() {
+
+        @Override
+        protected Copier computeValue(Class<?> type) {
+            return newCopier(type);
+        }
+    };
+
+    /**
+     * @param immutableTypes more classes to share instead of copy
+     */
+    public DeepCopier(Class<?>... immutableTypes) {
+        this.immutableTypes = Set.of(immutableTypes);
+    }
+
+    /**
+     * @return a deep copy of the object, or the object itself if it is immutable
+     * @throws IllegalArgumentException if the graph has an object which can't be copied
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T copy(T object) {
+
+        try {
+            return (T) new Context(this).copy(object);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return whether instances of the class are shared instead of copied
+     */
+    public boolean isImmutable(Class<?> type) {
+        return Copier.SHARE == copiers.get(type);
+    }
+
+    /////////////////////////////////////////////////////////////////////////// copier resolution
+
+    private Copier newCopier(Class<?> type) {
+
+        if (isImmutableType(type, new HashSet<>())) {
+            return Copier.SHARE;
+        }
+        if (type.isArray()) {
+            return newArrayCopier(type);
+        }
+        if (isJdkType(type)) {
+            return newJdkCopier(type);
+        }
+        return new ObjectCopier(constructor(type), fields(type));
+    }
+
+    private boolean isImmutableType(Class<?> type, Set<Class<?>> visiting) {
+
+        if (type.isPrimitive() || IMMUTABLE_TYPES.contains(type) || immutableTypes.contains(type)
+                || Enum.class.isAssignableFrom(type)) {
+            return true;
+        }
+        String packageName = type.getPackageName();
+        if ("java.time".equals(packageName) || packageName.startsWith("java.time.")) {
+            return !type.isInterface() && !Modifier.isAbstract(type.getModifiers());
+        }
+        if (type.isArray() || type.isInterface() || isJdkType(type) || !Modifier.isFinal(type.getModifiers())) {
+            return false;
+        }
+        // a final class of final fields of immutable types, a field of its own type counts as immutable
+        if (!visiting.add(type)) {
+            return true;
+        }
+        for (FieldMetadata field : ClassMetadata.of(type).getFields()) {
+            if (isJdkType(field.getDeclaringClass()) || !Modifier.isFinal(field.getModifiers())
+                    || !isImmutableType(field.getType(), visiting)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isJdkType(Class<?> type) {
+
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+                || name.startsWith("sun.") || name.startsWith("com.sun.");
+    }
+
+    private Copier newArrayCopier(Class<?> type) {
+
+        Class<?> component = type.getComponentType();
+        if (component.isPrimitive() || isImmutableType(component, new HashSet<>())) {
+            return (source, context) -> {
+                int length = Array.getLength(source);
+                Object copy = Array.newInstance(component, length);
+                System.arraycopy(source, 0, copy, 0, length);
+                context.put(source, copy);
+                return copy;
+            };
+        }
+        return (source, context) -> {
+            Object[] array = (Object[]) source;
+            Object[] copy = (Object[]) Array.newInstance(component, array.length);
+            context.put(source, copy);
+            for (int i = 0; i < array.length; i++) {
+                copy[i] = context.copy(array[i]);
+            }
+            return copy;
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Copier newJdkCopier(Class<?> type) {
+
+        String name = type.getName();
+        if (name.startsWith("java.util.ImmutableCollections$")) {
+            // created from the copied elements, so it can only be registered afterwards, a cycle back to it fails
+            if (List.class.isAssignableFrom(type)) {
+                return (source, context) -> {
+                    context.putInProgress(source);
+                    return context.put(source, List.of(copyElements((Collection<?>) source, context)));
+                };
+            }
+            if (Set.class.isAssignableFrom(type)) {
+                return (source, context) -> {
+                    context.putInProgress(source);
+                    return context.put(source, Set.of(copyElements((Collection<?>) source, context)));
+                };
+            }
+            if (Map.class.isAssignableFrom(type)) {
+                return (source, context) -> {
+                    context.putInProgress(source);
+                    Map<?, ?> map = (Map<?, ?>) source;
+                    List<Map.Entry<Object, Object>> entries = new ArrayList<>(map.size());
+                    for (Map.Entry<?, ?> entry : map.entrySet()) {
+                        entries.add(Map.entry(context.copy(entry.getKey()), context.copy(entry.getValue())));
+                    }
+                    return context.put(source, Map.ofEntries(entries.toArray(new Map.Entry<?, ?>[0])));
+                };
+            }
+        }
+        if (name.startsWith("java.util.Collections$") || "java.util.Arrays$ArrayList".equals(name)) {
+            Copier copier = newCollectionsCopier(type);
+            if (null != copier) {
+                return copier;
+            }
+        }
+        if (EnumSet.class.isAssignableFrom(type)) {
+            return (source, context) -> context.put(source, ((EnumSet) source).clone());
+        }
+        if (Date.class.isAssignableFrom(type)) {
+            return (source, context) -> context.put(source, ((Date) source).clone());
+        }
+        if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            MethodHandle constructor = publicConstructor(type);
+            if (null != constructor) {
+                return Collection.class.isAssignableFrom(type)
+                        ? new CollectionCopier(constructor)
+                        : new MapCopier(constructor);
+            }
+        }
+        return (source, context) -> {
+            throw new IllegalArgumentException("Cannot deep copy " + type.getName()
+                    + ", it is a JDK class which is neither immutable nor a supported collection");
+        };
+    }
+
+    /**
+     * @return the copier of the collections created by {@link Collections} and {@link Arrays#asList(Object[])},
+     * or null if it is another one
+     */
+    @SuppressWarnings("unchecked")
+    private static Copier newCollectionsCopier(Class<?> type) {
+
+        String name = type.getName();
+        String simpleName = name.substring(name.lastIndexOf('$') + 1);
+        if (simpleName.startsWith("Empty")) {
+            return Copier.SHARE;
+        }
+        if (simpleName.startsWith("Singleton")) {
+            // like ImmutableCollections, created from the copied element, so a cycle back to it fails
+            if (List.class.isAssignableFrom(type) || Set.class.isAssignableFrom(type)) {
+                boolean list = List.class.isAssignableFrom(type);
+                return (source, context) -> {
+                    context.putInProgress(source);
+                    Object element = ((Collection<?>) source).iterator().next();
+                    Object copy = context.copy(element);
+                    return context.put(source, copy == element ? source
+                            : list ? Collections.singletonList(copy) : Collections.singleton(copy));
+                };
+            }
+            if (Map.class.isAssignableFrom(type)) {
+                return (source, context) -> {
+                    context.putInProgress(source);
+                    Map.Entry<?, ?> entry = ((Map<?, ?>) source).entrySet().iterator().next();
+                    Object key = context.copy(entry.getKey());
+                    Object value = context.copy(entry.getValue());
+                    return context.put(source, key == entry.getKey() && value == entry.getValue() ? source
+                            : Collections.singletonMap(key, value));
+                };
+            }
+            return null;
+        }
+        if ("java.util.Arrays$ArrayList".equals(name)) {
+            return (source, context) -> {
+                List<?> list = (List<?>) source;
+                Object[] array = new Object[list.size()];
+                List<Object> copy = (List<Object>) context.put(source, Arrays.asList(array));
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = context.copy(list.get(i));
+                }
+                return copy;
+            };
+        }
+        if (!simpleName.startsWith("Unmodifiable")) {
+            return null;
+        }
+        // the wrapper is registered around an empty collection, which is filled afterwards, so cycles are kept
+        if (NavigableMap.class.isAssignableFrom(type)) {
+            return mapWrapperCopier(source -> new TreeMap<>(((SortedMap<Object, ?>) source).comparator()),
+                    map -> Collections.unmodifiableNavigableMap((NavigableMap<Object, Object>) map));
+        }
+        if (SortedMap.class.isAssignableFrom(type)) {
+            return mapWrapperCopier(source -> new TreeMap<>(((SortedMap<Object, ?>) source).comparator()),
+                    map -> Collections.unmodifiableSortedMap((SortedMap<Object, Object>) map));
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return mapWrapperCopier(source -> new LinkedHashMap<>(), Collections::unmodifiableMap);
+        }
+        if (NavigableSet.class.isAssignableFrom(type)) {
+            return collectionWrapperCopier(source -> new TreeSet<>(((SortedSet<Object>) source).comparator()),
+                    set -> Collections.unmodifiableNavigableSet((NavigableSet<Object>) set));
+        }
+        if (SortedSet.class.isAssignableFrom(type)) {
+            return collectionWrapperCopier(source -> new TreeSet<>(((SortedSet<Object>) source).comparator()),
+                    set -> Collections.unmodifiableSortedSet((SortedSet<Object>) set));
+        }
+        if (Set.class.isAssignableFrom(type)) {
+            return collectionWrapperCopier(source -> new LinkedHashSet<>(),
+                    set -> Collections.unmodifiableSet((Set<Object>) set));
+        }
+        if (List.class.isAssignableFrom(type)) {
+            return collectionWrapperCopier(source -> new ArrayList<>(),
+                    list -> Collections.unmodifiableList((List<Object>) list));
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return collectionWrapperCopier(source -> new ArrayList<>(), Collections::unmodifiableCollection);
+        }
+        return null;
+    }
+
+    /**
+     * @param backing the empty collection to wrap, by the source
+     * @param wrap    the unmodifiable view of the backing collection
+     */
+    private static Copier collectionWrapperCopier(Function<Object, Collection<Object>> backing,
+                                                  UnaryOperator<Collection<Object>> wrap) {
+
+        return (source, context) -> {
+            Collection<Object> copy = backing.apply(source);
+            Object view = context.put(source, wrap.apply(copy));
+            for (Object element : (Collection<?>) source) {
+                copy.add(context.copy(element));
+            }
+            return view;
+        };
+    }
+
+    /**
+     * @param backing the empty map to wrap, by the source
+     * @param wrap    the unmodifiable view of the backing map
+     */
+    private static Copier mapWrapperCopier(Function<Object, Map<Object, Object>> backing,
+                                           UnaryOperator<Map<Object, Object>> wrap) {
+
+        return (source, context) -> {
+            Map<Object, Object> copy = backing.apply(source);
+            Object view = context.put(source, wrap.apply(copy));
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) source).entrySet()) {
+                copy.put(context.copy(entry.getKey()), context.copy(entry.getValue()));
+            }
+            return view;
+        };
+    }
+
+    private static Object[] copyElements(Collection<?> source, Context context) throws Throwable {
+
+        Object[] copy = new Object[source.size()];
+        int i = 0;
+        for (Object element : source) {
+            copy[i++] = context.copy(element);
+        }
+        return copy;
+    }
+
+    /**
+     * @return whether the order of the collection or map is kept by a comparator, see {@link #comparator(Object)}
+     */
+    private static boolean isOrdered(Class<?> type) {
+
+        return SortedSet.class.isAssignableFrom(type) || SortedMap.class.isAssignableFrom(type)
+                || PriorityQueue.class.isAssignableFrom(type) || PriorityBlockingQueue.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @return the comparator of an ordered collection or map, null for the natural ordering or if it is not ordered
+     */
+    private static Comparator<?> comparator(Object source) {
+
+        if (source instanceof SortedSet) {
+            return ((SortedSet<?>) source).comparator();
+        }
+        if (source instanceof SortedMap) {
+            return ((SortedMap<?, ?>) source).comparator();
+        }
+        if (source instanceof PriorityQueue) {
+            return ((PriorityQueue<?>) source).comparator();
+        }
+        if (source instanceof PriorityBlockingQueue) {
+            return ((PriorityBlockingQueue<?>) source).comparator();
+        }
+        return null;
+    }
+
+    /**
+     * @return (Comparator) Object, which ignores the comparator unless the class is ordered,
+     * or null if the class has no such public constructor, so an ordered one is never rebuilt in natural order
+     */
+    private static MethodHandle publicConstructor(Class<?> type) {
+
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return null;
+        }
+        try {
+            if (!isOrdered(type)) {
+                return MethodHandles.dropArguments(LOOKUP.findConstructor(type, methodType(void.class))
+                        .asType(methodType(Object.class)), 0, Comparator.class);
+            }
+            try {
+                return LOOKUP.findConstructor(type, methodType(void.class, Comparator.class))
+                        .asType(methodType(Object.class, Comparator.class));
+            } catch (NoSuchMethodException e) {
+                // e.g. PriorityBlockingQueue, which only takes a comparator with an initial capacity
+                return MethodHandles.insertArguments(
+                        LOOKUP.findConstructor(type, methodType(void.class, int.class, Comparator.class))
+                                .asType(methodType(Object.class, int.class, Comparator.class)), 0, 11);
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return () Object
+     */
+    private static MethodHandle constructor(Class<?> type) {
+
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("Cannot deep copy " + type.getName() + ", it is abstract");
+        }
+        MethodHandle noArgConstructor = ClassMetadata.of(type).getConstructor();
+        if (null == noArgConstructor) {
+            // allocating without a constructor takes jdk.unsupported, sun.reflect.ReflectionFactory
+            throw new IllegalArgumentException("Cannot deep copy " + type.getName() + ", it has no no-arg constructor");
+        }
+        return noArgConstructor;
+    }
+
+    /**
+     * @return one {@link #FIELDS_TYPE} handle copying every instance field of the class and its superclasses
+     */
+    private MethodHandle fields(Class<?> type) {
+
+        List<FieldMetadata> fields = ClassMetadata.of(type).getFields();
+        for (FieldMetadata field : fields) {
+            if (isJdkType(field.getDeclaringClass())) {
+                throw new IllegalArgumentException("Cannot deep copy " + type.getName()
+                        + ", it extends the JDK class " + field.getDeclaringClass().getName());
+            }
+        }
+        MethodHandle all = MethodHandles.empty(FIELDS_TYPE);
+        // foldArguments runs the new field first, so fold in reverse for the declaration order
+        for (int i = fields.size() - 1; i >= 0; i--) {
+            all = MethodHandles.foldArguments(all, field(fields.get(i)));
+        }
+        return all;
+    }
+
+    /**
+     * @return {@code copy.field = context.copy(source.field)} as a {@link #FIELDS_TYPE} handle,
+     * without the context if the declared type of the field is immutable
+     */
+    private MethodHandle field(FieldMetadata field) {
+
+        if (!field.isAccessible()) {
+            throw new IllegalArgumentException("Cannot deep copy field " + field + ", it is not accessible");
+        }
+        Class<?> type = field.getType();
+        MethodHandle getter = field.getGetter().asType(methodType(type, Object.class));
+        MethodHandle setter = field.getSetter().asType(methodType(void.class, Object.class, type));
+        // (Object source, Context) type
+        MethodHandle value;
+        if (isImmutableType(type, new HashSet<>())) {
+            value = MethodHandles.dropArguments(getter, 1, Context.class);
+        } else {
+            MethodHandle copied = MethodHandles.collectArguments(COPY, 1,
+                            getter.asType(methodType(Object.class, Object.class)))
+                    .asType(methodType(type, Context.class, Object.class));
+            value = MethodHandles.permuteArguments(copied, methodType(type, Object.class, Context.class), 1, 0);
+        }
+        // (Object copy, Object source, Context) void
+        MethodHandle set = MethodHandles.collectArguments(setter, 1, value);
+        return MethodHandles.permuteArguments(set, FIELDS_TYPE, 1, 0, 2);
+    }
+
+    /////////////////////////////////////////////////////////////////////////// copiers
+
+    interface Copier {
+
+        Copier SHARE = (source, context) -> source;
+
+        Object copy(Object source, Context context) throws Throwable;
+    }
+
+    private static final class ObjectCopier implements Copier {
+
+        /** () Object */
+        private final MethodHandle constructor;
+
+        /** (Object source, Object copy, Context) void */
+        private final MethodHandle fields;
+
+        ObjectCopier(MethodHandle constructor, MethodHandle fields) {
+
+            this.constructor = constructor;
+            this.fields = fields;
+        }
+
+        @Override
+        public Object copy(Object source, Context context) throws Throwable {
+
+            Object copy = (Object) constructor.invokeExact();
+            context.put(source, copy);
+            fields.invokeExact(source, copy, context);
+            return copy;
+        }
+    }
+
+    private static final class CollectionCopier implements Copier {
+
+        /** (Comparator) Object */
+        private final MethodHandle constructor;
+
+        CollectionCopier(MethodHandle constructor) {
+            this.constructor = constructor;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object copy(Object source, Context context) throws Throwable {
+
+            Comparator<?> comparator = comparator(source);
+            Collection<Object> copy = (Collection<Object>) (Object) constructor.invokeExact(comparator);
+            context.put(source, copy);
+            for (Object element : (Collection<?>) source) {
+                copy.add(context.copy(element));
+            }
+            return copy;
+        }
+    }
+
+    private static final class MapCopier implements Copier {
+
+        /** (Comparator) Object */
+        private final MethodHandle constructor;
+
+        MapCopier(MethodHandle constructor) {
+            this.constructor = constructor;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object copy(Object source, Context context) throws Throwable {
+
+            Comparator<?> comparator = comparator(source);
+            Map<Object, Object> copy = (Map<Object, Object>) (Object) constructor.invokeExact(comparator);
+            context.put(source, copy);
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) source).entrySet()) {
+                copy.put(context.copy(entry.getKey()), context.copy(entry.getValue()));
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * The state of one {@link #copy(Object)}, the copies made so far by identity of their source
+     */
+    static final class Context {
+
+        /** the copy of a source whose copy can only be created after its elements */
+        private static final Object IN_PROGRESS = new Object();
+
+        private final DeepCopier copier;
+
+        private final IdentityHashMap<Object, Object> copies = new IdentityHashMap<>();
+
+        Context(DeepCopier copier) {
+            this.copier = copier;
+        }
+
+        Object copy(Object source) throws Throwable {
+
+            if (null == source) {
+                return null;
+            }
+            Copier c = copier.copiers.get(source.getClass());
+            if (Copier.SHARE == c) {
+                return source;
+            }
+            Object copy = copies.get(source);
+            if (IN_PROGRESS == copy) {
+                throw new IllegalArgumentException("Cannot deep copy a cycle through the immutable "
+                        + source.getClass().getName());
+            }
+            return null != copy ? copy : c.copy(source, this);
+        }
+
+        /**
+         * Every copier registers its copy, before copying what it refers to if it can
+         *
+         * @return the copy
+         */
+        Object put(Object source, Object copy) {
+
+            copies.put(source, copy);
+            return copy;
+        }
+
+        void putInProgress(Object source) {
+            copies.put(source, IN_PROGRESS);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.yejianfengblue.java.persistent;
+
+import java.util.Objects;
+
+/**
+ * The immutable {@code Address} of {@code DeepCopyTest}, changed by copying, see {@link User}.
+ *
+ * @author yejianfengblue
+ */
+public final class Address {
+
+    private final String street;
+
+    private final String city;
+
+    public Address(String street, String city) {
+
+        this.street = street;
+        this.city = city;
+    }
+
+    public String getStreet() {
+        return street;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public Address withStreet(String street) {
+        return Objects.equals(this.street, street) ? this : new Address(street, city);
+    }
+
+    public Address withCity(String city) {
+        return Objects.equals(this.city, city) ? this : new Address(street, city);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Address)) {
+            return false;
+        }
+        Address that = (Address) o;
+        return Objects.equals(street, that.street) && Objects.equals(city, that.city);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(street, city);
+    }
+
+    @Override
+    public String toString() {
+        return "Address(street=" + street + ", city=" + city + ")";
+    }
+}
@@ -0,0 +1,185 @@
+package com.yejianfengblue.java.persistent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable list, where a copy is the same reference, and a change creates a new list which shares
+ * all but the changed path with the old one.
+ * <p>
+ * The elements are the leaves of a trie of 32-way nodes, an index is split into 5 bits per level,
+ * so a list of a million elements is 4 levels deep. {@link #set(int, Object)} and {@link #append(Object)}
+ * copy only the nodes from the root to the leaf, at most 32 references per level, whatever the size of the list.
+ *
+ * @author yejianfengblue
+ */
+public final class PersistentVector<E> implements Iterable<E> {
+
+    private static final int BITS = 5;
+
+    private static final int WIDTH = 1 << BITS;
+
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, 0, new Object[0]);
+
+    private final int size;
+
+    /** the bits below the root level, 0 if the root is a leaf */
+    private final int shift;
+
+    private final Object[] root;
+
+    private PersistentVector(int size, int shift, Object[] root) {
+
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    /**
+     * Built level by level from the bottom, instead of one append per element
+     */
+    public static <E> PersistentVector<E> copyOf(Collection<? extends E> elements) {
+
+        Object[] nodes = elements.toArray();
+        if (0 == nodes.length) {
+            return empty();
+        }
+        int shift = 0;
+        while (true) {
+            Object[] parents = new Object[(nodes.length + MASK) >>> BITS];
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = Arrays.copyOfRange(nodes, i << BITS, Math.min(nodes.length, (i + 1) << BITS));
+            }
+            if (1 == parents.length) {
+                return new PersistentVector<>(elements.size(), shift, (Object[]) parents[0]);
+            }
+            nodes = parents;
+            shift += BITS;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+
+        Objects.checkIndex(index, size);
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (E) node[index & MASK];
+    }
+
+    /**
+     * @return a list with the element at the index replaced, or this list if it is the same element
+     */
+    public PersistentVector<E> set(int index, E element) {
+
+        Objects.checkIndex(index, size);
+        if (get(index) == element) {
+            return this;
+        }
+        return new PersistentVector<>(size, shift, set(shift, root, index, element));
+    }
+
+    private static Object[] set(int level, Object[] node, int index, Object element) {
+
+        Object[] copy = node.clone();
+        int i = (index >>> level) & MASK;
+        copy[i] = 0 == level ? element : set(level - BITS, (Object[]) node[i], index, element);
+        return copy;
+    }
+
+    /**
+     * @param change the change of the element, e.g. {@code user -> user.withName(name)}
+     * @return a list with the element at the index changed, or this list if the change returns the same element
+     */
+    public PersistentVector<E> update(int index, UnaryOperator<E> change) {
+        return set(index, change.apply(get(index)));
+    }
+
+    /**
+     * @return a list with the element added at the end
+     */
+    public PersistentVector<E> append(E element) {
+
+        if (size == 1 << (shift + BITS)) {
+            // full, grow one level
+            Object[] newRoot = {root, newPath(shift, element)};
+            return new PersistentVector<>(size + 1, shift + BITS, newRoot);
+        }
+        return new PersistentVector<>(size + 1, shift, append(shift, root, size, element));
+    }
+
+    private static Object[] append(int level, Object[] node, int index, Object element) {
+
+        int i = (index >>> level) & MASK;
+        Object[] copy = Arrays.copyOf(node, Math.max(node.length, i + 1));
+        if (0 == level) {
+            copy[i] = element;
+        } else {
+            copy[i] = i < node.length
+                    ? append(level - BITS, (Object[]) node[i], index, element)
+                    : newPath(level - BITS, element);
+        }
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object element) {
+        return 0 == level ? new Object[]{element} : new Object[]{newPath(level - BITS, element)};
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+
+        return new Iterator<>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public E next() {
+
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder("[");
+        for (E element : this) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(element);
+        }
+        return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.yejianfengblue.java.persistent;
+
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * The immutable {@code User} of {@code DeepCopyTest}, where a copy is the same reference,
+ * since nothing can change it, instead of the copy constructor {@code User(User that)} which copies the address too.
+ * <p>
+ * A change copies the path from the root to what changed, and shares everything else:
+ * {@code user.withAddress(address -> address.withStreet("Banana Street"))} creates a new address and a new user,
+ * with the same name and city. A change which changes nothing returns the same object.
+ *
+ * @author yejianfengblue
+ */
+public final class User {
+
+    private final String name;
+
+    private final Address address;
+
+    public User(String name, Address address) {
+
+        this.name = name;
+        this.address = address;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Address getAddress() {
+        return address;
+    }
+
+    public User withName(String name) {
+        return Objects.equals(this.name, name) ? this : new User(name, address);
+    }
+
+    public User withAddress(Address address) {
+        return this.address == address ? this : new User(name, address);
+    }
+
+    /**
+     * @param change the change of the address, e.g. {@code address -> address.withStreet(street)}
+     */
+    public User withAddress(UnaryOperator<Address> change) {
+        return withAddress(change.apply(address));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof User)) {
+            return false;
+        }
+        User that = (User) o;
+        return Objects.equals(name, that.name) && Objects.equals(address, that.address);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, address);
+    }
+
+    @Override
+    public String toString() {
+        return "User(name=" + name + ", address=" + address + ")";
+    }
+}
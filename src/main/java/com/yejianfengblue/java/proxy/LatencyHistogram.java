@@ -0,0 +1,105 @@
+package com.yejianfengblue.java.proxy;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies in nanoseconds, counted in power of two buckets, so recording is one increment of a bucket found
+ * by counting leading zeros, with no allocation and no lock, and a percentile is known within a factor of 2.
+ *
+ * @author yejianfengblue
+ */
+public class LatencyHistogram {
+
+    /** bucket 0 is 0 ns, bucket i > 0 counts latencies in [2^(i-1), 2^i) ns */
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    public void record(long nanos) {
+
+        buckets.incrementAndGet(bucketOf(nanos));
+        totalNanos.add(nanos);
+    }
+
+    private static int bucketOf(long nanos) {
+        return nanos <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(nanos);
+    }
+
+    public long getCount() {
+
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public double getMeanNanos() {
+
+        long count = getCount();
+        return 0 == count ? 0 : (double) getTotalNanos() / count;
+    }
+
+    /**
+     * @param percentile e.g. 99 for the 99th percentile
+     * @return the exclusive upper bound of the bucket of the percentile, 0 if nothing is recorded
+     */
+    public long getPercentileNanos(double percentile) {
+
+        long[] counts = getBuckets();
+        long count = Arrays.stream(counts).sum();
+        if (0 == count) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i >= Long.SIZE - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return a copy of the buckets, bucket 0 is 0 ns, bucket i > 0 counts latencies in [2^(i-1), 2^i) ns
+     */
+    public long[] getBuckets() {
+
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Calls which race with the reset may be partially counted
+     */
+    public void reset() {
+
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        totalNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+
+        return "LatencyHistogram(count=" + getCount()
+                + ", meanNanos=" + Math.round(getMeanNanos())
+                + ", p50Nanos<" + getPercentileNanos(50)
+                + ", p99Nanos<" + getPercentileNanos(99)
+                + ")";
+    }
+}
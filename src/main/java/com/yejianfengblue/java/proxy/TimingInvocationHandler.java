@@ -0,0 +1,239 @@
+package com.yejianfengblue.java.proxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * An {@link InvocationHandler} which times every call to the target in a {@link LatencyHistogram} per method,
+ * unlike {@code ProxyTest.TimingDynamicInvocationHandler}, which looks up the method of the target by name
+ * in a {@code HashMap}, so overloads overwrite each other, calls it by {@link Method#invoke},
+ * and times it by {@code LocalDateTime.now()}.
+ * <p>
+ * Every method of the interface, and {@code equals}, {@code hashCode} and {@code toString}, is bound once to
+ * a {@link MethodHandle} on the target and given an index. The {@link Method} a proxy passes is the same object
+ * on every call, so it is mapped to its index by identity, in an open addressing table filled on the first
+ * call of each method, and the table is replaced, never changed, so a call reads it without a lock.
+ * A call is timed by {@link System#nanoTime()}, and an exception of the target is thrown as it is,
+ * not wrapped in an {@link java.lang.reflect.InvocationTargetException}.
+ * Create it through {@link TimingProxyFactory}.
+ *
+ * @author yejianfengblue
+ */
+public class TimingInvocationHandler implements InvocationHandler {
+
+    private static final MethodType INVOKER_TYPE = methodType(Object.class, Object[].class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Object target;
+
+    /** by index */
+    private final Method[] methods;
+
+    /** by index, (Object[] args) Object, bound to the target */
+    private final MethodHandle[] invokers;
+
+    /** by index */
+    private final LatencyHistogram[] histograms;
+
+    private volatile Dispatch dispatch;
+
+    TimingInvocationHandler(Class<?> serviceInterface, Object target) {
+
+        this.target = target;
+        Map<String, Method> bySignature = new LinkedHashMap<>();
+        for (Method method : serviceInterface.getMethods()) {
+            if (!Modifier.isStatic(method.getModifiers())) {
+                // a method inherited from two interfaces is one method of the proxy
+                bySignature.putIfAbsent(signature(method), method);
+            }
+        }
+        try {
+            for (Method method : List.of(Object.class.getMethod("equals", Object.class),
+                    Object.class.getMethod("hashCode"), Object.class.getMethod("toString"))) {
+                bySignature.putIfAbsent(signature(method), method);
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+
+        methods = bySignature.values().toArray(new Method[0]);
+        invokers = new MethodHandle[methods.length];
+        histograms = new LatencyHistogram[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            invokers[i] = invoker(methods[i], target);
+            histograms[i] = new LatencyHistogram();
+        }
+        dispatch = new Dispatch(Integer.highestOneBit(methods.length) << 2);
+    }
+
+    private static MethodHandle invoker(Method method, Object target) {
+
+        try {
+            if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                method.setAccessible(true);
+            }
+            return LOOKUP.unreflect(method)
+                    .bindTo(target)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(INVOKER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot bind " + method, e);
+        }
+    }
+
+    /**
+     * The name and the fully qualified parameter types, as a simple name would make one signature of
+     * overloads like {@code add(java.util.List)} and {@code add(java.awt.List)}
+     */
+    private static String signature(Method method) {
+
+        return Arrays.stream(method.getParameterTypes())
+                .map(Class::getTypeName)
+                .collect(Collectors.joining(",", method.getName() + "(", ")"));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+        int index = dispatch.indexOf(method);
+        if (index < 0) {
+            index = resolve(method);
+        }
+        MethodHandle invoker = invokers[index];
+        long start = System.nanoTime();
+        try {
+            return (Object) invoker.invokeExact(args);
+        } finally {
+            histograms[index].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The first call of a method, find it by name and parameter types, which tell overloads apart
+     */
+    private synchronized int resolve(Method method) {
+
+        int index = dispatch.indexOf(method);
+        if (index >= 0) {
+            return index;
+        }
+        for (int i = 0; i < methods.length; i++) {
+            if (methods[i].getName().equals(method.getName())
+                    && Arrays.equals(methods[i].getParameterTypes(), method.getParameterTypes())) {
+                dispatch = dispatch.with(method, i);
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(method + " is not a method of " + target.getClass().getName());
+    }
+
+    public Object getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the histogram of every method by signature, e.g. {@code put(java.lang.Object,java.lang.Object)},
+     * in the order of the interface
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+
+        Map<String, LatencyHistogram> map = new LinkedHashMap<>();
+        for (int i = 0; i < methods.length; i++) {
+            map.put(signature(methods[i]), histograms[i]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @param signature the name and the fully qualified parameter types, e.g. {@code get(java.lang.Object)}
+     *                  or {@code greet(java.lang.String,int)}
+     * @return the histogram of the method, or null if the interface has no such method
+     */
+    public LatencyHistogram getHistogram(String signature) {
+        return getHistograms().get(signature);
+    }
+
+    @Override
+    public String toString() {
+
+        List<String> called = new ArrayList<>();
+        for (int i = 0; i < methods.length; i++) {
+            if (histograms[i].getCount() > 0) {
+                called.add(signature(methods[i]) + "=" + histograms[i]);
+            }
+        }
+        return "TimingInvocationHandler(" + target.getClass().getSimpleName() + ", " + called + ")";
+    }
+
+    /**
+     * An immutable table from the {@link Method} objects of a proxy to the index, by identity
+     */
+    private static final class Dispatch {
+
+        private final Method[] keys;
+
+        private final int[] indexes;
+
+        private final int size;
+
+        Dispatch(int capacity) {
+            this(new Method[capacity], new int[capacity], 0);
+        }
+
+        private Dispatch(Method[] keys, int[] indexes, int size) {
+
+            this.keys = keys;
+            this.indexes = indexes;
+            this.size = size;
+        }
+
+        int indexOf(Method method) {
+
+            int mask = keys.length - 1;
+            for (int i = System.identityHashCode(method) & mask; ; i = (i + 1) & mask) {
+                Method key = keys[i];
+                if (key == method) {
+                    return indexes[i];
+                }
+                if (null == key) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * @return a table with the method added, or this table if it is half full,
+         * then the method is found by name and parameter types on every call
+         */
+        Dispatch with(Method method, int index) {
+
+            if ((size + 1) * 2 > keys.length) {
+                return this;
+            }
+            Method[] newKeys = keys.clone();
+            int[] newIndexes = indexes.clone();
+            int mask = newKeys.length - 1;
+            int i = System.identityHashCode(method) & mask;
+            while (null != newKeys[i]) {
+                i = (i + 1) & mask;
+            }
+            newKeys[i] = method;
+            newIndexes[i] = index;
+            return new Dispatch(newKeys, newIndexes, size + 1);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.yejianfengblue.java.proxy;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates proxies of service interfaces which time every call, see {@link TimingInvocationHandler}:
+ * <pre>{@code
+ * Map<String, String> map = TimingProxyFactory.newProxy(Map.class, new HashMap<>());
+ * map.put("hello", "world");
+ * log.info("{}", TimingProxyFactory.handlerOf(map).getHistogram("put(java.lang.Object,java.lang.Object)"));
+ * }</pre>
+ *
+ * @author yejianfengblue
+ */
+public final class TimingProxyFactory {
+
+    private TimingProxyFactory() {
+    }
+
+    /**
+     * @param serviceInterface the interface to proxy, the methods of the target outside it are not reachable
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T newProxy(Class<? super T> serviceInterface, T target) {
+
+        if (!serviceInterface.isInterface()) {
+            throw new IllegalArgumentException(serviceInterface.getName() + " is not an interface");
+        }
+        return (T) Proxy.newProxyInstance(serviceInterface.getClassLoader(), new Class<?>[]{serviceInterface},
+                new TimingInvocationHandler(serviceInterface, target));
+    }
+
+    /**
+     * @throws IllegalArgumentException if it is not a proxy created by {@link #newProxy(Class, Object)}
+     */
+    public static TimingInvocationHandler handlerOf(Object proxy) {
+
+        InvocationHandler handler = Proxy.getInvocationHandler(proxy);
+        if (!(handler instanceof TimingInvocationHandler)) {
+            throw new IllegalArgumentException(proxy + " is not a timing proxy");
+        }
+        return (TimingInvocationHandler) handler;
+    }
+}
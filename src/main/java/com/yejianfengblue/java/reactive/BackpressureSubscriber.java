@@ -0,0 +1,458 @@
+package com.yejianfengblue.java.reactive;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Subscribes to a publisher on behalf of one subscriber, and shields the publisher from that subscriber being slow.
+ * <p>
+ * It requests everything from the upstream, so the publisher never waits for it,
+ * e.g. {@link SubmissionPublisher#submit(Object)} doesn't block on a Consumer1 of {@code ReactiveStreamTest},
+ * which never requests. The items are kept in a buffer of its own,
+ * and handed to the subscriber as it requests them, on the thread of {@code onNext} or {@code request},
+ * whichever finds an item and demand. When the buffer is full, the {@link OverflowStrategy} decides.
+ * <p>
+ * The counters can be read at any time, from any thread:
+ * <ul>
+ *     <li>{@link #getReceived()} from the upstream</li>
+ *     <li>{@link #getDelivered()} to the subscriber</li>
+ *     <li>{@link #getDropped()} by {@link OverflowStrategy#DROP_LATEST}, {@link OverflowStrategy#DROP_OLDEST}
+ *     and {@link OverflowStrategy#CONFLATE}</li>
+ *     <li>{@link #getBuffered()} and its high water mark {@link #getMaxBuffered()}</li>
+ * </ul>
+ * Items buffered when the upstream completes or fails are still delivered before {@code onComplete} or {@code onError},
+ * but an overflow error is signalled at once and discards the buffer.
+ * <p>
+ * {@link OverflowStrategy#TIMEOUT} keeps at most twice the capacity while the buffer is full, and its timeout is
+ * checked by a timer of {@link CompletableFuture#delayedExecutor(long, TimeUnit)} started when the buffer fills up,
+ * so a stalled subscriber fails even if nothing more arrives.
+ *
+ * @author yejianfengblue
+ */
+public class BackpressureSubscriber<T> implements Flow.Subscriber<T>, Flow.Subscription {
+
+    private final Flow.Subscriber<? super T> downstream;
+
+    private final OverflowStrategy strategy;
+
+    private final int capacity;
+
+    private final long timeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** guarded by lock */
+    private final ArrayDeque<T> buffer;
+
+    /** {@link OverflowStrategy#TIMEOUT} only, the buffer fails at once beyond this */
+    private final int hardLimit;
+
+    /** guarded by lock, {@link OverflowStrategy#TIMEOUT} only */
+    private boolean full;
+
+    /** guarded by lock, when the buffer became full, {@link OverflowStrategy#TIMEOUT} only */
+    private long fullSinceNanos;
+
+    private final AtomicLong requested = new AtomicLong();
+
+    /** the number of drain requests not yet handled, the thread which moves it from 0 is the one to drain */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile Flow.Subscription upstream;
+
+    private volatile boolean done;
+
+    /** from the upstream, signalled after the buffer is delivered */
+    private volatile Throwable error;
+
+    /** by this, signalled at once */
+    private volatile Throwable overflowError;
+
+    private volatile boolean cancelled;
+
+    /** drain only */
+    private boolean terminated;
+
+    private final LongAdder received = new LongAdder();
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile int buffered;
+
+    private volatile int maxBuffered;
+
+    /**
+     * @param capacity ignored by {@link OverflowStrategy#CONFLATE}, which keeps 1
+     * @throws IllegalArgumentException for {@link OverflowStrategy#TIMEOUT}, which needs a timeout
+     */
+    public BackpressureSubscriber(Flow.Subscriber<? super T> downstream, OverflowStrategy strategy, int capacity) {
+        this(downstream, strategy, capacity, null);
+    }
+
+    /**
+     * @param timeout how long the buffer may stay full, required by {@link OverflowStrategy#TIMEOUT} only,
+     *                which meanwhile buffers up to twice the capacity
+     */
+    public BackpressureSubscriber(Flow.Subscriber<? super T> downstream, OverflowStrategy strategy, int capacity,
+                                  Duration timeout) {
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (OverflowStrategy.TIMEOUT == strategy && (null == timeout || timeout.isNegative())) {
+            throw new IllegalArgumentException("TIMEOUT needs a non-negative timeout: " + timeout);
+        }
+        this.downstream = Objects.requireNonNull(downstream);
+        this.strategy = Objects.requireNonNull(strategy);
+        this.capacity = OverflowStrategy.CONFLATE == strategy ? 1 : capacity;
+        this.hardLimit = (int) Math.min(2L * capacity, Integer.MAX_VALUE);
+        this.timeoutNanos = null == timeout ? 0 : timeout.toNanos();
+        this.buffer = new ArrayDeque<>(Math.min(this.capacity, 1024));
+    }
+
+    public OverflowStrategy getStrategy() {
+        return strategy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getBuffered() {
+        return buffered;
+    }
+
+    public int getMaxBuffered() {
+        return maxBuffered;
+    }
+
+    /////////////////////////////////////////////////////////////////////////// Flow.Subscriber, from the upstream
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+
+        if (null != upstream) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        downstream.onSubscribe(this);
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(T item) {
+
+        if (done) {
+            return;
+        }
+        received.increment();
+        Throwable overflow = null;
+        boolean becameFull = false;
+        long since = 0;
+        lock.lock();
+        try {
+            if (buffer.size() >= capacity) {
+                switch (strategy) {
+                    case DROP_LATEST:
+                        dropped.increment();
+                        return;
+                    case DROP_OLDEST:
+                    case CONFLATE:
+                        buffer.pollFirst();
+                        dropped.increment();
+                        break;
+                    case BUFFER:
+                        overflow = new IllegalStateException("Buffer of " + capacity + " items overflowed");
+                        break;
+                    case TIMEOUT:
+                        if (buffer.size() >= hardLimit) {
+                            overflow = new IllegalStateException("Buffer of " + capacity
+                                    + " items overflowed past " + hardLimit + " while full");
+                        } else {
+                            overflow = timeoutError(fullSinceNanos);
+                        }
+                        break;
+                    default:
+                        throw new AssertionError(strategy);
+                }
+            }
+            if (null == overflow) {
+                buffer.offerLast(item);
+                bufferSizeChanged();
+                if (OverflowStrategy.TIMEOUT == strategy && !full && buffer.size() >= capacity) {
+                    full = becameFull = true;
+                    fullSinceNanos = since = System.nanoTime();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (null != overflow) {
+            overflow(overflow);
+        } else if (becameFull) {
+            long fullSince = since;
+            CompletableFuture.delayedExecutor(timeoutNanos, TimeUnit.NANOSECONDS).execute(() -> checkTimeout(fullSince));
+        }
+        drain();
+    }
+
+    /**
+     * guarded by lock
+     *
+     * @return the error if the buffer has been full since {@code since} for the timeout, or null
+     */
+    private Throwable timeoutError(long since) {
+
+        long fullNanos = System.nanoTime() - since;
+        return full && fullSinceNanos == since && fullNanos >= timeoutNanos
+                ? new TimeoutException("Buffer of " + capacity + " items stayed full for " + Duration.ofNanos(fullNanos))
+                : null;
+    }
+
+    /**
+     * The timer started when the buffer became full at {@code since}, a buffer which has been drained since,
+     * or filled up again with a timer of its own, is left alone
+     */
+    private void checkTimeout(long since) {
+
+        if (done) {
+            return;
+        }
+        Throwable overflow;
+        lock.lock();
+        try {
+            overflow = timeoutError(since);
+        } finally {
+            lock.unlock();
+        }
+        if (null != overflow) {
+            overflow(overflow);
+            drain();
+        }
+    }
+
+    private void overflow(Throwable overflow) {
+
+        // error before done, so a drain which sees done also sees the error, same as onError
+        overflowError = overflow;
+        done = true;
+        upstream.cancel();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+
+        done = true;
+        drain();
+    }
+
+    /////////////////////////////////////////////////////////////////////////// Flow.Subscription, from the downstream
+
+    @Override
+    public void request(long n) {
+
+        if (n <= 0) {
+            overflowError = Demand.nonPositive(n);
+            done = true;
+            upstream.cancel();
+        } else {
+            Demand.add(requested, n);
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+
+        cancelled = true;
+        upstream.cancel();
+        drain();
+    }
+
+    /////////////////////////////////////////////////////////////////////////// deliver
+
+    private void bufferSizeChanged() {
+
+        int size = buffer.size();
+        buffered = size;
+        if (size > maxBuffered) {
+            maxBuffered = size;
+        }
+        if (size < capacity) {
+            full = false;
+        }
+    }
+
+    private T poll() {
+
+        lock.lock();
+        try {
+            T item = buffer.pollFirst();
+            if (null != item) {
+                bufferSizeChanged();
+            }
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isBufferEmpty() {
+
+        lock.lock();
+        try {
+            return buffer.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void clearBuffer() {
+
+        lock.lock();
+        try {
+            buffer.clear();
+            bufferSizeChanged();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+
+        if (0 != wip.getAndIncrement()) {
+            return;
+        }
+        int missed = 1;
+        while (true) {
+            if (!terminated) {
+                drainLoop();
+            }
+            missed = wip.addAndGet(-missed);
+            if (0 == missed) {
+                return;
+            }
+        }
+    }
+
+    private void drainLoop() {
+
+        long demand = requested.get();
+        long emitted = 0;
+        while (emitted != demand) {
+            if (checkTerminated()) {
+                return;
+            }
+            // read done before polling, so a done seen here covers every item buffered before it
+            boolean d = done;
+            T item = poll();
+            if (null == item) {
+                if (d) {
+                    terminate();
+                    return;
+                }
+                break;
+            }
+            downstream.onNext(item);
+            emitted++;
+            delivered.increment();
+        }
+        if (emitted == demand) {
+            if (checkTerminated()) {
+                return;
+            }
+            if (done && isBufferEmpty()) {
+                terminate();
+                return;
+            }
+        }
+        if (0 != emitted && Long.MAX_VALUE != demand) {
+            requested.addAndGet(-emitted);
+        }
+    }
+
+    /**
+     * @return true if cancelled or overflowed, which end the delivery regardless of the buffer
+     */
+    private boolean checkTerminated() {
+
+        if (cancelled) {
+            terminated = true;
+            clearBuffer();
+            return true;
+        }
+        Throwable overflow = overflowError;
+        if (null != overflow) {
+            terminated = true;
+            clearBuffer();
+            downstream.onError(overflow);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called after reading done, so an overflow or a non-positive request, written before done, is seen here
+     * even if it came after the last {@link #checkTerminated()}
+     */
+    private void terminate() {
+
+        if (checkTerminated()) {
+            return;
+        }
+        terminated = true;
+        Throwable e = error;
+        if (null != e) {
+            downstream.onError(e);
+        } else {
+            downstream.onComplete();
+        }
+    }
+
+    @Override
+    public String toString() {
+
+        return "BackpressureSubscriber(strategy=" + strategy
+                + ", capacity=" + capacity
+                + ", received=" + getReceived()
+                + ", delivered=" + getDelivered()
+                + ", dropped=" + getDropped()
+                + ", buffered=" + buffered
+                + ", maxBuffered=" + maxBuffered
+                + ")";
+    }
+}
@@ -0,0 +1,94 @@
+package com.yejianfengblue.java.reactive;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Flow.Subscriber} which requests items in batches instead of one by one.
+ * <p>
+ * It requests {@code batchSize} items up front, and when only {@code lowWatermark} of them are still outstanding,
+ * it requests the consumed ones again in one {@code request(n)}.
+ * So the publisher sees one request per {@code batchSize - lowWatermark} items, instead of one per item
+ * like the Consumer2 of {@code ReactiveStreamTest}, and the outstanding demand never drops to 0 while items keep coming.
+ *
+ * @author yejianfengblue
+ */
+public class BatchingSubscriber<T> implements Flow.Subscriber<T> {
+
+    private final int batchSize;
+
+    private final int replenishAt;
+
+    private final Consumer<? super T> consumer;
+
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private Flow.Subscription subscription;
+
+    /** items received since the last request */
+    private int received;
+
+    /**
+     * Same as {@link #BatchingSubscriber(int, int, Consumer)} with a low watermark of a quarter of the batch
+     */
+    public BatchingSubscriber(int batchSize, Consumer<? super T> consumer) {
+        this(batchSize, batchSize / 4, consumer);
+    }
+
+    public BatchingSubscriber(int batchSize, int lowWatermark, Consumer<? super T> consumer) {
+
+        if (batchSize <= 0 || lowWatermark < 0 || lowWatermark >= batchSize) {
+            throw new IllegalArgumentException("Need 0 <= lowWatermark < batchSize, but got " + lowWatermark + " and " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.replenishAt = batchSize - lowWatermark;
+        this.consumer = Objects.requireNonNull(consumer);
+    }
+
+    /**
+     * @return completed by {@code onComplete}, or completed exceptionally by {@code onError}
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Stop receiving items
+     */
+    public void cancel() {
+
+        Flow.Subscription s = subscription;
+        if (null != s) {
+            s.cancel();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+
+        this.subscription = subscription;
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(T item) {
+
+        consumer.accept(item);
+        if (++received == replenishAt) {
+            received = 0;
+            subscription.request(replenishAt);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        completion.complete(null);
+    }
+}
@@ -0,0 +1,300 @@
+package com.yejianfengblue.java.reactive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link Pipeline#buffer(int)} and {@link Pipeline#buffer(int, java.time.Duration, ScheduledExecutorService)}
+ *
+ * @author yejianfengblue
+ */
+final class BufferOperator<T> implements Flow.Publisher<List<T>> {
+
+    private final Flow.Publisher<T> upstream;
+
+    private final int size;
+
+    /** 0 for no timespan */
+    private final long timespanNanos;
+
+    private final ScheduledExecutorService scheduler;
+
+    BufferOperator(Flow.Publisher<T> upstream, int size, long timespanNanos, ScheduledExecutorService scheduler) {
+
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive: " + size);
+        }
+        this.upstream = upstream;
+        this.size = size;
+        this.timespanNanos = timespanNanos;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<T>> subscriber) {
+
+        if (0 == timespanNanos) {
+            upstream.subscribe(new SizeBufferSubscriber(subscriber));
+        } else {
+            upstream.subscribe(new TimedBufferSubscriber(subscriber));
+        }
+    }
+
+    /**
+     * A request of n lists becomes a request of {@code n * size} items, so a list is emitted only when it is full,
+     * and it always has demand. The last partial list has demand too, since fewer items than requested arrived.
+     */
+    private final class SizeBufferSubscriber implements Flow.Subscriber<T>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super List<T>> downstream;
+
+        private Flow.Subscription subscription;
+
+        private List<T> buffer;
+
+        SizeBufferSubscriber(Flow.Subscriber<? super List<T>> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T item) {
+
+            List<T> b = buffer;
+            if (null == b) {
+                b = new ArrayList<>(size);
+                buffer = b;
+            }
+            b.add(item);
+            if (b.size() == size) {
+                buffer = null;
+                downstream.onNext(b);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+
+            buffer = null;
+            downstream.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+
+            List<T> b = buffer;
+            if (null != b) {
+                buffer = null;
+                downstream.onNext(b);
+            }
+            downstream.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            subscription.request(n <= 0 ? n : Demand.multiply(n, size));
+        }
+
+        @Override
+        public void cancel() {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * The timer may emit a partial list, which uses up a list of demand for fewer items,
+     * so the upstream is asked for no more than what fills the current list.
+     * The signals of the upstream, the downstream and the timer are serialized by one lock, which is held
+     * while calling the downstream.
+     */
+    private final class TimedBufferSubscriber implements Flow.Subscriber<T>, Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super List<T>> downstream;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private Flow.Subscription subscription;
+
+        private ScheduledFuture<?> timer;
+
+        /** guarded by lock */
+        private List<T> buffer = new ArrayList<>(size);
+
+        /** guarded by lock, lists requested by the downstream */
+        private long requested;
+
+        /** guarded by lock, items requested from the upstream and not yet received */
+        private long outstanding;
+
+        /** guarded by lock */
+        private boolean done;
+
+        /** guarded by lock */
+        private boolean terminated;
+
+        TimedBufferSubscriber(Flow.Subscriber<? super List<T>> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            timer = scheduler.scheduleAtFixedRate(this, timespanNanos, timespanNanos, TimeUnit.NANOSECONDS);
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T item) {
+
+            lock.lock();
+            try {
+                if (terminated || done) {
+                    return;
+                }
+                outstanding--;
+                buffer.add(item);
+                if (buffer.size() == size && requested > 0) {
+                    emit();
+                }
+                replenish();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** the timer */
+        @Override
+        public void run() {
+
+            lock.lock();
+            try {
+                if (!terminated && !done && !buffer.isEmpty() && requested > 0) {
+                    emit();
+                    replenish();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+
+            lock.lock();
+            try {
+                if (!terminated) {
+                    terminated = true;
+                    timer.cancel(false);
+                    buffer = null;
+                    downstream.onError(throwable);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onComplete() {
+
+            lock.lock();
+            try {
+                if (!terminated) {
+                    done = true;
+                    timer.cancel(false);
+                    tryComplete();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+
+            lock.lock();
+            try {
+                if (terminated) {
+                    return;
+                }
+                if (n <= 0) {
+                    terminated = true;
+                    timer.cancel(false);
+                    subscription.cancel();
+                    downstream.onError(Demand.nonPositive(n));
+                    return;
+                }
+                requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+                if (done) {
+                    tryComplete();
+                    return;
+                }
+                if (buffer.size() == size) {
+                    emit();
+                }
+                replenish();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+
+            lock.lock();
+            try {
+                if (!terminated) {
+                    terminated = true;
+                    timer.cancel(false);
+                    subscription.cancel();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void emit() {
+
+            List<T> b = buffer;
+            buffer = new ArrayList<>(size);
+            if (Long.MAX_VALUE != requested) {
+                requested--;
+            }
+            downstream.onNext(b);
+        }
+
+        private void replenish() {
+
+            if (requested > 0 && !terminated && !done) {
+                long want = size - buffer.size() - outstanding;
+                if (want > 0) {
+                    outstanding += want;
+                    subscription.request(want);
+                }
+            }
+        }
+
+        /** once done, wait for demand for the last list */
+        private void tryComplete() {
+
+            if (buffer.isEmpty() || requested > 0) {
+                terminated = true;
+                if (!buffer.isEmpty()) {
+                    emit();
+                }
+                downstream.onComplete();
+            }
+        }
+    }
+}
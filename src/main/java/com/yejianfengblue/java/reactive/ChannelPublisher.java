@@ -0,0 +1,338 @@
+package com.yejianfengblue.java.reactive;
+
+import com.yejianfengblue.java.concurrency.ObjectPool;
+import com.yejianfengblue.java.concurrency.ObjectPool.PooledObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Flow.Publisher} of the bytes of a file or a TCP connection, in chunks read into pooled {@link ByteBuffer}s.
+ * <p>
+ * Every subscriber gets its own channel, opened on subscribe, and a read is only started when the subscriber has
+ * demand, one read at a time, so a slow subscriber just leaves the bytes in the file or in the socket receive buffer.
+ * A chunk is emitted as a {@link PooledObject} with the buffer flipped for reading, and the subscriber returns it
+ * to the pool by closing it, so the memory in use is the pool, whatever the size of the input.
+ * If the subscriber holds on to every buffer of the pool, the next read waits on the executor until one is returned.
+ * <p>
+ * {@link #ofFile} and {@link #ofSocket} read with blocking calls on the executor,
+ * {@link #ofAsynchronousFile} reads with an {@link AsynchronousFileChannel}, which doesn't take an executor thread
+ * while the read is in progress. Cancelling closes the channel, which also ends a read waiting for socket data
+ * with an {@link java.nio.channels.AsynchronousCloseException}, which is not signalled.
+ * {@link LineDecoder} turns the chunks into lines.
+ *
+ * @author yejianfengblue
+ */
+public class ChannelPublisher implements Flow.Publisher<PooledObject<ByteBuffer>> {
+
+    private final Callable<ChunkChannel> opener;
+
+    private final ObjectPool<ByteBuffer> pool;
+
+    private final Executor executor;
+
+    private ChannelPublisher(Callable<ChunkChannel> opener, ObjectPool<ByteBuffer> pool, Executor executor) {
+
+        this.opener = opener;
+        this.pool = Objects.requireNonNull(pool);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * A pool of up to {@code buffers} buffers of {@code chunkSize} bytes, created on demand
+     */
+    public static ObjectPool<ByteBuffer> newBufferPool(int buffers, int chunkSize, boolean direct) {
+
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        return new ObjectPool<>(buffers,
+                () -> direct ? ByteBuffer.allocateDirect(chunkSize) : ByteBuffer.allocate(chunkSize),
+                buffer -> { });
+    }
+
+    public static ChannelPublisher ofFile(Path path, ObjectPool<ByteBuffer> pool, Executor executor) {
+
+        Objects.requireNonNull(path);
+        return new ChannelPublisher(() -> new BlockingChunkChannel(FileChannel.open(path, StandardOpenOption.READ)),
+                pool, executor);
+    }
+
+    /**
+     * @param executor only used to wait for a buffer when the pool is empty
+     */
+    public static ChannelPublisher ofAsynchronousFile(Path path, ObjectPool<ByteBuffer> pool, Executor executor) {
+
+        Objects.requireNonNull(path);
+        return new ChannelPublisher(() -> new AsynchronousChunkChannel(
+                AsynchronousFileChannel.open(path, StandardOpenOption.READ)), pool, executor);
+    }
+
+    /**
+     * Connect on subscribe, and read until the peer closes its output
+     */
+    public static ChannelPublisher ofSocket(InetSocketAddress address, ObjectPool<ByteBuffer> pool, Executor executor) {
+
+        Objects.requireNonNull(address);
+        return new ChannelPublisher(() -> new BlockingChunkChannel(SocketChannel.open(address)), pool, executor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PooledObject<ByteBuffer>> subscriber) {
+
+        Objects.requireNonNull(subscriber);
+        ChunkChannel channel;
+        try {
+            channel = opener.call();
+        } catch (Exception e) {
+            subscriber.onSubscribe(new ChannelSubscription(subscriber, null));
+            subscriber.onError(e);
+            return;
+        }
+        subscriber.onSubscribe(new ChannelSubscription(subscriber, channel));
+    }
+
+    /////////////////////////////////////////////////////////////////////////// channels
+
+    /**
+     * One read at a time into the buffer, the completion is signalled to the handler on any thread
+     */
+    private interface ChunkChannel extends Closeable {
+
+        void read(ByteBuffer buffer, Executor executor, CompletionHandler<Integer, Void> handler);
+    }
+
+    /**
+     * A {@link FileChannel} or a {@link SocketChannel} in blocking mode, read on the executor
+     */
+    private static final class BlockingChunkChannel implements ChunkChannel {
+
+        private final ReadableByteChannel channel;
+
+        BlockingChunkChannel(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void read(ByteBuffer buffer, Executor executor, CompletionHandler<Integer, Void> handler) {
+
+            executor.execute(() -> {
+                int n;
+                try {
+                    n = channel.read(buffer);
+                } catch (Throwable e) {
+                    handler.failed(e, null);
+                    return;
+                }
+                handler.completed(n, null);
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class AsynchronousChunkChannel implements ChunkChannel {
+
+        private final AsynchronousFileChannel channel;
+
+        /** only touched by the read in progress and its completion */
+        private long position;
+
+        AsynchronousChunkChannel(AsynchronousFileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void read(ByteBuffer buffer, Executor executor, CompletionHandler<Integer, Void> handler) {
+
+            channel.read(buffer, position, null, new CompletionHandler<Integer, Void>() {
+
+                @Override
+                public void completed(Integer n, Void attachment) {
+
+                    if (n > 0) {
+                        position += n;
+                    }
+                    handler.completed(n, null);
+                }
+
+                @Override
+                public void failed(Throwable e, Void attachment) {
+                    handler.failed(e, null);
+                }
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////// subscription
+
+    /**
+     * Starts a read when there is demand and no read in progress. Since only one read is in progress at a time,
+     * and it signals the subscriber before the next one can start, the signals are serialized without a lock.
+     * A non-positive request is signalled the same way, by whoever gets to start the next read.
+     */
+    private final class ChannelSubscription implements Flow.Subscription, CompletionHandler<Integer, Void> {
+
+        private final Flow.Subscriber<? super PooledObject<ByteBuffer>> subscriber;
+
+        private final ChunkChannel channel;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        /** a read is in progress, or a buffer is being waited for */
+        private final AtomicBoolean reading = new AtomicBoolean();
+
+        private volatile boolean cancelled;
+
+        private volatile Throwable requestError;
+
+        /** the buffer of the read in progress */
+        private PooledObject<ByteBuffer> chunk;
+
+        ChannelSubscription(Flow.Subscriber<? super PooledObject<ByteBuffer>> subscriber, ChunkChannel channel) {
+
+            this.subscriber = subscriber;
+            this.channel = channel;
+            this.cancelled = null == channel;
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                requestError = Demand.nonPositive(n);
+            } else {
+                Demand.add(requested, n);
+            }
+            tryRead();
+        }
+
+        @Override
+        public void cancel() {
+
+            if (!cancelled) {
+                cancelled = true;
+                closeChannel();
+            }
+        }
+
+        private void tryRead() {
+
+            if (cancelled || (0 == requested.get() && null == requestError) || !reading.compareAndSet(false, true)) {
+                return;
+            }
+            Throwable error = requestError;
+            if (null != error) {
+                fail(error);
+                return;
+            }
+            PooledObject<ByteBuffer> buffer;
+            try {
+                buffer = pool.acquire(0, TimeUnit.NANOSECONDS);
+            } catch (Throwable e) {
+                fail(e);
+                return;
+            }
+            if (null != buffer) {
+                startRead(buffer);
+            } else {
+                executor.execute(() -> {
+                    try {
+                        startRead(pool.acquire());
+                    } catch (Throwable e) {
+                        fail(e);
+                    }
+                });
+            }
+        }
+
+        private void startRead(PooledObject<ByteBuffer> buffer) {
+
+            buffer.get().clear();
+            chunk = buffer;
+            channel.read(buffer.get(), executor, this);
+        }
+
+        @Override
+        public void completed(Integer n, Void attachment) {
+
+            PooledObject<ByteBuffer> buffer = chunk;
+            chunk = null;
+            if (cancelled) {
+                buffer.close();
+                return;
+            }
+            if (n < 0) {
+                buffer.close();
+                cancelled = true;
+                closeChannel();
+                subscriber.onComplete();
+                return;
+            }
+            if (0 == n) {
+                buffer.close();
+            } else {
+                buffer.get().flip();
+                Demand.produced(requested, 1);
+                subscriber.onNext(buffer);
+            }
+            reading.set(false);
+            tryRead();
+        }
+
+        @Override
+        public void failed(Throwable e, Void attachment) {
+
+            PooledObject<ByteBuffer> buffer = chunk;
+            chunk = null;
+            if (null != buffer) {
+                buffer.close();
+            }
+            fail(e);  // nothing if cancelled, which is how a read ends with AsynchronousCloseException
+        }
+
+        private void fail(Throwable e) {
+
+            if (!cancelled) {
+                cancelled = true;
+                closeChannel();
+                subscriber.onError(e);
+            }
+        }
+
+        private void closeChannel() {
+
+            try {
+                if (null != channel) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                // nothing more to read from it anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.yejianfengblue.java.reactive;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Demand accounting shared by the publishers and operators of this package
+ *
+ * @author yejianfengblue
+ */
+final class Demand {
+
+    private Demand() {
+    }
+
+    /**
+     * Add {@code n} to the outstanding demand, capped at {@link Long#MAX_VALUE} which means unbounded, as the spec allows
+     *
+     * @return the demand before
+     */
+    static long add(AtomicLong requested, long n) {
+
+        long current;
+        long next;
+        do {
+            current = requested.get();
+            if (Long.MAX_VALUE == current) {
+                return current;
+            }
+            next = current + n < 0 ? Long.MAX_VALUE : current + n;
+        } while (!requested.compareAndSet(current, next));
+        return current;
+    }
+
+    /**
+     * Take {@code emitted} off the outstanding demand, unless it is unbounded
+     *
+     * @return the demand after
+     */
+    static long produced(AtomicLong requested, long emitted) {
+
+        long current = requested.get();
+        if (Long.MAX_VALUE == current || 0 == emitted) {
+            return current;
+        }
+        return requested.addAndGet(-emitted);
+    }
+
+    /**
+     * @return {@code a * b}, or {@link Long#MAX_VALUE} on overflow
+     */
+    static long multiply(long a, long b) {
+
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        return 0 != high || low < 0 ? Long.MAX_VALUE : low;  // both are positive
+    }
+
+    static IllegalArgumentException nonPositive(long n) {
+        return new IllegalArgumentException("Non-positive request: " + n);
+    }
+}
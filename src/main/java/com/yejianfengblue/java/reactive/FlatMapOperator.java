@@ -0,0 +1,286 @@
+package com.yejianfengblue.java.reactive;
+
+import com.yejianfengblue.java.concurrency.connection.MpmcArrayQueue;
+
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * {@link Pipeline#flatMap(Function, int, int)}
+ * <p>
+ * The upstream is asked for {@code maxConcurrency} items up front, and for one more whenever an inner publisher
+ * completes, so at most {@code maxConcurrency} inner publishers are subscribed at a time.
+ * Every inner publisher is asked for {@code prefetch} items into a queue of its own, replenished at 3/4 consumed.
+ * One drain loop at a time moves items from the queues to the downstream, as far as the downstream demand goes.
+ * The first error, of the upstream or of an inner publisher, cancels everything and is signalled at once.
+ *
+ * @author yejianfengblue
+ */
+final class FlatMapOperator<T, R> implements Flow.Publisher<R> {
+
+    private final Flow.Publisher<T> upstream;
+
+    private final Function<? super T, ? extends Flow.Publisher<? extends R>> mapper;
+
+    private final int maxConcurrency;
+
+    private final int prefetch;
+
+    FlatMapOperator(Flow.Publisher<T> upstream, Function<? super T, ? extends Flow.Publisher<? extends R>> mapper,
+                    int maxConcurrency, int prefetch) {
+
+        if (maxConcurrency <= 0 || prefetch <= 0) {
+            throw new IllegalArgumentException("Max concurrency and prefetch must be positive: "
+                    + maxConcurrency + ", " + prefetch);
+        }
+        this.upstream = upstream;
+        this.mapper = mapper;
+        this.maxConcurrency = maxConcurrency;
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> subscriber) {
+        upstream.subscribe(new MergeSubscriber(subscriber));
+    }
+
+    private final class MergeSubscriber implements Flow.Subscriber<T>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super R> downstream;
+
+        /** the inner subscribers not yet completed and drained */
+        private final CopyOnWriteArrayList<InnerSubscriber> inners = new CopyOnWriteArrayList<>();
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        private Flow.Subscription subscription;
+
+        private volatile boolean done;
+
+        private volatile boolean cancelled;
+
+        /** drain only */
+        private boolean terminated;
+
+        MergeSubscriber(Flow.Subscriber<? super R> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            downstream.onSubscribe(this);
+            subscription.request(maxConcurrency);
+        }
+
+        @Override
+        public void onNext(T item) {
+
+            if (done) {
+                return;
+            }
+            Flow.Publisher<? extends R> publisher;
+            try {
+                publisher = Objects.requireNonNull(mapper.apply(item), "The mapper returned null");
+            } catch (Throwable e) {
+                subscription.cancel();
+                onError(e);
+                return;
+            }
+            InnerSubscriber inner = new InnerSubscriber();
+            inners.add(inner);
+            publisher.subscribe(inner);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+
+            error.compareAndSet(null, throwable);
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                error.compareAndSet(null, Demand.nonPositive(n));
+            } else {
+                Demand.add(requested, n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+
+            cancelled = true;
+            drain();
+        }
+
+        void innerError(Throwable throwable) {
+
+            error.compareAndSet(null, throwable);
+            drain();
+        }
+
+        void drain() {
+
+            if (0 != wip.getAndIncrement()) {
+                return;
+            }
+            int missed = 1;
+            while (true) {
+                if (!terminated) {
+                    drainLoop();
+                }
+                missed = wip.addAndGet(-missed);
+                if (0 == missed) {
+                    return;
+                }
+            }
+        }
+
+        private void drainLoop() {
+
+            if (cancelled) {
+                cancelAll();
+                return;
+            }
+            Throwable e = error.get();
+            if (null != e) {
+                cancelAll();
+                downstream.onError(e);
+                return;
+            }
+            // read done before the inners, every inner is added before the upstream completes
+            boolean d = done;
+            long demand = requested.get();
+            long emitted = 0;
+            int completed = 0;
+            for (InnerSubscriber inner : inners) {
+                while (emitted != demand) {
+                    R item = inner.queue.poll();
+                    if (null == item) {
+                        break;
+                    }
+                    downstream.onNext(item);
+                    emitted++;
+                    inner.consumed();
+                    if (cancelled || null != error.get()) {
+                        return;  // handled by the next round, which the cancel or error has asked for
+                    }
+                }
+                boolean innerDone = inner.done;
+                if (innerDone && inner.queue.isEmpty()) {
+                    inners.remove(inner);
+                    completed++;
+                }
+            }
+            Demand.produced(requested, emitted);
+            if (d && inners.isEmpty()) {
+                terminated = true;
+                downstream.onComplete();
+                return;
+            }
+            if (completed > 0 && !d) {
+                subscription.request(completed);
+            }
+        }
+
+        private void cancelAll() {
+
+            terminated = true;
+            subscription.cancel();
+            for (InnerSubscriber inner : inners) {
+                inner.cancel();
+            }
+            inners.clear();
+        }
+
+        private final class InnerSubscriber implements Flow.Subscriber<R> {
+
+            private final MpmcArrayQueue<R> queue = new MpmcArrayQueue<>(prefetch);
+
+            private final int limit = prefetch - prefetch / 4;
+
+            private volatile Flow.Subscription subscription;
+
+            private volatile boolean done;
+
+            /** drain only */
+            private int consumed;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+
+                this.subscription = subscription;
+                if (cancelled || null != error.get()) {
+                    subscription.cancel();
+                } else {
+                    subscription.request(prefetch);
+                }
+            }
+
+            @Override
+            public void onNext(R item) {
+
+                if (!queue.offer(item)) {
+                    subscription.cancel();
+                    onError(new IllegalStateException("Queue of " + prefetch
+                            + " items is full, the inner publisher ignored the demand"));
+                    return;
+                }
+                drain();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+
+                done = true;
+                innerError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+
+                done = true;
+                drain();
+            }
+
+            void consumed() {
+
+                if (++consumed == limit) {
+                    consumed = 0;
+                    subscription.request(limit);
+                }
+            }
+
+            void cancel() {
+
+                Flow.Subscription s = subscription;
+                if (null != s) {
+                    s.cancel();
+                }
+                queue.clear();
+            }
+        }
+    }
+}
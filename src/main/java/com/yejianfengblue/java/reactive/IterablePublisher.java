@@ -0,0 +1,116 @@
+package com.yejianfengblue.java.reactive;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Pipeline#fromIterable(Iterable)}, emits on the thread which requests.
+ * A {@code request(n)} from within {@code onNext} only adds to the demand of the loop already running,
+ * so the stack doesn't grow with the number of items.
+ *
+ * @author yejianfengblue
+ */
+final class IterablePublisher<T> implements Flow.Publisher<T> {
+
+    private final Iterable<? extends T> iterable;
+
+    IterablePublisher(Iterable<? extends T> iterable) {
+        this.iterable = iterable;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+
+        Iterator<? extends T> iterator;
+        try {
+            iterator = iterable.iterator();
+        } catch (Throwable e) {
+            subscriber.onSubscribe(new IterableSubscription<>(subscriber, null));
+            subscriber.onError(e);
+            return;
+        }
+        subscriber.onSubscribe(new IterableSubscription<>(subscriber, iterator));
+    }
+
+    private static final class IterableSubscription<T> implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+
+        private final Iterator<? extends T> iterator;
+
+        /** the demand not yet emitted, the thread which moves it from 0 is the one to emit */
+        private final AtomicLong requested = new AtomicLong();
+
+        private volatile boolean cancelled;
+
+        IterableSubscription(Flow.Subscriber<? super T> subscriber, Iterator<? extends T> iterator) {
+
+            this.subscriber = subscriber;
+            this.iterator = iterator;
+            this.cancelled = null == iterator;
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(Demand.nonPositive(n));
+                return;
+            }
+            if (0 != Demand.add(requested, n)) {
+                return;
+            }
+            long demand = n;
+            long emitted = 0;
+            while (true) {
+                while (emitted != demand) {
+                    if (cancelled) {
+                        return;
+                    }
+                    T item;
+                    try {
+                        if (!iterator.hasNext()) {
+                            cancelled = true;
+                            subscriber.onComplete();
+                            return;
+                        }
+                        item = Objects.requireNonNull(iterator.next());
+                    } catch (Throwable e) {
+                        cancelled = true;
+                        subscriber.onError(e);
+                        return;
+                    }
+                    subscriber.onNext(item);
+                    emitted++;
+                    if (cancelled) {
+                        return;
+                    }
+                    try {
+                        if (!iterator.hasNext()) {  // complete without waiting for more demand
+                            cancelled = true;
+                            subscriber.onComplete();
+                            return;
+                        }
+                    } catch (Throwable e) {
+                        cancelled = true;
+                        subscriber.onError(e);
+                        return;
+                    }
+                }
+                demand = Demand.produced(requested, emitted);
+                emitted = 0;
+                if (0 == demand) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.yejianfengblue.java.reactive;
+
+import com.yejianfengblue.java.concurrency.ObjectPool.PooledObject;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Flow.Publisher} of the lines in the chunks of a {@link ChannelPublisher}, without the line terminator,
+ * which is {@code \n} or {@code \r\n}.
+ * <p>
+ * A chunk is decoded and returned to the pool as soon as it arrives, and the next chunk is only requested
+ * when the lines of the previous one have all been delivered, so what is held is at most one chunk of lines
+ * and the line which continues into the next chunk. A character split across two chunks is carried over,
+ * and malformed input is replaced.
+ *
+ * @author yejianfengblue
+ */
+public class LineDecoder implements Flow.Publisher<String> {
+
+    private final Flow.Publisher<? extends PooledObject<ByteBuffer>> chunks;
+
+    private final Charset charset;
+
+    public LineDecoder(Flow.Publisher<? extends PooledObject<ByteBuffer>> chunks, Charset charset) {
+
+        this.chunks = Objects.requireNonNull(chunks);
+        this.charset = Objects.requireNonNull(charset);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        chunks.subscribe(new LineSubscriber(Objects.requireNonNull(subscriber)));
+    }
+
+    private final class LineSubscriber implements Flow.Subscriber<PooledObject<ByteBuffer>>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super String> downstream;
+
+        private final CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        /** upstream only, the bytes of a character split across chunks */
+        private final ByteBuffer carry = ByteBuffer.allocate(16);
+
+        /** upstream only */
+        private CharBuffer chars;
+
+        /** upstream only, the line so far */
+        private final StringBuilder line = new StringBuilder();
+
+        /** the lines of the last chunk not yet delivered */
+        private final ConcurrentLinkedQueue<String> lines = new ConcurrentLinkedQueue<>();
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private Flow.Subscription subscription;
+
+        /** a chunk is requested and not yet arrived */
+        private volatile boolean chunkRequested;
+
+        private volatile boolean done;
+
+        private volatile Throwable error;
+
+        private volatile Throwable requestError;
+
+        private volatile boolean cancelled;
+
+        /** drain only */
+        private boolean terminated;
+
+        LineSubscriber(Flow.Subscriber<? super String> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(PooledObject<ByteBuffer> chunk) {
+
+            try {
+                decode(chunk.get(), false);
+            } finally {
+                chunk.close();
+            }
+            chunkRequested = false;
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+
+            decode(ByteBuffer.allocate(0), true);
+            if (line.length() > 0) {
+                lines.offer(line.toString());
+                line.setLength(0);
+            }
+            done = true;
+            drain();
+        }
+
+        private void decode(ByteBuffer bytes, boolean endOfInput) {
+
+            if (null == chars) {
+                chars = CharBuffer.allocate(Math.max(64, (int) (bytes.remaining() * decoder.maxCharsPerByte())));
+            }
+            // finish a character split across the chunks, byte by byte
+            while (carry.position() > 0 && bytes.hasRemaining()) {
+                carry.put(bytes.get());
+                carry.flip();
+                decodeFully(carry, false);
+                carry.compact();
+            }
+            decodeFully(bytes, endOfInput);
+            carry.put(bytes);  // less than a character
+            if (endOfInput) {
+                carry.flip();
+                decodeFully(carry, true);
+                carry.clear();
+                while (decoder.flush(chars).isOverflow()) {
+                    scan();
+                }
+                scan();
+                decoder.reset();
+            }
+        }
+
+        private void decodeFully(ByteBuffer bytes, boolean endOfInput) {
+
+            while (true) {
+                CoderResult result = decoder.decode(bytes, chars, endOfInput);
+                scan();
+                if (!result.isOverflow()) {
+                    return;
+                }
+            }
+        }
+
+        /** move the decoded chars into lines */
+        private void scan() {
+
+            chars.flip();
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if ('\n' == c) {
+                    int length = line.length();
+                    if (length > 0 && '\r' == line.charAt(length - 1)) {
+                        line.setLength(length - 1);
+                    }
+                    lines.offer(line.toString());
+                    line.setLength(0);
+                } else {
+                    line.append(c);
+                }
+            }
+            chars.clear();
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                requestError = Demand.nonPositive(n);
+            } else {
+                Demand.add(requested, n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+
+            cancelled = true;
+            subscription.cancel();
+            drain();
+        }
+
+        private void drain() {
+
+            if (0 != wip.getAndIncrement()) {
+                return;
+            }
+            int missed = 1;
+            while (true) {
+                if (!terminated) {
+                    drainLoop();
+                }
+                missed = wip.addAndGet(-missed);
+                if (0 == missed) {
+                    return;
+                }
+            }
+        }
+
+        private void drainLoop() {
+
+            long demand = requested.get();
+            long emitted = 0;
+            while (true) {
+                if (cancelled) {
+                    terminated = true;
+                    lines.clear();
+                    return;
+                }
+                Throwable e = requestError;
+                if (null != e) {
+                    terminated = true;
+                    lines.clear();
+                    subscription.cancel();
+                    downstream.onError(e);
+                    return;
+                }
+                boolean d = done;
+                String next = emitted == demand ? null : lines.poll();
+                if (null == next) {
+                    if (d && lines.isEmpty()) {
+                        terminated = true;
+                        Throwable error = this.error;
+                        if (null != error) {
+                            downstream.onError(error);
+                        } else {
+                            downstream.onComplete();
+                        }
+                        return;
+                    }
+                    break;
+                }
+                downstream.onNext(next);
+                emitted++;
+            }
+            demand = Demand.produced(requested, emitted);
+            if (demand > 0 && lines.isEmpty() && !done && !chunkRequested) {
+                chunkRequested = true;
+                subscription.request(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.yejianfengblue.java.reactive;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link Flow.Publisher} decorator which meters every subscriber with a {@link MeteredSubscriber},
+ * named after the publisher, the subscriber class and the order of subscription.
+ * Create it through {@link PipelineMetrics#meter(String, Flow.Publisher)}.
+ *
+ * @author yejianfengblue
+ */
+public class MeteredPublisher<T> implements Flow.Publisher<T> {
+
+    private final PipelineMetrics metrics;
+
+    private final String name;
+
+    private final Flow.Publisher<T> publisher;
+
+    /** the items produced by the publisher so far, or null if unknown */
+    private final LongSupplier produced;
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    MeteredPublisher(PipelineMetrics metrics, String name, Flow.Publisher<T> publisher, LongSupplier produced) {
+
+        this.metrics = metrics;
+        this.name = Objects.requireNonNull(name);
+        this.publisher = Objects.requireNonNull(publisher);
+        this.produced = produced;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+
+        Objects.requireNonNull(subscriber);
+        String stageName = name + "/" + subscriber.getClass().getSimpleName() + "#" + subscriberCount.incrementAndGet();
+        MeteredSubscriber<T> metered = new MeteredSubscriber<>(stageName, name, subscriber, null, produced);
+        metrics.register(metered);
+        publisher.subscribe(metered);
+    }
+}
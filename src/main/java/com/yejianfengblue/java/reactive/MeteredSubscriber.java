@@ -0,0 +1,203 @@
+package com.yejianfengblue.java.reactive;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link Flow.Subscriber} decorator which counts the demand and the items going through, for {@link PipelineMetrics}.
+ * <p>
+ * The element path is one release store of a counter only written by {@code onNext}, since the spec serializes
+ * {@code onNext}, and a request is one CAS. No lock and no clock, the rates are derived from the counts
+ * when a snapshot is taken. Create it through {@link PipelineMetrics#meter(String, Flow.Subscriber)}
+ * or {@link PipelineMetrics#meter(String, Flow.Publisher)}.
+ *
+ * @author yejianfengblue
+ */
+public class MeteredSubscriber<T> implements Flow.Subscriber<T>, Flow.Subscription {
+
+    /** what happened to the subscription */
+    public enum State {
+        SUBSCRIBING, ACTIVE, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final String name;
+
+    /** the name of the metered publisher it subscribed to, or null */
+    private final String publisherName;
+
+    private final Flow.Subscriber<? super T> downstream;
+
+    /** the items buffered for this subscriber, e.g. by a {@link BackpressureSubscriber}, or null if unknown */
+    private final IntSupplier bufferFill;
+
+    /** the items produced by the publisher so far, or null if unknown */
+    private final LongSupplier produced;
+
+    /** the items produced before onSubscribe, which a subscriber doesn't receive */
+    private volatile long producedBase;
+
+    private final AtomicLong requested = new AtomicLong();
+
+    /** only written by onNext */
+    private final AtomicLong delivered = new AtomicLong();
+
+    private final long createdNanos = System.nanoTime();
+
+    private volatile State state = State.SUBSCRIBING;
+
+    private volatile Throwable error;
+
+    private Flow.Subscription upstream;
+
+    /** the counts at the previous snapshot, for the recent rate */
+    private long lastSnapshotNanos = createdNanos;
+
+    private long lastSnapshotDelivered;
+
+    MeteredSubscriber(String name, String publisherName, Flow.Subscriber<? super T> downstream, IntSupplier bufferFill,
+                      LongSupplier produced) {
+
+        this.name = Objects.requireNonNull(name);
+        this.publisherName = publisherName;
+        this.downstream = Objects.requireNonNull(downstream);
+        this.bufferFill = null == bufferFill && downstream instanceof BackpressureSubscriber
+                ? ((BackpressureSubscriber<?>) downstream)::getBuffered
+                : bufferFill;
+        this.produced = produced;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPublisherName() {
+        return publisherName;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /** capped at {@link Long#MAX_VALUE}, which means unbounded */
+    public long getRequested() {
+        return requested.get();
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * @return the items requested and not yet delivered, {@link Long#MAX_VALUE} if unbounded
+     */
+    public long getOutstandingDemand() {
+
+        long r = requested.get();
+        return Long.MAX_VALUE == r ? r : r - delivered.get();
+    }
+
+    /**
+     * @return the items buffered for this subscriber, or -1 if unknown
+     */
+    public int getBufferFill() {
+        return null == bufferFill ? -1 : bufferFill.getAsInt();
+    }
+
+    /**
+     * @return the items produced for this subscriber and not yet delivered, or -1 if unknown
+     */
+    public long getLag() {
+
+        if (null == produced) {
+            return -1;
+        }
+        if (State.SUBSCRIBING == state) {
+            return 0;
+        }
+        return Math.max(0, produced.getAsLong() - producedBase - delivered.get());
+    }
+
+    /////////////////////////////////////////////////////////////////////////// Flow.Subscriber
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+
+        upstream = subscription;
+        if (null != produced) {
+            // sampled once the publisher has registered the subscriber, before state, which getLag reads first
+            producedBase = produced.getAsLong();
+        }
+        state = State.ACTIVE;
+        downstream.onSubscribe(this);
+    }
+
+    @Override
+    public void onNext(T item) {
+
+        delivered.setRelease(delivered.getPlain() + 1);
+        downstream.onNext(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+
+        error = throwable;
+        state = State.FAILED;
+        downstream.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+
+        state = State.COMPLETED;
+        downstream.onComplete();
+    }
+
+    /////////////////////////////////////////////////////////////////////////// Flow.Subscription
+
+    @Override
+    public void request(long n) {
+
+        if (n > 0) {
+            Demand.add(requested, n);
+        }
+        upstream.request(n);
+    }
+
+    @Override
+    public void cancel() {
+
+        state = State.CANCELLED;
+        upstream.cancel();
+    }
+
+    /////////////////////////////////////////////////////////////////////////// snapshot
+
+    /**
+     * Called by {@link PipelineMetrics#snapshot()}, one thread at a time
+     */
+    PipelineMetrics.StageSnapshot snapshot(long nowNanos) {
+
+        long d = delivered.get();
+        long sinceCreated = nowNanos - createdNanos;
+        long sinceLast = nowNanos - lastSnapshotNanos;
+        double rate = PipelineMetrics.perSecond(d, sinceCreated);
+        double recentRate = PipelineMetrics.perSecond(d - lastSnapshotDelivered, sinceLast);
+        lastSnapshotNanos = nowNanos;
+        lastSnapshotDelivered = d;
+        return new PipelineMetrics.StageSnapshot(name, publisherName, state, requested.get(), d, getOutstandingDemand(),
+                getBufferFill(), getLag(), rate, recentRate);
+    }
+
+    @Override
+    public String toString() {
+        return "MeteredSubscriber(" + name + ", " + downstream + ")";
+    }
+}
@@ -0,0 +1,196 @@
+package com.yejianfengblue.java.reactive;
+
+import com.yejianfengblue.java.concurrency.connection.MpmcArrayQueue;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Pipeline#observeOn(Executor, int)}
+ * <p>
+ * The upstream is asked for {@code prefetch} items up front, and for the consumed ones again
+ * once 3/4 of them are consumed, so the queue never overflows. The drain runs as one task on the executor,
+ * which loops while there are items and demand, instead of one task per item.
+ * Items already queued are delivered before {@code onError}.
+ *
+ * @author yejianfengblue
+ */
+final class ObserveOnOperator<T> implements Flow.Publisher<T> {
+
+    private final Flow.Publisher<T> upstream;
+
+    private final Executor executor;
+
+    private final int prefetch;
+
+    ObserveOnOperator(Flow.Publisher<T> upstream, Executor executor, int prefetch) {
+
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("Prefetch must be positive: " + prefetch);
+        }
+        this.upstream = upstream;
+        this.executor = executor;
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        upstream.subscribe(new ObserveOnSubscriber(subscriber));
+    }
+
+    private final class ObserveOnSubscriber implements Flow.Subscriber<T>, Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super T> downstream;
+
+        private final MpmcArrayQueue<T> queue = new MpmcArrayQueue<>(prefetch);
+
+        private final int limit = prefetch - prefetch / 4;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private Flow.Subscription subscription;
+
+        private volatile boolean done;
+
+        private volatile Throwable error;
+
+        private volatile Throwable requestError;
+
+        private volatile boolean cancelled;
+
+        /** drain only */
+        private boolean terminated;
+
+        /** drain only, consumed since the last request to the upstream */
+        private int consumed;
+
+        ObserveOnSubscriber(Flow.Subscriber<? super T> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            downstream.onSubscribe(this);
+            subscription.request(prefetch);
+        }
+
+        @Override
+        public void onNext(T item) {
+
+            if (done) {
+                return;
+            }
+            if (!queue.offer(item)) {
+                subscription.cancel();
+                error = new IllegalStateException("Queue of " + prefetch + " items is full, the upstream ignored the demand");
+                done = true;
+            }
+            schedule();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+
+            error = throwable;
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void onComplete() {
+
+            done = true;
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                requestError = Demand.nonPositive(n);
+            } else {
+                Demand.add(requested, n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+
+            cancelled = true;
+            subscription.cancel();
+            schedule();
+        }
+
+        private void schedule() {
+
+            if (0 == wip.getAndIncrement()) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+
+            int missed = 1;
+            while (true) {
+                if (!terminated) {
+                    drainLoop();
+                }
+                missed = wip.addAndGet(-missed);
+                if (0 == missed) {
+                    return;
+                }
+            }
+        }
+
+        private void drainLoop() {
+
+            long demand = requested.get();
+            long emitted = 0;
+            while (true) {
+                if (cancelled) {
+                    terminated = true;
+                    queue.clear();
+                    return;
+                }
+                Throwable e = requestError;
+                if (null != e) {
+                    terminated = true;
+                    queue.clear();
+                    subscription.cancel();
+                    downstream.onError(e);
+                    return;
+                }
+                boolean d = done;
+                T item = emitted == demand ? null : queue.poll();
+                if (null == item) {
+                    if (d && queue.isEmpty()) {
+                        terminated = true;
+                        Throwable error = this.error;
+                        if (null != error) {
+                            downstream.onError(error);
+                        } else {
+                            downstream.onComplete();
+                        }
+                        return;
+                    }
+                    break;
+                }
+                downstream.onNext(item);
+                emitted++;
+                if (++consumed == limit) {
+                    consumed = 0;
+                    subscription.request(limit);
+                }
+            }
+            Demand.produced(requested, emitted);
+        }
+    }
+}
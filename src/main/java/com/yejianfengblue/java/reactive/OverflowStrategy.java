@@ -0,0 +1,27 @@
+package com.yejianfengblue.java.reactive;
+
+/**
+ * What a {@link BackpressureSubscriber} does with an item which arrives when its buffer is full
+ *
+ * @author yejianfengblue
+ */
+public enum OverflowStrategy {
+
+    /** discard the arriving item */
+    DROP_LATEST,
+
+    /** discard the oldest buffered item to make room for the arriving one */
+    DROP_OLDEST,
+
+    /** keep only the latest item, whatever the capacity, the arriving item replaces the buffered one */
+    CONFLATE,
+
+    /** a plain bounded buffer, signal an error to the subscriber and cancel the upstream */
+    BUFFER,
+
+    /**
+     * buffer beyond the capacity for a while, and signal an error only if the buffer has stayed full for the timeout,
+     * so a subscriber which is slow for a moment loses nothing, or at once if it reaches twice the capacity meanwhile
+     */
+    TIMEOUT
+}
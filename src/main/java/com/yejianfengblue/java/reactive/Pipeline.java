@@ -0,0 +1,258 @@
+package com.yejianfengblue.java.reactive;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A small operator library over {@link Flow}, so a transformation doesn't have to be hand-coded in {@code onNext}
+ * like the consumers of {@code ReactiveStreamTest}.
+ * <pre>{@code
+ * Pipeline.from(publisher)
+ *         .filter(item -> item.getTitle().startsWith("Item"))
+ *         .map(Item::getContent)
+ *         .buffer(10)
+ *         .observeOn(executor)
+ *         .subscribe(subscriber);
+ * }</pre>
+ * A pipeline is immutable, every operator returns a new one, and nothing happens until {@link #subscribe}.
+ * <p>
+ * Adjacent {@link #map} and {@link #filter} are fused: they are composed into one function,
+ * and subscribing puts a single subscriber between the upstream and the downstream,
+ * so one {@code onNext} runs the whole chain, with no subscription, queue or demand accounting per operator.
+ * A filtered out item is replaced by a {@code request(1)} to the upstream.
+ * The other operators need a subscriber of their own, and end the fusion:
+ * <ul>
+ *     <li>{@link #buffer(int)} and {@link #window(int)} ask the upstream for {@code size} items per list or window
+ *     requested</li>
+ *     <li>{@link #buffer(int, Duration, ScheduledExecutorService)} also emits a partial list every timespan</li>
+ *     <li>{@link #flatMap(Function, int)} subscribes to at most {@code maxConcurrency} inner publishers at a time,
+ *     and merges their items</li>
+ *     <li>{@link #observeOn(Executor)} delivers on the executor, through a queue of {@code prefetch} items</li>
+ * </ul>
+ *
+ * @author yejianfengblue
+ */
+public class Pipeline<T> implements Flow.Publisher<T> {
+
+    /** returned by a fused step to drop the item */
+    static final Object SKIP = new Object();
+
+    private static final int DEFAULT_PREFETCH = 32;
+
+    private final Flow.Publisher<?> source;
+
+    /** the fused map and filter steps after the source, null if none */
+    private final Function<Object, Object> fused;
+
+    private Pipeline(Flow.Publisher<?> source, Function<Object, Object> fused) {
+
+        this.source = source;
+        this.fused = fused;
+    }
+
+    public static <T> Pipeline<T> from(Flow.Publisher<? extends T> publisher) {
+
+        Objects.requireNonNull(publisher);
+        if (publisher instanceof Pipeline) {
+            @SuppressWarnings("unchecked")
+            Pipeline<T> pipeline = (Pipeline<T>) publisher;
+            return pipeline;
+        }
+        return new Pipeline<>(publisher, null);
+    }
+
+    /**
+     * A publisher of the items of the iterable, emitted on the thread which requests them
+     */
+    public static <T> Pipeline<T> fromIterable(Iterable<? extends T> iterable) {
+        return new Pipeline<>(new IterablePublisher<>(Objects.requireNonNull(iterable)), null);
+    }
+
+    /////////////////////////////////////////////////////////////////////////// fused
+
+    @SuppressWarnings("unchecked")
+    public <R> Pipeline<R> map(Function<? super T, ? extends R> mapper) {
+
+        Objects.requireNonNull(mapper);
+        Function<Object, Object> step = (Function<Object, Object>) mapper;
+        return new Pipeline<>(source, null == fused ? step : then(fused, step));
+    }
+
+    @SuppressWarnings("unchecked")
+    public Pipeline<T> filter(Predicate<? super T> predicate) {
+
+        Objects.requireNonNull(predicate);
+        Function<Object, Object> step = item -> ((Predicate<Object>) predicate).test(item) ? item : SKIP;
+        return new Pipeline<>(source, null == fused ? step : then(fused, step));
+    }
+
+    private static Function<Object, Object> then(Function<Object, Object> before, Function<Object, Object> after) {
+
+        return item -> {
+            Object result = before.apply(item);
+            return SKIP == result ? SKIP : after.apply(result);
+        };
+    }
+
+    /////////////////////////////////////////////////////////////////////////// not fused
+
+    /**
+     * Collect the items into lists of {@code size}, the last one may be shorter
+     */
+    public Pipeline<List<T>> buffer(int size) {
+        return new Pipeline<>(new BufferOperator<>(this, size, 0, null), null);
+    }
+
+    /**
+     * Same as {@link #buffer(int)}, but a list which has items is also emitted every {@code timespan},
+     * if there is demand for it. Only one list is filled at a time, so the upstream sees one request per list.
+     */
+    public Pipeline<List<T>> buffer(int size, Duration timespan, ScheduledExecutorService scheduler) {
+
+        if (timespan.isNegative() || timespan.isZero()) {
+            throw new IllegalArgumentException("Timespan must be positive: " + timespan);
+        }
+        return new Pipeline<>(new BufferOperator<>(this, size, timespan.toNanos(), Objects.requireNonNull(scheduler)), null);
+    }
+
+    /**
+     * Split the items into windows of {@code size}, each one a pipeline which may be subscribed once.
+     * A window buffers up to {@code size} items until its subscriber requests them.
+     */
+    public Pipeline<Pipeline<T>> window(int size) {
+        return new Pipeline<>(new WindowOperator<>(this, size), null);
+    }
+
+    /**
+     * Same as {@link #flatMap(Function, int, int)} with a prefetch of 32
+     */
+    public <R> Pipeline<R> flatMap(Function<? super T, ? extends Flow.Publisher<? extends R>> mapper, int maxConcurrency) {
+        return flatMap(mapper, maxConcurrency, DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Map every item to a publisher, and merge the items of at most {@code maxConcurrency} of them at a time,
+     * in the order they arrive
+     *
+     * @param prefetch the number of items requested from an inner publisher ahead of the downstream demand
+     */
+    public <R> Pipeline<R> flatMap(Function<? super T, ? extends Flow.Publisher<? extends R>> mapper, int maxConcurrency,
+                                   int prefetch) {
+
+        return new Pipeline<>(new FlatMapOperator<>(this, Objects.requireNonNull(mapper), maxConcurrency, prefetch), null);
+    }
+
+    /**
+     * Same as {@link #observeOn(Executor, int)} with a prefetch of 32
+     */
+    public Pipeline<T> observeOn(Executor executor) {
+        return observeOn(executor, DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Deliver {@code onNext}, {@code onError} and {@code onComplete} on the executor, one task at a time
+     *
+     * @param prefetch the number of items requested from the upstream ahead of the downstream demand
+     */
+    public Pipeline<T> observeOn(Executor executor, int prefetch) {
+        return new Pipeline<>(new ObserveOnOperator<>(this, Objects.requireNonNull(executor), prefetch), null);
+    }
+
+    /////////////////////////////////////////////////////////////////////////// subscribe
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+
+        Objects.requireNonNull(subscriber);
+        if (null == fused) {
+            ((Flow.Publisher<T>) source).subscribe(subscriber);
+        } else {
+            ((Flow.Publisher<Object>) source).subscribe(new FusedSubscriber<>(subscriber, fused));
+        }
+    }
+
+    /**
+     * Runs the fused steps in {@code onNext}, and passes everything else through
+     */
+    static final class FusedSubscriber<T> implements Flow.Subscriber<Object>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> downstream;
+
+        private final Function<Object, Object> fused;
+
+        private Flow.Subscription upstream;
+
+        private boolean done;
+
+        FusedSubscriber(Flow.Subscriber<? super T> downstream, Function<Object, Object> fused) {
+
+            this.downstream = downstream;
+            this.fused = fused;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onNext(Object item) {
+
+            if (done) {
+                return;
+            }
+            Object result;
+            try {
+                // a null is a failure of the stage too, so it cancels and signals onError instead of throwing
+                result = Objects.requireNonNull(fused.apply(item), "The mapper returned null");
+            } catch (Throwable e) {
+                upstream.cancel();
+                onError(e);
+                return;
+            }
+            if (SKIP == result) {
+                upstream.request(1);
+            } else {
+                downstream.onNext((T) result);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+
+            if (!done) {
+                done = true;
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+
+            if (!done) {
+                done = true;
+                downstream.onComplete();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            upstream.request(n);  // a non-positive n is reported by the upstream
+        }
+
+        @Override
+        public void cancel() {
+            upstream.cancel();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.yejianfengblue.java.reactive;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics of the stages of a reactive pipeline, instead of a log line per item like {@code ReactiveStreamTest},
+ * which costs more than the items themselves.
+ * <pre>{@code
+ * PipelineMetrics metrics = new PipelineMetrics();
+ * Flow.Publisher<Item> items = metrics.meter("items", publisher);
+ * items.subscribe(consumer1);
+ * items.subscribe(consumer2);
+ * ...
+ * log.info("{}", metrics.snapshot());
+ * }</pre>
+ * For every stage, a snapshot has the outstanding demand, the items per second since subscription and since
+ * the previous snapshot, the buffer fill when known, and the lag:
+ * <ul>
+ *     <li>the items produced and not yet delivered, when the publisher was metered with a count of produced items,
+ *     e.g. {@link RingBufferPublisher#getSubmittedCount()}</li>
+ *     <li>otherwise, the items delivered to the fastest subscriber of the same publisher and not yet to this one</li>
+ * </ul>
+ * So the stage holding back the pipeline is the one with the largest lag, see {@link Snapshot#getSlowest()},
+ * and whether it is slow or doesn't ask shows in its outstanding demand.
+ * <p>
+ * Metering costs no lock on the element path, see {@link MeteredSubscriber}.
+ * The stages are kept after they terminate, until {@link #removeTerminated()}.
+ *
+ * @author yejianfengblue
+ */
+public class PipelineMetrics {
+
+    private final CopyOnWriteArrayList<MeteredSubscriber<?>> stages = new CopyOnWriteArrayList<>();
+
+    /////////////////////////////////////////////////////////////////////////// meter
+
+    /**
+     * Meter every subscriber of the publisher
+     */
+    public <T> MeteredPublisher<T> meter(String name, Flow.Publisher<T> publisher) {
+        return new MeteredPublisher<>(this, name, publisher, null);
+    }
+
+    /**
+     * Meter every subscriber of the publisher, with the lag counted from what the publisher has produced
+     *
+     * @param produced the number of items the publisher has produced so far
+     */
+    public <T> MeteredPublisher<T> meter(String name, Flow.Publisher<T> publisher, LongSupplier produced) {
+        return new MeteredPublisher<>(this, name, publisher, produced);
+    }
+
+    /**
+     * Meter one subscriber, pass the returned one to the publisher.
+     * The buffer fill of a {@link BackpressureSubscriber} is picked up.
+     */
+    public <T> MeteredSubscriber<T> meter(String name, Flow.Subscriber<T> subscriber) {
+        return meter(name, subscriber, null);
+    }
+
+    /**
+     * @param bufferFill the number of items buffered for the subscriber, e.g. a queue size
+     */
+    public <T> MeteredSubscriber<T> meter(String name, Flow.Subscriber<T> subscriber, IntSupplier bufferFill) {
+
+        MeteredSubscriber<T> metered = new MeteredSubscriber<>(name, null, subscriber, bufferFill, null);
+        register(metered);
+        return metered;
+    }
+
+    void register(MeteredSubscriber<?> stage) {
+        stages.add(stage);
+    }
+
+    /**
+     * Forget the stages which completed, failed or were cancelled
+     */
+    public void removeTerminated() {
+
+        stages.removeIf(stage -> MeteredSubscriber.State.SUBSCRIBING != stage.getState()
+                && MeteredSubscriber.State.ACTIVE != stage.getState());
+    }
+
+    /////////////////////////////////////////////////////////////////////////// snapshot
+
+    /**
+     * The counters of every stage are read without stopping the pipeline, so stages are consistent in themselves
+     * but not with each other. Synchronized only against another snapshot, for the rates since the previous one.
+     */
+    public synchronized Snapshot snapshot() {
+
+        long now = System.nanoTime();
+        List<StageSnapshot> list = new ArrayList<>(stages.size());
+        Map<String, Long> fastest = new HashMap<>();
+        for (MeteredSubscriber<?> stage : stages) {
+            StageSnapshot s = stage.snapshot(now);
+            list.add(s);
+            if (null != s.publisherName) {
+                fastest.merge(s.publisherName, s.delivered, Math::max);
+            }
+        }
+        for (int i = 0; i < list.size(); i++) {
+            StageSnapshot s = list.get(i);
+            if (s.lag < 0 && null != s.publisherName) {
+                list.set(i, s.withLag(fastest.get(s.publisherName) - s.delivered));
+            }
+        }
+        return new Snapshot(Collections.unmodifiableList(list));
+    }
+
+    static double perSecond(long count, long nanos) {
+        return nanos <= 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * The stages at one moment
+     */
+    public static final class Snapshot {
+
+        private final List<StageSnapshot> stages;
+
+        private Snapshot(List<StageSnapshot> stages) {
+            this.stages = stages;
+        }
+
+        public List<StageSnapshot> getStages() {
+            return stages;
+        }
+
+        /**
+         * @return the active stage with the largest lag, or null if none has a lag
+         */
+        public StageSnapshot getSlowest() {
+
+            return stages.stream()
+                    .filter(stage -> MeteredSubscriber.State.ACTIVE == stage.state && stage.lag >= 0)
+                    .max(Comparator.comparingLong(StageSnapshot::getLag))
+                    .orElse(null);
+        }
+
+        @Override
+        public String toString() {
+
+            StringBuilder sb = new StringBuilder("PipelineMetrics.Snapshot(");
+            for (StageSnapshot stage : stages) {
+                sb.append(System.lineSeparator()).append("    ").append(stage);
+            }
+            return sb.append(")").toString();
+        }
+    }
+
+    /**
+     * The counters of one stage at one moment
+     */
+    public static final class StageSnapshot {
+
+        private final String name;
+
+        private final String publisherName;
+
+        private final MeteredSubscriber.State state;
+
+        private final long requested;
+
+        private final long delivered;
+
+        private final long outstandingDemand;
+
+        private final int bufferFill;
+
+        private final long lag;
+
+        private final double itemsPerSecond;
+
+        private final double recentItemsPerSecond;
+
+        StageSnapshot(String name, String publisherName, MeteredSubscriber.State state, long requested, long delivered,
+                      long outstandingDemand, int bufferFill, long lag,
+                      double itemsPerSecond, double recentItemsPerSecond) {
+
+            this.name = name;
+            this.publisherName = publisherName;
+            this.state = state;
+            this.requested = requested;
+            this.delivered = delivered;
+            this.outstandingDemand = outstandingDemand;
+            this.bufferFill = bufferFill;
+            this.lag = lag;
+            this.itemsPerSecond = itemsPerSecond;
+            this.recentItemsPerSecond = recentItemsPerSecond;
+        }
+
+        private StageSnapshot withLag(long lag) {
+
+            return new StageSnapshot(name, publisherName, state, requested, delivered, outstandingDemand, bufferFill, lag,
+                    itemsPerSecond, recentItemsPerSecond);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public MeteredSubscriber.State getState() {
+            return state;
+        }
+
+        /** capped at {@link Long#MAX_VALUE}, which means unbounded */
+        public long getRequested() {
+            return requested;
+        }
+
+        public long getDelivered() {
+            return delivered;
+        }
+
+        /** {@link Long#MAX_VALUE} if unbounded */
+        public long getOutstandingDemand() {
+            return outstandingDemand;
+        }
+
+        /** -1 if unknown */
+        public int getBufferFill() {
+            return bufferFill;
+        }
+
+        /** -1 if unknown */
+        public long getLag() {
+            return lag;
+        }
+
+        /** since subscription */
+        public double getItemsPerSecond() {
+            return itemsPerSecond;
+        }
+
+        /** since the previous snapshot */
+        public double getRecentItemsPerSecond() {
+            return recentItemsPerSecond;
+        }
+
+        @Override
+        public String toString() {
+
+            return name + "(state=" + state
+                    + ", delivered=" + delivered
+                    + ", outstandingDemand=" + (Long.MAX_VALUE == outstandingDemand ? "unbounded" : outstandingDemand)
+                    + ", bufferFill=" + bufferFill
+                    + ", lag=" + lag
+                    + ", itemsPerSecond=" + Math.round(itemsPerSecond)
+                    + ", recentItemsPerSecond=" + Math.round(recentItemsPerSecond)
+                    + ")";
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.yejianfengblue.java.reactive;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Flow.Publisher} which delivers from one preallocated ring buffer shared by all subscribers.
+ * <p>
+ * {@link SubmissionPublisher} copies every item into a buffer per subscriber.
+ * Here an item is written once into the ring, and every subscriber has its own cursor into it:
+ * <ul>
+ *     <li>{@link #submit(Object)} writes the slot, publishes the sequence with a release store,
+ *     and signals the subscribers from an array snapshot, nothing is allocated per item</li>
+ *     <li>a subscriber is drained on the executor in batches of whatever is both published and requested,
+ *     and a {@code request(n)} from within {@code onNext} just extends the running batch</li>
+ *     <li>a drain which has caught up lingers a little before it gives up, so a subscriber which keeps up
+ *     is not rescheduled, and its task not allocated by the executor, once per item</li>
+ *     <li>the producer waits when it would overwrite an item the slowest subscriber hasn't received yet,
+ *     same as {@link SubmissionPublisher#submit(Object)} blocks when a subscriber buffer is full</li>
+ * </ul>
+ * Only one thread may submit at a time. A subscriber receives the items submitted after it subscribed.
+ * A slot keeps its item until the producer laps it, so up to {@code capacity} items stay reachable.
+ *
+ * @author yejianfengblue
+ */
+public class RingBufferPublisher<T> implements Flow.Publisher<T>, AutoCloseable {
+
+    private static final VarHandle PUBLISHED;
+
+    /** the spins, then yields, of a drain which has caught up, before it lets the producer schedule it again */
+    private static final int LINGER_SPINS = 100;
+
+    private static final int LINGER_YIELDS = 10;
+
+    static {
+        try {
+            PUBLISHED = MethodHandles.lookup().findVarHandle(RingBufferPublisher.class, "published", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] ring;
+
+    private final int mask;
+
+    private final Executor executor;
+
+    /** copied on subscribe and cancel, so the producer loops over it by index */
+    private volatile RingSubscription[] subscriptions = newSubscriptions(0);
+
+    /** the number of items submitted, the next item goes to slot {@code published & mask} */
+    @SuppressWarnings("unused")  // accessed through PUBLISHED
+    private volatile long published;
+
+    /** producer only, a lower bound of the slowest cursor, so the cursors aren't read on every submit */
+    private long gatingSequence;
+
+    private volatile boolean closed;
+
+    private volatile Throwable closedException;
+
+    public RingBufferPublisher() {
+        this(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * @param capacity rounded up to a power of 2
+     */
+    public RingBufferPublisher(Executor executor, int capacity) {
+
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.ring = new Object[size];
+        this.mask = size - 1;
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public int getNumberOfSubscribers() {
+        return subscriptions.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RingSubscription[] newSubscriptions(int length) {
+        return (RingSubscription[]) new RingBufferPublisher<?>.RingSubscription[length];
+    }
+
+    private synchronized void add(RingSubscription subscription) {
+
+        RingSubscription[] current = subscriptions;
+        RingSubscription[] copy = Arrays.copyOf(current, current.length + 1);
+        copy[current.length] = subscription;
+        subscriptions = copy;
+    }
+
+    private synchronized void remove(RingSubscription subscription) {
+
+        RingSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                RingSubscription[] copy = newSubscriptions(current.length - 1);
+                System.arraycopy(current, 0, copy, 0, i);
+                System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+                subscriptions = copy;
+                return;
+            }
+        }
+    }
+
+    private void signalAll() {
+
+        RingSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            current[i].signal();
+        }
+    }
+
+    /**
+     * @return the number of items submitted so far
+     */
+    public long getSubmittedCount() {
+        return (long) PUBLISHED.getAcquire(this);
+    }
+
+    /////////////////////////////////////////////////////////////////////////// subscribe
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+
+        Objects.requireNonNull(subscriber);
+        RingSubscription subscription = new RingSubscription(subscriber);
+        // the cursor must be set before the producer can see the subscription, and must not miss a slot after it does
+        subscription.cursor.set((long) PUBLISHED.getAcquire(this));
+        add(subscription);
+        subscription.cursor.set((long) PUBLISHED.getAcquire(this));
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.signal();
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////// produce
+
+    /**
+     * Publish an item to every current subscriber, waiting while the ring is full
+     *
+     * @throws IllegalStateException if closed
+     */
+    public void submit(T item) {
+
+        Objects.requireNonNull(item);
+        if (closed) {
+            throw new IllegalStateException("Closed");
+        }
+        long sequence = (long) PUBLISHED.getOpaque(this);
+        if (sequence - gatingSequence >= ring.length) {
+            awaitCapacity(sequence);
+        }
+        ring[(int) sequence & mask] = item;
+        PUBLISHED.setRelease(this, sequence + 1);
+        signalAll();
+    }
+
+    private void awaitCapacity(long sequence) {
+
+        int spins = 0;
+        while (sequence - (gatingSequence = slowestCursor(sequence)) >= ring.length) {
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else if (spins < 1000) {
+                Thread.yield();  // lets the drains run when there are fewer cores than threads
+            } else {
+                LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(50));
+            }
+        }
+    }
+
+    private long slowestCursor(long sequence) {
+
+        long slowest = sequence;
+        RingSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            slowest = Math.min(slowest, current[i].cursor.get());
+        }
+        return slowest;
+    }
+
+    /**
+     * Complete every subscriber once it has received the items already submitted
+     */
+    @Override
+    public void close() {
+
+        if (!closed) {
+            closed = true;
+            signalAll();
+        }
+    }
+
+    /**
+     * Same as {@link #close()}, but with {@code onError} instead of {@code onComplete}
+     */
+    public void closeExceptionally(Throwable error) {
+
+        Objects.requireNonNull(error);
+        if (!closed) {
+            closedException = error;
+            closed = true;
+            signalAll();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /////////////////////////////////////////////////////////////////////////// deliver
+
+    /**
+     * The cursor and demand of one subscriber, and the task which drains the ring into it
+     */
+    private final class RingSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super T> subscriber;
+
+        /** the sequence of the next item to deliver */
+        private final AtomicLong cursor = new AtomicLong();
+
+        private final AtomicLong requested = new AtomicLong();
+
+        /**
+         * the number of signals not yet handled by the drain, the drain is scheduled by the 0 to 1 transition,
+         * and a signal while it runs or lingers just makes it go round again
+         */
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile boolean cancelled;
+
+        private volatile Throwable requestError;
+
+        /** drain only */
+        private boolean terminated;
+
+        RingSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                requestError = Demand.nonPositive(n);
+            } else {
+                Demand.add(requested, n);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+
+            cancelled = true;
+            remove(this);
+        }
+
+        void signal() {
+
+            if (0 == wip.getAndIncrement()) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+
+            int missed = 1;
+            while (true) {
+                drain();
+                linger(missed);
+                missed = wip.addAndGet(-missed);
+                if (0 == missed) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Wait a little for another signal while still holding wip, the producer yields to the drains
+         * the same way in {@link #awaitCapacity(long)}
+         */
+        private void linger(int missed) {
+
+            if (terminated) {
+                return;
+            }
+            for (int spins = 0; spins < LINGER_SPINS + LINGER_YIELDS && missed == wip.get(); spins++) {
+                if (spins < LINGER_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void drain() {
+
+            if (terminated) {
+                return;
+            }
+            long sequence = cursor.get();
+            while (true) {
+                if (cancelled) {
+                    terminated = true;
+                    return;
+                }
+                Throwable error = requestError;
+                if (null != error) {
+                    cancel();
+                    terminated = true;
+                    subscriber.onError(error);
+                    return;
+                }
+                // read closed before published, so a close seen here covers every item submitted before it
+                boolean done = closed;
+                long available = (long) PUBLISHED.getAcquire(RingBufferPublisher.this) - sequence;
+                long demand = requested.get();
+                if (0 == available) {
+                    if (done) {
+                        remove(this);
+                        terminated = true;
+                        Throwable closeError = closedException;
+                        if (null != closeError) {
+                            subscriber.onError(closeError);
+                        } else {
+                            subscriber.onComplete();
+                        }
+                    }
+                    return;
+                }
+                if (0 == demand) {
+                    return;
+                }
+                long batch = Math.min(available, demand);
+                for (long i = 0; i < batch && !cancelled; i++) {
+                    T item = (T) ring[(int) sequence & mask];
+                    cursor.lazySet(++sequence);  // frees the slot for the producer
+                    subscriber.onNext(item);
+                }
+                if (Long.MAX_VALUE != demand) {
+                    requested.addAndGet(-batch);
+                }
+            }
+        }
+    }
+}
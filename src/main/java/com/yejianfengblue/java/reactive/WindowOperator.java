@@ -0,0 +1,271 @@
+package com.yejianfengblue.java.reactive;
+
+import com.yejianfengblue.java.concurrency.connection.MpmcArrayQueue;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Pipeline#window(int)}
+ * <p>
+ * A request of n windows becomes a request of {@code n * size} items, same as {@link BufferOperator}.
+ * A window is opened by its first item. Cancelling the outer subscription lets the open window finish,
+ * and then cancels the upstream.
+ *
+ * @author yejianfengblue
+ */
+final class WindowOperator<T> implements Flow.Publisher<Pipeline<T>> {
+
+    /** given to a rejected subscriber of a window, so it can neither request from nor cancel the window */
+    private static final Flow.Subscription REJECTED = new Flow.Subscription() {
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private final Flow.Publisher<T> upstream;
+
+    private final int size;
+
+    WindowOperator(Flow.Publisher<T> upstream, int size) {
+
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive: " + size);
+        }
+        this.upstream = upstream;
+        this.size = size;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Pipeline<T>> subscriber) {
+        upstream.subscribe(new WindowSubscriber(subscriber));
+    }
+
+    private final class WindowSubscriber implements Flow.Subscriber<T>, Flow.Subscription {
+
+        private final Flow.Subscriber<? super Pipeline<T>> downstream;
+
+        private Flow.Subscription subscription;
+
+        /** written by the upstream only, read by cancel */
+        private volatile Window<T> window;
+
+        private int count;
+
+        private volatile boolean cancelled;
+
+        WindowSubscriber(Flow.Subscriber<? super Pipeline<T>> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T item) {
+
+            Window<T> w = window;
+            if (null == w) {
+                if (cancelled) {
+                    subscription.cancel();
+                    return;
+                }
+                w = new Window<>(size);
+                window = w;
+                count = 0;
+                downstream.onNext(Pipeline.from(w));
+            }
+            w.offer(item);
+            if (++count == size) {
+                w.complete(null);
+                window = null;
+                // pairs with cancel(), one of them sees the other
+                if (cancelled) {
+                    subscription.cancel();
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+
+            Window<T> w = window;
+            if (null != w) {
+                window = null;
+                w.complete(throwable);
+            }
+            if (!cancelled) {
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+
+            Window<T> w = window;
+            if (null != w) {
+                window = null;
+                w.complete(null);
+            }
+            if (!cancelled) {
+                downstream.onComplete();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            subscription.request(n <= 0 ? n : Demand.multiply(n, size));
+        }
+
+        @Override
+        public void cancel() {
+
+            cancelled = true;
+            if (null == window) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    /**
+     * A unicast publisher of the items of one window, which buffers them until its only subscriber requests them
+     */
+    static final class Window<T> implements Flow.Publisher<T>, Flow.Subscription {
+
+        private final MpmcArrayQueue<T> queue;
+
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile Flow.Subscriber<? super T> subscriber;
+
+        private volatile boolean done;
+
+        private volatile Throwable error;
+
+        private volatile Throwable requestError;
+
+        private volatile boolean cancelled;
+
+        /** drain only */
+        private boolean terminated;
+
+        Window(int size) {
+            this.queue = new MpmcArrayQueue<>(size);
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> s) {
+
+            if (!subscribed.compareAndSet(false, true)) {
+                s.onSubscribe(REJECTED);
+                s.onError(new IllegalStateException("A window allows only one subscriber"));
+                return;
+            }
+            s.onSubscribe(this);
+            subscriber = s;
+            drain();
+        }
+
+        void offer(T item) {
+
+            queue.offer(item);  // never full, the window has room for all its items
+            drain();
+        }
+
+        void complete(Throwable throwable) {
+
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                requestError = Demand.nonPositive(n);
+            } else {
+                Demand.add(requested, n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+
+            if (0 != wip.getAndIncrement()) {
+                return;
+            }
+            int missed = 1;
+            while (true) {
+                Flow.Subscriber<? super T> s = subscriber;
+                if (null != s && !terminated) {
+                    drainLoop(s);
+                }
+                missed = wip.addAndGet(-missed);
+                if (0 == missed) {
+                    return;
+                }
+            }
+        }
+
+        private void drainLoop(Flow.Subscriber<? super T> s) {
+
+            long demand = requested.get();
+            long emitted = 0;
+            while (true) {
+                if (cancelled) {
+                    terminated = true;
+                    queue.clear();
+                    return;
+                }
+                Throwable e = requestError;
+                if (null != e) {
+                    terminated = true;
+                    queue.clear();
+                    s.onError(e);
+                    return;
+                }
+                boolean d = done;
+                T item = emitted == demand ? null : queue.poll();
+                if (null == item) {
+                    if (d && queue.isEmpty()) {
+                        terminated = true;
+                        Throwable error = this.error;
+                        if (null != error) {
+                            s.onError(error);
+                        } else {
+                            s.onComplete();
+                        }
+                        return;
+                    }
+                    break;
+                }
+                s.onNext(item);
+                emitted++;
+            }
+            Demand.produced(requested, emitted);
+        }
+    }
+}
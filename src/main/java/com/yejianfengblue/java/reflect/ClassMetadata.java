@@ -0,0 +1,182 @@
+package com.yejianfengblue.java.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * The reflection metadata of a class, resolved once per class and cached in a {@link ClassValue}.
+ * <p>
+ * {@link Class#getDeclaredFields()}, {@link Class#getInterfaces()} and {@link Class#getGenericInterfaces()}
+ * copy a new array on every call, as {@code ReflectionTest} calls them, and {@link Field#get(Object)} checks access
+ * on every call. Code which reflects per object, such as copying, equality or mapping, should get the fields
+ * and their {@link MethodHandle} accessors from here instead:
+ * <pre>{@code
+ * for (FieldMetadata field : ClassMetadata.of(object.getClass()).getFields()) {
+ *     Object value = field.get(object);
+ *     ...
+ * }
+ * }</pre>
+ * The lists are unmodifiable and shared. The cache doesn't keep a class from being unloaded.
+ *
+ * @author yejianfengblue
+ */
+public final class ClassMetadata {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<ClassMetadata> CACHE = new ClassValue<>() {
+
+        @Override
+        protected ClassMetadata computeValue(Class<?> type) {
+            return new ClassMetadata(type);
+        }
+    };
+
+    private final Class<?> type;
+
+    private final int modifiers;
+
+    private final List<FieldMetadata> fields;
+
+    private final Map<String, FieldMetadata> fieldsByName;
+
+    private final List<Class<?>> interfaces;
+
+    private final List<Type> genericInterfaces;
+
+    private final Type genericSuperclass;
+
+    /** the type arguments of the direct generic superclass and interfaces, by raw type */
+    private final Map<Class<?>, List<Type>> typeArguments;
+
+    /** () Object, or null */
+    private final MethodHandle constructor;
+
+    private ClassMetadata(Class<?> type) {
+
+        this.type = type;
+        modifiers = type.getModifiers();
+
+        Class<?> superclass = type.getSuperclass();
+        List<FieldMetadata> fieldList = null == superclass
+                ? new ArrayList<>()
+                : new ArrayList<>(of(superclass).fields);
+        for (Field field : type.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                fieldList.add(new FieldMetadata(field));
+            }
+        }
+        fields = Collections.unmodifiableList(fieldList);
+        Map<String, FieldMetadata> byName = new HashMap<>();
+        for (FieldMetadata field : fieldList) {
+            byName.put(field.getName(), field);  // a field hides the one of a superclass with the same name
+        }
+        fieldsByName = Collections.unmodifiableMap(byName);
+
+        interfaces = List.of(type.getInterfaces());
+        genericInterfaces = List.of(type.getGenericInterfaces());
+        genericSuperclass = type.getGenericSuperclass();
+        Map<Class<?>, List<Type>> arguments = new HashMap<>();
+        List<Type> supertypes = new ArrayList<>(genericInterfaces);
+        if (null != genericSuperclass) {
+            supertypes.add(genericSuperclass);
+        }
+        for (Type supertype : supertypes) {
+            if (supertype instanceof ParameterizedType) {
+                ParameterizedType parameterized = (ParameterizedType) supertype;
+                arguments.put((Class<?>) parameterized.getRawType(), List.of(parameterized.getActualTypeArguments()));
+            }
+        }
+        typeArguments = Collections.unmodifiableMap(arguments);
+
+        constructor = noArgConstructor(type);
+    }
+
+    private static MethodHandle noArgConstructor(Class<?> type) {
+
+        if (type.isInterface() || type.isArray() || type.isPrimitive() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            return constructor.trySetAccessible()
+                    ? LOOKUP.unreflectConstructor(constructor).asType(methodType(Object.class))
+                    : null;
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    public static ClassMetadata of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /** see {@link Modifier} */
+    public int getModifiers() {
+        return modifiers;
+    }
+
+    /**
+     * @return the instance fields of the class and its superclasses, those of the superclasses first
+     */
+    public List<FieldMetadata> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return the instance field of the name, of the class rather than of a superclass if both have one, or null
+     */
+    public FieldMetadata getField(String name) {
+        return fieldsByName.get(name);
+    }
+
+    /** the interfaces directly implemented */
+    public List<Class<?>> getInterfaces() {
+        return interfaces;
+    }
+
+    public List<Type> getGenericInterfaces() {
+        return genericInterfaces;
+    }
+
+    public Type getGenericSuperclass() {
+        return genericSuperclass;
+    }
+
+    /**
+     * @param supertype the raw type of the direct superclass or a directly implemented interface,
+     *                  e.g. {@code Comparator.class} of {@code class IntegerComparator implements Comparator<Integer>}
+     * @return the type arguments given to it, e.g. {@code [Integer]}, or an empty list if it isn't parameterized
+     */
+    public List<Type> getTypeArguments(Class<?> supertype) {
+        return typeArguments.getOrDefault(supertype, List.of());
+    }
+
+    /**
+     * @return the no-arg constructor of any visibility as () Object, or null if the class has none
+     */
+    public MethodHandle getConstructor() {
+        return constructor;
+    }
+
+    @Override
+    public String toString() {
+        return "ClassMetadata(" + type.getName() + ", " + fields.size() + " fields)";
+    }
+}
@@ -0,0 +1,158 @@
+package com.yejianfengblue.java.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * An instance field resolved once by {@link ClassMetadata}, with its accessors as {@link MethodHandle}s.
+ * <p>
+ * The accessors are null if the field can't be made accessible, which is the case of the fields of JDK classes
+ * since Java 9, see {@link #isAccessible()}.
+ *
+ * @author yejianfengblue
+ */
+public final class FieldMetadata {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final String name;
+
+    private final Class<?> type;
+
+    private final Type genericType;
+
+    private final int modifiers;
+
+    private final Class<?> declaringClass;
+
+    /** (DeclaringClass) Type */
+    private final MethodHandle getter;
+
+    /** (DeclaringClass, Type) void */
+    private final MethodHandle setter;
+
+    /** (Object) Object */
+    private final MethodHandle objectGetter;
+
+    /** (Object, Object) void */
+    private final MethodHandle objectSetter;
+
+    FieldMetadata(Field field) {
+
+        name = field.getName();
+        type = field.getType();
+        genericType = field.getGenericType();
+        modifiers = field.getModifiers();
+        declaringClass = field.getDeclaringClass();
+
+        MethodHandle get = null;
+        MethodHandle set = null;
+        if (field.trySetAccessible()) {
+            try {
+                get = LOOKUP.unreflectGetter(field);
+                set = LOOKUP.unreflectSetter(field);
+            } catch (IllegalAccessException e) {
+                // a final field of a hidden class, readable only
+            }
+        }
+        getter = get;
+        setter = set;
+        objectGetter = null == get ? null : get.asType(methodType(Object.class, Object.class));
+        objectSetter = null == set ? null : set.asType(methodType(void.class, Object.class, Object.class));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Type getGenericType() {
+        return genericType;
+    }
+
+    /** see {@link java.lang.reflect.Modifier} */
+    public int getModifiers() {
+        return modifiers;
+    }
+
+    public Class<?> getDeclaringClass() {
+        return declaringClass;
+    }
+
+    /**
+     * @return whether the field can be read and written through the accessors
+     */
+    public boolean isAccessible() {
+        return null != setter;
+    }
+
+    /**
+     * @return the getter of type (DeclaringClass) Type
+     * @throws IllegalStateException if the field is not accessible
+     */
+    public MethodHandle getGetter() {
+        return checkAccessible(getter);
+    }
+
+    /**
+     * @return the setter of type (DeclaringClass, Type) void, which also sets a final field
+     * @throws IllegalStateException if the field is not accessible
+     */
+    public MethodHandle getSetter() {
+        return checkAccessible(setter);
+    }
+
+    /**
+     * Read the field, boxed if primitive
+     *
+     * @throws IllegalStateException if the field is not accessible
+     */
+    public Object get(Object target) {
+
+        MethodHandle handle = checkAccessible(objectGetter);
+        try {
+            return (Object) handle.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Write the field, unboxed if primitive
+     *
+     * @throws IllegalStateException if the field is not accessible
+     */
+    public void set(Object target, Object value) {
+
+        MethodHandle handle = checkAccessible(objectSetter);
+        try {
+            handle.invokeExact(target, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MethodHandle checkAccessible(MethodHandle handle) {
+
+        if (null == handle) {
+            throw new IllegalStateException(this + " is not accessible");
+        }
+        return handle;
+    }
+
+    @Override
+    public String toString() {
+        return declaringClass.getName() + "." + name;
+    }
+}
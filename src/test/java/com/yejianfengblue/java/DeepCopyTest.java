@@ -15,13 +15,13 @@ import java.io.Serializable;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
-class DeepCopyTest {
+public class DeepCopyTest {
 
     @NoArgsConstructor
     @AllArgsConstructor
     @Getter
     @Setter
-    static class Address implements Serializable {
+    public static class Address implements Serializable {
 
         private String street;
 
@@ -39,7 +39,7 @@ class DeepCopyTest {
     @AllArgsConstructor
     @Getter
     @Setter
-    static class User implements Serializable {
+    public static class User implements Serializable {
 
         private String name;
 
@@ -18,7 +18,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 /**
  * @author yejianfengblue
  */
-class ProxyTest {
+public class ProxyTest {
 
     static class DynamicInvocationHandler implements InvocationHandler {
 
@@ -61,7 +61,7 @@ class ProxyTest {
         assertEquals(42, (int) proxyInstance.get("Hello"));
     }
 
-    static class TimingDynamicInvocationHandler implements InvocationHandler {
+    public static class TimingDynamicInvocationHandler implements InvocationHandler {
 
         private static Logger log = LoggerFactory.getLogger(TimingDynamicInvocationHandler.class);
 
@@ -69,7 +69,7 @@ class ProxyTest {
 
         private Object target;
 
-        TimingDynamicInvocationHandler(Object target) {
+        public TimingDynamicInvocationHandler(Object target) {
 
             this.target = target;
             Arrays.stream(target.getClass().getDeclaredMethods())
@@ -0,0 +1,95 @@
+package com.yejianfengblue.java.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yejianfengblue.java.DeepCopyTest;
+import com.yejianfengblue.java.persistent.Address;
+import com.yejianfengblue.java.persistent.User;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link JsonUserCodec} and {@link BinaryUserCodec}
+ *
+ * @author yejianfengblue
+ */
+class CodecTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    private static final List<User> USERS = List.of(
+            new User("Apple", new Address("Apple Street", "Apple City")),
+            new User("Caf\u00e9 \u5185\u5bb9", new Address("Rue \u00e9", null)),
+            new User(null, null),
+            new User("", new Address("", "")));
+
+    @Test
+    void givenUsers_whenEncodeIntoReusedOutputAndDecode_thenEqual() {
+
+        BytesOutput out = new BytesOutput(16);
+        for (Codec<User> codec : List.of(new JsonUserCodec(), new BinaryUserCodec())) {
+            for (User user : USERS) {
+                codec.encode(user, out.reset());
+                assertEquals(user, codec.decode(out), codec.getClass().getSimpleName());
+            }
+            codec.encode(null, out.reset());
+            assertNull(codec.decode(out));
+        }
+    }
+
+    @Test
+    void givenJsonCodec_whenExchangeWithJacksonDatabind_thenSameJson() throws Exception {
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        DeepCopyTest.User apple = new DeepCopyTest.User("Apple", new DeepCopyTest.Address("Apple Street", "Apple City"));
+        byte[] databind = objectMapper.writeValueAsBytes(apple);
+
+        JsonUserCodec codec = new JsonUserCodec();
+        BytesOutput out = new BytesOutput(64);
+        codec.encode(USERS.get(0), out);
+
+        assertArrayEquals(databind, out.toByteArray());
+        assertEquals(USERS.get(0), codec.decode(databind, 0, databind.length));
+        // fields in any order, unknown fields skipped
+        byte[] reordered = "{\"extra\":[1,{\"a\":2}],\"address\":{\"city\":\"Apple City\",\"zip\":null,\"street\":\"Apple Street\"},\"name\":\"Apple\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        assertEquals(USERS.get(0), codec.decode(reordered, 0, reordered.length));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(new byte[]{'[', ']'}, 0, 2));
+    }
+
+    @Test
+    void givenBinaryCodec_whenEncode_thenSmallerThanJsonAndUnknownFieldsSkipped() {
+
+        BytesOutput json = new BytesOutput(64);
+        BytesOutput binary = new BytesOutput(64);
+        new JsonUserCodec().encode(USERS.get(0), json);
+        BinaryUserCodec codec = new BinaryUserCodec();
+        codec.encode(USERS.get(0), binary);
+        log.info("{} bytes in JSON, {} bytes in binary", json.size(), binary.size());
+        assertTrue(binary.size() < json.size() * 0.6);
+
+        // a newer writer added field 3, a string, to the user, and field 3, an object, to the address
+        byte[] newer = {
+                3 << 3, 1, 'x',
+                2 << 3 | 1, 3 << 3 | 1, 1 << 3, 1, 'y', 0, 2 << 3, 1, 'c', 0,
+                1 << 3, 1, 'n',
+                0};
+        assertEquals(new User("n", new Address(null, "c")), codec.decode(newer, 0, newer.length));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(newer, 0, 5));
+
+        // reused, the output doesn't grow any more
+        byte[] array = binary.array();
+        codec.encode(USERS.get(0), binary.reset());
+        assertSame(array, binary.array());
+    }
+}
@@ -0,0 +1,80 @@
+package com.yejianfengblue.java.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test to {@link ClhLock}
+ *
+ * @author yejianfengblue
+ */
+class ClhLockTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    private int counter;
+
+    @Test
+    void givenManyThreads_whenIncrementUnderLock_thenNoIncrementIsLost() throws InterruptedException {
+
+        ClhLock lock = new ClhLock();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int n = 0; n < 20000; n++) {
+                    lock.lock();
+                    try {
+                        counter++;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(160000, counter);
+    }
+
+    /**
+     * Same as the fair PrintQueue of {@code LockTest}: threads which queue up one by one get the lock in that order
+     */
+    @Test
+    void givenThreadsQueuedOneByOne_whenLockIsReleased_thenGrantedInArrivalOrder() throws InterruptedException {
+
+        ClhLock lock = new ClhLock();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+        lock.lock();
+        Thread[] threads = new Thread[5];
+        for (int i = 0; i < threads.length; i++) {
+            int id = i;
+            threads[i] = new Thread(() -> {
+                lock.lock();
+                try {
+                    order.add(id);
+                } finally {
+                    lock.unlock();
+                }
+            });
+            threads[i].start();
+            Thread.sleep(20);  // let it enqueue before the next one starts
+        }
+        lock.unlock();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+    }
+}
@@ -0,0 +1,207 @@
+package com.yejianfengblue.java.concurrency;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link ObjectPool}
+ *
+ * @author yejianfengblue
+ */
+class ObjectPoolTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    @RequiredArgsConstructor
+    @Getter
+    @ToString(of = "id")
+    private static class Printer {
+
+        private final int id;
+
+        private final AtomicInteger users = new AtomicInteger();
+
+        private volatile boolean destroyed;
+    }
+
+    private static ObjectPool<Printer> newPrinterPool(int maxSize, Set<Printer> destroyed) {
+
+        AtomicInteger ids = new AtomicInteger();
+        return new ObjectPool<>(maxSize, () -> new Printer(ids.getAndIncrement()), printer -> {
+            printer.destroyed = true;
+            destroyed.add(printer);
+        }, true);
+    }
+
+    @Test
+    void givenOneThread_whenAcquireAndReleaseInLoop_thenSameObjectFromThreadCache() throws InterruptedException {
+
+        ObjectPool<Printer> pool = newPrinterPool(3, ConcurrentHashMap.newKeySet());
+
+        Printer first;
+        try (ObjectPool.PooledObject<Printer> pooled = pool.acquire()) {
+            first = pooled.get();
+        }
+        for (int i = 0; i < 1000; i++) {
+            try (ObjectPool.PooledObject<Printer> pooled = pool.acquire()) {
+                assertSame(first, pooled.get());
+            }
+        }
+
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1000, pool.getThreadCacheHits());
+        assertEquals(1001, pool.getLeaseCount());
+        assertEquals(0, pool.getLeasedCount());
+    }
+
+    /**
+     * Same as the PrintQueue of {@code SemaphoreTest}: 10 jobs print on at most 3 printers, for 30-100 ms
+     */
+    @Test
+    void givenPoolOf3Printers_when10JobsPrint_thenAtMost3PrintersAndNeverShared() throws InterruptedException {
+
+        ObjectPool<Printer> pool = newPrinterPool(3, ConcurrentHashMap.newKeySet());
+        AtomicBoolean shared = new AtomicBoolean();
+
+        Thread[] threads = new Thread[10];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try (ObjectPool.PooledObject<Printer> pooled = pool.acquire()) {
+                    Printer printer = pooled.get();
+                    if (1 != printer.getUsers().incrementAndGet()) {
+                        shared.set(true);
+                    }
+                    int duration = ThreadLocalRandom.current().nextInt(30, 101);
+                    log.info("Thread [{}] is printing a Job in {} during {}ms",
+                            Thread.currentThread().getName(), printer, duration);
+                    TimeUnit.MILLISECONDS.sleep(duration);
+                    printer.getUsers().decrementAndGet();
+                } catch (InterruptedException e) {
+                    log.error("Error", e);
+                }
+            }, "Thread" + i);
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertFalse(shared.get());
+        assertEquals(3, pool.getCreatedCount());
+        assertEquals(10, pool.getLeaseCount());
+        assertTrue(pool.getWaitCount() >= 7);
+        assertTrue(pool.getMeanLeaseNanos() >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(pool.getMaxLeaseNanos() <= TimeUnit.MILLISECONDS.toNanos(1000));
+        log.info("Mean lease {} ms, max lease {} ms", TimeUnit.NANOSECONDS.toMillis(pool.getMeanLeaseNanos()),
+                TimeUnit.NANOSECONDS.toMillis(pool.getMaxLeaseNanos()));
+    }
+
+    @Test
+    void givenExhaustedPool_whenAcquireWithTimeout_thenNullUntilAnotherThreadReleases() throws InterruptedException {
+
+        ObjectPool<Printer> pool = newPrinterPool(1, ConcurrentHashMap.newKeySet());
+        ObjectPool.PooledObject<Printer> held = pool.acquire();
+
+        assertNull(pool.acquire(50, TimeUnit.MILLISECONDS));
+        assertEquals(1, pool.getTimeoutCount());
+
+        Thread releaser = new Thread(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(100);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            held.close();  // returned by another thread, into its own cache
+        });
+        releaser.start();
+        try (ObjectPool.PooledObject<Printer> pooled = pool.acquire(5, TimeUnit.SECONDS)) {
+            assertSame(held.get(), pooled.get());
+        }
+        releaser.join();
+        assertThrows(IllegalStateException.class, held::close);
+    }
+
+    @Test
+    void givenStaleLeaseOfPreviousBorrower_whenCloseAgain_thenCurrentBorrowerKeepsTheObject() throws InterruptedException {
+
+        ObjectPool<Printer> pool = newPrinterPool(1, ConcurrentHashMap.newKeySet());
+        ObjectPool.PooledObject<Printer> stale = pool.acquire();
+        stale.close();
+
+        ObjectPool.PooledObject<Printer> current = pool.acquire();
+        assertSame(stale.get(), current.get());
+
+        assertThrows(IllegalStateException.class, stale::close);
+        assertEquals(1, pool.getLeasedCount());
+        assertNull(pool.acquire(50, TimeUnit.MILLISECONDS));
+
+        current.close();
+        assertThrows(IllegalStateException.class, current::close);
+        assertEquals(0, pool.getLeasedCount());
+    }
+
+    @Test
+    void givenIdleObjects_whenEvictIdle_thenOnlyIdleOnesAreDestroyed() throws InterruptedException {
+
+        Set<Printer> destroyed = ConcurrentHashMap.newKeySet();
+        ObjectPool<Printer> pool = newPrinterPool(3, destroyed);
+        ObjectPool.PooledObject<Printer> a = pool.acquire();
+        ObjectPool.PooledObject<Printer> b = pool.acquire();
+        ObjectPool.PooledObject<Printer> c = pool.acquire();
+        a.close();
+        b.close();
+        assertEquals(0, pool.evictIdle(Duration.ofMillis(50)));  // the first sweep finds them just used
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        assertEquals(2, pool.evictIdle(Duration.ofMillis(50)));
+        assertEquals(Set.of(a.get(), b.get()), destroyed);
+        assertEquals(1, pool.size());
+
+        try (ObjectPool.PooledObject<Printer> pooled = pool.acquire()) {
+            assertFalse(pooled.get().isDestroyed());  // a new one, not the evicted ones from the thread cache
+        }
+        c.close();
+        pool.close();
+        assertTrue(c.get().isDestroyed());
+        assertEquals(0, pool.size());
+        assertThrows(IllegalStateException.class, pool::acquire);
+    }
+
+    @Test
+    void givenLeakDetection_whenObjectIsNotReturned_thenLeakIsDetected() throws InterruptedException {
+
+        ObjectPool<Printer> pool = newPrinterPool(3, ConcurrentHashMap.newKeySet());
+        pool.setLeakDetectionThreshold(Duration.ofMillis(50));
+
+        ObjectPool.PooledObject<Printer> leaked = pool.acquire();
+        pool.acquire().close();
+        assertEquals(0, pool.detectLeaks());
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(1, pool.detectLeaks());
+
+        leaked.close();
+        assertEquals(0, pool.detectLeaks());
+    }
+}
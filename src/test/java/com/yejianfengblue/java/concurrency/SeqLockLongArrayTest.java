@@ -0,0 +1,107 @@
+package com.yejianfengblue.java.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Test to {@link SeqLockLongArray} and {@link SeqLockPricesInfo}
+ *
+ * @author yejianfengblue
+ */
+class SeqLockLongArrayTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    @Test
+    void givenSingleThread_whenWriteAndRead_thenVersionIncreasesBy2PerWrite() {
+
+        SeqLockLongArray array = new SeqLockLongArray(4);
+        long[] destination = new long[4];
+        assertEquals(0, array.read(0, destination, 4));
+
+        array.write(1, 42);
+        array.write(2, new long[]{7, 8});
+        assertEquals(4, array.read(0, destination, 4));
+        assertEquals(Arrays.toString(new long[]{0, 42, 7, 8}), Arrays.toString(destination));
+        assertEquals(8, array.read(3));
+    }
+
+    /**
+     * The writer sets all 8 fields to the same value in every batch, a reader sees a torn batch if they differ
+     */
+    @Test
+    void givenWriterAndReaders_whenBatchWrite_thenReaderNeverSeesTornBatch() throws InterruptedException {
+
+        SeqLockLongArray array = new SeqLockLongArray(8);
+        AtomicBoolean writerDone = new AtomicBoolean();
+        AtomicBoolean torn = new AtomicBoolean();
+
+        Thread[] readerThreads = new Thread[4];
+        for (int i = 0; i < readerThreads.length; i++) {
+            readerThreads[i] = new Thread(() -> {
+                long[] destination = new long[8];
+                while (!writerDone.get()) {
+                    long version = array.read(0, destination, 8);
+                    for (long field : destination) {
+                        if (field != destination[0] || field != version / 2) {
+                            torn.set(true);
+                        }
+                    }
+                }
+            });
+            readerThreads[i].start();
+        }
+
+        long[] batch = new long[8];
+        for (int n = 1; n <= 500000; n++) {
+            Arrays.fill(batch, n);
+            array.write(0, batch);
+        }
+        writerDone.set(true);
+        for (Thread readerThread : readerThreads) {
+            readerThread.join();
+        }
+
+        assertFalse(torn.get());
+        assertEquals(500000, array.read(7));
+    }
+
+    @Test
+    void givenSeqLockPricesInfo_whenWriterAndReaders_thenPairIsNeverTorn() throws InterruptedException {
+
+        SeqLockPricesInfo pricesInfo = new SeqLockPricesInfo();
+        AtomicBoolean writerDone = new AtomicBoolean();
+        AtomicBoolean torn = new AtomicBoolean();
+
+        Thread[] readerThreads = new Thread[4];
+        for (int i = 0; i < readerThreads.length; i++) {
+            readerThreads[i] = new Thread(() -> {
+                long[] prices = new long[2];
+                while (!writerDone.get()) {
+                    pricesInfo.getPrices(prices);
+                    if (0 != prices[0] + prices[1]) {
+                        torn.set(true);
+                    }
+                }
+            });
+            readerThreads[i].start();
+        }
+        for (int i = 1; i <= 200000; i++) {
+            pricesInfo.setPrices(i, -i);
+        }
+        writerDone.set(true);
+        for (Thread readerThread : readerThreads) {
+            readerThread.join();
+        }
+
+        assertFalse(torn.get());
+        assertEquals(new Prices(200000, -200000), pricesInfo.getPrices());
+    }
+}
@@ -0,0 +1,204 @@
+package com.yejianfengblue.java.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link SlotPool}
+ *
+ * @author yejianfengblue
+ */
+class SlotPoolTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    @Test
+    void givenPoolOf130Slots_whenAcquireAll_thenEverySlotOnceAndThenNone() {
+
+        SlotPool pool = new SlotPool(130, false);  // spans 3 words of the bitmap
+        List<Integer> slots = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            slots.add(pool.tryAcquire());
+        }
+        Collections.sort(slots);
+        for (int i = 0; i < 130; i++) {
+            assertEquals(i, slots.get(i));
+        }
+        assertEquals(-1, pool.tryAcquire());
+        assertEquals(0, pool.availableSlots());
+
+        pool.release(129);
+        assertEquals(129, pool.tryAcquire());
+        assertEquals(2, pool.getAcquireCount(129));
+        pool.release(129);
+        assertThrows(IllegalStateException.class, () -> pool.release(129));
+    }
+
+    /**
+     * Same as the PrintQueue of {@code SemaphoreTest}: 10 jobs print on 3 printers, but for 30-100 ms,
+     * and a printer must never print two jobs at the same time
+     */
+    @Test
+    void givenPrintQueueOf3Printers_when10JobsPrint_thenPrinterIsNeverShared() throws InterruptedException {
+
+        SlotPool printers = new SlotPool(3, false, true);
+        AtomicIntegerArray printing = new AtomicIntegerArray(3);
+        AtomicBoolean shared = new AtomicBoolean();
+
+        Thread[] threads = new Thread[10];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    int assignedPrinter = printers.acquire();
+                    if (1 != printing.incrementAndGet(assignedPrinter)) {
+                        shared.set(true);
+                    }
+                    int duration = ThreadLocalRandom.current().nextInt(30, 101);
+                    log.info("Thread [{}] is printing a Job in Printer {} during {}ms",
+                            Thread.currentThread().getName(), assignedPrinter, duration);
+                    TimeUnit.MILLISECONDS.sleep(duration);
+                    printing.decrementAndGet(assignedPrinter);
+                    printers.release(assignedPrinter);
+                } catch (InterruptedException e) {
+                    log.error("Error", e);
+                }
+            }, "Thread" + i);
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertFalse(shared.get());
+        assertEquals(3, printers.availableSlots());
+        long totalAcquires = 0;
+        for (int printer = 0; printer < 3; printer++) {
+            totalAcquires += printers.getAcquireCount(printer);
+            log.info("Printer {} printed {} jobs during {}ms", printer, printers.getAcquireCount(printer),
+                    TimeUnit.NANOSECONDS.toMillis(printers.getHeldNanos(printer)));
+        }
+        assertEquals(10, totalAcquires);
+        assertTrue(printers.getHeldNanos(0) + printers.getHeldNanos(1) + printers.getHeldNanos(2)
+                >= TimeUnit.MILLISECONDS.toNanos(300));
+        assertTrue(printers.getWaitCount() >= 7);
+    }
+
+    @Test
+    void givenFairPool_whenSlotsAreReleased_thenWaitersGetThemInArrivalOrder() throws InterruptedException {
+
+        SlotPool pool = new SlotPool(1, true);
+        int slot = pool.acquire();
+
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        Thread[] threads = new Thread[5];
+        for (int i = 0; i < threads.length; i++) {
+            int id = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    int s = pool.acquire();
+                    order.add(id);
+                    pool.release(s);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[i].start();
+            while (pool.getWaitingThreadCount() <= i) {
+                Thread.sleep(1);  // queue them up one by one
+            }
+        }
+
+        assertEquals(-1, pool.tryAcquire());  // the fair pool doesn't let a newcomer barge in
+        pool.release(slot);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+    }
+
+    @Test
+    void givenNoFreeSlot_whenTimedAcquire_thenTimeoutAndInterruptAreHandled() throws InterruptedException {
+
+        SlotPool pool = new SlotPool(1, false);
+        int slot = pool.acquire();
+
+        long start = System.nanoTime();
+        assertEquals(-1, pool.tryAcquire(100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(1, pool.getTimeoutCount());
+        assertEquals(0, pool.getWaitingThreadCount());
+
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            try {
+                pool.acquire();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        waiter.start();
+        TimeUnit.MILLISECONDS.sleep(100);
+        waiter.interrupt();
+        waiter.join();
+        assertTrue(interrupted.get());
+
+        pool.release(slot);
+        assertEquals(1, pool.availableSlots());
+    }
+
+    /**
+     * Many threads acquire with a short timeout and release, racing grants against timeouts,
+     * no slot may be lost or handed out twice
+     */
+    @Test
+    void givenManyThreads_whenAcquireWithTimeoutAndRelease_thenNoSlotIsLost() throws InterruptedException {
+
+        SlotPool pool = new SlotPool(4, false);
+        AtomicIntegerArray holders = new AtomicIntegerArray(4);
+        AtomicBoolean shared = new AtomicBoolean();
+
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int n = 0; n < 2000; n++) {
+                        int slot = pool.tryAcquire(10, TimeUnit.MICROSECONDS);
+                        if (slot >= 0) {
+                            if (1 != holders.incrementAndGet(slot)) {
+                                shared.set(true);
+                            }
+                            holders.decrementAndGet(slot);
+                            pool.release(slot);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertFalse(shared.get());
+        assertEquals(4, pool.availableSlots());
+        assertEquals(0, pool.getWaitingThreadCount());
+    }
+}
@@ -0,0 +1,151 @@
+package com.yejianfengblue.java.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link SnapshotStore}, {@link SnapshotPricesInfo} and {@link QuoteTable}
+ *
+ * @author yejianfengblue
+ */
+class SnapshotStoreTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Unlike the PricesInfo of {@code ReadWriteLockTest}, a writer which takes 1s to build the next prices
+     * doesn't block the reader, which keeps reading the previous prices
+     */
+    @Test
+    void givenSlowWriter_whenRead_thenReaderIsNotBlocked() throws InterruptedException {
+
+        SnapshotStore<Prices> store = new SnapshotStore<>(new Prices(1, -1));
+
+        Thread writerThread = new Thread(() -> store.update(current -> {
+            log.info("Writer starts building the next prices");
+            try {
+                TimeUnit.SECONDS.sleep(1);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            return new Prices(current.getPrice1() + 1, current.getPrice2() - 1);
+        }));
+        writerThread.start();
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(new Prices(1, -1), store.get());
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("1000 reads took {} ms while the writer is building", elapsedMillis);
+        assertTrue(elapsedMillis < 500);
+
+        writerThread.join();
+        assertEquals(new Prices(2, -2), store.get());
+    }
+
+    @Test
+    void givenConcurrentUpdates_whenUpdate_thenNoUpdateIsLost() throws InterruptedException {
+
+        SnapshotStore<Prices> store = new SnapshotStore<>(new Prices(0, 0));
+
+        Thread[] writerThreads = new Thread[4];
+        for (int i = 0; i < writerThreads.length; i++) {
+            writerThreads[i] = new Thread(() -> {
+                for (int n = 0; n < 10000; n++) {
+                    store.update(current -> new Prices(current.getPrice1() + 1, current.getPrice2() - 1));
+                }
+            });
+            writerThreads[i].start();
+        }
+        for (Thread writerThread : writerThreads) {
+            writerThread.join();
+        }
+
+        assertEquals(new Prices(40000, -40000), store.get());
+    }
+
+    @Test
+    void givenSnapshotPricesInfo_whenWriterAndReaders_thenPairIsNeverTorn() throws InterruptedException {
+
+        SnapshotPricesInfo pricesInfo = new SnapshotPricesInfo();
+        AtomicBoolean writerDone = new AtomicBoolean();
+        AtomicBoolean torn = new AtomicBoolean();
+
+        Thread[] readerThreads = new Thread[4];
+        for (int i = 0; i < readerThreads.length; i++) {
+            readerThreads[i] = new Thread(() -> {
+                while (!writerDone.get()) {
+                    Prices prices = pricesInfo.getPrices();
+                    if (0 != prices.getPrice1() + prices.getPrice2()) {
+                        torn.set(true);
+                    }
+                }
+            });
+            readerThreads[i].start();
+        }
+        for (int i = 1; i <= 200000; i++) {
+            pricesInfo.setPrices(i, -i);
+        }
+        writerDone.set(true);
+        for (Thread readerThread : readerThreads) {
+            readerThread.join();
+        }
+
+        assertFalse(torn.get());
+        assertEquals(200000, pricesInfo.getPrice1());
+    }
+
+    /**
+     * Every batch sets all 100 symbols to the batch number, a reader sees a half-applied batch if they differ
+     */
+    @Test
+    void givenQuoteTable_whenPublishBatches_thenReaderSeesWholeBatches() throws InterruptedException {
+
+        QuoteTable table = new QuoteTable();
+        AtomicBoolean writerDone = new AtomicBoolean();
+        AtomicBoolean halfApplied = new AtomicBoolean();
+
+        Thread[] readerThreads = new Thread[4];
+        for (int i = 0; i < readerThreads.length; i++) {
+            readerThreads[i] = new Thread(() -> {
+                while (!writerDone.get()) {
+                    QuoteTable.Snapshot snapshot = table.snapshot();
+                    for (Prices prices : snapshot.getQuotes().values()) {
+                        if (prices.getPrice1() != snapshot.getVersion()) {
+                            halfApplied.set(true);
+                        }
+                    }
+                }
+            });
+            readerThreads[i].start();
+        }
+
+        for (int version = 1; version <= 1000; version++) {
+            Map<String, Prices> batch = new HashMap<>();
+            for (int symbol = 0; symbol < 100; symbol++) {
+                batch.put("SYM" + symbol, new Prices(version, -version));
+            }
+            assertEquals(version, table.publish(batch).getVersion());
+        }
+        writerDone.set(true);
+        for (Thread readerThread : readerThreads) {
+            readerThread.join();
+        }
+
+        assertFalse(halfApplied.get());
+        assertEquals(100, table.snapshot().size());
+        assertEquals(new Prices(1000, -1000), table.get("SYM42"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.yejianfengblue.java.concurrency;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Test to {@link StampedPricesInfo}
+ *
+ * @author yejianfengblue
+ */
+class StampedPricesInfoTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * The writer always sets price2 to the negative of price1, so a reader sees a torn pair if the sum isn't 0
+     */
+    @Test
+    void givenWriterAndReaders_whenGetPrices_thenPairIsNeverTorn() throws InterruptedException {
+
+        StampedPricesInfo pricesInfo = new StampedPricesInfo();
+        AtomicBoolean writerDone = new AtomicBoolean();
+        AtomicBoolean torn = new AtomicBoolean();
+        AtomicInteger reads = new AtomicInteger();
+
+        Thread[] readerThreads = new Thread[4];
+        for (int i = 0; i < readerThreads.length; i++) {
+            readerThreads[i] = new Thread(() -> {
+                while (!writerDone.get()) {
+                    Prices prices = pricesInfo.getPrices();
+                    if (0 != prices.getPrice1() + prices.getPrice2()) {
+                        torn.set(true);
+                    }
+                    reads.incrementAndGet();
+                }
+            });
+            readerThreads[i].start();
+        }
+
+        Thread writerThread = new Thread(() -> {
+            for (int i = 1; i <= 200000; i++) {
+                pricesInfo.setPrices(i, -i);
+            }
+            writerDone.set(true);
+        });
+        writerThread.start();
+
+        writerThread.join();
+        for (Thread readerThread : readerThreads) {
+            readerThread.join();
+        }
+
+        log.info("{} reads", reads.get());
+        assertFalse(torn.get());
+        assertEquals(new Prices(200000, -200000), pricesInfo.getPrices());
+        assertEquals(200000, pricesInfo.getPrice1());
+        assertEquals(-200000, pricesInfo.getPrice2());
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Deque;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.stream.IntStream;
 
@@ -21,11 +22,11 @@ class ConcurrentLinkedDequeTest {
 
     private Logger log = LoggerFactory.getLogger(getClass());
 
-    /** Offer (add without throwing exception) 10000 elements to the provided {@link ConcurrentLinkedDeque}*/
+    /** Offer (add without throwing exception) 10000 elements to the provided {@link Deque}*/
     @RequiredArgsConstructor
     private static class AddTask implements Runnable {
 
-        private final ConcurrentLinkedDeque<String> list;
+        private final Deque<String> list;
 
         private Logger log = LoggerFactory.getLogger(getClass());
 
@@ -40,11 +41,11 @@ class ConcurrentLinkedDequeTest {
         }
     }
 
-    /** Poll the first and last element from the provided {@link ConcurrentLinkedDeque} for 5000 times */
+    /** Poll the first and last element from the provided {@link Deque} for 5000 times */
     @RequiredArgsConstructor
     private static class PollTask implements Runnable {
 
-        private final ConcurrentLinkedDeque<String> list;
+        private final Deque<String> list;
 
         private Logger log = LoggerFactory.getLogger(getClass());
 
@@ -126,4 +127,41 @@ class ConcurrentLinkedDequeTest {
         log.info("List size = {}", list.size());
         assertTrue(list.isEmpty());
     }
+
+    /**
+     * Same as above, but with a {@link SegmentedConcurrentDeque}, whose size() is O(1)
+     */
+    @Test
+    void givenSegmentedConcurrentDeque_whenMultipleThreadsPollElements_thenDataIsConsistent() throws InterruptedException {
+
+        SegmentedConcurrentDeque<String> list = new SegmentedConcurrentDeque<>();
+
+        Thread[] addTaskThreads = new Thread[100];
+        for (int i = 0; i < addTaskThreads.length; i++) {
+            addTaskThreads[i] = new Thread(new AddTask(list));
+        }
+        for (Thread addTaskThread : addTaskThreads) {
+            addTaskThread.start();
+        }
+        for (Thread addTaskThread : addTaskThreads) {
+            addTaskThread.join();
+        }
+
+        log.info("List size = {}", list.size());
+        assertEquals(1000000, list.size());
+
+        Thread[] pollTaskThreads = new Thread[100];
+        for (int i = 0; i < pollTaskThreads.length; i++) {
+            pollTaskThreads[i] = new Thread(new PollTask(list));
+        }
+        for (Thread pollTaskThread : pollTaskThreads) {
+            pollTaskThread.start();
+        }
+        for (Thread pollTaskThread : pollTaskThreads) {
+            pollTaskThread.join();
+        }
+
+        log.info("List size = {}", list.size());
+        assertTrue(list.isEmpty());
+    }
 }
@@ -7,10 +7,14 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * Test to thread-safe sorted map {@link ConcurrentSkipListMap}
  * @author yejianfengblue
@@ -81,4 +85,28 @@ class ConcurrentSkipListMapTest {
             }
         } while (null != subMapEntry);
     }
+
+    @Test
+    void givenContactsOfAllTasks_whenBulkLoad_thenSameMapAsPutOneByOne() throws InterruptedException {
+
+        ConcurrentSkipListMap<String, Contact> putMap = new ConcurrentSkipListMap<>();
+        List<Map.Entry<String, Contact>> entries = new ArrayList<>();
+        for (char i = 'Z'; i >= 'A'; i--) {  // reversed, so the loader has to sort
+            Thread thread = new Thread(new Task(String.valueOf(i), putMap));
+            thread.start();
+            thread.join();
+            for (int j = 0; j < 1000; j++) {
+                Contact contact = new Contact(String.valueOf(i), String.valueOf(j + 1000));
+                entries.add(Map.entry(contact.getName() + contact.getPhone(), contact));
+            }
+        }
+
+        ConcurrentSkipListMap<String, Contact> loadedMap = SkipListBulkLoader.load(entries);
+
+        assertEquals(26000, loadedMap.size());
+        assertEquals(putMap.keySet(), loadedMap.keySet());
+        assertEquals("A1000", loadedMap.firstKey());
+        assertEquals("Z1999", loadedMap.lastKey());
+        assertEquals(putMap.subMap("A1996", "B1002").keySet(), loadedMap.subMap("A1996", "B1002").keySet());
+    }
 }
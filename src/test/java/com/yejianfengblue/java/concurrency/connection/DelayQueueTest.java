@@ -8,9 +8,10 @@ import org.slf4j.LoggerFactory;
 import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.concurrent.DelayQueue;
-import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * Test to thread-safe queue with delayed elements {@link DelayQueue}
  * @author yejianfengblue
@@ -19,23 +20,14 @@ class DelayQueueTest {
 
     private Logger log = LoggerFactory.getLogger(getClass());
 
-    @RequiredArgsConstructor
-    private static class Event implements Delayed {
-
-        private final ZonedDateTime startDate;
-
-        @Override
-        public long getDelay(TimeUnit unit) {
-
-            return unit.convert(
-                    Duration.between(ZonedDateTime.now(), startDate));
-        }
-
-        @Override
-        public int compareTo(Delayed o) {
+    /**
+     * The delay to the start date is computed once, the queue then compares the cached deadlines
+     * without reading the clock, see {@link DeadlineDelayed}
+     */
+    private static class Event extends DeadlineDelayed {
 
-            return Long.compare(this.getDelay(TimeUnit.NANOSECONDS),
-                    o.getDelay(TimeUnit.NANOSECONDS));
+        private Event(ZonedDateTime startDate) {
+            super(Duration.between(ZonedDateTime.now(), startDate));
         }
     }
 
@@ -93,4 +85,40 @@ class DelayQueueTest {
             TimeUnit.MILLISECONDS.sleep(500);
         } while (!queue.isEmpty());
     }
+
+    /**
+     * Same as above, but with a {@link TimingWheelDelayQueue}, which reads the delay of each event only once
+     */
+    @Test
+    void givenTimingWheelDelayQueue_whenPoll_thenOnlyElementsWithExpiredDelayAreReturned() throws InterruptedException {
+
+        try (TimingWheelDelayQueue<Event> queue = new TimingWheelDelayQueue<>(10, TimeUnit.MILLISECONDS)) {
+
+            ZonedDateTime now = ZonedDateTime.now();
+            for (int threadId = 1; threadId <= 5; threadId++) {
+                for (int i = 0; i < 100; i++) {
+                    queue.add(new Event(now.plusSeconds(threadId)));
+                }
+            }
+            assertEquals(500, queue.size());
+
+            int total = 0;
+            do {
+
+                int counter = 0;
+                Event event;
+
+                do {
+                    event = queue.poll();
+                    if (null != event) counter++;
+                } while (null != event);
+
+                log.info("{} events are read", counter);
+                total += counter;
+                TimeUnit.MILLISECONDS.sleep(500);
+            } while (!queue.isEmpty());
+
+            assertEquals(500, total);
+        }
+    }
 }
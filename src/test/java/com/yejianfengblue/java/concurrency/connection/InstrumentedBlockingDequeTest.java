@@ -0,0 +1,140 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link InstrumentedBlockingDeque}, {@link InstrumentedBlockingQueue} and {@link QueueMetrics}
+ *
+ * @author yejianfengblue
+ */
+class InstrumentedBlockingDequeTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Same as the Client of {@code LinkedBlockingDequeTest}, but with shorter sleeps
+     */
+    @RequiredArgsConstructor
+    private static class Client implements Runnable {
+
+        private final BlockingDeque<String> requestList;
+
+        private Logger log = LoggerFactory.getLogger(getClass());
+
+        @Override
+        public void run() {
+
+            for (int i = 0; i < 3; i++) {
+
+                for (int j = 0; j < 5; j++) {
+
+                    String request = i + "-" + j;
+                    try {
+                        requestList.putLast(request);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    log.info("Client put last {}", request);
+                }
+
+                try {
+                    TimeUnit.MILLISECONDS.sleep(300);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * The client puts 5 requests into a 3-slot deque in a burst, so it blocks in the first round,
+     * while the consumer waits for the client in the later rounds
+     */
+    @Test
+    void givenClientOfLinkedBlockingDequeTest_whenRun_thenBothSidesBlockAndOccupancyIsRecorded() throws InterruptedException {
+
+        InstrumentedBlockingDeque<String> list = new InstrumentedBlockingDeque<>(new LinkedBlockingDeque<>(3));
+        list.getMetrics().setEnabled(true);
+
+        Thread clientThread = new Thread(new Client(list));
+        clientThread.start();
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 3; j++) {
+                list.takeFirst();
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        clientThread.join();
+
+        QueueMetrics.Snapshot snapshot = list.getMetrics().snapshot();
+        log.info("{}", snapshot);
+        assertEquals(15, snapshot.getEnqueued());
+        assertEquals(15, snapshot.getDequeued());
+        assertTrue(snapshot.getPutBlockedCount() > 0);
+        assertTrue(snapshot.getPutBlockedNanos() > 0);
+        assertTrue(snapshot.getTakeBlockedCount() > 0);
+        assertTrue(snapshot.getTakeBlockedNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(snapshot.getEnqueueRate() > 0);
+
+        long[] histogram = snapshot.getOccupancyHistogram();
+        assertEquals(30, histogram[0] + histogram[1] + histogram[2]);  // sizes 0, 1, 2-3
+        assertTrue(histogram[2] > 0);
+    }
+
+    @Test
+    void givenMetricsDisabled_whenOperate_thenNothingIsRecorded() throws InterruptedException {
+
+        InstrumentedBlockingQueue<String> queue = new InstrumentedBlockingQueue<>(new ArrayBlockingQueue<>(1));
+        queue.put("a");
+        queue.offer("b", 10, TimeUnit.MILLISECONDS);
+        queue.take();
+        queue.poll(10, TimeUnit.MILLISECONDS);
+
+        QueueMetrics.Snapshot snapshot = queue.getMetrics().snapshot();
+        assertEquals(0, snapshot.getEnqueued());
+        assertEquals(0, snapshot.getDequeued());
+        assertEquals(0, snapshot.getPutBlockedCount());
+        assertEquals(0, snapshot.getTakeBlockedCount());
+        assertArrayEquals(new long[32], snapshot.getOccupancyHistogram());
+    }
+
+    @Test
+    void givenMetricsEnabled_whenTimeoutAndDrain_thenBlockedTimeAndDequeuesAreRecorded() throws InterruptedException {
+
+        InstrumentedBlockingQueue<String> queue = new InstrumentedBlockingQueue<>(new ArrayBlockingQueue<>(4));
+        queue.getMetrics().setEnabled(true);
+
+        assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 4; i++) {
+            queue.add("request-" + i);
+        }
+        List<String> drained = new ArrayList<>();
+        assertEquals(4, queue.drainTo(drained));
+
+        QueueMetrics.Snapshot snapshot = queue.getMetrics().snapshot();
+        assertEquals(1, snapshot.getTakeBlockedCount());
+        assertTrue(snapshot.getTakeBlockedNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(4, snapshot.getEnqueued());
+        assertEquals(4, snapshot.getDequeued());
+
+        queue.getMetrics().reset();
+        assertEquals(0, queue.getMetrics().snapshot().getTakeBlockedCount());
+    }
+}
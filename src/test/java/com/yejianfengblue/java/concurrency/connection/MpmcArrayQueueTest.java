@@ -0,0 +1,216 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link MpmcArrayQueue}
+ *
+ * @author yejianfengblue
+ */
+class MpmcArrayQueueTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    @Test
+    void givenCapacity3_whenOfferBeyondCapacity_thenRejectedAndFifoKept() {
+
+        MpmcArrayQueue<String> queue = new MpmcArrayQueue<>(3);
+        assertTrue(queue.offer("a"));
+        assertTrue(queue.offer("b"));
+        assertTrue(queue.offer("c"));
+        assertFalse(queue.offer("d"));
+        assertEquals(3, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(List.of("a", "b", "c"), new ArrayList<>(queue));
+
+        // wrap around several laps, with a capacity which isn't a power of 2
+        for (int i = 0; i < 10; i++) {
+            assertEquals("a", queue.poll());
+            assertTrue(queue.offer("a"));
+            assertEquals("b", queue.poll());
+            assertTrue(queue.offer("b"));
+            assertEquals("c", queue.poll());
+            assertTrue(queue.offer("c"));
+        }
+        assertEquals("a", queue.peek());
+        assertThrows(NullPointerException.class, () -> queue.offer(null));
+    }
+
+    @Test
+    void givenEmptyOrFullQueue_whenTimedPollOrOffer_thenTimeout() throws InterruptedException {
+
+        MpmcArrayQueue<String> queue = new MpmcArrayQueue<>(1);
+
+        long start = System.nanoTime();
+        assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+        queue.put("a");
+        start = System.nanoTime();
+        assertFalse(queue.offer("b", 100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals("a", queue.takeFirst());
+    }
+
+    /**
+     * Same as the Client of {@code LinkedBlockingDequeTest}, but with shorter sleeps
+     */
+    @RequiredArgsConstructor
+    private static class Client implements Runnable {
+
+        private final MpmcArrayQueue<String> requestList;
+
+        private Logger log = LoggerFactory.getLogger(getClass());
+
+        @Override
+        public void run() {
+
+            for (int i = 0; i < 3; i++) {
+
+                log.info("Will put last 5 requests");
+                for (int j = 0; j < 5; j++) {
+
+                    String request = i + "-" + j;
+                    try {
+                        requestList.putLast(request);  // blocks while the 3 slots are full
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    log.info("Client put last {}, size = {}, remainingCapacity = {}", request, requestList.size(), requestList.remainingCapacity());
+                }
+
+                try {
+                    TimeUnit.MILLISECONDS.sleep(300);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            log.info("Client End");
+        }
+    }
+
+    @Test
+    void givenCapacity3_whenClientPutsFasterThanTake_thenClientBlocksAndOrderIsKept() throws InterruptedException {
+
+        MpmcArrayQueue<String> list = new MpmcArrayQueue<>(3);
+
+        Thread clientThread = new Thread(new Client(list));
+        clientThread.start();
+
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        List<String> taken = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+
+            log.info("Will take first 3 requests");
+            for (int j = 0; j < 3; j++) {
+
+                String request = list.takeFirst();
+                taken.add(request);
+                log.info("Take first {}, size = {}", request, list.size());
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+
+        clientThread.join();
+        assertEquals(List.of("0-0", "0-1", "0-2", "0-3", "0-4",
+                "1-0", "1-1", "1-2", "1-3", "1-4",
+                "2-0", "2-1", "2-2", "2-3", "2-4"), taken);
+        assertTrue(list.isEmpty());
+    }
+
+    /**
+     * 4 producers put and 4 consumers take through 8 slots, each element must be taken exactly once
+     */
+    @Test
+    void givenMultipleProducersAndConsumers_whenPutAndTake_thenEachElementIsTakenExactlyOnce() throws InterruptedException {
+
+        MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(8);
+        Set<Integer> taken = ConcurrentHashMap.newKeySet();
+        AtomicBoolean duplicate = new AtomicBoolean();
+
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            int base = i * 50000;
+            producers[i] = new Thread(() -> {
+                try {
+                    for (int n = 0; n < 50000; n++) {
+                        queue.put(base + n);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        Thread[] consumers = new Thread[4];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new Thread(() -> {
+                try {
+                    for (int n = 0; n < 50000; n++) {
+                        if (!taken.add(queue.take())) {
+                            duplicate.set(true);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        for (int i = 0; i < producers.length; i++) {
+            producers[i].start();
+            consumers[i].start();
+        }
+        for (int i = 0; i < producers.length; i++) {
+            producers[i].join();
+            consumers[i].join();
+        }
+
+        assertFalse(duplicate.get());
+        assertEquals(200000, taken.size());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void givenBlockedProducer_whenDrainTo_thenProducerIsWokenUp() throws InterruptedException {
+
+        MpmcArrayQueue<Integer> queue = new MpmcArrayQueue<>(4);
+        for (int i = 0; i < 4; i++) {
+            queue.put(i);
+        }
+        Thread producer = new Thread(() -> {
+            try {
+                queue.put(4);
+                queue.put(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(Thread.State.WAITING, producer.getState());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, queue.drainTo(drained, 3));
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+
+        assertEquals(3, queue.drainTo(drained));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), drained);
+    }
+}
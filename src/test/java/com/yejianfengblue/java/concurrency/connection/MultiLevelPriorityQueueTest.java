@@ -0,0 +1,139 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link MultiLevelPriorityQueue}
+ *
+ * @author yejianfengblue
+ */
+class MultiLevelPriorityQueueTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    @RequiredArgsConstructor
+    @Getter
+    @ToString
+    private static class Job {
+
+        private final int priority;
+
+        private final int sequence;
+    }
+
+    @Test
+    void givenJobsOfSamePriority_whenPoll_thenFifoWithinPriority() {
+
+        MultiLevelPriorityQueue<Job> queue = new MultiLevelPriorityQueue<>(130, Job::getPriority);
+        for (int sequence = 0; sequence < 100; sequence++) {
+            queue.put(new Job(129, sequence));
+            queue.put(new Job(64, sequence));
+            queue.put(new Job(0, sequence));
+        }
+        assertEquals(300, queue.size());
+
+        for (int priority : new int[]{0, 64, 129}) {
+            for (int sequence = 0; sequence < 100; sequence++) {
+                Job job = queue.poll();
+                assertEquals(priority, job.getPriority());
+                assertEquals(sequence, job.getSequence());
+            }
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void givenPriorityOutOfRange_whenPut_thenIllegalArgumentException() {
+
+        MultiLevelPriorityQueue<Job> queue = new MultiLevelPriorityQueue<>(10, Job::getPriority);
+
+        assertThrows(IllegalArgumentException.class, () -> queue.put(new Job(10, 0)));
+        assertThrows(IllegalArgumentException.class, () -> queue.put(new Job(-1, 0)));
+    }
+
+    @Test
+    void givenEmptyQueue_whenTakeAndPutLater_thenTakeIsUnblocked() throws InterruptedException {
+
+        MultiLevelPriorityQueue<Job> queue = new MultiLevelPriorityQueue<>(10, Job::getPriority);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+
+        List<Job> taken = new ArrayList<>();
+        Thread taker = new Thread(() -> {
+            try {
+                taken.add(queue.take());
+            } catch (InterruptedException e) {
+                log.error("Error", e);
+            }
+        });
+        taker.start();
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        queue.put(new Job(5, 0));
+        taker.join(1000);
+
+        assertEquals(1, taken.size());
+        assertEquals(5, taken.get(0).getPriority());
+    }
+
+    @Test
+    void givenMultipleProducersAndConsumers_whenTake_thenEachJobIsTakenExactlyOnce() throws InterruptedException {
+
+        MultiLevelPriorityQueue<Job> queue = new MultiLevelPriorityQueue<>(100, Job::getPriority);
+        Set<Job> taken = ConcurrentHashMap.newKeySet();
+
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            int producerId = i;
+            producers[i] = new Thread(() -> {
+                for (int sequence = 0; sequence < 10000; sequence++) {
+                    queue.put(new Job((sequence * 31 + producerId) % 100, sequence));
+                }
+            });
+        }
+        Thread[] consumers = new Thread[4];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 10000; j++) {
+                        taken.add(queue.take());
+                    }
+                } catch (InterruptedException e) {
+                    log.error("Error", e);
+                }
+            });
+        }
+
+        for (Thread consumer : consumers) {
+            consumer.start();
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (Thread consumer : consumers) {
+            consumer.join(10000);
+        }
+
+        assertEquals(40000, taken.size());
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,131 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to relaxed priority queue {@link MultiQueue}, with the Event of {@code PriorityBlockingQueueTest}
+ *
+ * @author yejianfengblue
+ */
+class MultiQueueTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    @RequiredArgsConstructor
+    @Getter
+    @ToString
+    private static class Event implements Comparable<Event> {
+
+        private final int threadId;
+
+        private final int priority;
+
+        @Override
+        public int compareTo(Event o) {
+
+            return Integer.compare(this.priority, o.priority);
+        }
+    }
+
+    @Test
+    void givenRandomPriorities_whenPollAll_thenRankErrorIsBoundedByHeapCount() {
+
+        MultiQueue<Event> queue = new MultiQueue<>(8, null);
+        RankErrorMeter meter = new RankErrorMeter(10000);
+
+        for (int i = 0; i < 10000; i++) {
+            int priority = ThreadLocalRandom.current().nextInt(10000);
+            queue.put(new Event(0, priority));
+            meter.recordInsert(priority);
+        }
+        assertEquals(10000, queue.size());
+
+        Event event;
+        while (null != (event = queue.poll())) {
+            meter.recordRemove(event.getPriority());
+        }
+
+        log.info("{} with {} heaps", meter, queue.getHeapCount());
+        assertEquals(10000, meter.getRemovals());
+        assertTrue(meter.getMeanRankError() < 4 * queue.getHeapCount(), meter.toString());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void givenComparator_whenPoll_thenOrderedByComparator() {
+
+        MultiQueue<Event> queue = new MultiQueue<>(2, Comparator.comparing(Event::getPriority).reversed());
+        queue.put(new Event(0, 1));
+        queue.put(new Event(0, 3));
+        queue.put(new Event(0, 2));
+
+        assertEquals(3, queue.peek().getPriority());
+        int polled = 0;
+        while (null != queue.poll()) {
+            polled++;
+        }
+        assertEquals(3, polled);
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void givenMultipleThreadsPutAndTake_whenDone_thenEachEventIsTakenExactlyOnce() throws InterruptedException {
+
+        MultiQueue<Event> queue = new MultiQueue<>();
+        Set<Event> taken = ConcurrentHashMap.newKeySet();
+
+        Thread[] producers = new Thread[5];
+        for (int i = 0; i < producers.length; i++) {
+            int threadId = i;
+            producers[i] = new Thread(() -> {
+                for (int priority = 0; priority < 1000; priority++) {
+                    queue.put(new Event(threadId, priority));
+                }
+            });
+        }
+        Thread[] consumers = new Thread[5];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 1000; j++) {
+                        taken.add(queue.take());
+                    }
+                } catch (InterruptedException e) {
+                    log.error("Error", e);
+                }
+            });
+        }
+
+        for (Thread consumer : consumers) {
+            consumer.start();
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        for (Thread consumer : consumers) {
+            consumer.join(10000);
+        }
+
+        assertEquals(5000, taken.size());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -41,13 +42,18 @@ class PriorityBlockingQueueTest {
 
         private final int threadId;
 
-        private final PriorityBlockingQueue<Event> queue;
+        private final BlockingQueue<Event> queue;
 
         @Override
         public void run() {
 
             for (int i = 0; i < 1000; i++) {
-                queue.put(new Event(threadId, i));
+                try {
+                    queue.put(new Event(threadId, i));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
             }
         }
     }
@@ -81,4 +87,37 @@ class PriorityBlockingQueueTest {
 
         assertTrue(queue.isEmpty());
     }
+
+    /**
+     * Same as above, but with a {@link MultiLevelPriorityQueue} of 1000 priority levels
+     */
+    @Test
+    void givenMultiLevelPriorityQueueAndMultipleThreadsPutElementWithDiffPriorityValue_whenTake_thenElementIsReturnedAccordingToPriority() throws InterruptedException {
+
+        MultiLevelPriorityQueue<Event> queue = new MultiLevelPriorityQueue<>(1000, Event::getPriority);
+
+        Thread[] threads = new Thread[5];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Task(i, queue));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(5000, queue.size());
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, queue.take().getPriority());
+            assertEquals(i, queue.take().getPriority());
+            assertEquals(i, queue.take().getPriority());
+            assertEquals(i, queue.take().getPriority());
+            assertEquals(i, queue.take().getPriority());
+        }
+
+        assertTrue(queue.isEmpty());
+    }
 }
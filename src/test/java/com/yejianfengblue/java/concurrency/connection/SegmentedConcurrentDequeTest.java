@@ -0,0 +1,91 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link SegmentedConcurrentDeque} across segment boundaries
+ *
+ * @author yejianfengblue
+ */
+class SegmentedConcurrentDequeTest {
+
+    @Test
+    void givenElementsAddedAtBothEnds_whenPollFromBothEnds_thenDequeOrder() {
+
+        SegmentedConcurrentDeque<Integer> deque = new SegmentedConcurrentDeque<>();
+        for (int i = 0; i < 5000; i++) {
+            deque.offerLast(i);
+            deque.offerFirst(-i - 1);
+        }
+        assertEquals(10000, deque.size());
+        assertEquals(-5000, deque.peekFirst());
+        assertEquals(4999, deque.peekLast());
+
+        for (int i = 4999; i >= 0; i--) {
+            assertEquals(-i - 1, deque.pollFirst());
+            assertEquals(i, deque.pollLast());
+        }
+        assertTrue(deque.isEmpty());
+        assertNull(deque.pollFirst());
+        assertNull(deque.pollLast());
+        assertThrows(NoSuchElementException.class, deque::removeFirst);
+    }
+
+    @Test
+    void givenOfferAll_whenPollMany_thenBatchesInOrder() {
+
+        SegmentedConcurrentDeque<Integer> deque = new SegmentedConcurrentDeque<>();
+        List<Integer> elements = IntStream.range(0, 3000).boxed().collect(Collectors.toList());
+        assertEquals(3000, deque.offerAll(elements));
+        assertEquals(3000, deque.size());
+
+        List<Integer> first = new ArrayList<>();
+        assertEquals(1000, deque.pollMany(first, 1000));
+        assertEquals(elements.subList(0, 1000), first);
+
+        List<Integer> last = new ArrayList<>();
+        assertEquals(1000, deque.pollManyLast(last, 1000));
+        assertEquals(2999, last.get(0));
+        assertEquals(2000, last.get(999));
+
+        List<Integer> rest = new ArrayList<>();
+        assertEquals(1000, deque.pollMany(rest, Integer.MAX_VALUE));
+        assertEquals(elements.subList(1000, 2000), rest);
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test
+    void givenElements_whenIterateAndRemove_thenSnapshotOrderAndRemoved() {
+
+        SegmentedConcurrentDeque<String> deque = new SegmentedConcurrentDeque<>();
+        deque.addAll(List.of("a", "b", "c", "b"));
+
+        List<String> descending = new ArrayList<>();
+        deque.descendingIterator().forEachRemaining(descending::add);
+        assertEquals(List.of("b", "c", "b", "a"), descending);
+
+        assertTrue(deque.removeLastOccurrence("b"));
+        assertEquals(List.of("a", "b", "c"), new ArrayList<>(deque));
+
+        Iterator<String> it = deque.iterator();
+        it.next();
+        it.remove();
+        assertEquals(List.of("b", "c"), new ArrayList<>(deque));
+        assertTrue(deque.contains("c"));
+        assertFalse(deque.contains("a"));
+        assertEquals(2, deque.size());
+    }
+}
@@ -0,0 +1,188 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link SnapshotSkipListMap} bulk load and point-in-time snapshot
+ *
+ * @author yejianfengblue
+ */
+class SnapshotSkipListMapTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    @Test
+    void givenUnsortedEntriesWithDuplicateKey_whenBulkLoad_thenSortedAndLastDuplicateWins() {
+
+        List<Map.Entry<String, Integer>> entries = List.of(
+                Map.entry("C", 1),
+                Map.entry("A", 1),
+                Map.entry("B", 1),
+                Map.entry("A", 2));
+
+        SnapshotSkipListMap<String, Integer> map = SnapshotSkipListMap.bulkLoad(entries, Comparator.reverseOrder());
+
+        try (SnapshotSkipListMap<String, Integer>.Snapshot snapshot = map.snapshot()) {
+            List<String> keys = new ArrayList<>();
+            snapshot.forEach(entry -> keys.add(entry.getKey()));
+            assertEquals(List.of("C", "B", "A"), keys);
+            assertEquals(2, snapshot.get("A"));
+        }
+    }
+
+    @Test
+    void givenSnapshot_whenPutAndRemoveAfterwards_thenSnapshotDoesNotChange() {
+
+        SnapshotSkipListMap<String, Integer> map = new SnapshotSkipListMap<>();
+        map.put("A", 1);
+        map.put("B", 1);
+
+        SnapshotSkipListMap<String, Integer>.Snapshot snapshot = map.snapshot();
+
+        assertEquals(1, map.put("A", 2));
+        assertEquals(1, map.remove("B"));
+        map.put("C", 1);
+
+        assertEquals(2, map.get("A"));
+        assertNull(map.get("B"));
+        assertEquals(1, snapshot.get("A"));
+        assertEquals(1, snapshot.get("B"));
+        assertNull(snapshot.get("C"));
+        assertEquals(2, snapshot.size());
+        snapshot.close();
+
+        try (SnapshotSkipListMap<String, Integer>.Snapshot latest = map.snapshot()) {
+            assertEquals(2, latest.size());
+            assertEquals(2, latest.get("A"));
+            assertNull(latest.get("B"));
+        }
+    }
+
+    /**
+     * A writer keeps moving 1 from one key to another, so the sum of all values never changes.
+     * A weakly consistent iterator could see the sum off by one, a snapshot never.
+     */
+    @Test
+    void givenConcurrentWriter_whenRangeScanSnapshot_thenSumIsAlwaysConsistent() throws InterruptedException {
+
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.add(Map.entry(i, 100));
+        }
+        SnapshotSkipListMap<Integer, Integer> map = SnapshotSkipListMap.bulkLoad(entries, null);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            int from = 0;
+            while (running.get()) {
+                int to = (from + 1) % 1000;
+                map.put(to, map.get(to) + 1);
+                map.put(from, map.get(from) - 1);
+                from = (from + 7) % 1000;
+            }
+        });
+        writer.start();
+
+        for (int i = 0; i < 200; i++) {
+            try (SnapshotSkipListMap<Integer, Integer>.Snapshot snapshot = map.snapshot()) {
+                long sum = 0;
+                for (Map.Entry<Integer, Integer> entry : snapshot) {
+                    sum += entry.getValue();
+                }
+                long rangeSum = 0;
+                for (Map.Entry<Integer, Integer> entry : snapshot.range(0, 1000)) {
+                    rangeSum += entry.getValue();
+                }
+                assertTrue(sum == 100_000 || sum == 100_001, "Sum " + sum);
+                assertEquals(sum, rangeSum);
+            }
+        }
+
+        running.set(false);
+        writer.join();
+        log.info("Final value of key 0 = {}", map.get(0));
+    }
+
+    private static long sum(Iterable<Map.Entry<Integer, Integer>> entries) {
+
+        long sum = 0;
+        for (Map.Entry<Integer, Integer> entry : entries) {
+            sum += entry.getValue();
+        }
+        return sum;
+    }
+
+    /**
+     * Many readers take and release overlapping snapshots, often at the same version, while a writer prunes.
+     * If releasing one snapshot unregistered another one at the same version, the writer would prune versions
+     * the other one still reads, and its second scan would differ from the first.
+     */
+    @Test
+    void givenConcurrentSnapshotsAndReleasesAtSameVersion_whenWriterPrunes_thenOpenSnapshotsStayConsistent()
+            throws Exception {
+
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entries.add(Map.entry(i, 100));
+        }
+        SnapshotSkipListMap<Integer, Integer> map = SnapshotSkipListMap.bulkLoad(entries, null);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            int from = 0;
+            while (running.get()) {
+                int to = (from + 1) % 10;
+                map.put(to, map.get(to) + 1);
+                map.put(from, map.get(from) - 1);
+                from = (from + 3) % 10;
+                // let readers pile up on the same version
+                Thread.yield();
+            }
+        });
+        writer.start();
+
+        int readers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    SnapshotSkipListMap<Integer, Integer>.Snapshot first = map.snapshot();
+                    SnapshotSkipListMap<Integer, Integer>.Snapshot second = map.snapshot();
+                    long firstSum = sum(first);
+                    first.close();
+                    Thread.yield();
+                    long secondSum = sum(second);
+                    assertTrue(firstSum == 1_000 || firstSum == 1_001, "Sum " + firstSum);
+                    assertTrue(secondSum == 1_000 || secondSum == 1_001, "Sum " + secondSum);
+                    assertEquals(secondSum, sum(second), "Snapshot " + second.getVersion() + " changed");
+                    assertEquals(10, second.size());
+                    second.close();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        running.set(false);
+        writer.join();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,89 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link TimingWheel}
+ *
+ * @author yejianfengblue
+ */
+class TimingWheelTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Delays up to 500ms with 1ms tick span level 0 (64ms) and level 1 (4096ms), so some timeouts are cascaded
+     */
+    @Test
+    void givenRandomDelays_whenExpire_thenNeverBeforeDeadline() throws InterruptedException {
+
+        int count = 10000;
+        Map<Long, Long> deadlines = new ConcurrentHashMap<>();
+        AtomicInteger early = new AtomicInteger();
+        AtomicInteger batches = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(count);
+
+        try (TimingWheel<Long> wheel = new TimingWheel<>(1, TimeUnit.MILLISECONDS, expired -> {
+            batches.incrementAndGet();
+            long now = System.nanoTime();
+            for (Long id : expired) {
+                if (now < deadlines.get(id)) {
+                    early.incrementAndGet();
+                }
+                latch.countDown();
+            }
+        })) {
+            for (long id = 0; id < count; id++) {
+                long delayMillis = ThreadLocalRandom.current().nextLong(500);
+                deadlines.put(id, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+                wheel.schedule(id, delayMillis, TimeUnit.MILLISECONDS);
+            }
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, early.get());
+            assertEquals(0, wheel.size());
+            log.info("{} timeouts expired in {} batches", count, batches.get());
+        }
+    }
+
+    @Test
+    void givenCancelledTimeout_whenDeadlinePassed_thenNotExpired() throws InterruptedException {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> expiredElements = new CopyOnWriteArrayList<>();
+
+        try (TimingWheel<String> wheel = new TimingWheel<>(1, TimeUnit.MILLISECONDS, expired -> {
+            expiredElements.addAll(expired);
+            latch.countDown();
+        })) {
+            TimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 100, TimeUnit.MILLISECONDS);
+            TimingWheel.Timeout<String> kept = wheel.schedule("kept", 150, TimeUnit.MILLISECONDS);
+            assertEquals(2, wheel.size());
+
+            assertTrue(cancelled.cancel());
+            assertFalse(cancelled.cancel());
+            assertEquals(1, wheel.size());
+
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertEquals(List.of("kept"), expiredElements);
+            assertTrue(kept.isExpired());
+            assertFalse(kept.cancel());
+            assertTrue(cancelled.isCancelled());
+        }
+    }
+}
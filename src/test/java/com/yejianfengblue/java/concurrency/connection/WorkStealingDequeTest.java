@@ -0,0 +1,158 @@
+package com.yejianfengblue.java.concurrency.connection;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link WorkStealingDeque} and {@link WorkStealingCollection}
+ *
+ * @author yejianfengblue
+ */
+class WorkStealingDequeTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    @Test
+    void givenOwnerPushes_whenPopAndSteal_thenPopIsLifoAndStealIsFifo() {
+
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        IntStream.range(0, 1000).forEach(deque::push);  // beyond the initial capacity, so it grows
+        assertEquals(1000, deque.size());
+
+        assertEquals(999, deque.pop());
+        assertEquals(0, deque.steal());
+        assertEquals(998, deque.pop());
+        assertEquals(1, deque.steal());
+
+        for (int i = 997; i >= 2; i--) {
+            assertEquals(i, deque.pop());
+        }
+        assertTrue(deque.isEmpty());
+        assertNull(deque.pop());
+        assertNull(deque.steal());
+    }
+
+    /**
+     * The owner pushes and pops while thieves steal, each element must be taken exactly once
+     */
+    @Test
+    void givenOwnerAndThieves_whenRace_thenEachElementIsTakenExactlyOnce() throws InterruptedException {
+
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        Set<Integer> taken = ConcurrentHashMap.newKeySet();
+        AtomicBoolean duplicate = new AtomicBoolean();
+        AtomicBoolean ownerDone = new AtomicBoolean();
+
+        Thread[] thieves = new Thread[3];
+        for (int i = 0; i < thieves.length; i++) {
+            thieves[i] = new Thread(() -> {
+                while (!ownerDone.get() || !deque.isEmpty()) {
+                    Integer e = deque.steal();
+                    if (null != e && !taken.add(e)) {
+                        duplicate.set(true);
+                    }
+                }
+            });
+            thieves[i].start();
+        }
+
+        for (int i = 0; i < 200000; i++) {
+            deque.push(i);
+            if (i % 3 == 0) {
+                Integer e = deque.pop();
+                if (null != e && !taken.add(e)) {
+                    duplicate.set(true);
+                }
+            }
+        }
+        ownerDone.set(true);
+        for (Thread thief : thieves) {
+            thief.join();
+        }
+
+        assertFalse(duplicate.get());
+        assertEquals(200000, taken.size());
+    }
+
+    /** Offer 10000 elements, same as the AddTask of {@code ConcurrentLinkedDequeTest} */
+    @RequiredArgsConstructor
+    private static class AddTask implements Runnable {
+
+        private final WorkStealingCollection<String> list;
+
+        @Override
+        public void run() {
+
+            String threadName = Thread.currentThread().getName();
+            IntStream.range(0, 10000)
+                    .forEachOrdered(value -> list.offer(threadName + "-element-" + value));
+        }
+    }
+
+    /** Poll 10000 elements, own ones first and then stolen ones */
+    @RequiredArgsConstructor
+    private static class PollTask implements Runnable {
+
+        private final WorkStealingCollection<String> list;
+
+        private final Set<String> taken;
+
+        @Override
+        public void run() {
+
+            for (int counter = 0; counter < 10000; counter++) {
+                String e = list.poll();
+                if (null != e) {
+                    taken.add(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 8 worker threads own a deque each, the other threads go through the shared queue
+     */
+    @Test
+    void givenWorkStealingCollection_whenMultipleThreadsAddAndPoll_thenDataIsConsistent() throws InterruptedException {
+
+        WorkStealingCollection<String> list = new WorkStealingCollection<>(8);
+        Set<String> taken = ConcurrentHashMap.newKeySet();
+
+        Thread[] addTaskThreads = new Thread[16];
+        for (int i = 0; i < addTaskThreads.length; i++) {
+            addTaskThreads[i] = new Thread(new AddTask(list));
+            addTaskThreads[i].start();
+        }
+        for (Thread addTaskThread : addTaskThreads) {
+            addTaskThread.join();
+        }
+
+        log.info("List size = {}", list.size());
+        assertEquals(160000, list.size());
+
+        Thread[] pollTaskThreads = new Thread[16];
+        for (int i = 0; i < pollTaskThreads.length; i++) {
+            pollTaskThreads[i] = new Thread(new PollTask(list, taken));
+            pollTaskThreads[i].start();
+        }
+        for (Thread pollTaskThread : pollTaskThreads) {
+            pollTaskThread.join();
+        }
+
+        log.info("List size = {}", list.size());
+        assertTrue(list.isEmpty());
+        assertEquals(160000, taken.size());
+    }
+}
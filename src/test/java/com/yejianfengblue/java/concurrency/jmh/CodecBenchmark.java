@@ -0,0 +1,117 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import com.yejianfengblue.java.DeepCopyTest;
+import com.yejianfengblue.java.codec.BinaryUserCodec;
+import com.yejianfengblue.java.codec.BytesOutput;
+import com.yejianfengblue.java.codec.JsonUserCodec;
+import com.yejianfengblue.java.persistent.Address;
+import com.yejianfengblue.java.persistent.User;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A round trip of one user, encoded and decoded, like the deep copies of {@code DeepCopyTest}:
+ * <ul>
+ *     <li>javaSerialization: {@code SerializationUtils} of the {@code User} of {@code DeepCopyTest}</li>
+ *     <li>gson, jacksonDatabind: to a JSON {@code String} and back, as {@code DeepCopyTest} does</li>
+ *     <li>jsonStreaming: {@link JsonUserCodec}, the same JSON straight into and from a reused {@link BytesOutput}</li>
+ *     <li>binary: {@link BinaryUserCodec}, a tagged binary format into and from a reused {@link BytesOutput}</li>
+ * </ul>
+ * Run with the gc profiler for the allocations per op, the bytes per object are logged at the end of a trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CodecBenchmark {
+
+    @State(Scope.Thread)
+    public static class CodecState {
+
+        private Logger log = LoggerFactory.getLogger(getClass());
+
+        final DeepCopyTest.User mutableUser = new DeepCopyTest.User("Apple", new DeepCopyTest.Address("Apple Street", "Apple City"));
+
+        final User user = new User("Apple", new Address("Apple Street", "Apple City"));
+
+        final Gson gson = new Gson();
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+
+        final JsonUserCodec jsonCodec = new JsonUserCodec();
+
+        final BinaryUserCodec binaryCodec = new BinaryUserCodec();
+
+        final BytesOutput out = new BytesOutput(256);
+
+        @TearDown(Level.Trial)
+        public void logBytesPerObject() throws IOException {
+
+            jsonCodec.encode(user, out.reset());
+            int json = out.size();
+            binaryCodec.encode(user, out.reset());
+            log.info("Bytes per object: javaSerialization {}, gson {}, jacksonDatabind {}, jsonStreaming {}, binary {}",
+                    SerializationUtils.serialize(mutableUser).length,
+                    gson.toJson(mutableUser).getBytes(StandardCharsets.UTF_8).length,
+                    objectMapper.writeValueAsBytes(mutableUser).length,
+                    json,
+                    out.size());
+        }
+    }
+
+    @Benchmark
+    public DeepCopyTest.User javaSerialization(CodecState state) {
+        return SerializationUtils.deserialize(SerializationUtils.serialize(state.mutableUser));
+    }
+
+    @Benchmark
+    public DeepCopyTest.User gson(CodecState state) {
+        return state.gson.fromJson(state.gson.toJson(state.mutableUser), DeepCopyTest.User.class);
+    }
+
+    @Benchmark
+    public DeepCopyTest.User jacksonDatabind(CodecState state) throws IOException {
+        return state.objectMapper.readValue(state.objectMapper.writeValueAsString(state.mutableUser), DeepCopyTest.User.class);
+    }
+
+    @Benchmark
+    public User jsonStreaming(CodecState state) {
+
+        state.jsonCodec.encode(state.user, state.out.reset());
+        return state.jsonCodec.decode(state.out);
+    }
+
+    @Benchmark
+    public User binary(CodecState state) {
+
+        state.binaryCodec.encode(state.user, state.out.reset());
+        return state.binaryCodec.decode(state.out);
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(CodecBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler("gc")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
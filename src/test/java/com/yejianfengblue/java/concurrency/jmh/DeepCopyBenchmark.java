@@ -0,0 +1,111 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.yejianfengblue.java.DeepCopyTest.Address;
+import com.yejianfengblue.java.DeepCopyTest.User;
+import com.yejianfengblue.java.copy.DeepCopier;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deep copies of a list of {@code users} of {@code DeepCopyTest}, by the approaches of {@code DeepCopyTest}
+ * and by {@link DeepCopier}:
+ * <ul>
+ *     <li>copyConstructor: what the hand-written {@code User(User that)} does, the floor</li>
+ *     <li>serialization: {@code SerializationUtils.clone}, Java serialization to bytes and back</li>
+ *     <li>gson, jackson: to JSON text and back</li>
+ *     <li>deepCopier: {@link DeepCopier}</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeepCopyBenchmark {
+
+    private static final Type USER_LIST = new TypeToken<ArrayList<User>>() { }.getType();
+
+    private static final TypeReference<ArrayList<User>> USER_LIST_REFERENCE = new TypeReference<>() { };
+
+    @State(Scope.Benchmark)
+    public static class GraphState {
+
+        @Param({"1", "1000"})
+        int users;
+
+        ArrayList<User> graph;
+
+        final DeepCopier deepCopier = new DeepCopier();
+
+        final Gson gson = new Gson();
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            graph = new ArrayList<>(users);
+            for (int i = 0; i < users; i++) {
+                graph.add(new User("User" + i, new Address("Street" + i, "City" + i % 10)));
+            }
+        }
+    }
+
+    @Benchmark
+    public ArrayList<User> copyConstructor(GraphState state) {
+
+        ArrayList<User> copy = new ArrayList<>(state.graph.size());
+        for (User user : state.graph) {
+            Address address = user.getAddress();
+            copy.add(new User(user.getName(), new Address(address.getStreet(), address.getCity())));
+        }
+        return copy;
+    }
+
+    @Benchmark
+    public ArrayList<User> serialization(GraphState state) {
+        return SerializationUtils.clone(state.graph);
+    }
+
+    @Benchmark
+    public ArrayList<User> gson(GraphState state) {
+        return state.gson.fromJson(state.gson.toJson(state.graph), USER_LIST);
+    }
+
+    @Benchmark
+    public ArrayList<User> jackson(GraphState state) throws JsonProcessingException {
+        return state.objectMapper.readValue(state.objectMapper.writeValueAsString(state.graph), USER_LIST_REFERENCE);
+    }
+
+    @Benchmark
+    public ArrayList<User> deepCopier(GraphState state) {
+        return state.deepCopier.copy(state.graph);
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(DeepCopyBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler("gc")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,126 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.concurrency.connection.DeadlineDelayed;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A benchmark to offer N events to a {@link DelayQueue} and then poll all of them,
+ * comparing an event which reads the wall clock in every {@code getDelay()} (as {@code DelayQueueTest.Event} used to)
+ * with a {@link DeadlineDelayed} which caches a {@link System#nanoTime()} deadline.
+ * <p>
+ * All events have expired in random order, so the heap has to sift on both offer and poll, and poll never waits.
+ * The result is the time of one full offer-then-poll round of N events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DelayQueueDeadlineBenchmark {
+
+    private static class ClockEvent implements Delayed {
+
+        private final ZonedDateTime startDate;
+
+        ClockEvent(ZonedDateTime startDate) {
+            this.startDate = startDate;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(ZonedDateTime.now(), startDate));
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(this.getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private static class DeadlineEvent extends DeadlineDelayed {
+
+        DeadlineEvent(long delay, TimeUnit unit) {
+            super(delay, unit);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Events {
+
+        @Param({"1000", "10000", "100000", "1000000"})
+        int size;
+
+        ClockEvent[] clockEvents;
+
+        DeadlineEvent[] deadlineEvents;
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            ZonedDateTime now = ZonedDateTime.now();
+            clockEvents = new ClockEvent[size];
+            deadlineEvents = new DeadlineEvent[size];
+            for (int i = 0; i < size; i++) {
+                long pastMillis = ThreadLocalRandom.current().nextLong(1, 1_000_000);
+                clockEvents[i] = new ClockEvent(now.minus(Duration.ofMillis(pastMillis)));
+                deadlineEvents[i] = new DeadlineEvent(-pastMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Benchmark
+    public int offerAndPollClockEvents(Events events) {
+
+        DelayQueue<ClockEvent> queue = new DelayQueue<>();
+        for (ClockEvent event : events.clockEvents) {
+            queue.offer(event);
+        }
+        return drain(queue, events.size);
+    }
+
+    @Benchmark
+    public int offerAndPollDeadlineEvents(Events events) {
+
+        DelayQueue<DeadlineEvent> queue = new DelayQueue<>();
+        for (DeadlineEvent event : events.deadlineEvents) {
+            queue.offer(event);
+        }
+        return drain(queue, events.size);
+    }
+
+    private static int drain(DelayQueue<?> queue, int expected) {
+
+        int counter = 0;
+        while (null != queue.poll()) {
+            counter++;
+        }
+        assertEquals(expected, counter);
+        return counter;
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(DelayQueueDeadlineBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,68 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.concurrency.connection.InstrumentedBlockingDeque;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of {@link InstrumentedBlockingDeque} on a putLast then takeFirst round trip of a {@link LinkedBlockingDeque},
+ * compared with the bare deque, with the metrics disabled and enabled.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InstrumentedQueueBenchmark {
+
+    private static final String REQUEST = "request";
+
+    @State(Scope.Thread)
+    public static class DequeState {
+
+        @Param({"bare", "disabled", "enabled"})
+        String mode;
+
+        BlockingDeque<String> deque;
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            LinkedBlockingDeque<String> bare = new LinkedBlockingDeque<>(3);
+            if ("bare".equals(mode)) {
+                deque = bare;
+            } else {
+                InstrumentedBlockingDeque<String> instrumented = new InstrumentedBlockingDeque<>(bare);
+                instrumented.getMetrics().setEnabled("enabled".equals(mode));
+                deque = instrumented;
+            }
+        }
+    }
+
+    @Benchmark
+    public String putLastTakeFirst(DequeState state) throws InterruptedException {
+
+        state.deque.putLast(REQUEST);
+        return state.deque.takeFirst();
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(InstrumentedQueueBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
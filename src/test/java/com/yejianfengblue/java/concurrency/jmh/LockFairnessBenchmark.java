@@ -0,0 +1,124 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.concurrency.ClhLock;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The cost of fairness, which the fair PrintQueue of {@code LockTest} doesn't show:
+ * every thread takes the same lock, runs a critical section of {@code work} tokens of CPU, and releases it.
+ * <p>
+ * It compares an unfair and a fair {@link ReentrantLock}, {@code synchronized}, the write lock of {@link StampedLock}
+ * and the {@link ClhLock} queue lock at 1 to 8 threads.
+ * Throughput mode gives the operations per time, sample time mode gives the latency percentiles of an operation,
+ * whose p99 minus the critical section is the p99 acquire latency.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LockFairnessBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Locks {
+
+        /** tokens of {@link Blackhole#consumeCPU(long)} in the critical section */
+        @Param({"0", "100"})
+        long work;
+
+        final ReentrantLock unfairLock = new ReentrantLock(false);
+
+        final ReentrantLock fairLock = new ReentrantLock(true);
+
+        final Object monitor = new Object();
+
+        final StampedLock stampedLock = new StampedLock();
+
+        final ClhLock clhLock = new ClhLock();
+
+        long counter;
+    }
+
+    @Benchmark
+    public long unfairReentrantLock(Locks locks) {
+
+        locks.unfairLock.lock();
+        try {
+            Blackhole.consumeCPU(locks.work);
+            return ++locks.counter;
+        } finally {
+            locks.unfairLock.unlock();
+        }
+    }
+
+    @Benchmark
+    public long fairReentrantLock(Locks locks) {
+
+        locks.fairLock.lock();
+        try {
+            Blackhole.consumeCPU(locks.work);
+            return ++locks.counter;
+        } finally {
+            locks.fairLock.unlock();
+        }
+    }
+
+    @Benchmark
+    public long synchronizedBlock(Locks locks) {
+
+        synchronized (locks.monitor) {
+            Blackhole.consumeCPU(locks.work);
+            return ++locks.counter;
+        }
+    }
+
+    @Benchmark
+    public long stampedLock(Locks locks) {
+
+        long stamp = locks.stampedLock.writeLock();
+        try {
+            Blackhole.consumeCPU(locks.work);
+            return ++locks.counter;
+        } finally {
+            locks.stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    @Benchmark
+    public long clhLock(Locks locks) {
+
+        locks.clhLock.lock();
+        try {
+            Blackhole.consumeCPU(locks.work);
+            return ++locks.counter;
+        } finally {
+            locks.clhLock.unlock();
+        }
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        for (int threads : new int[]{1, 2, 4, 8}) {
+
+            Options opt = new OptionsBuilder()
+                    .include(LockFairnessBenchmark.class.getSimpleName())
+                    .warmupIterations(3)
+                    .measurementIterations(5)
+                    .forks(1)
+                    .threads(threads)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+}
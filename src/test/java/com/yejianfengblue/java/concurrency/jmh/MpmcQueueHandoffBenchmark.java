@@ -0,0 +1,85 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.concurrency.connection.MpmcArrayQueue;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A benchmark of a bounded request channel: producer threads offer and consumer threads poll through a
+ * {@value #CAPACITY}-slot queue, same as the Client and consumer of {@code LinkedBlockingDequeTest}.
+ * <p>
+ * It compares {@link LinkedBlockingDeque}, {@link ArrayBlockingQueue} and {@link MpmcArrayQueue}.
+ * The non-blocking offer and poll are measured, so a full or empty queue costs a failed attempt instead of a park.
+ * Run with {@code -prof gc} to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MpmcQueueHandoffBenchmark {
+
+    private static final int CAPACITY = 1024;
+
+    private static final String REQUEST = "request";
+
+    @State(Scope.Group)
+    public static class QueueState {
+
+        @Param({"LinkedBlockingDeque", "ArrayBlockingQueue", "MpmcArrayQueue"})
+        String type;
+
+        BlockingQueue<String> queue;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+
+            switch (type) {
+                case "LinkedBlockingDeque":
+                    queue = new LinkedBlockingDeque<>(CAPACITY);
+                    break;
+                case "ArrayBlockingQueue":
+                    queue = new ArrayBlockingQueue<>(CAPACITY);
+                    break;
+                default:
+                    queue = new MpmcArrayQueue<>(CAPACITY);
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(2)
+    public boolean offer(QueueState state) {
+        return state.queue.offer(REQUEST);
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(2)
+    public String poll(QueueState state) {
+        return state.queue.poll();
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(MpmcQueueHandoffBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler("gc")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
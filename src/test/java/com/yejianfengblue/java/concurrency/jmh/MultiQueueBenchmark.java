@@ -0,0 +1,106 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.concurrency.connection.MultiQueue;
+import com.yejianfengblue.java.concurrency.connection.RankErrorMeter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A benchmark of {@link MultiQueue} against {@link PriorityBlockingQueue} at 8 to 64 threads.
+ * <p>
+ * Each operation is one put of a random priority and one take, on a queue prefilled with {@value #PREFILL} elements,
+ * so the size stays steady and take never blocks.
+ * The rank error of {@link MultiQueue} is measured single-threaded in {@link #measureRankError()}.
+ */
+@Slf4j
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MultiQueueBenchmark {
+
+    private static final int PREFILL = 100_000;
+
+    private static final int PRIORITY_RANGE = 1_000_000;
+
+    @State(Scope.Benchmark)
+    public static class Queues {
+
+        BlockingQueue<Integer> priorityBlockingQueue;
+
+        BlockingQueue<Integer> multiQueue;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+
+            priorityBlockingQueue = new PriorityBlockingQueue<>();
+            multiQueue = new MultiQueue<>();
+            for (int i = 0; i < PREFILL; i++) {
+                int priority = ThreadLocalRandom.current().nextInt(PRIORITY_RANGE);
+                priorityBlockingQueue.add(priority);
+                multiQueue.add(priority);
+            }
+        }
+    }
+
+    @Benchmark
+    public Integer priorityBlockingQueue(Queues queues) throws InterruptedException {
+
+        queues.priorityBlockingQueue.put(ThreadLocalRandom.current().nextInt(PRIORITY_RANGE));
+        return queues.priorityBlockingQueue.take();
+    }
+
+    @Benchmark
+    public Integer multiQueue(Queues queues) throws InterruptedException {
+
+        queues.multiQueue.put(ThreadLocalRandom.current().nextInt(PRIORITY_RANGE));
+        return queues.multiQueue.take();
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        for (int threads : new int[]{8, 16, 32, 64}) {
+
+            Options opt = new OptionsBuilder()
+                    .include(MultiQueueBenchmark.class.getSimpleName())
+                    .warmupIterations(3)
+                    .measurementIterations(5)
+                    .forks(1)
+                    .threads(threads)
+                    .build();
+
+            new Runner(opt).run();
+        }
+    }
+
+    @Test
+    @Disabled("Benchmark is supposed to be run manually.")
+    public void measureRankError() {
+
+        MultiQueue<Integer> queue = new MultiQueue<>();
+        RankErrorMeter meter = new RankErrorMeter(PRIORITY_RANGE);
+        for (int i = 0; i < PREFILL; i++) {
+            int priority = ThreadLocalRandom.current().nextInt(PRIORITY_RANGE);
+            queue.add(priority);
+            meter.recordInsert(priority);
+        }
+        for (int i = 0; i < PREFILL * 10; i++) {
+            meter.recordRemove(queue.poll());
+            int priority = ThreadLocalRandom.current().nextInt(PRIORITY_RANGE);
+            queue.add(priority);
+            meter.recordInsert(priority);
+        }
+        log.info("{} with {} heaps", meter, queue.getHeapCount());
+    }
+}
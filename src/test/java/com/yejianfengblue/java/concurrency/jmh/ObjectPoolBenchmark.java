@@ -0,0 +1,93 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.concurrency.ObjectPool;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 4 threads acquire a pooled object and return it right away, from a pool of 8 objects.
+ * <p>
+ * It compares {@link ObjectPool}, where each thread mostly takes back the object it returned last,
+ * with a {@link Semaphore} in front of a {@link ConcurrentLinkedQueue} of free objects,
+ * the PrintQueue of {@code SemaphoreTest} with the locked scan replaced by a queue.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class ObjectPoolBenchmark {
+
+    private static final int POOL_SIZE = 8;
+
+    @State(Scope.Benchmark)
+    public static class SemaphorePool {
+
+        final Semaphore semaphore = new Semaphore(POOL_SIZE);
+
+        final ConcurrentLinkedQueue<Object> free = new ConcurrentLinkedQueue<>();
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            for (int i = 0; i < POOL_SIZE; i++) {
+                free.offer(new Object());
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PoolState {
+
+        ObjectPool<Object> pool;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            pool = new ObjectPool<>(POOL_SIZE, Object::new, object -> { });
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.close();
+        }
+    }
+
+    @Benchmark
+    public Object semaphorePool(SemaphorePool state) throws InterruptedException {
+
+        state.semaphore.acquire();
+        Object object = state.free.poll();
+        state.free.offer(object);
+        state.semaphore.release();
+        return object;
+    }
+
+    @Benchmark
+    public Object objectPool(PoolState state) throws InterruptedException {
+
+        try (ObjectPool.PooledObject<Object> pooled = state.pool.acquire()) {
+            return pooled.get();
+        }
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(ObjectPoolBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,102 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.DeepCopyTest;
+import com.yejianfengblue.java.copy.DeepCopier;
+import com.yejianfengblue.java.persistent.Address;
+import com.yejianfengblue.java.persistent.PersistentVector;
+import com.yejianfengblue.java.persistent.User;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy a list of {@code users}, then change the street of one user in the copy:
+ * <ul>
+ *     <li>copyConstructor: the mutable users of {@code DeepCopyTest}, copied like {@code User(User that)}</li>
+ *     <li>deepCopier: the mutable users copied by {@link DeepCopier}</li>
+ *     <li>persistent: {@link PersistentVector} of immutable {@link User}, the copy is the same reference
+ *     and the change copies the path to the street</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersistentCopyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class GraphState {
+
+        @Param({"1000", "100000"})
+        int users;
+
+        ArrayList<DeepCopyTest.User> mutableUsers;
+
+        PersistentVector<User> persistentUsers;
+
+        int index;
+
+        final DeepCopier deepCopier = new DeepCopier();
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            mutableUsers = new ArrayList<>(users);
+            List<User> list = new ArrayList<>(users);
+            for (int i = 0; i < users; i++) {
+                mutableUsers.add(new DeepCopyTest.User("User" + i, new DeepCopyTest.Address("Street" + i, "City" + i % 10)));
+                list.add(new User("User" + i, new Address("Street" + i, "City" + i % 10)));
+            }
+            persistentUsers = PersistentVector.copyOf(list);
+            index = users / 2;
+        }
+    }
+
+    @Benchmark
+    public ArrayList<DeepCopyTest.User> copyConstructor(GraphState state) {
+
+        ArrayList<DeepCopyTest.User> copy = new ArrayList<>(state.mutableUsers.size());
+        for (DeepCopyTest.User user : state.mutableUsers) {
+            DeepCopyTest.Address address = user.getAddress();
+            copy.add(new DeepCopyTest.User(user.getName(), new DeepCopyTest.Address(address.getStreet(), address.getCity())));
+        }
+        copy.get(state.index).getAddress().setStreet("Banana Street");
+        return copy;
+    }
+
+    @Benchmark
+    public ArrayList<DeepCopyTest.User> deepCopier(GraphState state) {
+
+        ArrayList<DeepCopyTest.User> copy = state.deepCopier.copy(state.mutableUsers);
+        copy.get(state.index).getAddress().setStreet("Banana Street");
+        return copy;
+    }
+
+    @Benchmark
+    public PersistentVector<User> persistent(GraphState state) {
+
+        PersistentVector<User> copy = state.persistentUsers;
+        return copy.update(state.index, user -> user.withAddress(address -> address.withStreet("Banana Street")));
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(PersistentCopyBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler("gc")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,142 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.reactive.Pipeline;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A map, filter, map chain over {@value #ITEMS} items, all on the calling thread:
+ * <ul>
+ *     <li>handCoded: the chain written in {@code onNext} of one subscriber, like the consumers of {@code ReactiveStreamTest}</li>
+ *     <li>fused: {@link Pipeline}, which composes the three steps into one subscriber</li>
+ *     <li>unfused: the same steps, but every one behind a publisher which is not a {@link Pipeline},
+ *     so every step has its own subscriber and subscription</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PipelineFusionBenchmark {
+
+    private static final int ITEMS = 10000;
+
+    @State(Scope.Thread)
+    public static class SourceState {
+
+        Pipeline<Integer> source;
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            List<Integer> items = new ArrayList<>(ITEMS);
+            for (int i = 0; i < ITEMS; i++) {
+                items.add(i);
+            }
+            source = Pipeline.fromIterable(items);
+        }
+    }
+
+    /** sums what it receives, requesting everything up front */
+    private static class SumSubscriber<T extends Number> implements Flow.Subscriber<T> {
+
+        long sum;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(T item) {
+            sum += item.longValue();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new IllegalStateException(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    @Benchmark
+    public long handCoded(SourceState state) {
+
+        SumSubscriber<Long> sum = new SumSubscriber<>();
+        state.source.subscribe(new Flow.Subscriber<Integer>() {
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+
+                long mapped = item * 3L;
+                if (0 == (mapped & 1)) {
+                    sum.onNext(mapped + 1);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                sum.onError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                sum.onComplete();
+            }
+        });
+        return sum.sum;
+    }
+
+    @Benchmark
+    public long fused(SourceState state) {
+
+        SumSubscriber<Long> sum = new SumSubscriber<>();
+        state.source
+                .map(i -> i * 3L)
+                .filter(l -> 0 == (l & 1))
+                .map(l -> l + 1)
+                .subscribe(sum);
+        return sum.sum;
+    }
+
+    @Benchmark
+    public long unfused(SourceState state) {
+
+        SumSubscriber<Long> sum = new SumSubscriber<>();
+        Pipeline<Long> mapped = state.source.map(i -> i * 3L);
+        Pipeline<Long> filtered = Pipeline.from((Flow.Publisher<Long>) mapped::subscribe).filter(l -> 0 == (l & 1));
+        Pipeline.from((Flow.Publisher<Long>) filtered::subscribe).map(l -> l + 1).subscribe(sum);
+        return sum.sum;
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(PipelineFusionBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler("gc")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
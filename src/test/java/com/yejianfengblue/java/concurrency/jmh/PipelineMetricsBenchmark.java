@@ -0,0 +1,114 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.reactive.Pipeline;
+import com.yejianfengblue.java.reactive.PipelineMetrics;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of metering {@value #ITEMS} items on the calling thread, one by one like Consumer2 of {@code ReactiveStreamTest}:
+ * <ul>
+ *     <li>bare: the subscriber alone</li>
+ *     <li>metered: the subscriber behind {@link PipelineMetrics#meter(String, Flow.Publisher)}</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PipelineMetricsBenchmark {
+
+    private static final int ITEMS = 10000;
+
+    @State(Scope.Thread)
+    public static class SourceState {
+
+        Pipeline<Integer> source;
+
+        PipelineMetrics metrics;
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            List<Integer> items = new ArrayList<>(ITEMS);
+            for (int i = 0; i < ITEMS; i++) {
+                items.add(i);
+            }
+            source = Pipeline.fromIterable(items);
+        }
+
+        @Setup(Level.Invocation)
+        public void newMetrics() {
+            metrics = new PipelineMetrics();
+        }
+    }
+
+    /** sums what it receives, requesting one by one */
+    private static class SumSubscriber implements Flow.Subscriber<Integer> {
+
+        long sum;
+
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Integer item) {
+
+            sum += item;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new IllegalStateException(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    @Benchmark
+    public long bare(SourceState state) {
+
+        SumSubscriber sum = new SumSubscriber();
+        state.source.subscribe(sum);
+        return sum.sum;
+    }
+
+    @Benchmark
+    public long metered(SourceState state) {
+
+        SumSubscriber sum = new SumSubscriber();
+        state.metrics.meter("items", state.source).subscribe(sum);
+        return sum.sum;
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(PipelineMetricsBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
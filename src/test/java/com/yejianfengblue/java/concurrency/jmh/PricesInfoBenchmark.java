@@ -0,0 +1,140 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.concurrency.Prices;
+import com.yejianfengblue.java.concurrency.SnapshotPricesInfo;
+import com.yejianfengblue.java.concurrency.StampedPricesInfo;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A benchmark of the PricesInfo of {@code ReadWriteLockTest}, without its 10s sleep in setPrices,
+ * where every thread mixes consistent reads of both prices with writes, {@code writePercent} of the operations are writes.
+ * <p>
+ * It compares:
+ * <ul>
+ *     <li>a {@link ReentrantReadWriteLock}, reading both prices under one read lock</li>
+ *     <li>{@link StampedPricesInfo}, optimistic read with a fallback to the read lock</li>
+ *     <li>{@link SnapshotPricesInfo}, an immutable {@link Prices} replaced as a whole by every write</li>
+ * </ul>
+ * Run with {@code -t} above 1 to see the reader-count contention of the read lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PricesInfoBenchmark {
+
+    /** same as ReadWriteLockTest.PricesInfo, with getPrices() reading the pair under one read lock */
+    @State(Scope.Benchmark)
+    public static class RwLockPricesInfo {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private int price1;
+
+        private int price2;
+
+        Prices getPrices() {
+
+            lock.readLock().lock();
+            try {
+                return new Prices(price1, price2);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void setPrices(int price1, int price2) {
+
+            lock.writeLock().lock();
+            try {
+                this.price1 = price1;
+                this.price2 = price2;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class StampedState {
+
+        final StampedPricesInfo pricesInfo = new StampedPricesInfo();
+    }
+
+    @State(Scope.Benchmark)
+    public static class SnapshotState {
+
+        final SnapshotPricesInfo pricesInfo = new SnapshotPricesInfo();
+    }
+
+    /** decides per thread which operations are writes, without a shared random generator */
+    @State(Scope.Thread)
+    public static class Mix {
+
+        @Param({"5", "1"})
+        int writePercent;
+
+        int counter;
+
+        boolean nextIsWrite() {
+
+            if (100 == ++counter) {
+                counter = 0;
+            }
+            return counter < writePercent;
+        }
+    }
+
+    @Benchmark
+    public Object rwLock(RwLockPricesInfo pricesInfo, Mix mix) {
+
+        if (mix.nextIsWrite()) {
+            pricesInfo.setPrices(mix.counter, -mix.counter);
+            return null;
+        }
+        return pricesInfo.getPrices();
+    }
+
+    @Benchmark
+    public Object stampedLock(StampedState state, Mix mix) {
+
+        if (mix.nextIsWrite()) {
+            state.pricesInfo.setPrices(mix.counter, -mix.counter);
+            return null;
+        }
+        return state.pricesInfo.getPrices();
+    }
+
+    @Benchmark
+    public Object snapshot(SnapshotState state, Mix mix) {
+
+        if (mix.nextIsWrite()) {
+            state.pricesInfo.setPrices(mix.counter, -mix.counter);
+            return null;
+        }
+        return state.pricesInfo.getPrices();
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(PricesInfoBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(4)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
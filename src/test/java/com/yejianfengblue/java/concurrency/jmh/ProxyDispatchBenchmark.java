@@ -0,0 +1,97 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.ProxyTest;
+import com.yejianfengblue.java.proxy.TimingProxyFactory;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of a call through a timing proxy:
+ * <ul>
+ *     <li>direct: the target itself</li>
+ *     <li>timingDynamicInvocationHandler: {@code ProxyTest.TimingDynamicInvocationHandler}, with its log line
+ *     turned off, so it is the HashMap lookup, {@code Method.invoke} and {@code LocalDateTime.now()}</li>
+ *     <li>timingProxy: {@link TimingProxyFactory}</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProxyDispatchBenchmark {
+
+    public interface Calculator {
+
+        int add(int a, int b);
+    }
+
+    public static class Adder implements Calculator {
+
+        @Override
+        public int add(int a, int b) {
+            return a + b;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ProxyState {
+
+        Calculator direct;
+
+        Calculator timingDynamicInvocationHandler;
+
+        Calculator timingProxy;
+
+        int a = 1;
+
+        int b = 2;
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            Configurator.setLevel(ProxyTest.TimingDynamicInvocationHandler.class.getName(),
+                    org.apache.logging.log4j.Level.OFF);
+            direct = new Adder();
+            timingDynamicInvocationHandler = (Calculator) Proxy.newProxyInstance(Calculator.class.getClassLoader(),
+                    new Class<?>[]{Calculator.class}, new ProxyTest.TimingDynamicInvocationHandler(new Adder()));
+            timingProxy = TimingProxyFactory.newProxy(Calculator.class, new Adder());
+        }
+    }
+
+    @Benchmark
+    public int direct(ProxyState state) {
+        return state.direct.add(state.a, state.b);
+    }
+
+    @Benchmark
+    public int timingDynamicInvocationHandler(ProxyState state) {
+        return state.timingDynamicInvocationHandler.add(state.a, state.b);
+    }
+
+    @Benchmark
+    public int timingProxy(ProxyState state) {
+        return state.timingProxy.add(state.a, state.b);
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(ProxyDispatchBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler("gc")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
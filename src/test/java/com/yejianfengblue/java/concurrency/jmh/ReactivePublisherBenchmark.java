@@ -0,0 +1,167 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.reactive.BatchingSubscriber;
+import com.yejianfengblue.java.reactive.RingBufferPublisher;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publish {@value #ITEMS} preallocated items to {@value #SUBSCRIBERS} subscribers and wait until all of them complete,
+ * through {@link SubmissionPublisher} and {@link RingBufferPublisher}, both with a buffer of 256 and the same executor.
+ * <p>
+ * The subscribers request with the patterns of the consumers in {@code ReactiveStreamTest}:
+ * <ul>
+ *     <li>one: request(1) in every onNext, like Consumer2</li>
+ *     <li>upfront: request all items once in onSubscribe, like Consumer3 which requests 3 for 10 items</li>
+ *     <li>batched: {@link BatchingSubscriber}, request(64) replenished at a low watermark of 16</li>
+ * </ul>
+ * Consumer1, which never requests, is left out, it would block either publisher once its buffer is full.
+ * Run with {@code -prof gc} to see the allocation per operation, for the ring buffer it is only the publisher
+ * and the subscribers, not anything per item.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReactivePublisherBenchmark {
+
+    private static final int ITEMS = 100000;
+
+    private static final int SUBSCRIBERS = 3;
+
+    private static final int BUFFER_SIZE = 256;
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+
+        @Param({"one", "upfront", "batched"})
+        String demand;
+
+        ExecutorService executor;
+
+        Integer[] items;
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            executor = Executors.newFixedThreadPool(SUBSCRIBERS);
+            items = new Integer[ITEMS];
+            for (int i = 0; i < ITEMS; i++) {
+                items[i] = i;
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            executor.shutdownNow();
+        }
+    }
+
+    /** counts what it receives, and requests with the given pattern */
+    private static class CountingSubscriber implements Flow.Subscriber<Integer> {
+
+        private final boolean requestOneByOne;
+
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        private Flow.Subscription subscription;
+
+        private long count;
+
+        CountingSubscriber(boolean requestOneByOne) {
+            this.requestOneByOne = requestOneByOne;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            subscription.request(requestOneByOne ? 1 : ITEMS);
+        }
+
+        @Override
+        public void onNext(Integer item) {
+
+            count += item;
+            if (requestOneByOne) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(null);
+        }
+    }
+
+    private static CompletableFuture<?> subscribe(Flow.Publisher<Integer> publisher, String demand) {
+
+        CompletableFuture<?>[] completions = new CompletableFuture<?>[SUBSCRIBERS];
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            if ("batched".equals(demand)) {
+                BatchingSubscriber<Integer> subscriber = new BatchingSubscriber<>(64, 16, item -> { });
+                publisher.subscribe(subscriber);
+                completions[i] = subscriber.getCompletion();
+            } else {
+                CountingSubscriber subscriber = new CountingSubscriber("one".equals(demand));
+                publisher.subscribe(subscriber);
+                completions[i] = subscriber.completion;
+            }
+        }
+        return CompletableFuture.allOf(completions);
+    }
+
+    @Benchmark
+    public void submissionPublisher(SharedState state) throws Exception {
+
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>(state.executor, BUFFER_SIZE);
+        CompletableFuture<?> done = subscribe(publisher, state.demand);
+        for (Integer item : state.items) {
+            publisher.submit(item);
+        }
+        publisher.close();
+        done.get();
+    }
+
+    @Benchmark
+    public void ringBufferPublisher(SharedState state) throws Exception {
+
+        RingBufferPublisher<Integer> publisher = new RingBufferPublisher<>(state.executor, BUFFER_SIZE);
+        CompletableFuture<?> done = subscribe(publisher, state.demand);
+        for (Integer item : state.items) {
+            publisher.submit(item);
+        }
+        publisher.close();
+        done.get();
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(ReactivePublisherBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler("gc")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
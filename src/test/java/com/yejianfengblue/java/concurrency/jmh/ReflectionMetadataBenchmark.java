@@ -0,0 +1,92 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.DeepCopyTest;
+import com.yejianfengblue.java.reflect.ClassMetadata;
+import com.yejianfengblue.java.reflect.FieldMetadata;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reflection per object, as {@code ReflectionTest} does it and through {@link ClassMetadata}:
+ * <ul>
+ *     <li>fieldValues: read every instance field of an {@code Address} of {@code DeepCopyTest}</li>
+ *     <li>typeArgument: the type argument of the {@code Comparator} a class implements</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReflectionMetadataBenchmark {
+
+    private static class IntegerComparator implements Comparator<Integer> {
+
+        @Override
+        public int compare(Integer o1, Integer o2) {
+            return 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ObjectState {
+
+        final Object address = new DeepCopyTest.Address("Apple Street", "Apple City");
+
+        final Class<?> comparatorClass = IntegerComparator.class;
+    }
+
+    @Benchmark
+    public void fieldValuesByReflection(ObjectState state, Blackhole blackhole) throws IllegalAccessException {
+
+        for (Field field : state.address.getClass().getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                field.setAccessible(true);
+                blackhole.consume(field.get(state.address));
+            }
+        }
+    }
+
+    @Benchmark
+    public void fieldValuesByMetadata(ObjectState state, Blackhole blackhole) {
+
+        for (FieldMetadata field : ClassMetadata.of(state.address.getClass()).getFields()) {
+            blackhole.consume(field.get(state.address));
+        }
+    }
+
+    @Benchmark
+    public Type typeArgumentByReflection(ObjectState state) {
+        return ((ParameterizedType) state.comparatorClass.getGenericInterfaces()[0]).getActualTypeArguments()[0];
+    }
+
+    @Benchmark
+    public Type typeArgumentByMetadata(ObjectState state) {
+        return ClassMetadata.of(state.comparatorClass).getTypeArguments(Comparator.class).get(0);
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(ReflectionMetadataBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler("gc")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,148 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.concurrency.connection.SegmentedConcurrentDeque;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A benchmark of the AddTask/PollTask pattern of {@code ConcurrentLinkedDequeTest}:
+ * {@value #TASKS} tasks each offer {@value #ELEMENTS_PER_TASK} elements at the tail,
+ * then {@value #TASKS} tasks each poll half of that from the head and half from the tail.
+ * <p>
+ * It compares {@link ConcurrentLinkedDeque} with {@link SegmentedConcurrentDeque}, one element at a time and in batches.
+ * Run with {@code -prof gc} to see the allocation rate per operation.
+ * The pool has one thread per core, so only a multi-core run shows the contention on the single lock
+ * of {@link SegmentedConcurrentDeque}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SegmentedDequeBenchmark {
+
+    private static final int TASKS = 100;
+
+    private static final int ELEMENTS_PER_TASK = 10000;
+
+    private static final int BATCH_SIZE = 100;
+
+    @State(Scope.Benchmark)
+    public static class SharedThreadState {
+
+        ExecutorService executorService;
+
+        String[] elements;
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            elements = new String[ELEMENTS_PER_TASK];
+            for (int i = 0; i < ELEMENTS_PER_TASK; i++) {
+                elements[i] = "element-" + i;
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public void concurrentLinkedDeque(SharedThreadState state) throws Exception {
+
+        addThenPoll(state, new ConcurrentLinkedDeque<>());
+    }
+
+    @Benchmark
+    public void segmentedConcurrentDeque(SharedThreadState state) throws Exception {
+
+        addThenPoll(state, new SegmentedConcurrentDeque<>());
+    }
+
+    @Benchmark
+    public void segmentedConcurrentDequeBatched(SharedThreadState state) throws Exception {
+
+        SegmentedConcurrentDeque<String> deque = new SegmentedConcurrentDeque<>();
+
+        runTasks(state, () -> {
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            for (String element : state.elements) {
+                batch.add(element);
+                if (BATCH_SIZE == batch.size()) {
+                    deque.offerAll(batch);
+                    batch.clear();
+                }
+            }
+            deque.offerAll(batch);
+        });
+        assertEquals(TASKS * ELEMENTS_PER_TASK, deque.size());
+
+        runTasks(state, () -> {
+            List<String> sink = new ArrayList<>(BATCH_SIZE);
+            for (int polled = 0; polled < ELEMENTS_PER_TASK; polled += 2 * BATCH_SIZE) {
+                deque.pollMany(sink, BATCH_SIZE);
+                deque.pollManyLast(sink, BATCH_SIZE);
+                sink.clear();
+            }
+        });
+        assertEquals(0, deque.size());
+    }
+
+    private static void addThenPoll(SharedThreadState state, Deque<String> deque) throws Exception {
+
+        runTasks(state, () -> {
+            for (String element : state.elements) {
+                deque.offerLast(element);
+            }
+        });
+        runTasks(state, () -> {
+            for (int counter = 0; counter < ELEMENTS_PER_TASK / 2; counter++) {
+                deque.pollFirst();
+                deque.pollLast();
+            }
+        });
+        assertEquals(0, deque.size());
+    }
+
+    private static void runTasks(SharedThreadState state, Runnable task) throws Exception {
+
+        List<Future<?>> futures = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            futures.add(state.executorService.submit(task));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(SegmentedDequeBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler("gc")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
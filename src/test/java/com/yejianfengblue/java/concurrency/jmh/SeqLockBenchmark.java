@@ -0,0 +1,115 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.concurrency.SeqLockPricesInfo;
+import com.yejianfengblue.java.concurrency.SnapshotPricesInfo;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One writer thread updates the prices as fast as it can while 3 reader threads read them,
+ * the single-writer case a seqlock is made for.
+ * <p>
+ * It compares the {@link java.util.concurrent.locks.ReentrantReadWriteLock} PricesInfo of {@code ReadWriteLockTest},
+ * {@link SnapshotPricesInfo} which allocates per write, and {@link SeqLockPricesInfo}.
+ * Run with {@code -prof gc} to see the allocation rate per write.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SeqLockBenchmark {
+
+    @State(Scope.Group)
+    public static class RwLockState {
+
+        final PricesInfoBenchmark.RwLockPricesInfo pricesInfo = new PricesInfoBenchmark.RwLockPricesInfo();
+    }
+
+    @State(Scope.Group)
+    public static class SnapshotState {
+
+        final SnapshotPricesInfo pricesInfo = new SnapshotPricesInfo();
+    }
+
+    @State(Scope.Group)
+    public static class SeqLockState {
+
+        final SeqLockPricesInfo pricesInfo = new SeqLockPricesInfo();
+    }
+
+    @State(Scope.Thread)
+    public static class WriterState {
+
+        int counter;
+    }
+
+    @State(Scope.Thread)
+    public static class ReaderState {
+
+        final long[] prices = new long[2];
+    }
+
+    @Benchmark
+    @Group("rwLock")
+    @GroupThreads(1)
+    public void rwLockWrite(RwLockState state, WriterState writer) {
+        state.pricesInfo.setPrices(++writer.counter, -writer.counter);
+    }
+
+    @Benchmark
+    @Group("rwLock")
+    @GroupThreads(3)
+    public Object rwLockRead(RwLockState state) {
+        return state.pricesInfo.getPrices();
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public void snapshotWrite(SnapshotState state, WriterState writer) {
+        state.pricesInfo.setPrices(++writer.counter, -writer.counter);
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(3)
+    public Object snapshotRead(SnapshotState state) {
+        return state.pricesInfo.getPrices();
+    }
+
+    @Benchmark
+    @Group("seqLock")
+    @GroupThreads(1)
+    public void seqLockWrite(SeqLockState state, WriterState writer) {
+        state.pricesInfo.setPrices(++writer.counter, -writer.counter);
+    }
+
+    @Benchmark
+    @Group("seqLock")
+    @GroupThreads(3)
+    public long[] seqLockRead(SeqLockState state, ReaderState reader) {
+
+        state.pricesInfo.getPrices(reader.prices);
+        return reader.prices;
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(SeqLockBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .addProfiler("gc")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,139 @@
+package com.yejianfengblue.java.concurrency.jmh;
+
+import com.yejianfengblue.java.concurrency.SlotPool;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 4 threads acquire a slot and release it right away, through the Semaphore and the locked scan of free printers of
+ * the PrintQueue in {@code SemaphoreTest}, and through an unfair and a fair {@link SlotPool}.
+ * With 1024 slots most slots are busy or stale in the scan, and a slot is always free, so nobody waits.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class SlotPoolBenchmark {
+
+    /** same as SemaphoreTest.PrintQueue, with the printing left out and the free printer written back under the lock */
+    @State(Scope.Benchmark)
+    public static class PrintQueue {
+
+        @Param({"3", "1024"})
+        int slots;
+
+        Semaphore semaphore;
+
+        boolean[] freePrinters;
+
+        final Lock printersLock = new ReentrantLock();
+
+        @Setup(Level.Trial)
+        public void setup() {
+
+            semaphore = new Semaphore(slots - slots / 2);
+            freePrinters = new boolean[slots];
+            // the first half is taken for good, so the scan walks past it like in a busy pool
+            for (int i = slots / 2; i < slots; i++) {
+                freePrinters[i] = true;
+            }
+        }
+
+        int acquire() throws InterruptedException {
+
+            semaphore.acquire();
+            printersLock.lock();
+            try {
+                for (int i = 0; i < freePrinters.length; i++) {
+                    if (freePrinters[i]) {
+                        freePrinters[i] = false;
+                        return i;
+                    }
+                }
+                return -1;
+            } finally {
+                printersLock.unlock();
+            }
+        }
+
+        void release(int printer) {
+
+            printersLock.lock();
+            try {
+                freePrinters[printer] = true;
+            } finally {
+                printersLock.unlock();
+            }
+            semaphore.release();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pools {
+
+        @Param({"3", "1024"})
+        int slots;
+
+        SlotPool unfair;
+
+        SlotPool fair;
+
+        @Setup(Level.Trial)
+        public void setup() throws InterruptedException {
+
+            unfair = new SlotPool(slots, false);
+            fair = new SlotPool(slots, true);
+            for (int i = 0; i < slots / 2; i++) {
+                unfair.acquire();  // the first half is taken for good, same as the PrintQueue
+                fair.acquire();
+            }
+        }
+    }
+
+    @Benchmark
+    public int printQueue(PrintQueue printQueue) throws InterruptedException {
+
+        int printer = printQueue.acquire();
+        printQueue.release(printer);
+        return printer;
+    }
+
+    @Benchmark
+    public int slotPoolUnfair(Pools pools) throws InterruptedException {
+
+        int slot = pools.unfair.acquire();
+        pools.unfair.release(slot);
+        return slot;
+    }
+
+    @Benchmark
+    public int slotPoolFair(Pools pools) throws InterruptedException {
+
+        int slot = pools.fair.acquire();
+        pools.fair.release(slot);
+        return slot;
+    }
+
+    @Test
+    @Disabled("JMH is supposed to be run manually coz it's slow.")
+    public void runJmh() throws RunnerException {
+
+        Options opt = new OptionsBuilder()
+                .include(SlotPoolBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
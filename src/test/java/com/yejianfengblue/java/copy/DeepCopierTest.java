@@ -0,0 +1,343 @@
+package com.yejianfengblue.java.copy;
+
+import com.yejianfengblue.java.DeepCopyTest.Address;
+import com.yejianfengblue.java.DeepCopyTest.User;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link DeepCopier}
+ *
+ * @author yejianfengblue
+ */
+class DeepCopierTest {
+
+    private final DeepCopier copier = new DeepCopier();
+
+    /** a node of a graph, with a private no-arg constructor for the copier */
+    private static class Node {
+
+        private final String name;
+
+        private final List<Node> neighbours = new ArrayList<>();
+
+        private Node parent;
+
+        private List<Node> children;
+
+        private Node() {
+            this(null);
+        }
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    /** without a no-arg constructor */
+    @RequiredArgsConstructor
+    private static class Point {
+
+        private final int x;
+
+        private int y;
+    }
+
+    /** the same mutable JDK objects reached from two fields, and ordered collections */
+    private static class Schedule {
+
+        private Date created;
+
+        private Date updated;
+
+        private int[] slots;
+
+        private int[] sameSlots;
+
+        private EnumSet<TimeUnit> units;
+
+        private EnumSet<TimeUnit> sameUnits;
+
+        private List<String> names;
+
+        private List<String> sameNames;
+
+        private PriorityQueue<String> queue;
+
+        private PriorityBlockingQueue<String> blockingQueue;
+    }
+
+    /** immutable, so shared */
+    @RequiredArgsConstructor
+    private static final class Money {
+
+        private final long amount;
+
+        private final String currency;
+    }
+
+    private static class Config {
+
+        private int version;
+
+        private long[] limits;
+
+        private Address[] addresses;
+
+        private Map<String, List<Address>> addressesByCity = new HashMap<>();
+
+        private TreeSet<String> tags = new TreeSet<>(Comparator.reverseOrder());
+
+        private List<String> immutableList;
+
+        private Map<String, Address> immutableMap;
+
+        private LocalDate date;
+
+        private Duration timeout;
+
+        private Money money;
+
+        private Object object;
+    }
+
+    @Test
+    void givenDeepCopy_whenModifyOriginalMutableObjectField_thenFieldInCopyShouldNotChange() {
+
+        User apple = new User("Apple", new Address("Apple Street", "Apple City"));
+
+        // given
+        User copy = copier.copy(apple);
+
+        // when
+        apple.getAddress().setStreet("Banana Street");
+
+        // then
+        assertEquals("Apple Street", copy.getAddress().getStreet());
+        assertNotSame(apple.getAddress(), copy.getAddress());
+        // immutable strings are shared, not copied
+        assertSame(apple.getName(), copy.getName());
+        assertSame(apple.getAddress().getCity(), copy.getAddress().getCity());
+    }
+
+    @Test
+    void givenGraphWithCycleAndSharedNodes_whenCopy_thenStructureIsKept() {
+
+        Node root = new Node("root");
+        Node a = new Node("a");
+        Node b = new Node("b");
+        root.neighbours.add(a);
+        root.neighbours.add(b);
+        a.neighbours.add(b);
+        b.neighbours.add(root);
+        a.parent = root;
+        b.parent = root;
+
+        Node copy = copier.copy(root);
+
+        assertNotSame(root, copy);
+        Node copyA = copy.neighbours.get(0);
+        Node copyB = copy.neighbours.get(1);
+        assertEquals("a", copyA.name);
+        assertSame(copyB, copyA.neighbours.get(0));
+        assertSame(copy, copyB.neighbours.get(0));
+        assertSame(copy, copyA.parent);
+        assertSame(copy, copyB.parent);
+        assertNotSame(root.neighbours, copy.neighbours);
+    }
+
+    @Test
+    void givenConfigOfArraysCollectionsAndValues_whenCopy_thenMutablesCopiedAndImmutablesShared() {
+
+        Address home = new Address("Apple Street", "Apple City");
+        Config config = new Config();
+        config.version = 7;
+        config.limits = new long[]{1, 2, 3};
+        config.addresses = new Address[]{home, home};
+        config.addressesByCity.put("Apple City", List.of(home));
+        config.tags.addAll(List.of("a", "b", "c"));
+        config.immutableList = List.of("x", "y");
+        config.immutableMap = Map.of("home", home);
+        config.date = LocalDate.of(2020, 5, 1);
+        config.timeout = Duration.ofSeconds(3);
+        config.money = new Money(100, "HKD");
+        config.object = home;
+
+        Config copy = copier.copy(config);
+
+        assertEquals(7, copy.version);
+        assertArrayEquals(config.limits, copy.limits);
+        assertNotSame(config.limits, copy.limits);
+
+        Address homeCopy = copy.addresses[0];
+        assertNotSame(home, homeCopy);
+        assertEquals("Apple Street", homeCopy.getStreet());
+        // one copy of the address, however many times it is reached
+        assertSame(homeCopy, copy.addresses[1]);
+        assertSame(homeCopy, copy.addressesByCity.get("Apple City").get(0));
+        assertSame(homeCopy, copy.immutableMap.get("home"));
+        assertSame(homeCopy, copy.object);
+
+        assertEquals(List.of("c", "b", "a"), new ArrayList<>(copy.tags));
+        assertNotSame(config.tags, copy.tags);
+        assertEquals(config.immutableList, copy.immutableList);
+        assertThrows(UnsupportedOperationException.class, () -> copy.immutableList.add("z"));
+
+        assertSame(config.date, copy.date);
+        assertSame(config.timeout, copy.timeout);
+        assertSame(config.money, copy.money);
+        assertTrue(copier.isImmutable(Money.class));
+        assertFalse(copier.isImmutable(Address.class));
+    }
+
+    @Test
+    void givenEmptyAndSingletonCollections_whenCopy_thenSharedUnlessTheyHoldMutables() {
+
+        Address home = new Address("Apple Street", "Apple City");
+        Config config = new Config();
+        config.immutableList = Collections.emptyList();
+        config.immutableMap = Collections.singletonMap("home", home);
+        config.object = Collections.singletonList("x");
+
+        Config copy = copier.copy(config);
+
+        assertSame(config.immutableList, copy.immutableList);
+        assertSame(config.object, copy.object);
+        assertTrue(copier.isImmutable(Collections.emptyMap().getClass()));
+
+        Address homeCopy = copy.immutableMap.get("home");
+        assertNotSame(home, homeCopy);
+        assertEquals("Apple Street", homeCopy.getStreet());
+        assertNotSame(config.immutableMap, copy.immutableMap);
+        assertThrows(UnsupportedOperationException.class, () -> copy.immutableMap.put("work", home));
+    }
+
+    @Test
+    void givenUnmodifiableViewsAndArraysAsList_whenCopy_thenWrapACopyOfTheContents() {
+
+        Address home = new Address("Apple Street", "Apple City");
+        List<Address> backing = new ArrayList<>(List.of(home));
+        TreeSet<String> tags = new TreeSet<>(Comparator.reverseOrder());
+        tags.addAll(List.of("a", "b", "c"));
+        Config config = new Config();
+        config.immutableList = Collections.unmodifiableList(new ArrayList<>(List.of("x", "y")));
+        config.immutableMap = Collections.unmodifiableMap(new HashMap<>(Map.of("home", home)));
+        config.addressesByCity = Map.of("Apple City", Arrays.asList(home, home));
+        config.object = Collections.unmodifiableList(backing);
+
+        Config copy = copier.copy(config);
+        backing.add(new Address("Banana Street", "Banana City"));
+        home.setStreet("Banana Street");
+
+        assertEquals(List.of("x", "y"), copy.immutableList);
+        assertThrows(UnsupportedOperationException.class, () -> copy.immutableList.add("z"));
+        Address homeCopy = copy.immutableMap.get("home");
+        assertEquals("Apple Street", homeCopy.getStreet());
+        assertSame(homeCopy, ((List<?>) copy.object).get(0));
+        assertEquals(1, ((List<?>) copy.object).size());
+
+        List<Address> asList = copy.addressesByCity.get("Apple City");
+        assertSame(homeCopy, asList.get(0));
+        assertSame(homeCopy, asList.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> asList.add(home));
+
+        SortedSet<String> sortedCopy = copier.copy(Collections.unmodifiableSortedSet(tags));
+        assertEquals(List.of("c", "b", "a"), new ArrayList<>(sortedCopy));
+        assertSame(tags.comparator(), sortedCopy.comparator());
+        assertThrows(UnsupportedOperationException.class, () -> sortedCopy.add("d"));
+    }
+
+    @Test
+    void givenCycleThroughUnmodifiableList_whenCopy_thenCycleIsKept() {
+
+        Node root = new Node("root");
+        Node leaf = new Node("leaf");
+        root.children = Collections.unmodifiableList(new ArrayList<>(List.of(leaf)));
+        leaf.children = root.children;
+
+        Node copy = copier.copy(root);
+
+        assertNotSame(root.children, copy.children);
+        assertEquals("leaf", copy.children.get(0).name);
+        assertSame(copy.children, copy.children.get(0).children);
+    }
+
+    @Test
+    void givenSharedJdkObjectsAndOrderedCollections_whenCopy_thenCopiedOnceAndOrderKept() {
+
+        Schedule schedule = new Schedule();
+        schedule.created = new Date(0);
+        schedule.updated = schedule.created;
+        schedule.slots = new int[]{1, 2};
+        schedule.sameSlots = schedule.slots;
+        schedule.units = EnumSet.of(TimeUnit.SECONDS);
+        schedule.sameUnits = schedule.units;
+        schedule.names = List.of("a", "b");
+        schedule.sameNames = schedule.names;
+        schedule.queue = new PriorityQueue<>(Comparator.reverseOrder());
+        schedule.queue.addAll(List.of("a", "z", "m"));
+        schedule.blockingQueue = new PriorityBlockingQueue<>(11, Comparator.reverseOrder());
+        schedule.blockingQueue.addAll(List.of("a", "z", "m"));
+
+        Schedule copy = copier.copy(schedule);
+
+        assertNotSame(schedule.created, copy.created);
+        assertSame(copy.created, copy.updated);
+        assertNotSame(schedule.slots, copy.slots);
+        assertSame(copy.slots, copy.sameSlots);
+        assertNotSame(schedule.units, copy.units);
+        assertSame(copy.units, copy.sameUnits);
+        assertSame(copy.names, copy.sameNames);
+
+        assertNotSame(schedule.queue, copy.queue);
+        assertEquals("z", copy.queue.peek());
+        assertSame(schedule.queue.comparator(), copy.queue.comparator());
+        assertEquals("z", copy.blockingQueue.peek());
+        assertEquals(3, copy.blockingQueue.size());
+    }
+
+    @Test
+    void givenClassWithoutNoArgConstructorOrCycleThroughImmutableList_whenCopy_thenIllegalArgumentException() {
+
+        assertThrows(IllegalArgumentException.class, () -> copier.copy(new Point(1)));
+
+        Node root = new Node("root");
+        Node sibling = new Node("sibling");
+        root.neighbours.add(sibling);
+        root.children = List.of(new Node("leaf"));
+        sibling.children = root.children;
+        // shared, not a cycle
+        Node copy = copier.copy(root);
+        assertNotSame(root.children, copy.children);
+        assertSame(copy.children, copy.neighbours.get(0).children);
+
+        // the list holds a node which refers back to the list
+        root.children.get(0).children = root.children;
+        assertThrows(IllegalArgumentException.class, () -> copier.copy(root));
+    }
+}
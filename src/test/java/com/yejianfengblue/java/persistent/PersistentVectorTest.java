@@ -0,0 +1,92 @@
+package com.yejianfengblue.java.persistent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test to {@link PersistentVector}, {@link User} and {@link Address}
+ *
+ * @author yejianfengblue
+ */
+class PersistentVectorTest {
+
+    private static List<Integer> range(int size) {
+
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    private static <E> List<E> toList(PersistentVector<E> vector) {
+
+        List<E> list = new ArrayList<>(vector.size());
+        vector.forEach(list::add);
+        return list;
+    }
+
+    @Test
+    void givenSizesAroundLevelBoundaries_whenCopyOfOrAppend_thenSameElements() {
+
+        for (int size : new int[]{0, 1, 32, 33, 1024, 1025, 40000}) {
+            List<Integer> expected = range(size);
+            PersistentVector<Integer> appended = PersistentVector.empty();
+            for (Integer i : expected) {
+                appended = appended.append(i);
+            }
+            assertEquals(expected, toList(PersistentVector.copyOf(expected)), "copyOf " + size);
+            assertEquals(expected, toList(appended), "append " + size);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> PersistentVector.copyOf(range(3)).get(3));
+    }
+
+    @Test
+    void givenVector_whenSet_thenOldVectorUnchangedAndSameElementIsNoCopy() {
+
+        PersistentVector<Integer> vector = PersistentVector.copyOf(range(5000));
+
+        PersistentVector<Integer> changed = vector.set(4000, -1).append(5000);
+
+        assertEquals(4000, vector.get(4000));
+        assertEquals(5000, vector.size());
+        assertEquals(-1, changed.get(4000));
+        assertEquals(5001, changed.size());
+        assertEquals(3999, changed.get(3999));
+        assertSame(vector, vector.set(10, vector.get(10)));
+    }
+
+    @Test
+    void givenUsers_whenChangeStreetOfOne_thenOnlyPathToStreetIsCopied() {
+
+        List<User> list = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(new User("User" + i, new Address("Street" + i, "Apple City")));
+        }
+        PersistentVector<User> users = PersistentVector.copyOf(list);
+
+        // a copy is the same reference, nothing can change it
+        PersistentVector<User> copy = users;
+        PersistentVector<User> changed = copy.update(42, user -> user.withAddress(address -> address.withStreet("Banana Street")));
+
+        User before = users.get(42);
+        User after = changed.get(42);
+        assertEquals("Street42", before.getAddress().getStreet());
+        assertEquals("Banana Street", after.getAddress().getStreet());
+        assertNotSame(before, after);
+        assertSame(before.getName(), after.getName());
+        assertSame(before.getAddress().getCity(), after.getAddress().getCity());
+        assertSame(users.get(41), changed.get(41));
+        assertEquals(new User("User42", new Address("Banana Street", "Apple City")), after);
+
+        // a change to the same value is no change
+        assertSame(changed, changed.update(42, user -> user.withAddress(address -> address.withStreet("Banana Street"))));
+    }
+}
@@ -0,0 +1,153 @@
+package com.yejianfengblue.java.proxy;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link TimingProxyFactory}, {@link TimingInvocationHandler} and {@link LatencyHistogram}
+ *
+ * @author yejianfengblue
+ */
+class TimingProxyFactoryTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    private interface Greeter {
+
+        String greet(String name);
+
+        String greet(String name, int times);
+
+        void fail() throws IOException;
+    }
+
+    private static class EnglishGreeter implements Greeter {
+
+        @Override
+        public String greet(String name) {
+            return "Hello " + name;
+        }
+
+        @Override
+        public String greet(String name, int times) {
+            return "Hello " + name + " x" + times;
+        }
+
+        @Override
+        public void fail() throws IOException {
+            throw new IOException("failed");
+        }
+    }
+
+    @Test
+    void givenOverloadedMethods_whenCallViaProxy_thenEachOverloadCalledAndTimedSeparately() {
+
+        Greeter greeter = TimingProxyFactory.newProxy(Greeter.class, new EnglishGreeter());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Hello Apple", greeter.greet("Apple"));
+        }
+        assertEquals("Hello Apple x2", greeter.greet("Apple", 2));
+
+        TimingInvocationHandler handler = TimingProxyFactory.handlerOf(greeter);
+        log.info("{}", handler);
+        assertEquals(3, handler.getHistogram("greet(java.lang.String)").getCount());
+        assertEquals(1, handler.getHistogram("greet(java.lang.String,int)").getCount());
+        assertEquals(0, handler.getHistogram("fail()").getCount());
+        assertTrue(handler.getHistogram("greet(java.lang.String)").getTotalNanos() > 0);
+    }
+
+    @Test
+    void givenTargetThrows_whenCallViaProxy_thenSameExceptionAndTimed() {
+
+        Greeter greeter = TimingProxyFactory.newProxy(Greeter.class, new EnglishGreeter());
+
+        IOException e = assertThrows(IOException.class, greeter::fail);
+        assertEquals("failed", e.getMessage());
+        assertEquals(1, TimingProxyFactory.handlerOf(greeter).getHistogram("fail()").getCount());
+    }
+
+    private interface Calendar {
+
+        String describe(Date date);
+
+        String describe(java.sql.Date date);
+    }
+
+    @Test
+    void givenOverloadsOfSameSimpleName_whenCallViaProxy_thenTimedSeparately() {
+
+        Calendar calendar = TimingProxyFactory.newProxy(Calendar.class, new Calendar() {
+
+            @Override
+            public String describe(Date date) {
+                return "util";
+            }
+
+            @Override
+            public String describe(java.sql.Date date) {
+                return "sql";
+            }
+        });
+
+        assertEquals("util", calendar.describe(new Date(0)));
+        assertEquals("sql", calendar.describe(new java.sql.Date(0)));
+        assertEquals("sql", calendar.describe(new java.sql.Date(0)));
+
+        TimingInvocationHandler handler = TimingProxyFactory.handlerOf(calendar);
+        assertEquals(1, handler.getHistogram("describe(java.util.Date)").getCount());
+        assertEquals(2, handler.getHistogram("describe(java.sql.Date)").getCount());
+    }
+
+    @Test
+    void givenMapProxyLikeProxyTest_whenCall_thenDelegatedIncludingObjectMethods() {
+
+        HashMap<String, String> target = new HashMap<>();
+        Map<String, String> map = TimingProxyFactory.newProxy(Map.class, target);
+
+        map.put("hello", "world");
+        assertEquals("world", map.get("hello"));
+        assertEquals(1, map.size());
+        assertEquals(target.hashCode(), map.hashCode());
+        assertEquals(target.toString(), map.toString());
+        assertTrue(map.equals(Map.of("hello", "world")));
+
+        TimingInvocationHandler handler = TimingProxyFactory.handlerOf(map);
+        assertSame(target, handler.getTarget());
+        assertEquals(1, handler.getHistogram("put(java.lang.Object,java.lang.Object)").getCount());
+        assertEquals(1, handler.getHistogram("hashCode()").getCount());
+        assertThrows(IllegalArgumentException.class, () -> TimingProxyFactory.newProxy(HashMap.class, target));
+    }
+
+    @Test
+    void givenLatencies_whenPercentile_thenUpperBoundOfPowerOfTwoBucket() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5000);
+        histogram.record(1_000_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(128, histogram.getPercentileNanos(50));
+        assertEquals(8192, histogram.getPercentileNanos(99));
+        assertEquals(1 << 20, histogram.getPercentileNanos(100));
+        assertEquals((98 * 100 + 5000 + 1_000_000) / 100.0, histogram.getMeanNanos());
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(99));
+    }
+}
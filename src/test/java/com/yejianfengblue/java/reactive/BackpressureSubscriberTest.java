@@ -0,0 +1,308 @@
+package com.yejianfengblue.java.reactive;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link BackpressureSubscriber}
+ *
+ * @author yejianfengblue
+ */
+class BackpressureSubscriberTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Records what it receives, and requests {@code initialRequest} on subscribe,
+     * then {@code requestPerItem} in every onNext, like the consumers of {@code ReactiveStreamTest}
+     */
+    @RequiredArgsConstructor
+    private static class RecordingSubscriber implements Flow.Subscriber<Integer> {
+
+        private final long initialRequest;
+
+        private final long requestPerItem;
+
+        private final List<Integer> items = new CopyOnWriteArrayList<>();
+
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(Integer item) {
+
+            items.add(item);
+            if (requestPerItem > 0) {
+                subscription.request(requestPerItem);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(null);
+        }
+    }
+
+    /**
+     * Stands for a publisher, the test calls onNext on the same thread
+     */
+    @Getter
+    private static class FakeUpstream implements Flow.Subscription {
+
+        private long requested;
+
+        private boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static void await(LongSupplier counter, long expected) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (counter.getAsLong() < expected && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        assertEquals(expected, counter.getAsLong());
+    }
+
+    /**
+     * Same consumers as ReactiveStreamTest, Consumer1 never requests and Consumer3 requests only 3,
+     * yet the publisher with a buffer of 4 per subscriber isn't stalled by them, and Consumer2 receives every item
+     */
+    @Test
+    void givenConsumersOfReactiveStreamTest_whenSubmitMoreThanBuffer_thenSlowSubscribersDontStallPublisher()
+            throws Exception {
+
+        int count = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>(executor, 4);
+
+        RecordingSubscriber consumer1 = new RecordingSubscriber(0, 0);
+        RecordingSubscriber consumer2 = new RecordingSubscriber(1, 1);
+        RecordingSubscriber consumer3 = new RecordingSubscriber(3, 0);
+        BackpressureSubscriber<Integer> dropLatest = new BackpressureSubscriber<>(consumer1, OverflowStrategy.DROP_LATEST, 3);
+        BackpressureSubscriber<Integer> dropOldest = new BackpressureSubscriber<>(consumer3, OverflowStrategy.DROP_OLDEST, 2);
+        publisher.subscribe(dropLatest);
+        publisher.subscribe(consumer2);
+        publisher.subscribe(dropOldest);
+        await(() -> null == consumer3.subscription ? 0 : 1, 1);
+
+        for (int i = 0; i < count; i++) {
+            publisher.submit(i);
+        }
+        publisher.close();
+        consumer2.completion.get(10, TimeUnit.SECONDS);
+        await(dropLatest::getReceived, count);
+        await(dropOldest::getReceived, count);
+        log.info("Consumer1 {}", dropLatest);
+        log.info("Consumer3 {}", dropOldest);
+
+        assertEquals(count, consumer2.items.size());
+
+        assertEquals(List.of(), consumer1.items);
+        assertEquals(count - 3, dropLatest.getDropped());
+        assertEquals(3, dropLatest.getBuffered());
+        assertFalse(consumer1.completion.isDone());  // items are still buffered for it
+        consumer1.subscription.request(10);
+        assertEquals(List.of(0, 1, 2), consumer1.items);
+        assertTrue(consumer1.completion.isDone());
+
+        assertEquals(List.of(0, 1, 2), consumer3.items);
+        assertEquals(count - 3 - 2, dropOldest.getDropped());
+        consumer3.subscription.request(10);
+        assertEquals(List.of(0, 1, 2, count - 2, count - 1), consumer3.items);
+        assertTrue(consumer3.completion.isDone());
+
+        executor.shutdown();
+    }
+
+    @Test
+    void givenConflate_whenSubscriberRequestsLater_thenOnlyLatestIsDelivered() {
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(0, 0);
+        BackpressureSubscriber<Integer> conflate = new BackpressureSubscriber<>(subscriber, OverflowStrategy.CONFLATE, 16);
+        FakeUpstream upstream = new FakeUpstream();
+        conflate.onSubscribe(upstream);
+        assertEquals(Long.MAX_VALUE, upstream.getRequested());
+
+        for (int i = 0; i < 10; i++) {
+            conflate.onNext(i);
+        }
+        subscriber.subscription.request(5);
+        conflate.onNext(10);
+        conflate.onComplete();
+
+        assertEquals(List.of(9, 10), subscriber.items);
+        assertEquals(9, conflate.getDropped());
+        assertEquals(11, conflate.getReceived());
+        assertEquals(2, conflate.getDelivered());
+        assertEquals(1, conflate.getMaxBuffered());
+        assertTrue(subscriber.completion.isDone());
+    }
+
+    @Test
+    void givenBoundedBuffer_whenOverflow_thenErrorAtOnceAndUpstreamCancelled() {
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(1, 0);
+        BackpressureSubscriber<Integer> bounded = new BackpressureSubscriber<>(subscriber, OverflowStrategy.BUFFER, 3);
+        FakeUpstream upstream = new FakeUpstream();
+        bounded.onSubscribe(upstream);
+
+        for (int i = 0; i < 4; i++) {
+            bounded.onNext(i);
+        }
+        assertEquals(List.of(0), subscriber.items);
+        assertFalse(subscriber.completion.isDone());
+
+        bounded.onNext(4);  // the 4th item in the buffer
+        assertTrue(upstream.isCancelled());
+        ExecutionException e = assertThrows(ExecutionException.class, subscriber.completion::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(0, bounded.getBuffered());
+        assertEquals(3, bounded.getMaxBuffered());
+    }
+
+    @Test
+    void givenTimeout_whenBufferFullForAMoment_thenNothingLost_whenFullForTimeout_thenError() throws InterruptedException {
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(0, 0);
+        BackpressureSubscriber<Integer> timeout = new BackpressureSubscriber<>(subscriber, OverflowStrategy.TIMEOUT, 2,
+                Duration.ofMillis(50));
+        FakeUpstream upstream = new FakeUpstream();
+        timeout.onSubscribe(upstream);
+
+        for (int i = 0; i < 4; i++) {
+            timeout.onNext(i);
+        }
+        assertEquals(4, timeout.getBuffered());
+        subscriber.subscription.request(3);  // below the capacity again
+        assertEquals(List.of(0, 1, 2), subscriber.items);
+
+        TimeUnit.MILLISECONDS.sleep(60);
+        timeout.onNext(4);
+        timeout.onNext(5);  // full from here
+        assertFalse(subscriber.completion.isDone());
+
+        TimeUnit.MILLISECONDS.sleep(60);
+        timeout.onNext(6);
+        assertTrue(upstream.isCancelled());
+        ExecutionException e = assertThrows(ExecutionException.class, subscriber.completion::get);
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        log.info("{}", timeout);
+        assertEquals(0, timeout.getDropped());
+    }
+
+    /**
+     * Like Consumer1 of ReactiveStreamTest, the subscriber never requests, and the upstream goes quiet
+     * once the buffer is full, the timer fails it anyway
+     */
+    @Test
+    void givenTimeout_whenSubscriberStallsAndNothingMoreArrives_thenErrorAfterTimeout() throws Exception {
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(0, 0);
+        BackpressureSubscriber<Integer> timeout = new BackpressureSubscriber<>(subscriber, OverflowStrategy.TIMEOUT, 2,
+                Duration.ofMillis(50));
+        FakeUpstream upstream = new FakeUpstream();
+        timeout.onSubscribe(upstream);
+
+        timeout.onNext(0);
+        timeout.onNext(1);  // full from here
+        assertFalse(subscriber.completion.isDone());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> subscriber.completion.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertTrue(upstream.isCancelled());
+        assertEquals(0, timeout.getBuffered());
+        assertEquals(List.of(), subscriber.items);
+    }
+
+    @Test
+    void givenTimeout_whenTwiceTheCapacityArrivesWithinTimeout_thenErrorAtOnce() {
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(0, 0);
+        BackpressureSubscriber<Integer> timeout = new BackpressureSubscriber<>(subscriber, OverflowStrategy.TIMEOUT, 3,
+                Duration.ofSeconds(10));
+        FakeUpstream upstream = new FakeUpstream();
+        timeout.onSubscribe(upstream);
+
+        for (int i = 0; i < 6; i++) {
+            timeout.onNext(i);
+        }
+        assertEquals(6, timeout.getBuffered());
+        assertFalse(subscriber.completion.isDone());
+
+        timeout.onNext(6);
+        assertTrue(upstream.isCancelled());
+        ExecutionException e = assertThrows(ExecutionException.class, subscriber.completion::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(6, timeout.getMaxBuffered());
+        assertEquals(0, timeout.getDropped());
+    }
+
+    @Test
+    void givenUpstreamError_whenItemsBuffered_thenItemsBeforeError() {
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(0, 0);
+        BackpressureSubscriber<Integer> dropLatest = new BackpressureSubscriber<>(subscriber, OverflowStrategy.DROP_LATEST, 2);
+        FakeUpstream upstream = new FakeUpstream();
+        dropLatest.onSubscribe(upstream);
+
+        dropLatest.onNext(0);
+        dropLatest.onNext(1);
+        dropLatest.onError(new IllegalStateException("upstream"));
+        assertFalse(subscriber.completion.isDone());
+
+        subscriber.subscription.request(1);
+        assertFalse(subscriber.completion.isDone());
+        subscriber.subscription.request(1);
+        assertEquals(List.of(0, 1), subscriber.items);
+        assertTrue(subscriber.completion.isCompletedExceptionally());
+
+        assertEquals(2, dropLatest.getDelivered());
+    }
+}
@@ -0,0 +1,301 @@
+package com.yejianfengblue.java.reactive;
+
+import com.yejianfengblue.java.concurrency.ObjectPool;
+import com.yejianfengblue.java.concurrency.ObjectPool.PooledObject;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link ChannelPublisher} and {@link LineDecoder}
+ *
+ * @author yejianfengblue
+ */
+class ChannelPublisherTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Records the lines, and requests {@code initialRequest} on subscribe, then {@code requestPerItem} in every onNext,
+     * like the consumers of {@code ReactiveStreamTest}
+     */
+    @RequiredArgsConstructor
+    private static class RecordingSubscriber implements Flow.Subscriber<String> {
+
+        private final long initialRequest;
+
+        private final long requestPerItem;
+
+        private final List<String> items = new CopyOnWriteArrayList<>();
+
+        private final CompletableFuture<List<String>> completion = new CompletableFuture<>();
+
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(String item) {
+
+            items.add(item);
+            if (requestPerItem > 0) {
+                subscription.request(requestPerItem);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(items);
+        }
+    }
+
+    /**
+     * The Items of ReactiveStreamTest as lines, with CRLF on every 3rd line and multi-byte characters,
+     * which get split across the small chunks
+     */
+    private static List<String> writeItems(OutputStream out, int count) throws IOException {
+
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String line = "Item" + i + ",contenu \u00e9 \u5185\u5bb9 " + i;
+            lines.add(line);
+            out.write((line + (0 == i % 3 ? "\r\n" : "\n")).getBytes(StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+
+    @Test
+    void givenFileOfItems_whenDecodeLinesOneByOne_thenAllLinesWithTwoSmallBuffers() throws Exception {
+
+        Path file = tempDir.resolve("items.txt");
+        List<String> expected;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            expected = writeItems(out, 5000);
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ObjectPool<ByteBuffer> pool = ChannelPublisher.newBufferPool(2, 61, false);
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(1, 1);  // like Consumer2
+        new LineDecoder(ChannelPublisher.ofFile(file, pool, executor), StandardCharsets.UTF_8).subscribe(subscriber);
+        assertEquals(expected, subscriber.completion.get(10, TimeUnit.SECONDS));
+
+        RecordingSubscriber asyncSubscriber = new RecordingSubscriber(100, 1);
+        new LineDecoder(ChannelPublisher.ofAsynchronousFile(file, pool, executor), StandardCharsets.UTF_8)
+                .subscribe(asyncSubscriber);
+        assertEquals(expected, asyncSubscriber.completion.get(10, TimeUnit.SECONDS));
+
+        assertTrue(pool.getCreatedCount() <= 2);
+        assertEquals(0, pool.getLeasedCount());
+        executor.shutdown();
+    }
+
+    @Test
+    void givenLargeFile_whenChunksRequested_thenReadOnlyOnDemandInConstantMemory() throws Exception {
+
+        Path file = tempDir.resolve("large.bin");
+        byte[] block = new byte[1 << 20];
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < 16; i++) {
+                out.write(block);
+            }
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ObjectPool<ByteBuffer> pool = ChannelPublisher.newBufferPool(4, 8192, true);
+
+        AtomicLong bytes = new AtomicLong();
+        AtomicLong chunks = new AtomicLong();
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        List<Flow.Subscription> subscriptions = new ArrayList<>();
+        ChannelPublisher.ofFile(file, pool, executor).subscribe(new Flow.Subscriber<PooledObject<ByteBuffer>>() {
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+
+                subscriptions.add(subscription);
+                subscription.request(3);
+            }
+
+            @Override
+            public void onNext(PooledObject<ByteBuffer> chunk) {
+
+                try (chunk) {
+                    bytes.addAndGet(chunk.get().remaining());
+                    chunks.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completion.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completion.complete(null);
+            }
+        });
+
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(3, chunks.get());
+        assertFalse(completion.isDone());
+
+        subscriptions.get(0).request(Long.MAX_VALUE);
+        completion.get(10, TimeUnit.SECONDS);
+        log.info("Read {} bytes in {} chunks, created {} buffers", bytes.get(), chunks.get(), pool.getCreatedCount());
+        assertEquals(Files.size(file), bytes.get());
+        assertTrue(pool.getCreatedCount() <= 4);
+        executor.shutdown();
+    }
+
+    /**
+     * A non-positive request from another thread while chunks are being read is signalled by the read in progress,
+     * so onError never overlaps an onNext and nothing follows it
+     */
+    @Test
+    void givenReadsInProgress_whenNonPositiveRequestFromAnotherThread_thenSerialOnErrorAndBuffersReturned()
+            throws Exception {
+
+        Path file = tempDir.resolve("large.bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(new byte[1 << 22]);
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ObjectPool<ByteBuffer> pool = ChannelPublisher.newBufferPool(2, 512, false);
+
+        AtomicBoolean inSignal = new AtomicBoolean();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        AtomicBoolean signalledAfterError = new AtomicBoolean();
+        CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        ChannelPublisher.ofFile(file, pool, executor).subscribe(new Flow.Subscriber<PooledObject<ByteBuffer>>() {
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+
+                subscription.request(Long.MAX_VALUE);
+                subscribed.complete(subscription);
+            }
+
+            @Override
+            public void onNext(PooledObject<ByteBuffer> chunk) {
+
+                enter();
+                try (chunk) {
+                    Thread.yield();
+                } finally {
+                    inSignal.set(false);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+
+                enter();
+                completion.completeExceptionally(throwable);
+                inSignal.set(false);
+            }
+
+            @Override
+            public void onComplete() {
+                completion.complete(null);
+            }
+
+            private void enter() {
+
+                if (completion.isDone()) {
+                    signalledAfterError.set(true);
+                }
+                if (!inSignal.compareAndSet(false, true)) {
+                    overlapped.set(true);
+                }
+            }
+        });
+
+        TimeUnit.MILLISECONDS.sleep(20);
+        subscribed.get(10, TimeUnit.SECONDS).request(0);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> completion.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        TimeUnit.MILLISECONDS.sleep(20);
+        assertFalse(overlapped.get());
+        assertFalse(signalledAfterError.get());
+        assertEquals(0, pool.getLeasedCount());
+        executor.shutdown();
+    }
+
+    @Test
+    void givenLocalSocket_whenDecodeLinesInBatches_thenAllLines() throws Exception {
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            CompletableFuture<List<String>> written = CompletableFuture.supplyAsync(() -> {
+                try (SocketChannel client = server.accept(); OutputStream out = Channels.newOutputStream(client)) {
+                    return writeItems(out, 2000);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor);
+
+            ObjectPool<ByteBuffer> pool = ChannelPublisher.newBufferPool(2, 256, true);
+            BatchingSubscriber<String> subscriber = new BatchingSubscriber<>(64, line -> { });
+            List<String> received = new CopyOnWriteArrayList<>();
+            Pipeline.from(new LineDecoder(ChannelPublisher.ofSocket((InetSocketAddress) server.getLocalAddress(), pool, executor),
+                            StandardCharsets.UTF_8))
+                    .map(line -> {
+                        received.add(line);
+                        return line;
+                    })
+                    .subscribe(subscriber);
+
+            subscriber.getCompletion().get(10, TimeUnit.SECONDS);
+            assertEquals(written.get(), received);
+            assertTrue(pool.getCreatedCount() <= 2);
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,228 @@
+package com.yejianfengblue.java.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link PipelineMetrics}, {@link MeteredPublisher} and {@link MeteredSubscriber}
+ *
+ * @author yejianfengblue
+ */
+class PipelineMetricsTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Records what it receives, and requests {@code initialRequest} on subscribe,
+     * then {@code requestPerItem} in every onNext, like the consumers of {@code ReactiveStreamTest}
+     */
+    @RequiredArgsConstructor
+    private static class RecordingSubscriber implements Flow.Subscriber<Integer> {
+
+        private final long initialRequest;
+
+        private final long requestPerItem;
+
+        private final List<Integer> items = new CopyOnWriteArrayList<>();
+
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(Integer item) {
+
+            items.add(item);
+            if (requestPerItem > 0) {
+                subscription.request(requestPerItem);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(null);
+        }
+    }
+
+    private static void await(LongSupplier counter, long expected) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (counter.getAsLong() < expected && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        assertEquals(expected, counter.getAsLong());
+    }
+
+    private static Map<String, PipelineMetrics.StageSnapshot> byName(PipelineMetrics.Snapshot snapshot) {
+        return snapshot.getStages().stream().collect(Collectors.toMap(PipelineMetrics.StageSnapshot::getName, s -> s));
+    }
+
+    /**
+     * Consumer2 requests one by one and keeps up, Consumer3 requests only 3, so it is the one holding back the publisher,
+     * with no outstanding demand and a lag against Consumer2
+     */
+    @Test
+    void givenConsumersOfReactiveStreamTest_whenSnapshot_thenSlowestIsTheOneWhichStoppedRequesting() throws Exception {
+
+        int count = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>(executor, 256);
+        PipelineMetrics metrics = new PipelineMetrics();
+        Flow.Publisher<Integer> metered = metrics.meter("items", publisher);
+
+        RecordingSubscriber consumer2 = new RecordingSubscriber(1, 1);
+        RecordingSubscriber consumer3 = new RecordingSubscriber(3, 0);
+        metered.subscribe(consumer2);
+        metered.subscribe(consumer3);
+        await(() -> null == consumer3.subscription ? 0 : 1, 1);
+
+        for (int i = 0; i < count; i++) {
+            publisher.submit(i);
+        }
+        await(() -> consumer2.items.size(), count);
+        await(() -> consumer3.items.size(), 3);
+
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+        log.info("{}", snapshot);
+        Map<String, PipelineMetrics.StageSnapshot> stages = byName(snapshot);
+        PipelineMetrics.StageSnapshot fast = stages.get("items/RecordingSubscriber#1");
+        PipelineMetrics.StageSnapshot slow = stages.get("items/RecordingSubscriber#2");
+
+        assertEquals(MeteredSubscriber.State.ACTIVE, fast.getState());
+        assertEquals(count, fast.getDelivered());
+        assertEquals(count + 1, fast.getRequested());
+        assertEquals(1, fast.getOutstandingDemand());
+        assertEquals(0, fast.getLag());
+        assertTrue(fast.getItemsPerSecond() > 0);
+
+        assertEquals(3, slow.getDelivered());
+        assertEquals(0, slow.getOutstandingDemand());
+        assertEquals(count - 3, slow.getLag());
+        assertEquals(-1, slow.getBufferFill());
+        assertSame(slow, snapshot.getSlowest());
+
+        // nothing delivered since the previous snapshot
+        assertEquals(0, byName(metrics.snapshot()).get("items/RecordingSubscriber#1").getRecentItemsPerSecond());
+
+        publisher.close();
+        consumer2.completion.get(10, TimeUnit.SECONDS);
+        consumer3.subscription.cancel();
+        stages = byName(metrics.snapshot());
+        assertEquals(MeteredSubscriber.State.COMPLETED, stages.get("items/RecordingSubscriber#1").getState());
+        assertEquals(MeteredSubscriber.State.CANCELLED, stages.get("items/RecordingSubscriber#2").getState());
+        metrics.removeTerminated();
+        assertEquals(List.of(), metrics.snapshot().getStages());
+
+        executor.shutdown();
+    }
+
+    /**
+     * Items produced while the publisher is still registering the subscriber are never delivered to it,
+     * so they don't count in its lag
+     */
+    @Test
+    void givenItemsProducedDuringSubscribe_whenSnapshot_thenLagCountsOnlyItemsAfterOnSubscribe() {
+
+        AtomicLong produced = new AtomicLong(5);
+        Flow.Publisher<Integer> publisher = subscriber -> {
+            produced.addAndGet(3);  // submitted before the subscriber is registered
+            subscriber.onSubscribe(new Flow.Subscription() {
+
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        };
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.meter("late", publisher, produced::get).subscribe(new RecordingSubscriber(1, 0));
+
+        assertEquals(0, byName(metrics.snapshot()).get("late/RecordingSubscriber#1").getLag());
+        produced.addAndGet(2);
+        assertEquals(2, byName(metrics.snapshot()).get("late/RecordingSubscriber#1").getLag());
+    }
+
+    /**
+     * Behind a {@link BackpressureSubscriber}, a slow subscriber doesn't lag the ring, its buffer fill shows instead,
+     * and metering the subscriber behind the buffer shows how little it asks for
+     */
+    @Test
+    void givenRingBufferWithBackpressureSubscriber_whenSnapshot_thenLagFromProducedAndBufferFill() throws Exception {
+
+        int count = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        RingBufferPublisher<Integer> publisher = new RingBufferPublisher<>(executor, 256);
+        PipelineMetrics metrics = new PipelineMetrics();
+        Flow.Publisher<Integer> metered = metrics.meter("ring", publisher, publisher::getSubmittedCount);
+
+        RecordingSubscriber consumer2 = new RecordingSubscriber(1, 1);
+        RecordingSubscriber consumer3 = new RecordingSubscriber(5, 0);
+        BackpressureSubscriber<Integer> dropOldest = new BackpressureSubscriber<>(
+                metrics.meter("consumer3", consumer3), OverflowStrategy.DROP_OLDEST, 50);
+        metered.subscribe(consumer2);
+        metered.subscribe(dropOldest);
+        await(publisher::getNumberOfSubscribers, 2);
+
+        for (int i = 0; i < count; i++) {
+            publisher.submit(i);
+        }
+        await(() -> consumer2.items.size(), count);
+        await(dropOldest::getReceived, count);
+
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+        log.info("{}", snapshot);
+        Map<String, PipelineMetrics.StageSnapshot> stages = byName(snapshot);
+        PipelineMetrics.StageSnapshot ring2 = stages.get("ring/RecordingSubscriber#1");
+        PipelineMetrics.StageSnapshot ring3 = stages.get("ring/BackpressureSubscriber#2");
+        PipelineMetrics.StageSnapshot behindBuffer = stages.get("consumer3");
+
+        assertEquals(0, ring2.getLag());
+        assertEquals(-1, ring2.getBufferFill());
+        assertEquals(0, ring3.getLag());
+        assertEquals(Long.MAX_VALUE, ring3.getOutstandingDemand());
+        assertEquals(50, ring3.getBufferFill());
+
+        assertEquals(5, behindBuffer.getDelivered());
+        assertEquals(0, behindBuffer.getOutstandingDemand());
+        assertEquals(-1, behindBuffer.getLag());
+
+        publisher.close();
+        executor.shutdown();
+    }
+}
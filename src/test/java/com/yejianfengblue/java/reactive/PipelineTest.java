@@ -0,0 +1,281 @@
+package com.yejianfengblue.java.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link Pipeline}
+ *
+ * @author yejianfengblue
+ */
+class PipelineTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Records what it receives and on which thread, and requests {@code initialRequest} on subscribe,
+     * then {@code requestPerItem} in every onNext, like the consumers of {@code ReactiveStreamTest}
+     */
+    @RequiredArgsConstructor
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+
+        private final long initialRequest;
+
+        private final long requestPerItem;
+
+        private final List<T> items = new CopyOnWriteArrayList<>();
+
+        private final List<String> threads = new CopyOnWriteArrayList<>();
+
+        private final CompletableFuture<List<T>> completion = new CompletableFuture<>();
+
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(T item) {
+
+            items.add(item);
+            threads.add(Thread.currentThread().getName());
+            if (requestPerItem > 0) {
+                subscription.request(requestPerItem);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(items);
+        }
+
+        List<T> await() throws Exception {
+            return completion.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static List<Integer> range(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    void givenMapFilterMap_whenSubscribe_thenOneFusedSubscriberRunsTheChain() throws Exception {
+
+        List<Flow.Subscriber<?>> sourceSubscribers = new ArrayList<>();
+        Flow.Publisher<Integer> source = subscriber -> {
+            sourceSubscribers.add(subscriber);
+            Pipeline.fromIterable(range(0, 10)).subscribe(subscriber);
+        };
+
+        RecordingSubscriber<String> subscriber = new RecordingSubscriber<>(1, 1);  // like Consumer2
+        Pipeline.from(source)
+                .map(i -> i * 10)
+                .filter(i -> i % 20 == 0)
+                .map(i -> "Item" + i)
+                .subscribe(subscriber);
+
+        assertEquals(List.of("Item0", "Item20", "Item40", "Item60", "Item80"), subscriber.await());
+        assertEquals(1, sourceSubscribers.size());
+        assertInstanceOf(Pipeline.FusedSubscriber.class, sourceSubscribers.get(0));
+    }
+
+    @Test
+    void givenMapperThrows_whenSubscribe_thenItemsBeforeAndOnError() {
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE, 0);
+        Pipeline.fromIterable(range(0, 10))
+                .map(i -> 10 / (3 - i))
+                .subscribe(subscriber);
+
+        ExecutionException e = assertThrows(ExecutionException.class, subscriber::await);
+        assertInstanceOf(ArithmeticException.class, e.getCause());
+        assertEquals(List.of(3, 5, 10), subscriber.items);
+    }
+
+    @Test
+    void givenMapperReturnsNull_whenSubscribe_thenItemsBeforeAndOnError() {
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE, 0);
+        Pipeline.fromIterable(range(0, 10))
+                .map(i -> 3 == i ? null : i)
+                .subscribe(subscriber);
+
+        ExecutionException e = assertThrows(ExecutionException.class, subscriber::await);
+        assertInstanceOf(NullPointerException.class, e.getCause());
+        assertEquals(List.of(0, 1, 2), subscriber.items);
+    }
+
+    @Test
+    void givenBufferBySize_whenRequestOneByOne_thenFullListsAndShorterLast() throws Exception {
+
+        RecordingSubscriber<List<Integer>> subscriber = new RecordingSubscriber<>(1, 1);
+        Pipeline.fromIterable(range(0, 10)).buffer(3).subscribe(subscriber);
+
+        assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5), List.of(6, 7, 8), List.of(9)), subscriber.await());
+    }
+
+    @Test
+    void givenBufferByTime_whenFewItems_thenPartialListAfterTimespan() throws Exception {
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>();
+        RecordingSubscriber<List<Integer>> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE, 0);
+        Pipeline.from(publisher).buffer(100, Duration.ofMillis(50), scheduler).subscribe(subscriber);
+
+        for (int i = 0; i < 5; i++) {
+            publisher.submit(i);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subscriber.items.isEmpty() && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(List.of(List.of(0, 1, 2, 3, 4)), subscriber.items);
+
+        publisher.submit(5);
+        publisher.close();
+        List<List<Integer>> lists = subscriber.await();
+        assertEquals(range(0, 6), lists.stream().flatMap(List::stream).collect(Collectors.toList()));
+        scheduler.shutdown();
+    }
+
+    @Test
+    void givenWindow_whenEachWindowBuffered_thenItemsSplitBySize() throws Exception {
+
+        RecordingSubscriber<List<Integer>> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE, 0);
+        Pipeline.fromIterable(range(0, 7))
+                .window(3)
+                .flatMap(window -> window.buffer(100), 1)
+                .subscribe(subscriber);
+
+        assertEquals(List.of(List.of(0, 1, 2), List.of(3, 4, 5), List.of(6)), subscriber.await());
+    }
+
+    @Test
+    void givenWindowWithSubscriber_whenSecondSubscriber_thenRejectedWithoutTouchingTheFirst() throws Exception {
+
+        RecordingSubscriber<Pipeline<Integer>> windows = new RecordingSubscriber<>(1, 0);
+        Pipeline.fromIterable(range(0, 7)).window(3).subscribe(windows);
+        Pipeline<Integer> window = windows.items.get(0);
+
+        RecordingSubscriber<Integer> first = new RecordingSubscriber<>(0, 0);
+        window.subscribe(first);
+        RecordingSubscriber<Integer> second = new RecordingSubscriber<>(Long.MAX_VALUE, 0);
+        window.subscribe(second);
+
+        ExecutionException e = assertThrows(ExecutionException.class, second::await);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        second.subscription.cancel();
+        assertEquals(List.of(), first.items);
+
+        first.subscription.request(3);
+        assertEquals(List.of(0, 1, 2), first.await());
+    }
+
+    @Test
+    void givenFlatMap_whenInnerPublishersAsync_thenAtMostMaxConcurrencyActiveAndNothingLost() throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(5, 1);
+        Pipeline.fromIterable(range(0, 20))
+                .flatMap(i -> Pipeline.from((Flow.Publisher<Integer>) inner -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    Pipeline.fromIterable(List.of(i * 100, i * 100 + 1, i * 100 + 2))
+                            .observeOn(executor, 2)
+                            .subscribe(new Flow.Subscriber<Integer>() {
+
+                                @Override
+                                public void onSubscribe(Flow.Subscription subscription) {
+                                    inner.onSubscribe(subscription);
+                                }
+
+                                @Override
+                                public void onNext(Integer item) {
+                                    inner.onNext(item);
+                                }
+
+                                @Override
+                                public void onError(Throwable throwable) {
+                                    inner.onError(throwable);
+                                }
+
+                                @Override
+                                public void onComplete() {
+                                    active.decrementAndGet();
+                                    inner.onComplete();
+                                }
+                            });
+                }), 3)
+                .subscribe(subscriber);
+
+        List<Integer> items = subscriber.await();
+        log.info("Max active inner publishers {}", maxActive.get());
+        assertEquals(60, items.size());
+        assertEquals(IntStream.range(0, 20).boxed()
+                        .flatMap(i -> IntStream.range(i * 100, i * 100 + 3).boxed())
+                        .collect(Collectors.toSet()),
+                new HashSet<>(items));
+        assertTrue(maxActive.get() <= 3);
+        executor.shutdown();
+    }
+
+    @Test
+    void givenObserveOn_whenSubscribe_thenDeliveredOnExecutorInOrder() throws Exception {
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "observer"));
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(3, 0);  // like Consumer3
+        Pipeline.fromIterable(range(0, 100))
+                .observeOn(executor, 8)
+                .map(i -> i + 1)
+                .subscribe(subscriber);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subscriber.items.size() < 3 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertEquals(List.of(1, 2, 3), subscriber.items);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(range(1, 101), subscriber.await());
+        assertTrue(subscriber.threads.stream().allMatch("observer"::equals));
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,198 @@
+package com.yejianfengblue.java.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link RingBufferPublisher} and {@link BatchingSubscriber}
+ *
+ * @author yejianfengblue
+ */
+class RingBufferPublisherTest {
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Records what it receives, and requests {@code initialRequest} on subscribe,
+     * then {@code requestPerItem} in every onNext, like the consumers of {@code ReactiveStreamTest}
+     */
+    @RequiredArgsConstructor
+    private static class RecordingSubscriber implements Flow.Subscriber<Integer> {
+
+        private final long initialRequest;
+
+        private final long requestPerItem;
+
+        private final List<Integer> items = new CopyOnWriteArrayList<>();
+
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(Integer item) {
+
+            items.add(item);
+            if (requestPerItem > 0) {
+                subscription.request(requestPerItem);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(null);
+        }
+    }
+
+    /**
+     * Same as ReactiveStreamTest: Consumer1 never requests, Consumer2 requests 1 per item, Consumer3 requests 3 once
+     */
+    @Test
+    void givenConsumersOfReactiveStreamTest_whenSubmit10_thenEachGetsWhatItRequested() throws Exception {
+
+        RingBufferPublisher<Integer> publisher = new RingBufferPublisher<>();
+        RecordingSubscriber consumer1 = new RecordingSubscriber(0, 0);
+        RecordingSubscriber consumer2 = new RecordingSubscriber(1, 1);
+        RecordingSubscriber consumer3 = new RecordingSubscriber(3, 0);
+        publisher.subscribe(consumer1);
+        publisher.subscribe(consumer2);
+        publisher.subscribe(consumer3);
+
+        for (int i = 0; i < 10; i++) {
+            publisher.submit(i);
+        }
+        publisher.close();
+
+        consumer2.completion.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), consumer2.items);
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(List.of(), consumer1.items);
+        assertEquals(List.of(0, 1, 2), consumer3.items);
+        assertFalse(consumer3.completion.isDone());  // completes only after receiving the remaining items
+        consumer3.subscription.request(100);
+        consumer3.completion.get(5, TimeUnit.SECONDS);
+        assertEquals(10, consumer3.items.size());
+    }
+
+    /**
+     * A ring of 4 slots and a subscriber which requests 1 item every 10 ms, the producer must wait for it
+     */
+    @Test
+    void givenSlowSubscriberAndSmallRing_whenSubmitMore_thenProducerWaitsAndNothingIsLost() throws Exception {
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RingBufferPublisher<Integer> publisher = new RingBufferPublisher<>(executor, 3);
+        assertEquals(4, publisher.getCapacity());
+
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        BatchingSubscriber<Integer> subscriber = new BatchingSubscriber<>(1, 0, item -> {
+            received.add(item);
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        publisher.subscribe(subscriber);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            publisher.submit(i);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        publisher.close();
+        subscriber.getCompletion().get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        log.info("Submitting 20 items took {} ms", elapsedMillis);
+        assertTrue(elapsedMillis >= 100);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, received);
+    }
+
+    @Test
+    void givenBatchingSubscribers_whenSubmitMany_thenAllReceivedInOrder() throws Exception {
+
+        RingBufferPublisher<Integer> publisher = new RingBufferPublisher<>();
+        List<BatchingSubscriber<Integer>> subscribers = new ArrayList<>();
+        List<List<Integer>> received = new ArrayList<>();
+        for (int s = 0; s < 3; s++) {
+            List<Integer> items = new ArrayList<>();
+            received.add(items);
+            BatchingSubscriber<Integer> subscriber = new BatchingSubscriber<>(64, items::add);
+            subscribers.add(subscriber);
+            publisher.subscribe(subscriber);
+        }
+
+        for (int i = 0; i < 100000; i++) {
+            publisher.submit(i);
+        }
+        publisher.close();
+
+        for (int s = 0; s < 3; s++) {
+            subscribers.get(s).getCompletion().get(10, TimeUnit.SECONDS);
+            List<Integer> items = received.get(s);
+            assertEquals(100000, items.size());
+            for (int i = 0; i < items.size(); i++) {
+                assertEquals(i, items.get(i));
+            }
+        }
+        assertEquals(0, publisher.getNumberOfSubscribers());
+    }
+
+    @Test
+    void givenBadRequestOrCancel_whenSubmit_thenErrorOrNothing() throws Exception {
+
+        RingBufferPublisher<Integer> publisher = new RingBufferPublisher<>();
+        RecordingSubscriber badRequester = new RecordingSubscriber(0, 0);
+        RecordingSubscriber canceller = new RecordingSubscriber(Long.MAX_VALUE, 0);
+        publisher.subscribe(badRequester);
+        publisher.subscribe(canceller);
+
+        badRequester.subscription.request(0);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> badRequester.completion.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+
+        canceller.subscription.cancel();
+        publisher.submit(1);
+        publisher.closeExceptionally(new IllegalStateException("test"));
+        assertThrows(TimeoutException.class, () -> canceller.completion.get(100, TimeUnit.MILLISECONDS));
+        assertEquals(List.of(), canceller.items);
+        assertThrows(IllegalStateException.class, () -> publisher.submit(2));
+    }
+}
@@ -0,0 +1,110 @@
+package com.yejianfengblue.java.reflect;
+
+import lombok.Data;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test to {@link ClassMetadata} and {@link FieldMetadata}, the same questions as {@code ReflectionTest}
+ *
+ * @author yejianfengblue
+ */
+class ClassMetadataTest {
+
+    @Data
+    private static class Person {
+
+        public static String STATIC_FIELD = "STATIC_FIELD";
+
+        private String name;
+        private int age;
+    }
+
+    private static class Employee extends Person {
+
+        private final String name;
+
+        private Employee(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class IntegerComparator implements Comparator<Integer> {
+
+        @Override
+        public int compare(Integer o1, Integer o2) {
+            return 0;
+        }
+    }
+
+    @Test
+    void givenClass_whenOf_thenResolvedOnceAndShared() {
+
+        ClassMetadata metadata = ClassMetadata.of(Person.class);
+
+        assertSame(metadata, ClassMetadata.of(Person.class));
+        assertSame(metadata.getFields(), ClassMetadata.of(Person.class).getFields());
+        assertTrue(Modifier.isStatic(metadata.getModifiers()));
+        assertThrows(UnsupportedOperationException.class, () -> metadata.getFields().clear());
+    }
+
+    @Test
+    void givenSubclass_whenGetFields_thenInstanceFieldsOfSuperclassFirst() throws Throwable {
+
+        ClassMetadata metadata = ClassMetadata.of(Employee.class);
+
+        assertEquals(List.of("name", "age", "name"),
+                metadata.getFields().stream().map(FieldMetadata::getName).collect(Collectors.toList()));
+        FieldMetadata name = metadata.getField("name");
+        assertSame(Employee.class, name.getDeclaringClass());
+        assertTrue(Modifier.isFinal(name.getModifiers()));
+
+        Employee employee = new Employee("Apple");
+        employee.setAge(20);
+        assertEquals("Apple", name.get(employee));
+        assertEquals(20, metadata.getField("age").get(employee));
+
+        name.set(employee, "Banana");
+        metadata.getField("age").set(employee, 30);
+        metadata.getFields().get(0).set(employee, "Person");
+        assertEquals("Banana", employee.name);
+        assertEquals(30, employee.getAge());
+        assertEquals("Person", employee.getName());
+        assertEquals("Banana", (String) name.getGetter().invokeExact(employee));
+
+        assertNull(metadata.getConstructor());
+        assertEquals(new Person(), (Object) ClassMetadata.of(Person.class).getConstructor().invokeExact());
+    }
+
+    @Test
+    void givenGenericInterface_whenGetTypeArguments_thenResolved() {
+
+        ClassMetadata metadata = ClassMetadata.of(IntegerComparator.class);
+
+        assertEquals(List.of(Comparator.class), metadata.getInterfaces());
+        assertEquals(List.of(Integer.class), metadata.getTypeArguments(Comparator.class));
+        assertEquals(List.of(), metadata.getTypeArguments(Object.class));
+    }
+
+    @Test
+    void givenJdkClass_whenGetFields_thenNotAccessible() {
+
+        FieldMetadata size = ClassMetadata.of(ArrayList.class).getField("size");
+
+        assertFalse(size.isAccessible());
+        assertThrows(IllegalStateException.class, () -> size.get(new ArrayList<>()));
+        assertThrows(IllegalStateException.class, size::getSetter);
+    }
+}